@@ -138,6 +138,13 @@ public @interface Options {
    */
   String resultSets() default "";
 
+  /**
+   * Returns whether the insert, update or delete is queued and executed later in batches by a background thread.
+   *
+   * @return {@code true} if the statement is written behind; {@code false} if otherwise
+   */
+  boolean writeBehind() default false;
+
   /**
    * @return A database id that correspond this options
    * @since 3.5.5
@@ -99,6 +99,18 @@ public @interface SelectKey {
    */
   String databaseId() default "";
 
+  /**
+   * Returns the number of keys retrieved by one execution of the statement.
+   * <p>
+   * When greater than 1, the statement must be executed before and either returns that many rows, one key per row,
+   * or a single row holding the current value of a sequence that increments by the block size.
+   * The keys are handed out from memory until the block is used up.
+   * </p>
+   *
+   * @return the number of keys retrieved at once
+   */
+  int blockSize() default 1;
+
   /**
    * The container annotation for {@link SelectKey}.
    * @author Kazuki Shimizu
@@ -24,7 +24,9 @@ import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ParamNameResolver;
 import org.apache.ibatis.reflection.TypeParameterResolver;
+import org.apache.ibatis.session.ColumnarResult;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.Page;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
@@ -107,6 +109,12 @@ public class MapperMethod {
                     // 返回游标的情况
                 } else if (method.returnsCursor()) {
                     result = executeForCursor(sqlSession, args);
+                    // 返回分页结果的情况
+                } else if (method.returnsPage()) {
+                    result = executeForPage(sqlSession, args);
+                    // 按列返回结果的情况
+                } else if (method.returnsColumns()) {
+                    result = executeForColumns(sqlSession, args);
                 } else {
                     // 返回一个对象的情况
                     Object param = method.convertArgsToSqlCommandParam(args);
@@ -209,6 +217,18 @@ public class MapperMethod {
         return result;
     }
 
+    private <E> Page<E> executeForPage(SqlSession sqlSession, Object[] args) {
+        Object param = method.convertArgsToSqlCommandParam(args);
+        RowBounds rowBounds = method.hasRowBounds() ? method.extractRowBounds(args) : RowBounds.DEFAULT;
+        return sqlSession.selectPage(command.getName(), param, rowBounds);
+    }
+
+    private ColumnarResult executeForColumns(SqlSession sqlSession, Object[] args) {
+        Object param = method.convertArgsToSqlCommandParam(args);
+        RowBounds rowBounds = method.hasRowBounds() ? method.extractRowBounds(args) : RowBounds.DEFAULT;
+        return sqlSession.selectColumns(command.getName(), param, rowBounds);
+    }
+
     private <E> Object convertToDeclaredCollection(Configuration config, List<E> list) {
         Object collection = config.getObjectFactory().create(method.getReturnType());
         MetaObject metaObject = config.newMetaObject(collection);
@@ -353,6 +373,8 @@ public class MapperMethod {
         private final boolean returnsVoid;  // 返回类型是否为void
         private final boolean returnsCursor;    // 返回类型是否为cursor，当返回结果集很大的时候会用，防止内存占用过高
         private final boolean returnsOptional;  // 返回类型是否为Optional
+        private final boolean returnsPage;  // 返回类型是否为Page
+        private final boolean returnsColumns;  // 返回类型是否为ColumnarResult
         private final Class<?> returnType;  // 具体的返回类型
         private final String mapKey;    //如果返回值是map，该字段记录作为key的列名
 
@@ -387,6 +409,8 @@ public class MapperMethod {
             this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
             this.returnsCursor = Cursor.class.equals(this.returnType);
             this.returnsOptional = Optional.class.equals(this.returnType);
+            this.returnsPage = Page.class.equals(this.returnType);
+            this.returnsColumns = ColumnarResult.class.equals(this.returnType);
             this.mapKey = getMapKey(method);
             this.returnsMap = this.mapKey != null;
             this.rowBoundsIndex = getUniqueParamIndex(method, RowBounds.class);
@@ -445,6 +469,14 @@ public class MapperMethod {
             return returnsOptional;
         }
 
+        public boolean returnsPage() {
+            return returnsPage;
+        }
+
+        public boolean returnsColumns() {
+            return returnsColumns;
+        }
+
         private Integer getUniqueParamIndex(Method method, Class<?> paramType) {
             Integer index = null;
             final Class<?>[] argTypes = method.getParameterTypes();
@@ -35,6 +35,7 @@ import org.apache.ibatis.parsing.PropertyParser;
 import org.apache.ibatis.reflection.TypeParameterResolver;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.Page;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.JdbcType;
@@ -312,6 +313,7 @@ public class MapperAnnotationBuilder {
             boolean isSelect = sqlCommandType == SqlCommandType.SELECT;
             boolean flushCache = !isSelect;
             boolean useCache = isSelect;
+            boolean writeBehind = false;
             // 如果操作@Options注解，根据其指定配置信息
             if (options != null) {
                 if (FlushCachePolicy.TRUE.equals(options.flushCache())) {
@@ -326,6 +328,7 @@ public class MapperAnnotationBuilder {
                 if (options.resultSetType() != ResultSetType.DEFAULT) {
                     resultSetType = options.resultSetType();
                 }
+                writeBehind = !isSelect && options.writeBehind();
             }
 
             String resultMapId = null;
@@ -361,7 +364,8 @@ public class MapperAnnotationBuilder {
                     statementAnnotation.getDatabaseId(),
                     languageDriver,
                     // ResultSets
-                    options != null ? nullOrEmpty(options.resultSets()) : null);
+                    options != null ? nullOrEmpty(options.resultSets()) : null,
+                    writeBehind);
         });
     }
 
@@ -408,7 +412,7 @@ public class MapperAnnotationBuilder {
         } else if (resolvedReturnType instanceof ParameterizedType) {
             ParameterizedType parameterizedType = (ParameterizedType) resolvedReturnType;
             Class<?> rawType = (Class<?>) parameterizedType.getRawType();
-            if (Collection.class.isAssignableFrom(rawType) || Cursor.class.isAssignableFrom(rawType)) {
+            if (Collection.class.isAssignableFrom(rawType) || Cursor.class.isAssignableFrom(rawType) || Page.class.equals(rawType)) {
                 Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
                 if (actualTypeArguments != null && actualTypeArguments.length == 1) {
                     Type returnTypeParameter = actualTypeArguments[0];
@@ -592,7 +596,7 @@ public class MapperAnnotationBuilder {
         id = assistant.applyCurrentNamespace(id, false);
 
         MappedStatement keyStatement = configuration.getMappedStatement(id, false);
-        SelectKeyGenerator answer = new SelectKeyGenerator(keyStatement, executeBefore);
+        SelectKeyGenerator answer = new SelectKeyGenerator(keyStatement, executeBefore, selectKeyAnnotation.blockSize());
         configuration.addKeyGenerator(id, answer);
         return answer;
     }
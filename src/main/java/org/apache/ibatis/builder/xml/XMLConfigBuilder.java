@@ -18,8 +18,13 @@ package org.apache.ibatis.builder.xml;
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.datasource.DataSourceFactory;
+import org.apache.ibatis.datasource.replica.ReplicaLoadBalancer;
+import org.apache.ibatis.datasource.shard.ShardStrategy;
 import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.executor.dialect.Dialect;
 import org.apache.ibatis.executor.loader.ProxyFactory;
+import org.apache.ibatis.executor.writebehind.BackpressurePolicy;
+import org.apache.ibatis.executor.writebehind.WriteBehindFailureHandler;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
@@ -36,10 +41,13 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.session.*;
 import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.StreamingBlobTypeHandler;
 
 import javax.sql.DataSource;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -333,6 +341,14 @@ public class XMLConfigBuilder extends BaseBuilder {
         configuration.setDefaultExecutorType(ExecutorType.valueOf(props.getProperty("defaultExecutorType", "SIMPLE")));
         configuration.setDefaultStatementTimeout(integerValueOf(props.getProperty("defaultStatementTimeout"), null));
         configuration.setDefaultFetchSize(integerValueOf(props.getProperty("defaultFetchSize"), null));
+        configuration.setAdaptiveFetchSizeEnabled(booleanValueOf(props.getProperty("adaptiveFetchSizeEnabled"), false));
+        configuration.setMaxAdaptiveFetchSize(integerValueOf(props.getProperty("maxAdaptiveFetchSize"), 1000));
+        configuration.setCancelQueriesOnInterrupt(booleanValueOf(props.getProperty("cancelQueriesOnInterrupt"), false));
+        configuration.setWriteBehindQueueCapacity(integerValueOf(props.getProperty("writeBehindQueueCapacity"), 10000));
+        configuration.setWriteBehindBatchSize(integerValueOf(props.getProperty("writeBehindBatchSize"), 500));
+        configuration.setWriteBehindFlushInterval(integerValueOf(props.getProperty("writeBehindFlushInterval"), 100));
+        configuration.setWriteBehindBackpressure(BackpressurePolicy.valueOf(props.getProperty("writeBehindBackpressure", "BLOCK")));
+        configuration.setWriteBehindFailureHandler((WriteBehindFailureHandler) createInstance(props.getProperty("writeBehindFailureHandler")));
         configuration.setDefaultResultSetType(resolveResultSetType(props.getProperty("defaultResultSetType")));
         configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
         configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
@@ -348,6 +364,25 @@ public class XMLConfigBuilder extends BaseBuilder {
         configuration.setLogPrefix(props.getProperty("logPrefix"));
         configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
         configuration.setShrinkWhitespacesInSql(booleanValueOf(props.getProperty("shrinkWhitespacesInSql"), false));
+        configuration.setQueryCoalescingEnabled(booleanValueOf(props.getProperty("queryCoalescingEnabled"), false));
+        configuration.setRowBoundsPushdownEnabled(booleanValueOf(props.getProperty("rowBoundsPushdownEnabled"), false));
+        configuration.setConcurrentPageCountEnabled(booleanValueOf(props.getProperty("concurrentPageCountEnabled"), false));
+        configuration.setQueryTaskThreads(integerValueOf(props.getProperty("queryTaskThreads"), 16));
+        configuration.setGroupCommitEnabled(booleanValueOf(props.getProperty("groupCommitEnabled"), false));
+        configuration.setGroupCommitWindow(integerValueOf(props.getProperty("groupCommitWindow"), 5));
+        configuration.setGroupCommitMaxBatchSize(integerValueOf(props.getProperty("groupCommitMaxBatchSize"), 100));
+        configuration.setCompiledRowMappersEnabled(booleanValueOf(props.getProperty("compiledRowMappersEnabled"), false));
+        configuration.setCompactRowMapsEnabled(booleanValueOf(props.getProperty("compactRowMapsEnabled"), false));
+        configuration.setPipelinedMappingEnabled(booleanValueOf(props.getProperty("pipelinedMappingEnabled"), false));
+        configuration.setPipelinedMappingWorkers(integerValueOf(props.getProperty("pipelinedMappingWorkers"), 2));
+        configuration.setPipelinedMappingBatchSize(integerValueOf(props.getProperty("pipelinedMappingBatchSize"), 256));
+        configuration.setLobSpillThreshold(integerValueOf(props.getProperty("lobSpillThreshold"), StreamingBlobTypeHandler.DEFAULT_SPILL_THRESHOLD));
+        configuration.setLazyLobReadingEnabled(booleanValueOf(props.getProperty("lazyLobReadingEnabled"), false));
+        configuration.setReplicaLoadBalancer((ReplicaLoadBalancer) createInstance(props.getProperty("replicaLoadBalancer")));
+        configuration.setReplicaRetryInterval(integerValueOf(props.getProperty("replicaRetryInterval"), 30000));
+        configuration.setShardStrategy((ShardStrategy) createInstance(props.getProperty("shardStrategy")));
+        configuration.setShardKeyProperty(props.getProperty("shardKeyProperty"));
+        configuration.setDialect((Dialect) createInstance(props.getProperty("dialect")));
         configuration.setDefaultSqlProviderType(resolveClass(props.getProperty("defaultSqlProviderType")));
     }
 
@@ -371,10 +406,22 @@ public class XMLConfigBuilder extends BaseBuilder {
                     TransactionFactory txFactory = transactionManagerElement(child.evalNode("transactionManager"));
                     DataSourceFactory dsFactory = dataSourceElement(child.evalNode("dataSource"));
                     DataSource dataSource = dsFactory.getDataSource();
+                    // 读写分离使用的只读副本
+                    List<DataSource> replicaDataSources = new ArrayList<>();
+                    for (XNode replicaNode : child.evalNodes("replicaDataSource")) {
+                        replicaDataSources.add(dataSourceElement(replicaNode).getDataSource());
+                    }
+                    // 分库时其余的分片，dataSource是第一个分片
+                    List<DataSource> shardDataSources = new ArrayList<>();
+                    for (XNode shardNode : child.evalNodes("shardDataSource")) {
+                        shardDataSources.add(dataSourceElement(shardNode).getDataSource());
+                    }
                     // 创建Environment对象，并关联创建好的TransactionFactory和DataSource
                     Environment.Builder environmentBuilder = new Environment.Builder(id)
                             .transactionFactory(txFactory)
-                            .dataSource(dataSource);
+                            .dataSource(dataSource)
+                            .replicaDataSources(replicaDataSources)
+                            .shardDataSources(shardDataSources);
                     // 将environment对象记录到Configuration对象中
                     configuration.setEnvironment(environmentBuilder.build());
                 }
@@ -72,6 +72,8 @@ public class XMLStatementBuilder extends BaseBuilder {
         boolean flushCache = context.getBooleanAttribute("flushCache", !isSelect);
         boolean useCache = context.getBooleanAttribute("useCache", isSelect);
         boolean resultOrdered = context.getBooleanAttribute("resultOrdered", false);
+        // 写操作是否交给后台线程异步批量执行
+        boolean writeBehind = !isSelect && context.getBooleanAttribute("writeBehind", false);
 
         // Include Fragments before parsing
         // 先处理其中的include标签
@@ -128,7 +130,7 @@ public class XMLStatementBuilder extends BaseBuilder {
         builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType,
                 fetchSize, timeout, parameterMap, parameterTypeClass, resultMap, resultTypeClass,
                 resultSetTypeEnum, flushCache, useCache, resultOrdered,
-                keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+                keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets, writeBehind);
     }
 
     /**
@@ -161,6 +163,7 @@ public class XMLStatementBuilder extends BaseBuilder {
         String keyProperty = nodeToHandle.getStringAttribute("keyProperty");
         String keyColumn = nodeToHandle.getStringAttribute("keyColumn");
         boolean executeBefore = "BEFORE".equals(nodeToHandle.getStringAttribute("order", "AFTER"));
+        int blockSize = nodeToHandle.getIntAttribute("blockSize", 1);
 
         // defaults
         boolean useCache = false;
@@ -184,7 +187,7 @@ public class XMLStatementBuilder extends BaseBuilder {
         id = builderAssistant.applyCurrentNamespace(id, false);
 
         MappedStatement keyStatement = configuration.getMappedStatement(id, false);
-        configuration.addKeyGenerator(id, new SelectKeyGenerator(keyStatement, executeBefore));
+        configuration.addKeyGenerator(id, new SelectKeyGenerator(keyStatement, executeBefore, blockSize));
     }
 
     private void removeSelectKeyNodes(List<XNode> selectKeyNodes) {
@@ -143,6 +143,8 @@ public class DefaultCursor<T> implements Cursor<T> {
             // ignore
         } finally {
             status = CursorStatus.CLOSED;
+            // 读完或提前关闭时都取消流水线中还在映射的批次，并记录已经读取的行数
+            resultSetHandler.closeCursor();
         }
     }
 
@@ -0,0 +1,34 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.replica;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * 从可用的副本中选择一个的负载均衡策略
+ *
+ * @see ReplicaSet
+ */
+public interface ReplicaLoadBalancer {
+
+    /**
+     * @param replicas 当前可用的副本，不为空
+     * @return 选中的副本
+     */
+    DataSource choose(List<DataSource> replicas);
+
+}
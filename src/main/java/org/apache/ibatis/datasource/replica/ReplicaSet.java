@@ -0,0 +1,80 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.replica;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一组只读副本数据源及其健康状态，由同一个Configuration下的所有会话共享。
+ * 连接失败的副本会被摘除retryInterval毫秒，之后重新参与选择；所有副本都被摘除时不再选择副本。
+ */
+public class ReplicaSet {
+
+    private final List<DataSource> replicas;
+    private final ReplicaLoadBalancer loadBalancer;
+    private final long retryIntervalNanos;
+    // 被摘除的副本及其恢复时间
+    private final Map<DataSource, Long> ejectedUntil = new ConcurrentHashMap<>();
+
+    public ReplicaSet(List<DataSource> replicas, ReplicaLoadBalancer loadBalancer, long retryIntervalMillis) {
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.loadBalancer = loadBalancer;
+        this.retryIntervalNanos = TimeUnit.MILLISECONDS.toNanos(retryIntervalMillis);
+    }
+
+    /**
+     * @return 选中的副本，没有可用的副本时返回null
+     */
+    public DataSource choose() {
+        List<DataSource> available = new ArrayList<>(replicas.size());
+        for (DataSource replica : replicas) {
+            if (isAvailable(replica)) {
+                available.add(replica);
+            }
+        }
+        return available.isEmpty() ? null : loadBalancer.choose(available);
+    }
+
+    public boolean isAvailable(DataSource replica) {
+        Long until = ejectedUntil.get(replica);
+        if (until == null) {
+            return true;
+        }
+        if (System.nanoTime() - until >= 0) {
+            ejectedUntil.remove(replica, until);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 摘除一个连接失败的副本
+     */
+    public void eject(DataSource replica) {
+        ejectedUntil.put(replica, System.nanoTime() + retryIntervalNanos);
+    }
+
+    public List<DataSource> getReplicas() {
+        return replicas;
+    }
+
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.shard;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * 默认的分片路由策略：按shardKeyProperty配置的参数属性取模。
+ * 整数类型的分片键直接取模，其他类型按hashCode取模。
+ * 参数中没有这个属性（包括参数是简单类型、没有使用@Param命名的情况）或者分片键为null时，语句在所有分片上执行。
+ */
+public class ModuloShardStrategy implements ShardStrategy {
+
+    @Override
+    public int getShard(MappedStatement ms, Object parameterObject, int shardCount) {
+        Object shardKey = getShardKey(ms.getConfiguration(), parameterObject);
+        if (shardKey == null) {
+            return ALL_SHARDS;
+        }
+        if (shardKey instanceof Long || shardKey instanceof Integer || shardKey instanceof Short || shardKey instanceof Byte) {
+            return (int) Math.floorMod(((Number) shardKey).longValue(), (long) shardCount);
+        }
+        return Math.floorMod(shardKey.hashCode(), shardCount);
+    }
+
+    private Object getShardKey(Configuration configuration, Object parameterObject) {
+        String shardKeyProperty = configuration.getShardKeyProperty();
+        if (parameterObject == null || shardKeyProperty == null
+                || configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+            return null;
+        }
+        MetaObject metaObject = configuration.newMetaObject(parameterObject);
+        return metaObject.hasGetter(shardKeyProperty) ? metaObject.getValue(shardKeyProperty) : null;
+    }
+
+}
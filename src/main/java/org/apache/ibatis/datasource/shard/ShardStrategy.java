@@ -0,0 +1,40 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.shard;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * 分片路由策略，根据语句的参数决定在哪个分片上执行
+ *
+ * @see org.apache.ibatis.executor.ShardingExecutor
+ */
+public interface ShardStrategy {
+
+    /**
+     * 需要在所有分片上执行
+     */
+    int ALL_SHARDS = -1;
+
+    /**
+     * @param ms              要执行的语句
+     * @param parameterObject 语句的参数
+     * @param shardCount      分片数量，分片按environment中的配置顺序编号，dataSource是第0个
+     * @return 分片编号，或者{@link #ALL_SHARDS}
+     */
+    int getShard(MappedStatement ms, Object parameterObject, int shardCount);
+
+}
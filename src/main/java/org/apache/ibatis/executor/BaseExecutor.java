@@ -26,6 +26,7 @@ import org.apache.ibatis.mapping.*;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetRowBounds;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -139,6 +140,14 @@ public abstract class BaseExecutor implements Executor {
         return doFlushStatements(isRollBack);
     }
 
+    @Override
+    public void flushStatements(BatchResultListener listener) throws SQLException {
+        if (closed) {
+            throw new ExecutorException("Executor was closed.");
+        }
+        doFlushStatements(listener);
+    }
+
     /**
      * 数据查询操作
      * 可以看到在执行查询操作之前，会使用boundSql对象创建缓存key
@@ -254,6 +263,13 @@ public abstract class BaseExecutor implements Executor {
         cacheKey.update(ms.getId());
         cacheKey.update(rowBounds.getOffset());
         cacheKey.update(rowBounds.getLimit());
+        if (rowBounds instanceof KeysetRowBounds) {
+            // 键集分页的键值不在原SQL的参数中
+            KeysetRowBounds keyset = (KeysetRowBounds) rowBounds;
+            cacheKey.update(keyset.getColumn());
+            cacheKey.update(keyset.getLastKey());
+            cacheKey.update(keyset.isDescending());
+        }
         cacheKey.update(boundSql.getSql());
         List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
         TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
@@ -325,6 +341,15 @@ public abstract class BaseExecutor implements Executor {
 
     protected abstract List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException;
 
+    /**
+     * 流式执行批处理，默认收集全部结果后再依次通知，支持批处理的子类可以覆盖
+     */
+    protected void doFlushStatements(BatchResultListener listener) throws SQLException {
+        for (BatchResult batchResult : doFlushStatements(false)) {
+            listener.onBatchFlushed(batchResult);
+        }
+    }
+
     protected abstract <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
             throws SQLException;
 
@@ -19,6 +19,7 @@ import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.statement.StatementCanceller;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -120,13 +121,29 @@ public class BatchExecutor extends BaseExecutor {
 
     @Override
     public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
+        // 如果指定了要回滚事务，则直接返回空集合，忽略statementList集合中记录的SQL语句
+        if (isRollback) {
+            clearStatements();
+            return Collections.emptyList();
+        }
+        return executeBatches(null);
+    }
+
+    @Override
+    protected void doFlushStatements(BatchResultListener listener) throws SQLException {
+        executeBatches(listener);
+    }
+
+    /**
+     * 依次执行记录的批处理
+     *
+     * @param listener 为空时收集结果后返回；否则每个批处理执行完立即通知监听器，然后释放它的实参
+     * @return 收集的结果，流式处理时为空集合
+     */
+    private List<BatchResult> executeBatches(BatchResultListener listener) throws SQLException {
         try {
             // 用于储存批处理的结果
             List<BatchResult> results = new ArrayList<>();
-            // 如果指定了要回滚事务，则直接返回空集合，忽略statementList集合中记录的SQL语句
-            if (isRollback) {
-                return Collections.emptyList();
-            }
             // 遍历statementList集合
             for (int i = 0, n = statementList.size(); i < n; i++) {
                 Statement stmt = statementList.get(i);
@@ -135,7 +152,9 @@ public class BatchExecutor extends BaseExecutor {
                 try {
                     // 调用statement.executeBatch()执行其中记录的sql语句，并使用返回的int数组更新BatchResult的updateCounts属性
                     // 其中每个元素都表示一条SQL语句影响的记录条数
-                    batchResult.setUpdateCounts(stmt.executeBatch());
+                    // 执行期间可以被CancellationToken或线程中断取消
+                    batchResult.setUpdateCounts(
+                            StatementCanceller.execute(stmt, configuration.isCancelQueriesOnInterrupt(), stmt::executeBatch));
                     MappedStatement ms = batchResult.getMappedStatement();
                     List<Object> parameterObjects = batchResult.getParameterObjects();
                     // 获取keyGenerator
@@ -163,19 +182,34 @@ public class BatchExecutor extends BaseExecutor {
                                 .append(i)
                                 .append(" prior sub executor(s) completed successfully, but will be rolled back.");
                     }
-                    throw new BatchExecutorException(message.toString(), e, results, batchResult);
+                    BatchExecutorException exception = new BatchExecutorException(message.toString(), e, results, batchResult);
+                    if (listener != null) {
+                        listener.onBatchFailed(exception);
+                    }
+                    throw exception;
+                }
+                if (listener == null) {
+                    results.add(batchResult);
+                } else {
+                    listener.onBatchFlushed(batchResult);
+                    // 已执行的批处理不再持有实参，执行器也不再引用它
+                    batchResult.releaseParameterObjects();
+                    batchResultList.set(i, null);
                 }
-                results.add(batchResult);
             }
             return results;
         } finally {
-            for (Statement stmt : statementList) {
-                closeStatement(stmt);
-            }
-            currentSql = null;
-            statementList.clear();
-            batchResultList.clear();
+            clearStatements();
+        }
+    }
+
+    private void clearStatements() {
+        for (Statement stmt : statementList) {
+            closeStatement(stmt);
         }
+        currentSql = null;
+        statementList.clear();
+        batchResultList.clear();
     }
 
 }
@@ -18,6 +18,7 @@ package org.apache.ibatis.executor;
 import org.apache.ibatis.mapping.MappedStatement;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -28,7 +29,7 @@ public class BatchResult {
 
     private final MappedStatement mappedStatement;
     private final String sql;
-    private final List<Object> parameterObjects;
+    private List<Object> parameterObjects;
 
     // 记录关联statement对象执行批处理的结果
     private int[] updateCounts;
@@ -74,4 +75,11 @@ public class BatchResult {
         this.parameterObjects.add(parameterObject);
     }
 
+    /**
+     * 释放记录的实参，只保留更新行数，流式处理批处理结果时使用
+     */
+    public void releaseParameterObjects() {
+        this.parameterObjects = Collections.emptyList();
+    }
+
 }
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * 流式接收批处理结果的监听器。
+ * 每执行完一个批处理（一个Statement）通知一次，回调返回后BatchResult释放记录的实参，执行器也不再持有它，
+ * 所以大批量写入时，已执行的批处理不会继续占用内存。
+ *
+ * @see org.apache.ibatis.session.SqlSession#flushStatements(BatchResultListener)
+ */
+public interface BatchResultListener {
+
+    /**
+     * 一个批处理执行成功，生成的主键已经设置到实参中
+     *
+     * @param batchResult 批处理的结果，回调返回后其实参列表会被清空
+     */
+    void onBatchFlushed(BatchResult batchResult);
+
+    /**
+     * 一个批处理执行失败，之后的批处理不再执行，异常仍会抛给flushStatements的调用方
+     *
+     * @param exception 失败的批处理，之前成功的批处理已经通知过，不再包含在异常中
+     */
+    default void onBatchFailed(BatchExecutorException exception) {
+    }
+
+}
@@ -148,6 +148,11 @@ public class CachingExecutor implements Executor {
         return delegate.flushStatements();
     }
 
+    @Override
+    public void flushStatements(BatchResultListener listener) throws SQLException {
+        delegate.flushStatements(listener);
+    }
+
     @Override
     public void commit(boolean required) throws SQLException {
         delegate.commit(required);
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 合并并发相同查询的装饰器，通过queryCoalescingEnabled配置开启。
+ * 不同SqlSession同时执行同一个select（MappedStatement、参数、分页都相同）时，只有一个会访问数据库，
+ * 其余的等待并得到结果的深拷贝（通过序列化复制，结果不能序列化时自己执行查询），会话之间不共享结果对象。
+ * <p>
+ * 以下查询不会被合并：带ResultHandler的查询、CALLABLE语句、嵌套查询、selectKey语句（每次都要取得新的键值）、
+ * SELECT ... FOR UPDATE等加锁的查询（需要在自己的连接上取得锁）、flushCache或useCache=false的语句（它们要求每次都查询数据库），
+ * 以及已经开始的事务中的查询：非自动提交的会话执行过语句后，查询需要看到自己的修改和事务的一致视图，
+ * 其他连接上的结果来自另一个快照。自动提交的会话以及还没有执行过语句的事务中的查询可以合并。
+ */
+public class CoalescingExecutor implements Executor {
+
+    // 被装饰的实际执行器
+    private final Executor delegate;
+    // 所有会话共享的执行中查询登记表
+    private final QueryCoalescer queryCoalescer;
+    // 当前正在执行的查询层数，大于0时说明是嵌套查询
+    private int queryStack;
+    private final boolean autoCommit;
+    // 非自动提交时，当前事务是否已经执行过语句
+    private boolean transactionStarted;
+
+    public CoalescingExecutor(Executor delegate, QueryCoalescer queryCoalescer, boolean autoCommit) {
+        this.delegate = delegate;
+        this.queryCoalescer = queryCoalescer;
+        this.autoCommit = autoCommit;
+        delegate.setExecutorWrapper(this);
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return delegate.getTransaction();
+    }
+
+    @Override
+    public void close(boolean forceRollback) {
+        delegate.close(forceRollback);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameterObject) throws SQLException {
+        transactionStarted = true;
+        return delegate.update(ms, parameterObject);
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        transactionStarted = true;
+        return delegate.queryCursor(ms, parameter, rowBounds);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+        BoundSql boundSql = ms.getBoundSql(parameterObject);
+        CacheKey key = createCacheKey(ms, parameterObject, rowBounds, boundSql);
+        return query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql)
+            throws SQLException {
+        final boolean coalescible = isCoalescible(ms, resultHandler, boundSql);
+        transactionStarted = true;
+        if (!coalescible) {
+            return doQuery(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+        }
+        return queryCoalescer.coalesce(key, () -> doQuery(ms, parameterObject, rowBounds, resultHandler, key, boundSql));
+    }
+
+    private <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql)
+            throws SQLException {
+        queryStack++;
+        try {
+            return delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+        } finally {
+            queryStack--;
+        }
+    }
+
+    /**
+     * 嵌套查询在外层查询的结果处理过程中执行，如果等待其他会话，两个会话可能互相等待，所以只合并最外层的查询
+     */
+    private boolean isCoalescible(MappedStatement ms, ResultHandler resultHandler, BoundSql boundSql) {
+        return queryStack == 0
+                && (autoCommit || !transactionStarted)
+                && resultHandler == null
+                && ms.getSqlCommandType() == SqlCommandType.SELECT
+                && ms.getStatementType() != StatementType.CALLABLE
+                && !ms.getId().endsWith(SelectKeyGenerator.SELECT_KEY_SUFFIX)
+                && !ms.isFlushCacheRequired()
+                && ms.isUseCache()
+                && !ReadWriteRoutingExecutor.isLockingRead(boundSql);
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() throws SQLException {
+        return delegate.flushStatements();
+    }
+
+    @Override
+    public void flushStatements(BatchResultListener listener) throws SQLException {
+        delegate.flushStatements(listener);
+    }
+
+    @Override
+    public void commit(boolean required) throws SQLException {
+        delegate.commit(required);
+        transactionStarted = false;
+    }
+
+    @Override
+    public void rollback(boolean required) throws SQLException {
+        try {
+            delegate.rollback(required);
+        } finally {
+            transactionStarted = false;
+        }
+    }
+
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+        return delegate.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+    }
+
+    @Override
+    public boolean isCached(MappedStatement ms, CacheKey key) {
+        return delegate.isCached(ms, key);
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+        delegate.deferLoad(ms, resultObject, property, key, targetType);
+    }
+
+    @Override
+    public void clearLocalCache() {
+        delegate.clearLocalCache();
+    }
+
+    @Override
+    public void setExecutorWrapper(Executor executor) {
+        delegate.setExecutorWrapper(executor);
+    }
+
+}
@@ -60,6 +60,17 @@ public interface Executor {
      */
     List<BatchResult> flushStatements() throws SQLException;
 
+    /**
+     * 执行批处理，把每个批处理的结果依次交给监听器，而不是收集后一起返回
+     *
+     * @param listener 批处理结果的监听器
+     */
+    default void flushStatements(BatchResultListener listener) throws SQLException {
+        for (BatchResult batchResult : flushStatements()) {
+            listener.onBatchFlushed(batchResult);
+        }
+    }
+
     /**
      * 提交事务
      */
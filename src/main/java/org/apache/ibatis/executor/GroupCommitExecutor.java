@@ -0,0 +1,150 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 组提交的装饰器，通过groupCommitEnabled配置开启，只用于自动提交的SIMPLE和REUSE会话。
+ * 这类会话中每条写语句本来就是一个事务，装饰器把它们交给{@link GroupCommitter}，
+ * 与其他线程同时提交的写语句合并为一个批处理和一个事务执行，调用方等待执行完成后得到自己的更新行数。
+ * <p>
+ * 以下语句不参与组提交：CALLABLE语句，以及使用selectKey的语句（查询主键会打断批处理）。
+ */
+public class GroupCommitExecutor implements Executor {
+
+    // 被装饰的实际执行器
+    private final Executor delegate;
+    // 所有会话共享的组提交登记表
+    private final GroupCommitter groupCommitter;
+
+    public GroupCommitExecutor(Executor delegate, GroupCommitter groupCommitter) {
+        this.delegate = delegate;
+        this.groupCommitter = groupCommitter;
+        delegate.setExecutorWrapper(this);
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return delegate.getTransaction();
+    }
+
+    @Override
+    public void close(boolean forceRollback) {
+        delegate.close(forceRollback);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameterObject) throws SQLException {
+        if (!isGroupable(ms)) {
+            return delegate.update(ms, parameterObject);
+        }
+        if (delegate.isClosed()) {
+            throw new ExecutorException("Executor was closed.");
+        }
+        // 与同步的update一样清空一级缓存
+        delegate.clearLocalCache();
+        // 读写分离时，写之后的查询不能再读可能落后的副本
+        if (delegate instanceof ReadWriteRoutingExecutor) {
+            ((ReadWriteRoutingExecutor) delegate).markDirty();
+        }
+        return groupCommitter.submit(ms, parameterObject);
+    }
+
+    private boolean isGroupable(MappedStatement ms) {
+        return ms.getStatementType() != StatementType.CALLABLE
+                && !(ms.getKeyGenerator() instanceof SelectKeyGenerator);
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        return delegate.queryCursor(ms, parameter, rowBounds);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+        return delegate.query(ms, parameterObject, rowBounds, resultHandler);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql)
+            throws SQLException {
+        return delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() throws SQLException {
+        return delegate.flushStatements();
+    }
+
+    @Override
+    public void flushStatements(BatchResultListener listener) throws SQLException {
+        delegate.flushStatements(listener);
+    }
+
+    @Override
+    public void commit(boolean required) throws SQLException {
+        delegate.commit(required);
+    }
+
+    @Override
+    public void rollback(boolean required) throws SQLException {
+        delegate.rollback(required);
+    }
+
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+        return delegate.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+    }
+
+    @Override
+    public boolean isCached(MappedStatement ms, CacheKey key) {
+        return delegate.isCached(ms, key);
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+        delegate.deferLoad(ms, resultObject, property, key, targetType);
+    }
+
+    @Override
+    public void clearLocalCache() {
+        delegate.clearLocalCache();
+    }
+
+    @Override
+    public void setExecutorWrapper(Executor executor) {
+        delegate.setExecutorWrapper(executor);
+    }
+
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 组提交登记表，由同一个Configuration下的所有GroupCommitExecutor共享。
+ * 第一个到达的写操作成为leader，它等待groupCommitWindow毫秒（或者凑满groupCommitMaxBatchSize条），
+ * 然后把这段时间内其他线程提交的写操作一起以JDBC批处理在同一个事务中执行，每个调用方得到自己的更新行数。
+ * <p>
+ * 批处理在提交之前失败时整批回滚，再逐条单独执行，所以一条写操作的失败不会影响同组的其他调用方。
+ * 提交本身失败时无法知道事务是否已经生效，逐条重试可能把写操作执行两次，所以同组的所有调用方都得到这个异常。
+ *
+ * @see GroupCommitExecutor
+ */
+public class GroupCommitter {
+
+    private final Configuration configuration;
+    private final Object lock = new Object();
+    // 正在收集写操作的组，leader关闭它之后其他线程会开始新的组
+    private Group openGroup;
+
+    public GroupCommitter(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * 提交一次写操作，等待它所在的组执行完成
+     *
+     * @param ms        写语句
+     * @param parameter 参数
+     * @return 这次写操作的更新行数
+     * @throws SQLException 这次写操作单独执行时的异常
+     */
+    public int submit(MappedStatement ms, Object parameter) throws SQLException {
+        final Request request = new Request(ms, parameter);
+        final Group group;
+        final boolean leader;
+        synchronized (lock) {
+            leader = openGroup == null;
+            if (leader) {
+                openGroup = new Group();
+            }
+            group = openGroup;
+            group.requests.add(request);
+            if (group.requests.size() >= configuration.getGroupCommitMaxBatchSize()) {
+                // 组已满，唤醒leader立即执行
+                openGroup = null;
+                lock.notifyAll();
+            }
+        }
+        if (leader) {
+            awaitGroup(group);
+            execute(group.requests);
+        }
+        return request.await();
+    }
+
+    private void awaitGroup(Group group) {
+        synchronized (lock) {
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(configuration.getGroupCommitWindow());
+            try {
+                long remaining;
+                while (openGroup == group && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+            } catch (InterruptedException e) {
+                // 已经加入的写操作仍然需要执行，恢复中断状态后继续
+                Thread.currentThread().interrupt();
+            } finally {
+                if (openGroup == group) {
+                    openGroup = null;
+                }
+            }
+        }
+    }
+
+    private void execute(List<Request> requests) {
+        try {
+            if (requests.size() == 1 || !executeBatch(requests)) {
+                for (Request request : requests) {
+                    executeAlone(request);
+                }
+            }
+        } finally {
+            // 不让任何调用方一直等待
+            for (Request request : requests) {
+                request.result.completeExceptionally(new ExecutorException("Group commit did not execute the statement."));
+            }
+        }
+    }
+
+    /**
+     * @return 所有写操作是否已经有了结果；批处理在提交之前失败时已经回滚，返回false，由调用方逐条执行
+     */
+    private boolean executeBatch(List<Request> requests) {
+        final int[] updateCounts;
+        try {
+            final Executor executor = new BatchExecutor(configuration, newTransaction());
+            boolean success = false;
+            try {
+                for (Request request : requests) {
+                    executor.update(request.ms, request.parameter);
+                }
+                updateCounts = toUpdateCounts(executor.flushStatements(), requests.size());
+                if (!commit(executor, requests)) {
+                    return true;
+                }
+                success = true;
+            } finally {
+                executor.close(!success);
+            }
+        } catch (SQLException | RuntimeException e) {
+            return false;
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            requests.get(i).result.complete(updateCounts[i]);
+        }
+        return true;
+    }
+
+    /**
+     * @return 是否提交成功，失败时所有写操作都以提交的异常结束
+     */
+    private boolean commit(Executor executor, List<Request> requests) {
+        try {
+            executor.commit(true);
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            for (Request request : requests) {
+                request.result.completeExceptionally(e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * BatchExecutor按加入的顺序把连续相同的语句合并为一个BatchResult，所以按顺序展开即可对应到每个写操作
+     */
+    private int[] toUpdateCounts(List<BatchResult> batchResults, int size) {
+        final int[] updateCounts = new int[size];
+        int index = 0;
+        for (BatchResult batchResult : batchResults) {
+            for (int updateCount : batchResult.getUpdateCounts()) {
+                if (index == size) {
+                    break;
+                }
+                updateCounts[index++] = updateCount;
+            }
+        }
+        if (index != size) {
+            throw new ExecutorException("Group commit expected " + size + " update counts but got " + index + ".");
+        }
+        return updateCounts;
+    }
+
+    private void executeAlone(Request request) {
+        try {
+            final Executor executor = new SimpleExecutor(configuration, newTransaction());
+            boolean success = false;
+            try {
+                int updateCount = executor.update(request.ms, request.parameter);
+                executor.commit(true);
+                success = true;
+                request.result.complete(updateCount);
+            } finally {
+                executor.close(!success);
+            }
+        } catch (SQLException | RuntimeException | Error e) {
+            request.result.completeExceptionally(e);
+        }
+    }
+
+    private Transaction newTransaction() {
+        final Environment environment = configuration.getEnvironment();
+        return environment.getTransactionFactory().newTransaction(environment.getDataSource(), null, false);
+    }
+
+    private static class Group {
+        private final List<Request> requests = new ArrayList<>();
+    }
+
+    private static class Request {
+        private final MappedStatement ms;
+        private final Object parameter;
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+        private Request(MappedStatement ms, Object parameter) {
+            this.ms = ms;
+            this.parameter = parameter;
+        }
+
+        private int await() throws SQLException {
+            try {
+                return result.get();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    throw (SQLException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new ExecutorException("Group commit failed.  Cause: " + cause, cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExecutorException("Interrupted while waiting for a group commit, the statement may still be executed.  Cause: " + e, e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * 执行中的语句因为CancellationToken被取消、截止时间已到或者调用线程被中断而取消时抛出。
+ * 取消只影响这一条语句，会话和连接可以继续使用；但在事务中，部分数据库（例如PostgreSQL）要求先回滚事务。
+ *
+ * @see org.apache.ibatis.session.CancellationToken
+ */
+public class QueryCancelledException extends ExecutorException {
+
+  private static final long serialVersionUID = -2745361806829735512L;
+
+  public QueryCancelledException(String message) {
+    super(message);
+  }
+
+  public QueryCancelledException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+}
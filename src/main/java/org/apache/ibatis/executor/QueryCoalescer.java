@@ -0,0 +1,156 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.io.SerialFilterChecker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 正在执行中的查询登记表，由同一个Configuration下的所有CoalescingExecutor共享。
+ * 同一时刻相同CacheKey的查询只有第一个（leader）会访问数据库，其余的查询（跟随者）等待leader完成后得到结果的深拷贝。
+ * <p>
+ * 与SerializedCache相同，结果通过序列化复制：leader在返回前把结果序列化一次，每个跟随者各自反序列化出自己的对象，
+ * 会话之间不共享可变的结果对象。结果不能序列化时，跟随者自己执行查询。没有跟随者时不做序列化。
+ *
+ * @see CoalescingExecutor
+ * @see SerializedCache
+ */
+public class QueryCoalescer {
+
+    private final ConcurrentMap<CacheKey, Flight> inFlightQueries = new ConcurrentHashMap<>();
+
+    /**
+     * 执行查询，如果已有相同的查询在执行中，则等待并得到它的结果的拷贝
+     *
+     * @param key   查询的缓存键
+     * @param query 实际访问数据库的查询
+     * @param <E>   结果类型
+     * @return 查询结果，跟随者拿到的是结果列表及其中对象的拷贝
+     * @throws SQLException
+     */
+    @SuppressWarnings("unchecked")
+    public <E> List<E> coalesce(CacheKey key, Query<E> query) throws SQLException {
+        final Flight flight = new Flight();
+        final Flight leader = inFlightQueries.putIfAbsent(key, flight);
+        if (leader == null) {
+            List<E> list;
+            try {
+                list = query.execute();
+            } catch (SQLException | RuntimeException | Error e) {
+                flight.close();
+                inFlightQueries.remove(key, flight);
+                flight.result.completeExceptionally(e);
+                throw e;
+            }
+            // 先停止接收跟随者，再决定是否需要拷贝
+            final int followers = flight.close();
+            inFlightQueries.remove(key, flight);
+            if (followers > 0) {
+                try {
+                    // 在返回前序列化，leader之后修改自己的结果不会影响跟随者
+                    flight.result.complete(serialize(new ArrayList<>((List<Object>) list)));
+                } catch (IOException | RuntimeException e) {
+                    flight.result.completeExceptionally(e);
+                }
+            }
+            return list;
+        }
+        if (!leader.join()) {
+            // leader已经完成，不再接收跟随者
+            return query.execute();
+        }
+        try {
+            return (List<E>) deserialize(leader.result.get());
+        } catch (ExecutionException e) {
+            // leader的失败可能只与它自己的连接或事务有关，结果不能序列化时也一样，这里自己再执行一次
+            return query.execute();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutorException("Interrupted while waiting for a coalesced query.  Cause: " + e, e);
+        }
+    }
+
+    private byte[] serialize(List<Object> list) throws IOException {
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+             ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(list);
+            oos.flush();
+            return bos.toByteArray();
+        }
+    }
+
+    private List<?> deserialize(byte[] value) {
+        SerialFilterChecker.check();
+        try (ByteArrayInputStream bis = new ByteArrayInputStream(value);
+             ObjectInputStream ois = new SerializedCache.CustomObjectInputStream(bis)) {
+            return (List<?>) ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new ExecutorException("Error copying the result of a coalesced query.  Cause: " + e, e);
+        }
+    }
+
+    /**
+     * 实际访问数据库的查询
+     */
+    @FunctionalInterface
+    public interface Query<E> {
+        List<E> execute() throws SQLException;
+    }
+
+    /**
+     * 一次正在执行的查询
+     */
+    private static class Flight {
+        // 序列化后的结果
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private int followers;
+        private boolean closed;
+
+        /**
+         * @return 是否作为跟随者加入，leader已经完成时返回false
+         */
+        synchronized boolean join() {
+            if (closed) {
+                return false;
+            }
+            followers++;
+            return true;
+        }
+
+        /**
+         * @return 加入的跟随者数量
+         */
+        synchronized int close() {
+            closed = true;
+            return followers;
+        }
+    }
+
+}
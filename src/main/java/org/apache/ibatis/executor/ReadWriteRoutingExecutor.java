@@ -0,0 +1,310 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.replica.ReplicaSet;
+import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 读写分离的装饰器，Environment配置了只读副本时使用。
+ * 会话还没有写操作时，查询语句发送到副本；写操作以及写操作之后的查询发送到主库（delegate），提交或回滚后查询重新发送到副本。
+ * 非自动提交的会话同样如此：事务在第一次写之前的查询不属于主库上的事务，写之后的查询需要看到自己的修改，在主库上执行。
+ * 组提交的写操作不经过这个执行器，由{@link GroupCommitExecutor}通过{@link #markDirty()}通知。
+ * 每个会话第一次查询时从{@link ReplicaSet}选择一个副本并一直使用它的连接（自动提交）。
+ * <p>
+ * 副本连接失败时，它会被摘除一段时间，本次查询改在主库上执行。
+ * CALLABLE语句、selectKey语句（它们属于写操作）以及SELECT ... FOR UPDATE等加锁的查询总是在主库上执行。
+ */
+public class ReadWriteRoutingExecutor implements Executor {
+
+    // 加锁读：FOR UPDATE、FOR SHARE、FOR NO KEY UPDATE、FOR KEY SHARE、LOCK IN SHARE MODE以及SQL Server的锁提示
+    private static final Pattern LOCKING_READ = Pattern.compile(
+            "\\bfor\\s+(no\\s+key\\s+)?update\\b|\\bfor\\s+(key\\s+)?share\\b|\\block\\s+in\\s+share\\s+mode\\b"
+                    + "|\\bwith\\s*\\([^)]*\\b(updlock|xlock|holdlock)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private final Configuration configuration;
+    // 主库上的执行器
+    private final Executor delegate;
+    private final ReplicaSet replicaSet;
+    // 副本上的执行器，第一次查询时创建
+    private Executor replicaExecutor;
+    private DataSource replicaDataSource;
+    // 嵌套查询、懒加载使用的最外层执行器
+    private Executor wrapper;
+    // 当前事务中是否有写操作
+    private boolean dirty;
+    // 正在执行的查询层数，嵌套查询使用外层查询的执行器
+    private int queryStack;
+    private Executor activeExecutor;
+
+    public ReadWriteRoutingExecutor(Configuration configuration, Executor delegate, ReplicaSet replicaSet) {
+        this.configuration = configuration;
+        this.delegate = delegate;
+        this.replicaSet = replicaSet;
+        this.wrapper = this;
+        delegate.setExecutorWrapper(this);
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return delegate.getTransaction();
+    }
+
+    @Override
+    public void close(boolean forceRollback) {
+        try {
+            delegate.close(forceRollback);
+        } finally {
+            closeReplicaExecutor();
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameter) throws SQLException {
+        dirty = true;
+        return delegate.update(ms, parameter);
+    }
+
+    /**
+     * 写操作没有经过{@link #update(MappedStatement, Object)}时（组提交），之后的查询同样要在主库上执行
+     */
+    void markDirty() {
+        dirty = true;
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+        return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey cacheKey, BoundSql boundSql)
+            throws SQLException {
+        if (queryStack > 0) {
+            return queryOn(activeExecutor, ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+        }
+        Executor replica = shouldReadFromReplica(ms, boundSql) ? getReplicaExecutor() : null;
+        if (replica != null) {
+            try {
+                return queryOn(replica, ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+            } catch (SQLException e) {
+                if (!isConnectionFailure(e)) {
+                    throw e;
+                }
+                ejectReplica();
+            }
+        }
+        return queryOn(delegate, ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+    }
+
+    private <E> List<E> queryOn(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                                CacheKey cacheKey, BoundSql boundSql) throws SQLException {
+        Executor previous = activeExecutor;
+        activeExecutor = executor;
+        queryStack++;
+        try {
+            return executor.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+        } finally {
+            queryStack--;
+            activeExecutor = previous;
+        }
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        Executor replica = queryStack == 0 && shouldReadFromReplica(ms, ms.getBoundSql(parameter)) ? getReplicaExecutor() : null;
+        if (replica != null) {
+            try {
+                return replica.queryCursor(ms, parameter, rowBounds);
+            } catch (SQLException e) {
+                if (!isConnectionFailure(e)) {
+                    throw e;
+                }
+                ejectReplica();
+            }
+        }
+        return delegate.queryCursor(ms, parameter, rowBounds);
+    }
+
+    private boolean shouldReadFromReplica(MappedStatement ms, BoundSql boundSql) {
+        return !dirty
+                && ms.getSqlCommandType() == SqlCommandType.SELECT
+                && ms.getStatementType() != StatementType.CALLABLE
+                && !ms.getId().endsWith(SelectKeyGenerator.SELECT_KEY_SUFFIX)
+                && !isLockingRead(boundSql);
+    }
+
+    /**
+     * 是否是加锁读，加锁读需要在自己的连接上取得锁，{@link CoalescingExecutor}也不合并它们
+     */
+    static boolean isLockingRead(BoundSql boundSql) {
+        return LOCKING_READ.matcher(boundSql.getSql()).find();
+    }
+
+    private Executor getReplicaExecutor() {
+        // 正在使用的副本被其他会话摘除后，换一个副本
+        if (replicaExecutor != null && !replicaSet.isAvailable(replicaDataSource)) {
+            closeReplicaExecutor();
+        }
+        if (replicaExecutor == null) {
+            DataSource dataSource = replicaSet.choose();
+            if (dataSource == null) {
+                return null;
+            }
+            Environment environment = configuration.getEnvironment();
+            Transaction tx = environment.getTransactionFactory().newTransaction(dataSource, null, true);
+            replicaExecutor = new SimpleExecutor(configuration, tx);
+            replicaExecutor.setExecutorWrapper(wrapper);
+            replicaDataSource = dataSource;
+        }
+        return replicaExecutor;
+    }
+
+    private void ejectReplica() {
+        replicaSet.eject(replicaDataSource);
+        closeReplicaExecutor();
+    }
+
+    private void closeReplicaExecutor() {
+        if (replicaExecutor != null) {
+            try {
+                replicaExecutor.close(false);
+            } finally {
+                replicaExecutor = null;
+                replicaDataSource = null;
+            }
+        }
+    }
+
+    /**
+     * 只有连接类的错误才说明副本不可用，SQL本身的错误在主库上同样会失败
+     */
+    private boolean isConnectionFailure(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientConnectionException
+                    || t instanceof SQLNonTransientConnectionException
+                    || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String sqlState = ((SQLException) t).getSQLState();
+                if (sqlState != null && sqlState.startsWith("08")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() throws SQLException {
+        return delegate.flushStatements();
+    }
+
+    @Override
+    public void flushStatements(BatchResultListener listener) throws SQLException {
+        delegate.flushStatements(listener);
+    }
+
+    @Override
+    public void commit(boolean required) throws SQLException {
+        delegate.commit(required);
+        if (replicaExecutor != null) {
+            replicaExecutor.commit(false);
+        }
+        dirty = false;
+    }
+
+    @Override
+    public void rollback(boolean required) throws SQLException {
+        try {
+            delegate.rollback(required);
+            if (replicaExecutor != null) {
+                replicaExecutor.rollback(false);
+            }
+        } finally {
+            dirty = false;
+        }
+    }
+
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+        return delegate.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+    }
+
+    @Override
+    public boolean isCached(MappedStatement ms, CacheKey key) {
+        return currentExecutor().isCached(ms, key);
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+        currentExecutor().deferLoad(ms, resultObject, property, key, targetType);
+    }
+
+    /**
+     * 嵌套查询的缓存和延迟加载属于正在执行外层查询的执行器
+     */
+    private Executor currentExecutor() {
+        return queryStack > 0 ? activeExecutor : delegate;
+    }
+
+    @Override
+    public void clearLocalCache() {
+        delegate.clearLocalCache();
+        if (replicaExecutor != null) {
+            replicaExecutor.clearLocalCache();
+        }
+    }
+
+    @Override
+    public void setExecutorWrapper(Executor executor) {
+        this.wrapper = executor;
+        delegate.setExecutorWrapper(executor);
+        if (replicaExecutor != null) {
+            replicaExecutor.setExecutorWrapper(executor);
+        }
+    }
+
+}
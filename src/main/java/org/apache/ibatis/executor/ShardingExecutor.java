@@ -0,0 +1,337 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.shard.ShardStrategy;
+import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.executor.shard.ShardResultMerger;
+import org.apache.ibatis.executor.shard.ShardResultMergers;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.KeysetRowBounds;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * 分库执行器，Environment配置了分片数据源时使用。dataSource是第0个分片，shardDataSource依次是其余的分片。
+ * 每条语句由{@link ShardStrategy}根据参数路由到一个分片；没有分片键的查询在所有分片上并行执行，
+ * 结果由{@link ShardResultMergers}选择的方式合并（拼接、按ORDER BY归并或合并聚合结果），RowBounds在合并后应用。
+ * 没有分片键的update、delete在所有分片上执行，insert必须有分片键。
+ * <p>
+ * 每个分片有自己的执行器和事务，第一次用到时创建。提交、回滚依次作用于所有用到的分片，不保证跨分片的原子性。
+ * 嵌套查询和懒加载在外层查询所在分片的执行器上执行，不经过二级缓存；selectKey语句在insert所在的分片上执行。
+ * 配置了分片时不使用只读副本。
+ */
+public class ShardingExecutor implements Executor {
+
+    private final Configuration configuration;
+    private final ExecutorType executorType;
+    private final ShardStrategy shardStrategy;
+    private final List<DataSource> shardDataSources;
+    // 各分片的执行器，第0个是delegate，其余的第一次用到时创建
+    private final Executor[] shardExecutors;
+
+    public ShardingExecutor(Configuration configuration, Executor delegate, ExecutorType executorType) {
+        this.configuration = configuration;
+        this.executorType = executorType;
+        this.shardStrategy = configuration.getShardStrategy();
+        this.shardDataSources = configuration.getEnvironment().getShardDataSources();
+        this.shardExecutors = new Executor[shardDataSources.size() + 1];
+        this.shardExecutors[0] = delegate;
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return shardExecutors[0].getTransaction();
+    }
+
+    @Override
+    public void close(boolean forceRollback) {
+        RuntimeException failure = null;
+        for (Executor executor : shardExecutors) {
+            if (executor != null) {
+                try {
+                    executor.close(forceRollback);
+                } catch (RuntimeException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return shardExecutors[0].isClosed();
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameter) throws SQLException {
+        int shard = route(ms, parameter);
+        if (shard != ShardStrategy.ALL_SHARDS) {
+            return shardExecutor(shard).update(ms, parameter);
+        }
+        if (ms.getSqlCommandType() == SqlCommandType.INSERT) {
+            throw new ExecutorException("Cannot insert with statement '" + ms.getId() + "' because its parameter has no shard key.");
+        }
+        int updated = 0;
+        boolean batched = false;
+        for (int i = 0; i < shardExecutors.length; i++) {
+            int count = shardExecutor(i).update(ms, parameter);
+            if (count == BatchExecutor.BATCH_UPDATE_RETURN_VALUE) {
+                batched = true;
+            } else {
+                updated += count;
+            }
+        }
+        return batched ? BatchExecutor.BATCH_UPDATE_RETURN_VALUE : updated;
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+        return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql)
+            throws SQLException {
+        int shard = route(ms, parameter);
+        if (shard != ShardStrategy.ALL_SHARDS) {
+            return shardExecutor(shard).query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+        }
+        if (resultHandler != null) {
+            // ResultHandler不是线程安全的，各分片依次把结果交给它，RowBounds对每个分片分别生效
+            for (int i = 0; i < shardExecutors.length; i++) {
+                shardExecutor(i).query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+            }
+            return new ArrayList<>();
+        }
+        return queryAllShards(ms, parameter, rowBounds, key, boundSql);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E> List<E> queryAllShards(MappedStatement ms, Object parameter, RowBounds rowBounds, CacheKey key, BoundSql boundSql)
+            throws SQLException {
+        ShardResultMerger merger = ShardResultMergers.forQuery(ms, boundSql.getSql(), rowBounds);
+        // 每个分片都要返回合并后可能落在这一页中的所有行
+        RowBounds shardBounds = shardRowBounds(rowBounds);
+        CacheKey shardKey = shardBounds == rowBounds ? key : createCacheKey(ms, parameter, shardBounds, boundSql);
+        for (int i = 1; i < shardExecutors.length; i++) {
+            shardExecutor(i);
+        }
+        List<Future<List<Object>>> futures = new ArrayList<>(shardExecutors.length - 1);
+        for (int i = 1; i < shardExecutors.length; i++) {
+            Executor executor = shardExecutors[i];
+            futures.add(configuration.getQueryTaskExecutor().submit(() -> {
+                try {
+                    return executor.query(ms, parameter, shardBounds, NO_RESULT_HANDLER, shardKey, boundSql);
+                } finally {
+                    ErrorContext.instance().reset();
+                }
+            }));
+        }
+        List<List<Object>> results = new ArrayList<>(shardExecutors.length);
+        Throwable failure = null;
+        try {
+            results.add(shardExecutors[0].query(ms, parameter, shardBounds, NO_RESULT_HANDLER, shardKey, boundSql));
+        } catch (SQLException | RuntimeException e) {
+            failure = e;
+        }
+        // 出错时也要等所有分片结束，之后这些执行器才能被当前会话继续使用
+        boolean interrupted = false;
+        for (Future<List<Object>> future : futures) {
+            while (true) {
+                try {
+                    results.add(future.get());
+                    break;
+                } catch (ExecutionException e) {
+                    failure = failure == null ? e.getCause() : failure;
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof SQLException) {
+            throw (SQLException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new ExecutorException("Error querying shards of statement '" + ms.getId() + "'.  Cause: " + failure, failure);
+        }
+        return (List<E>) applyRowBounds(merger.merge(results), rowBounds, shardBounds);
+    }
+
+    private RowBounds shardRowBounds(RowBounds rowBounds) {
+        if (rowBounds instanceof KeysetRowBounds || rowBounds.getOffset() == RowBounds.NO_ROW_OFFSET) {
+            return rowBounds;
+        }
+        if (rowBounds.getLimit() == RowBounds.NO_ROW_LIMIT) {
+            return RowBounds.DEFAULT;
+        }
+        return new RowBounds(RowBounds.NO_ROW_OFFSET, (int) Math.min(Integer.MAX_VALUE, (long) rowBounds.getOffset() + rowBounds.getLimit()));
+    }
+
+    private List<Object> applyRowBounds(List<Object> merged, RowBounds rowBounds, RowBounds shardBounds) {
+        int from = shardBounds == rowBounds ? 0 : Math.min(rowBounds.getOffset(), merged.size());
+        int to = (int) Math.min(merged.size(), (long) from + rowBounds.getLimit());
+        if (from == 0 && to == merged.size()) {
+            return merged;
+        }
+        return new ArrayList<>(merged.subList(from, to));
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        int shard = route(ms, parameter);
+        if (shard == ShardStrategy.ALL_SHARDS) {
+            throw new ExecutorException("Cannot open a cursor with statement '" + ms.getId() + "' because its parameter has no shard key.");
+        }
+        return shardExecutor(shard).queryCursor(ms, parameter, rowBounds);
+    }
+
+    private int route(MappedStatement ms, Object parameter) {
+        // selectKey语句由insert所在分片的执行器执行，它的事务就在当前执行器的第0个分片上
+        if (ms.getId().endsWith(SelectKeyGenerator.SELECT_KEY_SUFFIX)) {
+            return 0;
+        }
+        int shard = shardStrategy.getShard(ms, parameter, shardExecutors.length);
+        if (shard != ShardStrategy.ALL_SHARDS && (shard < 0 || shard >= shardExecutors.length)) {
+            throw new ExecutorException("Shard strategy " + shardStrategy.getClass().getName() + " returned shard " + shard
+                    + " for statement '" + ms.getId() + "', but there are " + shardExecutors.length + " shards.");
+        }
+        return shard;
+    }
+
+    private Executor shardExecutor(int shard) throws SQLException {
+        Executor executor = shardExecutors[shard];
+        if (executor == null) {
+            // 其余分片的事务与第0个分片的自动提交方式相同
+            boolean autoCommit = shardExecutors[0].getTransaction().getConnection().getAutoCommit();
+            Environment environment = configuration.getEnvironment();
+            Transaction tx = environment.getTransactionFactory().newTransaction(shardDataSources.get(shard - 1), null, autoCommit);
+            if (ExecutorType.BATCH == executorType) {
+                executor = new BatchExecutor(configuration, tx);
+            } else if (ExecutorType.REUSE == executorType) {
+                executor = new ReuseExecutor(configuration, tx);
+            } else {
+                executor = new SimpleExecutor(configuration, tx);
+            }
+            shardExecutors[shard] = executor;
+        }
+        return executor;
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() throws SQLException {
+        List<BatchResult> results = new ArrayList<>();
+        for (Executor executor : shardExecutors) {
+            if (executor != null) {
+                results.addAll(executor.flushStatements());
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void flushStatements(BatchResultListener listener) throws SQLException {
+        for (Executor executor : shardExecutors) {
+            if (executor != null) {
+                executor.flushStatements(listener);
+            }
+        }
+    }
+
+    @Override
+    public void commit(boolean required) throws SQLException {
+        for (Executor executor : shardExecutors) {
+            if (executor != null) {
+                executor.commit(required);
+            }
+        }
+    }
+
+    @Override
+    public void rollback(boolean required) throws SQLException {
+        SQLException failure = null;
+        for (Executor executor : shardExecutors) {
+            if (executor != null) {
+                try {
+                    executor.rollback(required);
+                } catch (SQLException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+        return shardExecutors[0].createCacheKey(ms, parameterObject, rowBounds, boundSql);
+    }
+
+    @Override
+    public boolean isCached(MappedStatement ms, CacheKey key) {
+        return shardExecutors[0].isCached(ms, key);
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+        shardExecutors[0].deferLoad(ms, resultObject, property, key, targetType);
+    }
+
+    @Override
+    public void clearLocalCache() {
+        for (Executor executor : shardExecutors) {
+            if (executor != null) {
+                executor.clearLocalCache();
+            }
+        }
+    }
+
+    @Override
+    public void setExecutorWrapper(Executor executor) {
+        // 分片执行器保持自己作为嵌套查询的执行器，嵌套查询和懒加载留在外层查询所在的分片上
+    }
+
+}
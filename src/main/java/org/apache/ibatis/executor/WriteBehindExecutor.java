@@ -0,0 +1,141 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.writebehind.WriteBehindQueue;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 异步写的装饰器，映射文件中标记了writeBehind的insert、update、delete不在当前会话中执行，
+ * 而是交给{@link WriteBehindQueue}，由后台线程合并为批处理后在独立的连接和事务中执行。
+ * <p>
+ * 异步写不参与当前会话的事务：会话回滚不会撤销它们，会话提交也不等待它们执行完。
+ * update返回{@link BatchExecutor#BATCH_UPDATE_RETURN_VALUE}，生成的主键在后台执行后才设置到参数上。
+ */
+public class WriteBehindExecutor implements Executor {
+
+    // 被装饰的实际执行器
+    private final Executor delegate;
+    // 所有会话共享的异步写队列
+    private final WriteBehindQueue writeBehindQueue;
+
+    public WriteBehindExecutor(Executor delegate, WriteBehindQueue writeBehindQueue) {
+        this.delegate = delegate;
+        this.writeBehindQueue = writeBehindQueue;
+        delegate.setExecutorWrapper(this);
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return delegate.getTransaction();
+    }
+
+    @Override
+    public void close(boolean forceRollback) {
+        delegate.close(forceRollback);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameterObject) throws SQLException {
+        if (!ms.isWriteBehind()) {
+            return delegate.update(ms, parameterObject);
+        }
+        if (delegate.isClosed()) {
+            throw new ExecutorException("Executor was closed.");
+        }
+        // 数据即将被修改，与同步的update一样清空一级缓存
+        delegate.clearLocalCache();
+        writeBehindQueue.enqueue(ms, parameterObject);
+        return BatchExecutor.BATCH_UPDATE_RETURN_VALUE;
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        return delegate.queryCursor(ms, parameter, rowBounds);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+        return delegate.query(ms, parameterObject, rowBounds, resultHandler);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql)
+            throws SQLException {
+        return delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() throws SQLException {
+        return delegate.flushStatements();
+    }
+
+    @Override
+    public void flushStatements(BatchResultListener listener) throws SQLException {
+        delegate.flushStatements(listener);
+    }
+
+    @Override
+    public void commit(boolean required) throws SQLException {
+        delegate.commit(required);
+    }
+
+    @Override
+    public void rollback(boolean required) throws SQLException {
+        delegate.rollback(required);
+    }
+
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+        return delegate.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+    }
+
+    @Override
+    public boolean isCached(MappedStatement ms, CacheKey key) {
+        return delegate.isCached(ms, key);
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+        delegate.deferLoad(ms, resultObject, property, key, targetType);
+    }
+
+    @Override
+    public void clearLocalCache() {
+        delegate.clearLocalCache();
+    }
+
+    @Override
+    public void setExecutorWrapper(Executor executor) {
+        delegate.setExecutorWrapper(executor);
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.dialect;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 由查询语句派生出的count语句的SqlSource。
+ * 原语句最外层的ORDER BY被去掉，再包装为 select count(*) from (原SQL) count_query，参数与原语句完全相同。
+ * 改写结果按原SQL缓存，静态SQL只需要解析一次。
+ */
+public class CountSqlSource implements SqlSource {
+
+    // 动态SQL可能生成很多不同的语句，缓存的数量有上限
+    private static final int MAX_CACHED_SQL = 64;
+    // ORDER BY之后如果还有这些关键字，说明排序会影响结果行，不能去掉
+    private static final Pattern ROW_LIMITING = Pattern.compile("\\b(limit|offset|fetch|top)\\b");
+
+    private final Configuration configuration;
+    private final SqlSource sqlSource;
+    private final Map<String, String> countSqlCache = new ConcurrentHashMap<>();
+
+    public CountSqlSource(Configuration configuration, SqlSource sqlSource) {
+        this.configuration = configuration;
+        this.sqlSource = sqlSource;
+    }
+
+    @Override
+    public BoundSql getBoundSql(Object parameterObject) {
+        BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
+        String sql = boundSql.getSql();
+        String countSql = countSqlCache.get(sql);
+        if (countSql == null) {
+            countSql = getCountSql(sql);
+            if (countSqlCache.size() < MAX_CACHED_SQL) {
+                countSqlCache.put(sql, countSql);
+            }
+        }
+        return boundSql.copy(configuration, countSql, boundSql.getParameterMappings());
+    }
+
+    /**
+     * @param sql 查询语句
+     * @return 统计该语句结果行数的语句
+     */
+    public static String getCountSql(String sql) {
+        return "select count(*) from (" + removeOrderBy(sql) + ") count_query";
+    }
+
+    /**
+     * 去掉最外层的ORDER BY子句。子句中有参数占位符或行数限制时保持原样，以免参数错位或结果改变。
+     */
+    static String removeOrderBy(String sql) {
+        int orderBy = findTopLevelOrderBy(sql);
+        if (orderBy < 0) {
+            return sql;
+        }
+        String tail = sql.substring(orderBy).toLowerCase(Locale.ENGLISH);
+        if (tail.indexOf('?') >= 0 || ROW_LIMITING.matcher(tail).find()) {
+            return sql;
+        }
+        return sql.substring(0, orderBy).trim();
+    }
+
+    /**
+     * 跳过括号和引号中的内容，返回最后一个最外层ORDER BY的位置，没有时返回-1
+     */
+    private static int findTopLevelOrderBy(String sql) {
+        int depth = 0;
+        int found = -1;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && isOrderBy(sql, i)) {
+                found = i;
+            }
+        }
+        return found;
+    }
+
+    private static boolean isOrderBy(String sql, int index) {
+        if (!sql.regionMatches(true, index, "order", 0, 5)
+                || (index > 0 && isIdentifierPart(sql.charAt(index - 1)))) {
+            return false;
+        }
+        int i = index + 5;
+        int whitespaceStart = i;
+        while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        return i > whitespaceStart
+                && sql.regionMatches(true, i, "by", 0, 2)
+                && (i + 2 == sql.length() || !isIdentifierPart(sql.charAt(i + 2)));
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.dialect;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 派生count语句的登记表。
+ * 每个查询语句第一次分页时生成对应的count语句，id为原语句id加上{@link #COUNT_SUFFIX}，之后重复使用。
+ * count语句与原语句共用二级缓存，所以原语句所在命名空间的更新同样会清除count的缓存。
+ */
+public class CountStatementRegistry {
+
+    public static final String COUNT_SUFFIX = "!count";
+
+    private final Configuration configuration;
+    private final Map<String, MappedStatement> countStatements = new ConcurrentHashMap<>();
+
+    public CountStatementRegistry(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * @param ms 查询语句
+     * @return 统计该语句结果行数的语句
+     * @throws ExecutorException 语句使用嵌套结果映射时，多行连接结果才组成一个结果对象，count统计的是行数而不是对象数
+     */
+    public MappedStatement getCountStatement(MappedStatement ms) {
+        if (ms.hasNestedResultMaps()) {
+            throw new ExecutorException("Cannot count the results of statement '" + ms.getId()
+                    + "' because it uses nested result maps; the count would include every joined row.");
+        }
+        return countStatements.computeIfAbsent(ms.getId(), id -> buildCountStatement(ms));
+    }
+
+    private MappedStatement buildCountStatement(MappedStatement ms) {
+        String id = ms.getId() + COUNT_SUFFIX;
+        ResultMap resultMap = new ResultMap.Builder(configuration, id + "-Inline", Long.class, new ArrayList<>()).build();
+        return new MappedStatement.Builder(configuration, id, new CountSqlSource(configuration, ms.getSqlSource()), ms.getSqlCommandType())
+                .resource(ms.getResource())
+                .timeout(ms.getTimeout())
+                .statementType(ms.getStatementType())
+                .parameterMap(ms.getParameterMap())
+                .resultMaps(Collections.singletonList(resultMap))
+                .databaseId(ms.getDatabaseId())
+                .lang(ms.getLang())
+                .flushCacheRequired(false)
+                .useCache(ms.isUseCache())
+                .cache(ms.getCache())
+                .build();
+    }
+
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.dialect;
+
+/**
+ * 数据库方言，负责生成数据库原生的分页语句。
+ * 分页参数以“?”占位符的形式出现在SQL中，由{@link PagingSqlRewriter}按顺序绑定。
+ *
+ * @see DialectRegistry
+ */
+public interface Dialect {
+
+    /**
+     * 把SQL改写为只返回一页数据的语句
+     *
+     * @param sql       原SQL
+     * @param hasOffset 是否需要跳过行，为false时SQL中只有limit一个占位符
+     * @return 带有分页占位符的SQL
+     */
+    String getLimitSql(String sql, boolean hasOffset);
+
+    /**
+     * @return 分页SQL中limit占位符是否在offset占位符之前
+     */
+    boolean isLimitBeforeOffset();
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.dialect;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 方言注册表，根据DatabaseIdProvider得到的databaseId查找方言。
+ * databaseId可以是VendorDatabaseIdProvider中配置的别名，也可以是数据库产品名，不区分大小写；
+ * 没有完全相同的登记项时，使用databaseId以其开头的登记项（如DB2/LINUXX8664匹配db2）。
+ */
+public class DialectRegistry {
+
+    private final Map<String, Dialect> dialects = new ConcurrentHashMap<>();
+
+    public DialectRegistry() {
+        Dialect limitOffset = new LimitOffsetDialect();
+        register("mysql", limitOffset);
+        register("mariadb", limitOffset);
+        register("postgresql", limitOffset);
+        register("h2", limitOffset);
+        register("hsql", limitOffset);
+        register("hsqldb", limitOffset);
+        register("hsql database engine", limitOffset);
+        register("sqlite", limitOffset);
+
+        Dialect offsetFetch = new OffsetFetchDialect();
+        register("oracle", offsetFetch);
+        register("sqlserver", offsetFetch);
+        register("microsoft sql server", offsetFetch);
+        register("db2", offsetFetch);
+        register("derby", offsetFetch);
+        register("apache derby", offsetFetch);
+    }
+
+    public void register(String databaseId, Dialect dialect) {
+        dialects.put(databaseId.toLowerCase(Locale.ENGLISH), dialect);
+    }
+
+    /**
+     * @param databaseId 数据库编号
+     * @return 对应的方言，没有登记时返回null
+     */
+    public Dialect getDialect(String databaseId) {
+        if (databaseId == null) {
+            return null;
+        }
+        String id = databaseId.toLowerCase(Locale.ENGLISH);
+        Dialect dialect = dialects.get(id);
+        if (dialect != null) {
+            return dialect;
+        }
+        String matched = null;
+        for (String key : dialects.keySet()) {
+            // 选择最长的前缀，避免hsql database engine被hsql抢先
+            if (id.startsWith(key) && (matched == null || key.length() > matched.length())) {
+                matched = key;
+            }
+        }
+        return matched == null ? null : dialects.get(matched);
+    }
+
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.dialect;
+
+/**
+ * 使用SQL:2008标准OFFSET ? ROWS FETCH NEXT ? ROWS ONLY分页的方言，
+ * 适用于Oracle 12c、SQL Server 2012、DB2、Derby及之后的版本。
+ * SQL Server要求语句带有ORDER BY子句，并且不支持单独的FETCH FIRST，所以没有偏移量时也使用OFFSET 0 ROWS。
+ */
+public class OffsetFetchDialect implements Dialect {
+
+    @Override
+    public String getLimitSql(String sql, boolean hasOffset) {
+        return hasOffset ? sql + " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY" : sql + " OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY";
+    }
+
+    @Override
+    public boolean isLimitBeforeOffset() {
+        return false;
+    }
+
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.dialect;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetRowBounds;
+import org.apache.ibatis.session.RowBounds;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 使用方言把RowBounds改写进BoundSql。
+ * 分页参数作为附加参数追加到参数映射列表的末尾，原有参数及其顺序保持不变。
+ */
+public final class PagingSqlRewriter {
+
+    public static final String OFFSET_PARAMETER = "_rowOffset";
+    public static final String LIMIT_PARAMETER = "_rowLimit";
+    public static final String KEYSET_PARAMETER = "_keysetLastKey";
+
+    private PagingSqlRewriter() {
+        // Prevent Instantiation of Static Class
+    }
+
+    /**
+     * @param configuration 配置
+     * @param dialect       方言
+     * @param boundSql      原BoundSql
+     * @param rowBounds     分页设置，可以是{@link KeysetRowBounds}
+     * @return 由数据库完成分页的BoundSql
+     */
+    public static BoundSql rewrite(Configuration configuration, Dialect dialect, BoundSql boundSql, RowBounds rowBounds) {
+        String sql = boundSql.getSql();
+        List<ParameterMapping> parameterMappings = new ArrayList<>(boundSql.getParameterMappings());
+        if (rowBounds instanceof KeysetRowBounds) {
+            KeysetRowBounds keyset = (KeysetRowBounds) rowBounds;
+            StringBuilder keysetSql = new StringBuilder("select * from (").append(sql).append(") keyset_page");
+            if (keyset.getLastKey() != null) {
+                keysetSql.append(" where ").append(keyset.getColumn()).append(keyset.isDescending() ? " < ?" : " > ?");
+                Class<?> keyType = keyset.getLastKey().getClass();
+                if (!configuration.getTypeHandlerRegistry().hasTypeHandler(keyType)) {
+                    keyType = Object.class;
+                }
+                parameterMappings.add(new ParameterMapping.Builder(configuration, KEYSET_PARAMETER, keyType).build());
+            }
+            keysetSql.append(" order by ").append(keyset.getColumn()).append(keyset.isDescending() ? " desc" : "");
+            sql = keysetSql.toString();
+        }
+        boolean hasOffset = rowBounds.getOffset() > RowBounds.NO_ROW_OFFSET;
+        ParameterMapping offsetMapping = new ParameterMapping.Builder(configuration, OFFSET_PARAMETER, Integer.class).build();
+        ParameterMapping limitMapping = new ParameterMapping.Builder(configuration, LIMIT_PARAMETER, Integer.class).build();
+        if (hasOffset && !dialect.isLimitBeforeOffset()) {
+            parameterMappings.add(offsetMapping);
+        }
+        parameterMappings.add(limitMapping);
+        if (hasOffset && dialect.isLimitBeforeOffset()) {
+            parameterMappings.add(offsetMapping);
+        }
+        BoundSql pagedBoundSql = boundSql.copy(configuration, dialect.getLimitSql(sql, hasOffset), parameterMappings);
+        if (rowBounds instanceof KeysetRowBounds && ((KeysetRowBounds) rowBounds).getLastKey() != null) {
+            pagedBoundSql.setAdditionalParameter(KEYSET_PARAMETER, ((KeysetRowBounds) rowBounds).getLastKey());
+        }
+        pagedBoundSql.setAdditionalParameter(OFFSET_PARAMETER, rowBounds.getOffset());
+        pagedBoundSql.setAdditionalParameter(LIMIT_PARAMETER, rowBounds.getLimit());
+        return pagedBoundSql;
+    }
+
+}
@@ -0,0 +1,21 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+/**
+ * Contains the database dialects and count queries used for pagination.
+ * 本包负责把RowBounds分页改写为数据库原生的LIMIT/OFFSET或FETCH FIRST语句，避免在客户端逐行跳过；
+ * 也负责从查询语句自动生成分页所需的count查询
+ */
+package org.apache.ibatis.executor.dialect;
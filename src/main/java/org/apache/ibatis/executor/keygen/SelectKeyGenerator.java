@@ -23,7 +23,12 @@ import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.RowBounds;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 
 /**
@@ -56,10 +61,31 @@ public class SelectKeyGenerator implements KeyGenerator {
     private final boolean executeBefore;
     // 用户生成主键的SQL语句，就是在数据库操作节点内sql语句前面添加的selectKey标签的内容
     private final MappedStatement keyStatement;
+    // 大于1时按块获取主键：执行一次selectKey语句得到blockSize个主键，之后直接从内存中分配
+    private final int blockSize;
+    // 已经获取但尚未分配的主键，所有会话共享，访问时需要持有本对象的锁
+    private final Deque<Object> keyBlock = new ArrayDeque<>();
 
     public SelectKeyGenerator(MappedStatement keyStatement, boolean executeBefore) {
+        this(keyStatement, executeBefore, 1);
+    }
+
+    /**
+     * blockSize大于1时，selectKey语句要么返回blockSize行，每行是一个主键；
+     * 要么只返回一行，其值是一个步长为blockSize的序列的当前值，主键从该值开始连续分配。
+     * 已分配的主键不会因为事务回滚而归还，所以selectKey语句应当读取数据库序列，而不是依赖事务的计数表。
+     *
+     * @param keyStatement  selectKey语句
+     * @param executeBefore 是否在插入前执行
+     * @param blockSize     每次获取的主键个数
+     */
+    public SelectKeyGenerator(MappedStatement keyStatement, boolean executeBefore, int blockSize) {
+        if (blockSize > 1 && !executeBefore) {
+            throw new IllegalArgumentException("SelectKey with a blockSize must be executed before the statement (order=\"BEFORE\").");
+        }
         this.executeBefore = executeBefore;
         this.keyStatement = keyStatement;
+        this.blockSize = blockSize;
     }
 
     /**
@@ -107,35 +133,36 @@ public class SelectKeyGenerator implements KeyGenerator {
                 String[] keyProperties = keyStatement.getKeyProperties();
                 final Configuration configuration = ms.getConfiguration();
                 final MetaObject metaParam = configuration.newMetaObject(parameter);
-                // Do not close keyExecutor.
-                // The transaction will be closed by parent executor.
-                // 创建一个新的Executor对象来执行指定的select语句，父级执行器会关闭它
-                Executor keyExecutor = configuration.newExecutor(executor.getTransaction(), ExecutorType.SIMPLE);
-                // 执行sql语句，拿到主键值
-                List<Object> values = keyExecutor.query(keyStatement, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
-                // 查到的自增主键值必须有且仅有一个
-                if (values.size() == 0) {
-                    throw new ExecutorException("SelectKey returned no data.");
-                } else if (values.size() > 1) {
-                    throw new ExecutorException("SelectKey returned more than one value.");
-                } else { // 查到的自增值有且仅有一个
-                    // 创建实参对象的MetaObject对象
-                    MetaObject metaResult = configuration.newMetaObject(values.get(0));
-                    if (keyProperties.length == 1) {
-                        // 将主键信息记录到用户传入的实参对象中
-                        if (metaResult.hasGetter(keyProperties[0])) {
-                            // 从metaResult中用getter方法得到主键值
-                            setValue(metaParam, keyProperties[0], metaResult.getValue(keyProperties[0]));
-                        } else {
-                            // no getter for the property - maybe just a single value object
-                            // so try that
-                            // 可能返回的就是主键值本身
-                            setValue(metaParam, keyProperties[0], values.get(0));
-                        }
+                final Object key;
+                if (blockSize > 1) {
+                    key = nextKeyFromBlock(executor, configuration, parameter, keyProperties);
+                } else {
+                    // 执行sql语句，拿到主键值
+                    List<Object> values = selectKeys(executor, configuration, parameter);
+                    // 查到的自增主键值必须有且仅有一个
+                    if (values.size() == 0) {
+                        throw new ExecutorException("SelectKey returned no data.");
+                    } else if (values.size() > 1) {
+                        throw new ExecutorException("SelectKey returned more than one value.");
+                    }
+                    key = values.get(0);
+                }
+                // 创建实参对象的MetaObject对象
+                MetaObject metaResult = configuration.newMetaObject(key);
+                if (keyProperties.length == 1) {
+                    // 将主键信息记录到用户传入的实参对象中
+                    if (metaResult.hasGetter(keyProperties[0])) {
+                        // 从metaResult中用getter方法得到主键值
+                        setValue(metaParam, keyProperties[0], metaResult.getValue(keyProperties[0]));
                     } else {
-                        // 要把执行SQL语句得到的值赋给多个属性的处理。
-                        handleMultipleProperties(keyProperties, metaParam, metaResult);
+                        // no getter for the property - maybe just a single value object
+                        // so try that
+                        // 可能返回的就是主键值本身
+                        setValue(metaParam, keyProperties[0], key);
                     }
+                } else {
+                    // 要把执行SQL语句得到的值赋给多个属性的处理。
+                    handleMultipleProperties(keyProperties, metaParam, metaResult);
                 }
             }
         } catch (ExecutorException e) {
@@ -145,6 +172,67 @@ public class SelectKeyGenerator implements KeyGenerator {
         }
     }
 
+    private List<Object> selectKeys(Executor executor, Configuration configuration, Object parameter) throws SQLException {
+        // Do not close keyExecutor.
+        // The transaction will be closed by parent executor.
+        // 创建一个新的Executor对象来执行指定的select语句，父级执行器会关闭它
+        Executor keyExecutor = configuration.newExecutor(executor.getTransaction(), ExecutorType.SIMPLE);
+        return keyExecutor.query(keyStatement, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    }
+
+    /**
+     * 从已获取的主键中取出一个，用完时执行selectKey语句获取下一块
+     */
+    private synchronized Object nextKeyFromBlock(Executor executor, Configuration configuration, Object parameter,
+                                                 String[] keyProperties) throws SQLException {
+        if (keyBlock.isEmpty()) {
+            List<Object> values = selectKeys(executor, configuration, parameter);
+            if (values.isEmpty()) {
+                throw new ExecutorException("SelectKey returned no data.");
+            } else if (values.size() == 1) {
+                expandPooledKey(configuration, values.get(0), keyProperties);
+            } else {
+                for (Object value : values) {
+                    if (value == null) {
+                        throw new ExecutorException("SelectKey returned a null key.");
+                    }
+                    keyBlock.add(value);
+                }
+            }
+        }
+        return keyBlock.poll();
+    }
+
+    /**
+     * selectKey只返回一行时，把它作为序列的当前值，展开为从该值开始的blockSize个连续主键
+     */
+    private void expandPooledKey(Configuration configuration, Object row, String[] keyProperties) {
+        if (keyProperties.length != 1) {
+            throw new ExecutorException("SelectKey with a blockSize returning a single row requires exactly one keyProperty.");
+        }
+        MetaObject metaResult = configuration.newMetaObject(row);
+        Object first = metaResult.hasGetter(keyProperties[0]) ? metaResult.getValue(keyProperties[0]) : row;
+        for (int i = 0; i < blockSize; i++) {
+            keyBlock.add(addToKey(first, i));
+        }
+    }
+
+    private Object addToKey(Object key, int increment) {
+        if (key instanceof Long) {
+            return (Long) key + increment;
+        } else if (key instanceof Integer) {
+            return (Integer) key + increment;
+        } else if (key instanceof Short) {
+            return (short) ((Short) key + increment);
+        } else if (key instanceof BigInteger) {
+            return ((BigInteger) key).add(BigInteger.valueOf(increment));
+        } else if (key instanceof BigDecimal) {
+            return ((BigDecimal) key).add(BigDecimal.valueOf(increment));
+        }
+        throw new ExecutorException("SelectKey with a blockSize returning a single row requires a numeric key, but got "
+                + (key == null ? "null" : key.getClass().getName()) + ".");
+    }
+
     private void handleMultipleProperties(String[] keyProperties,
                                           MetaObject metaParam, MetaObject metaResult) {
         String[] keyColumns = keyStatement.getKeyColumns();
@@ -0,0 +1,255 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.ResultExtractor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * 批量结果加载器。
+ * 收集同一个结果集中所有行对某个嵌套select的调用，在结果集处理完成后，
+ * 以键值列表（IN查询）为参数一次执行嵌套select，再按foreignColumn把子对象分发回各个父对象。
+ * <p>
+ * 嵌套select收到的参数与SqlSession传入List时相同，可以通过collection或list引用键值列表。
+ * 父对象的键值与子对象foreignColumn属性的值按equals对应，数字先统一成BigDecimal再比较，
+ * 所以父对象的列读成BigDecimal、子对象的属性是Integer或Long时仍然能对应上。
+ * <p>
+ * 懒加载的属性同样按结果集分组：第一次访问任意一个对象的懒加载属性时，
+ * 会为同一结果集中所有尚未加载的兄弟对象一起执行批量查询，兄弟对象之后访问该属性时直接取得已查出的值。
+ *
+ * @see ResultMapping#getBatchSize()
+ */
+public class BatchResultLoader {
+
+    protected final Configuration configuration;
+    protected final Executor executor;
+    protected final MappedStatement mappedStatement;
+    protected final ResultMapping resultMapping;
+    protected final ResultExtractor resultExtractor;
+
+    // 等待加载的父对象，按加入的顺序保存
+    private final List<PendingLoad> pendingLoads = new ArrayList<>();
+    // 尚未触发加载的懒加载属性
+    private final List<LazyLoad> lazyLoads = new ArrayList<>();
+
+    public BatchResultLoader(Configuration configuration, Executor executor, MappedStatement mappedStatement, ResultMapping resultMapping) {
+        this.configuration = configuration;
+        this.executor = executor;
+        this.mappedStatement = mappedStatement;
+        this.resultMapping = resultMapping;
+        this.resultExtractor = new ResultExtractor(configuration, configuration.getObjectFactory());
+    }
+
+    /**
+     * 登记一个需要加载的父对象
+     *
+     * @param metaResultObject 父对象的元对象
+     * @param key              父对象column列的值，也就是嵌套select的参数
+     */
+    public void addLoad(MetaObject metaResultObject, Object key) {
+        pendingLoads.add(new PendingLoad(metaResultObject, key));
+    }
+
+    /**
+     * 登记一个懒加载属性，返回的加载器需要放入父对象的ResultLoaderMap
+     *
+     * @param key 父对象column列的值
+     * @return 与同一结果集中其他懒加载属性一起批量加载的结果加载器
+     */
+    public synchronized ResultLoader addLazyLoad(Object key) {
+        final Object parameterObject = wrapKeys(Collections.singletonList(key));
+        final BoundSql boundSql = mappedStatement.getBoundSql(parameterObject);
+        final CacheKey cacheKey = executor.createCacheKey(mappedStatement, parameterObject, RowBounds.DEFAULT, boundSql);
+        final LazyLoad lazyLoad = new LazyLoad(key, parameterObject, cacheKey, boundSql);
+        lazyLoads.add(lazyLoad);
+        return lazyLoad;
+    }
+
+    /**
+     * 执行所有登记过的加载，每batchSize个不同的键值发起一次嵌套查询
+     *
+     * @throws SQLException
+     */
+    public void load() throws SQLException {
+        if (pendingLoads.isEmpty()) {
+            return;
+        }
+        final Map<Object, Object> distinctKeys = new LinkedHashMap<>();
+        for (PendingLoad pendingLoad : pendingLoads) {
+            distinctKeys.putIfAbsent(normalizeKey(pendingLoad.key), pendingLoad.key);
+        }
+        final Map<Object, List<Object>> rowsByKey = selectRowsByKey(executor, distinctKeys.values());
+        for (PendingLoad pendingLoad : pendingLoads) {
+            final Object value = extractValue(rowsByKey, pendingLoad.key);
+            if (value != null || configuration.isCallSettersOnNulls()) {
+                pendingLoad.metaResultObject.setValue(resultMapping.getProperty(), value);
+            }
+        }
+        pendingLoads.clear();
+    }
+
+    /**
+     * 为所有尚未加载的懒加载属性执行批量查询，结果保存在各自的加载器中
+     */
+    private void loadLazily(Executor localExecutor) throws SQLException {
+        final Map<Object, Object> distinctKeys = new LinkedHashMap<>();
+        for (LazyLoad lazyLoad : lazyLoads) {
+            distinctKeys.putIfAbsent(normalizeKey(lazyLoad.key), lazyLoad.key);
+        }
+        final Map<Object, List<Object>> rowsByKey = selectRowsByKey(localExecutor, distinctKeys.values());
+        for (LazyLoad lazyLoad : lazyLoads) {
+            lazyLoad.setResult(extractValue(rowsByKey, lazyLoad.key));
+        }
+        lazyLoads.clear();
+    }
+
+    private Map<Object, List<Object>> selectRowsByKey(Executor localExecutor, Collection<Object> distinctKeys) throws SQLException {
+        final Map<Object, List<Object>> rowsByKey = new HashMap<>();
+        final String foreignProperty = resolveForeignProperty();
+        final int batchSize = resultMapping.getBatchSize();
+        final List<Object> keys = new ArrayList<>(distinctKeys);
+        for (int from = 0; from < keys.size(); from += batchSize) {
+            final List<Object> batchKeys = new ArrayList<>(keys.subList(from, Math.min(from + batchSize, keys.size())));
+            final List<Object> rows = localExecutor.query(mappedStatement, wrapKeys(batchKeys), RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+            for (Object row : rows) {
+                final Object rowKey = configuration.newMetaObject(row).getValue(foreignProperty);
+                rowsByKey.computeIfAbsent(normalizeKey(rowKey), k -> new ArrayList<>()).add(row);
+            }
+        }
+        return rowsByKey;
+    }
+
+    private Object extractValue(Map<Object, List<Object>> rowsByKey, Object key) {
+        // 每个父对象都拿到自己的列表，避免多个父对象共享同一个集合
+        final List<Object> rows = new ArrayList<>(rowsByKey.getOrDefault(normalizeKey(key), Collections.emptyList()));
+        return resultExtractor.extractObjectFromList(rows, resultMapping.getJavaType());
+    }
+
+    /**
+     * 把键值转换成可以用equals比较的形式。
+     * 父对象的列和子对象的属性可能由不同的TypeHandler读取，同一个数字可能是Integer、Long或精度不同的BigDecimal，
+     * 所以数字统一转成去掉末尾零的BigDecimal，其他类型保持不变
+     */
+    static Object normalizeKey(Object key) {
+        if (key instanceof BigDecimal) {
+            return ((BigDecimal) key).stripTrailingZeros();
+        } else if (key instanceof BigInteger) {
+            return new BigDecimal((BigInteger) key).stripTrailingZeros();
+        } else if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return BigDecimal.valueOf(((Number) key).longValue()).stripTrailingZeros();
+        } else if (key instanceof Double || key instanceof Float) {
+            final double value = ((Number) key).doubleValue();
+            // NaN和无穷大没有对应的BigDecimal，按原值比较；Float按它的十进制表示转换，避免0.1f变成0.100000001...
+            return Double.isNaN(value) || Double.isInfinite(value) ? key : new BigDecimal(key.toString()).stripTrailingZeros();
+        }
+        return key;
+    }
+
+    private Object wrapKeys(List<Object> keys) {
+        return ParamNameResolver.wrapToMapIfCollection(keys, null);
+    }
+
+    /**
+     * 根据foreignColumn找到子对象中保存父对象键值的属性
+     */
+    private String resolveForeignProperty() {
+        final String foreignColumn = resultMapping.getForeignColumn().trim();
+        final ResultMap resultMap = mappedStatement.getResultMaps().get(0);
+        for (ResultMapping childMapping : resultMap.getResultMappings()) {
+            if (childMapping.getProperty() != null && foreignColumn.equalsIgnoreCase(childMapping.getColumn())) {
+                return childMapping.getProperty();
+            }
+        }
+        if (Map.class.isAssignableFrom(resultMap.getType())) {
+            return foreignColumn;
+        }
+        final MetaClass metaClass = MetaClass.forClass(resultMap.getType(), configuration.getReflectorFactory());
+        final String property = metaClass.findProperty(foreignColumn, configuration.isMapUnderscoreToCamelCase());
+        if (property == null) {
+            throw new ExecutorException("Cannot batch load property '" + resultMapping.getProperty() + "' because no property of "
+                    + resultMap.getType().getName() + " is mapped to foreignColumn '" + foreignColumn + "' of statement '"
+                    + mappedStatement.getId() + "'.");
+        }
+        return property;
+    }
+
+    /**
+     * 批量懒加载的成员。
+     * 它本身的参数只包含自己的键值，所以序列化后重新加载时仍然可以作为普通的ResultLoader单独执行。
+     */
+    private class LazyLoad extends ResultLoader {
+        private final Object key;
+
+        private LazyLoad(Object key, Object parameterObject, CacheKey cacheKey, BoundSql boundSql) {
+            super(BatchResultLoader.this.configuration, BatchResultLoader.this.executor, BatchResultLoader.this.mappedStatement,
+                    parameterObject, resultMapping.getJavaType(), cacheKey, boundSql);
+            this.key = key;
+        }
+
+        @Override
+        public Object loadResult() throws SQLException {
+            synchronized (BatchResultLoader.this) {
+                if (!loaded) {
+                    Executor localExecutor = executor;
+                    // 与ResultLoader相同，执行器属于其他线程或已经关闭时，使用新的执行器
+                    if (Thread.currentThread().getId() != creatorThreadId || localExecutor.isClosed()) {
+                        localExecutor = newExecutor();
+                    }
+                    try {
+                        loadLazily(localExecutor);
+                    } finally {
+                        if (localExecutor != executor) {
+                            localExecutor.close(false);
+                        }
+                    }
+                }
+                return resultObject;
+            }
+        }
+
+        private void setResult(Object resultObject) {
+            this.resultObject = resultObject;
+            this.loaded = true;
+        }
+    }
+
+    private static class PendingLoad {
+        private final MetaObject metaResultObject;
+        private final Object key;
+
+        private PendingLoad(MetaObject metaResultObject, Object key) {
+            this.metaResultObject = metaResultObject;
+            this.key = key;
+        }
+    }
+
+}
@@ -0,0 +1,362 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.session.ColumnarResult;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.type.BooleanResultGetter;
+import org.apache.ibatis.type.DoubleResultGetter;
+import org.apache.ibatis.type.IntResultGetter;
+import org.apache.ibatis.type.LongResultGetter;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeReference;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把结果集按列读入列向量的ResultHandler。
+ * 传给Executor#query后，DefaultResultSetHandler不再为每一行创建结果对象，而是把每一行的列值直接追加到列向量中，
+ * 查询结束后通过{@link #getResult()}取得{@link ColumnarResult}。
+ * <p>
+ * 每一列使用的TypeHandler与ResultMap映射该列时相同：显式映射的列使用映射上的TypeHandler，
+ * 其他列按结果对象属性的类型（找不到属性时按列的JDBC类型）解析。
+ * <p>
+ * 列布局（列名和每列的TypeHandler类型）相同的多个结果集依次追加到同一组列向量中，
+ * 例如分库执行器在各个分片上依次执行没有分片键的查询时；列布局不同的结果集不能合并。
+ *
+ * @see org.apache.ibatis.session.SqlSession#selectColumns(String, Object, org.apache.ibatis.session.RowBounds)
+ */
+public class ColumnarResultHandler implements ResultHandler<Object> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private ColumnVector[] vectors;
+    // 第一个结果集的列布局，之后的结果集必须与它相同
+    private List<String> columnNames;
+    private List<Class<?>> typeHandlerTypes;
+    private int rowCount;
+
+    @Override
+    public void handleResult(ResultContext<?> resultContext) {
+        throw new ExecutorException("Columnar results are read directly from the result set and cannot receive mapped objects.");
+    }
+
+    /**
+     * 开始读取一个结果集，之后的结果集追加到已有的列向量中
+     *
+     * @param columnNames   列名
+     * @param typeHandlers  每一列使用的TypeHandler
+     * @param columnIndexes 每一列的列序号，为0时TypeHandler按列名读取
+     */
+    void start(List<String> columnNames, List<TypeHandler<?>> typeHandlers, int[] columnIndexes) {
+        final List<Class<?>> handlerTypes = new ArrayList<>(typeHandlers.size());
+        for (TypeHandler<?> typeHandler : typeHandlers) {
+            handlerTypes.add(typeHandler.getClass());
+        }
+        if (vectors != null) {
+            if (!hasSameLayout(columnNames, handlerTypes)) {
+                throw new ExecutorException("Columnar results can only be read from result sets with the same columns, but "
+                        + columnNames + " does not match " + this.columnNames + ".");
+            }
+            return;
+        }
+        this.columnNames = new ArrayList<>(columnNames);
+        this.typeHandlerTypes = handlerTypes;
+        vectors = new ColumnVector[columnNames.size()];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = createVector(columnNames.get(i), typeHandlers.get(i), i + 1, columnIndexes[i]);
+        }
+    }
+
+    private boolean hasSameLayout(List<String> columnNames, List<Class<?>> handlerTypes) {
+        if (columnNames.size() != this.columnNames.size() || !handlerTypes.equals(typeHandlerTypes)) {
+            return false;
+        }
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (!columnNames.get(i).equalsIgnoreCase(this.columnNames.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 追加结果集的当前行
+     */
+    void appendRow(ResultSet rs) throws SQLException {
+        for (ColumnVector vector : vectors) {
+            vector.append(rs, rowCount);
+        }
+        rowCount++;
+    }
+
+    /**
+     * @return 读取的结果，语句没有返回结果集时没有任何列
+     */
+    public ColumnarResult getResult() {
+        final List<ColumnarResult.Column> columns = new ArrayList<>();
+        if (vectors != null) {
+            for (ColumnVector vector : vectors) {
+                columns.add(vector.toColumn(rowCount));
+            }
+        }
+        return new ColumnarResult(rowCount, columns);
+    }
+
+    private ColumnVector createVector(String name, TypeHandler<?> typeHandler, int position, int columnIndex) {
+        if (typeHandler instanceof IntResultGetter && RowMapperCompiler.readsConsistently(typeHandler, "getIntResult")) {
+            return new IntVector(name, position, (IntResultGetter) typeHandler);
+        } else if (typeHandler instanceof LongResultGetter && RowMapperCompiler.readsConsistently(typeHandler, "getLongResult")) {
+            return new LongVector(name, position, (LongResultGetter) typeHandler);
+        } else if (typeHandler instanceof DoubleResultGetter && RowMapperCompiler.readsConsistently(typeHandler, "getDoubleResult")) {
+            return new DoubleVector(name, position, (DoubleResultGetter) typeHandler);
+        } else if (typeHandler instanceof BooleanResultGetter && RowMapperCompiler.readsConsistently(typeHandler, "getBooleanResult")) {
+            return new BooleanVector(name, position, (BooleanResultGetter) typeHandler);
+        } else if (typeHandler instanceof TypeReference && ((TypeReference<?>) typeHandler).getRawType() == String.class) {
+            return new StringVector(name, position, typeHandler, columnIndex);
+        }
+        return new ObjectVector(name, position, typeHandler, columnIndex);
+    }
+
+    /**
+     * 正在读取的一列
+     */
+    private abstract static class ColumnVector {
+        final String name;
+        // 列在结果集中的位置，基本类型的读取方法按位置读取
+        final int position;
+        final BitSet nulls = new BitSet();
+
+        ColumnVector(String name, int position) {
+            this.name = name;
+            this.position = position;
+        }
+
+        abstract void append(ResultSet rs, int row) throws SQLException;
+
+        abstract ColumnarResult.Column toColumn(int rowCount);
+
+        // 与BaseTypeHandler.getResult相同的异常信息
+        ResultMapException readFailed(Exception e) {
+            return new ResultMapException("Error attempting to get column #" + position + " from result set.  Cause: " + e, e);
+        }
+
+        static int grow(int length) {
+            return Math.max(INITIAL_CAPACITY, length + (length >> 1));
+        }
+    }
+
+    private static class IntVector extends ColumnVector {
+        private final IntResultGetter getter;
+        private int[] values = new int[0];
+
+        IntVector(String name, int position, IntResultGetter getter) {
+            super(name, position);
+            this.getter = getter;
+        }
+
+        @Override
+        void append(ResultSet rs, int row) {
+            try {
+                final int value = getter.getIntResult(rs, position);
+                if (value == 0 && rs.wasNull()) {
+                    nulls.set(row);
+                }
+                if (row == values.length) {
+                    values = Arrays.copyOf(values, grow(values.length));
+                }
+                values[row] = value;
+            } catch (Exception e) {
+                throw readFailed(e);
+            }
+        }
+
+        @Override
+        ColumnarResult.Column toColumn(int rowCount) {
+            return new ColumnarResult.IntColumn(name, rowCount, nulls, Arrays.copyOf(values, rowCount));
+        }
+    }
+
+    private static class LongVector extends ColumnVector {
+        private final LongResultGetter getter;
+        private long[] values = new long[0];
+
+        LongVector(String name, int position, LongResultGetter getter) {
+            super(name, position);
+            this.getter = getter;
+        }
+
+        @Override
+        void append(ResultSet rs, int row) {
+            try {
+                final long value = getter.getLongResult(rs, position);
+                if (value == 0 && rs.wasNull()) {
+                    nulls.set(row);
+                }
+                if (row == values.length) {
+                    values = Arrays.copyOf(values, grow(values.length));
+                }
+                values[row] = value;
+            } catch (Exception e) {
+                throw readFailed(e);
+            }
+        }
+
+        @Override
+        ColumnarResult.Column toColumn(int rowCount) {
+            return new ColumnarResult.LongColumn(name, rowCount, nulls, Arrays.copyOf(values, rowCount));
+        }
+    }
+
+    private static class DoubleVector extends ColumnVector {
+        private final DoubleResultGetter getter;
+        private double[] values = new double[0];
+
+        DoubleVector(String name, int position, DoubleResultGetter getter) {
+            super(name, position);
+            this.getter = getter;
+        }
+
+        @Override
+        void append(ResultSet rs, int row) {
+            try {
+                final double value = getter.getDoubleResult(rs, position);
+                if (value == 0 && rs.wasNull()) {
+                    nulls.set(row);
+                }
+                if (row == values.length) {
+                    values = Arrays.copyOf(values, grow(values.length));
+                }
+                values[row] = value;
+            } catch (Exception e) {
+                throw readFailed(e);
+            }
+        }
+
+        @Override
+        ColumnarResult.Column toColumn(int rowCount) {
+            return new ColumnarResult.DoubleColumn(name, rowCount, nulls, Arrays.copyOf(values, rowCount));
+        }
+    }
+
+    private static class BooleanVector extends ColumnVector {
+        private final BooleanResultGetter getter;
+        private final BitSet values = new BitSet();
+
+        BooleanVector(String name, int position, BooleanResultGetter getter) {
+            super(name, position);
+            this.getter = getter;
+        }
+
+        @Override
+        void append(ResultSet rs, int row) {
+            try {
+                if (getter.getBooleanResult(rs, position)) {
+                    values.set(row);
+                } else if (rs.wasNull()) {
+                    nulls.set(row);
+                }
+            } catch (Exception e) {
+                throw readFailed(e);
+            }
+        }
+
+        @Override
+        ColumnarResult.Column toColumn(int rowCount) {
+            return new ColumnarResult.BooleanColumn(name, rowCount, nulls, values);
+        }
+    }
+
+    /**
+     * 字典编码的字符串列
+     */
+    private static class StringVector extends ColumnVector {
+        private final TypeHandler<?> typeHandler;
+        private final int columnIndex;
+        private final Map<String, Integer> codesByValue = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private int[] codes = new int[0];
+
+        StringVector(String name, int position, TypeHandler<?> typeHandler, int columnIndex) {
+            super(name, position);
+            this.typeHandler = typeHandler;
+            this.columnIndex = columnIndex;
+        }
+
+        @Override
+        void append(ResultSet rs, int row) throws SQLException {
+            final String value = (String) (columnIndex > 0 ? typeHandler.getResult(rs, columnIndex) : typeHandler.getResult(rs, name));
+            int code = -1;
+            if (value == null) {
+                nulls.set(row);
+            } else {
+                code = codesByValue.computeIfAbsent(value, k -> {
+                    dictionary.add(k);
+                    return dictionary.size() - 1;
+                });
+            }
+            if (row == codes.length) {
+                codes = Arrays.copyOf(codes, grow(codes.length));
+            }
+            codes[row] = code;
+        }
+
+        @Override
+        ColumnarResult.Column toColumn(int rowCount) {
+            return new ColumnarResult.StringColumn(name, rowCount, nulls, Arrays.copyOf(codes, rowCount), dictionary);
+        }
+    }
+
+    private static class ObjectVector extends ColumnVector {
+        private final TypeHandler<?> typeHandler;
+        private final int columnIndex;
+        private Object[] values = new Object[0];
+
+        ObjectVector(String name, int position, TypeHandler<?> typeHandler, int columnIndex) {
+            super(name, position);
+            this.typeHandler = typeHandler;
+            this.columnIndex = columnIndex;
+        }
+
+        @Override
+        void append(ResultSet rs, int row) throws SQLException {
+            final Object value = columnIndex > 0 ? typeHandler.getResult(rs, columnIndex) : typeHandler.getResult(rs, name);
+            if (value == null) {
+                nulls.set(row);
+            }
+            if (row == values.length) {
+                values = Arrays.copyOf(values, grow(values.length));
+            }
+            values[row] = value;
+        }
+
+        @Override
+        ColumnarResult.Column toColumn(int rowCount) {
+            return new ColumnarResult.ObjectColumn(name, rowCount, nulls, Arrays.copyOf(values, rowCount));
+        }
+    }
+
+}
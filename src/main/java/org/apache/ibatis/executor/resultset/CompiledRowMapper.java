@@ -0,0 +1,487 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.lang.UsesJava7;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.type.BooleanResultGetter;
+import org.apache.ibatis.type.DoubleResultGetter;
+import org.apache.ibatis.type.IntResultGetter;
+import org.apache.ibatis.type.LongResultGetter;
+import org.apache.ibatis.type.TypeHandler;
+
+import java.lang.invoke.MethodHandle;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 为某个ResultMap和某种列布局生成的行映射器，由{@link RowMapperCompiler}创建。
+ * 列在编译时已经解析为列序号，setter已经解析为MethodHandle，映射一行时不再经过MetaObject、
+ * PropertyTokenizer和按列名查找列，映射结果与DefaultResultSetHandler的反射路径相同。
+ * 与反射路径一样，只有MyBatis自带的类型处理器按列序号读取，自定义的类型处理器仍然按列名读取。
+ * <p>
+ * 内置的int、long、double、boolean类型处理器映射到同类型基本类型属性时，
+ * 列值通过ResultSet.getInt等方法直接传给(Object, int)void这样的setter，不经过装箱和参数数组。
+ * <p>
+ * 流水线映射时读取列值和设置属性分开进行：{@link #readRow(ResultSet)}在读取线程读出一行的列值，
+ * {@link #mapRow(Object[])}在映射线程用这些值创建结果对象，不再访问ResultSet。
+ *
+ * @see RowPipeline
+ */
+public class CompiledRowMapper {
+
+    // 结果对象的无参构造器，使用自定义ObjectFactory时为空
+    private final MethodHandle constructor;
+    private final ObjectFactory objectFactory;
+    private final Class<?> type;
+    private final PropertyBinding[] bindings;
+    private final boolean callSettersOnNulls;
+    private final boolean returnInstanceForEmptyRow;
+
+    CompiledRowMapper(MethodHandle constructor, ObjectFactory objectFactory, Class<?> type, List<PropertyBinding> bindings,
+                      boolean callSettersOnNulls, boolean returnInstanceForEmptyRow) {
+        this.constructor = constructor;
+        this.objectFactory = objectFactory;
+        this.type = type;
+        this.bindings = bindings.toArray(new PropertyBinding[0]);
+        this.callSettersOnNulls = callSettersOnNulls;
+        this.returnInstanceForEmptyRow = returnInstanceForEmptyRow;
+    }
+
+    /**
+     * 映射结果集的当前行
+     *
+     * @param rs 结果集，已经定位到要映射的行
+     * @return 结果对象，没有映射到任何值且没有开启returnInstanceForEmptyRow时返回null
+     * @throws SQLException
+     */
+    public Object mapRow(ResultSet rs) throws SQLException {
+        final Object rowValue = newInstance();
+        boolean foundValues = false;
+        for (PropertyBinding binding : bindings) {
+            if (binding.bind(rs, rowValue, callSettersOnNulls)) {
+                foundValues = true;
+            }
+        }
+        return foundValues || returnInstanceForEmptyRow ? rowValue : null;
+    }
+
+    /**
+     * 读取结果集当前行中所有绑定的列值，列为NULL时对应的值为null
+     *
+     * @param rs 结果集，已经定位到要读取的行
+     * @return 按绑定顺序排列的列值
+     * @throws SQLException
+     */
+    public Object[] readRow(ResultSet rs) throws SQLException {
+        final Object[] values = new Object[bindings.length];
+        for (int i = 0; i < bindings.length; i++) {
+            values[i] = bindings[i].read(rs);
+        }
+        return values;
+    }
+
+    /**
+     * 用{@link #readRow(ResultSet)}读取的列值创建结果对象，不访问结果集，可以在其他线程调用
+     *
+     * @param values 一行的列值
+     * @return 结果对象，规则与{@link #mapRow(ResultSet)}相同
+     */
+    public Object mapRow(Object[] values) {
+        final Object rowValue = newInstance();
+        boolean foundValues = false;
+        for (int i = 0; i < bindings.length; i++) {
+            if (bindings[i].apply(rowValue, values[i], callSettersOnNulls)) {
+                foundValues = true;
+            }
+        }
+        return foundValues || returnInstanceForEmptyRow ? rowValue : null;
+    }
+
+    @UsesJava7
+    private Object newInstance() {
+        if (constructor == null) {
+            return objectFactory.create(type);
+        }
+        try {
+            return constructor.invoke();
+        } catch (Throwable t) {
+            throw new ReflectionException("Error instantiating " + type + ". Cause: " + t, t);
+        }
+    }
+
+    /**
+     * 一列到一个属性的绑定
+     */
+    abstract static class PropertyBinding {
+        // 列序号，按列名读取时为0
+        final int columnIndex;
+        final String column;
+        final String property;
+
+        PropertyBinding(int columnIndex, String column, String property) {
+            this.columnIndex = columnIndex;
+            this.column = column;
+            this.property = property;
+        }
+
+        /**
+         * 读取当前行的列值并设置到结果对象
+         *
+         * @return 列值是否不为null
+         */
+        abstract boolean bind(ResultSet rs, Object target, boolean callSettersOnNulls) throws SQLException;
+
+        /**
+         * 读取当前行的列值，列为NULL时返回null
+         */
+        abstract Object read(ResultSet rs) throws SQLException;
+
+        /**
+         * 把read读取的列值设置到结果对象
+         *
+         * @return 列值是否不为null
+         */
+        abstract boolean apply(Object target, Object value, boolean callSettersOnNulls);
+
+        // 与BaseTypeHandler.getResult相同的异常信息
+        ResultMapException readFailed(Exception e) {
+            final String target = columnIndex > 0 ? "#" + columnIndex : "'" + column + "'";
+            return new ResultMapException("Error attempting to get column " + target + " from result set.  Cause: " + e, e);
+        }
+
+        ReflectionException setFailed(Object target, Object value, Throwable t) {
+            return new ReflectionException("Could not set property '" + property + "' of '" + target.getClass() + "' with value '" + value + "' Cause: " + t, t);
+        }
+    }
+
+    /**
+     * 通过TypeHandler读取对象形式的列值
+     */
+    abstract static class ObjectBinding extends PropertyBinding {
+        final TypeHandler<?> typeHandler;
+        final boolean primitive;
+
+        ObjectBinding(int columnIndex, String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
+            super(columnIndex, column, property);
+            this.typeHandler = typeHandler;
+            this.primitive = primitive;
+        }
+
+        @Override
+        boolean bind(ResultSet rs, Object target, boolean callSettersOnNulls) throws SQLException {
+            return apply(target, read(rs), callSettersOnNulls);
+        }
+
+        @Override
+        Object read(ResultSet rs) throws SQLException {
+            return columnIndex > 0 ? typeHandler.getResult(rs, columnIndex) : typeHandler.getResult(rs, column);
+        }
+
+        @Override
+        boolean apply(Object target, Object value, boolean callSettersOnNulls) {
+            // 与反射路径相同，基本类型的属性不设置null
+            if (value != null || (callSettersOnNulls && !primitive)) {
+                try {
+                    doSetValue(target, value);
+                } catch (Throwable t) {
+                    throw setFailed(target, value, t);
+                }
+            }
+            return value != null;
+        }
+
+        abstract void doSetValue(Object target, Object value) throws Throwable;
+    }
+
+    /**
+     * 通过MethodHandle调用setter或直接设置字段，类型为(Object, Object)void
+     */
+    static class HandleBinding extends ObjectBinding {
+        private final MethodHandle setter;
+
+        HandleBinding(int columnIndex, String column, String property, TypeHandler<?> typeHandler, boolean primitive, MethodHandle setter) {
+            super(columnIndex, column, property, typeHandler, primitive);
+            this.setter = setter;
+        }
+
+        @Override
+        @UsesJava7
+        void doSetValue(Object target, Object value) throws Throwable {
+            setter.invokeExact(target, value);
+        }
+    }
+
+    /**
+     * 无法取得MethodHandle时（例如没有访问权限）使用Reflector的Invoker
+     */
+    static class InvokerBinding extends ObjectBinding {
+        private final Invoker invoker;
+
+        InvokerBinding(int columnIndex, String column, String property, TypeHandler<?> typeHandler, boolean primitive, Invoker invoker) {
+            super(columnIndex, column, property, typeHandler, primitive);
+            this.invoker = invoker;
+        }
+
+        @Override
+        void doSetValue(Object target, Object value) throws Throwable {
+            try {
+                invoker.invoke(target, new Object[]{value});
+            } catch (Throwable t) {
+                throw ExceptionUtil.unwrapThrowable(t);
+            }
+        }
+    }
+
+    /**
+     * int列到int属性，setter类型为(Object, int)void，列值不经过装箱。
+     * 列为NULL时与反射路径相同，不调用setter
+     */
+    static class IntBinding extends PropertyBinding {
+        private final IntResultGetter getter;
+        private final MethodHandle setter;
+
+        IntBinding(int columnIndex, String column, String property, IntResultGetter getter, MethodHandle setter) {
+            super(columnIndex, column, property);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        @UsesJava7
+        boolean bind(ResultSet rs, Object target, boolean callSettersOnNulls) {
+            final int value;
+            try {
+                value = getter.getIntResult(rs, columnIndex);
+                if (value == 0 && rs.wasNull()) {
+                    return false;
+                }
+            } catch (Exception e) {
+                throw readFailed(e);
+            }
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable t) {
+                throw setFailed(target, value, t);
+            }
+            return true;
+        }
+
+        @Override
+        Object read(ResultSet rs) {
+            try {
+                final int value = getter.getIntResult(rs, columnIndex);
+                return value == 0 && rs.wasNull() ? null : value;
+            } catch (Exception e) {
+                throw readFailed(e);
+            }
+        }
+
+        @Override
+        @UsesJava7
+        boolean apply(Object target, Object value, boolean callSettersOnNulls) {
+            if (value == null) {
+                return false;
+            }
+            try {
+                setter.invokeExact(target, ((Integer) value).intValue());
+            } catch (Throwable t) {
+                throw setFailed(target, value, t);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * long列到long属性，setter类型为(Object, long)void
+     */
+    static class LongBinding extends PropertyBinding {
+        private final LongResultGetter getter;
+        private final MethodHandle setter;
+
+        LongBinding(int columnIndex, String column, String property, LongResultGetter getter, MethodHandle setter) {
+            super(columnIndex, column, property);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        @UsesJava7
+        boolean bind(ResultSet rs, Object target, boolean callSettersOnNulls) {
+            final long value;
+            try {
+                value = getter.getLongResult(rs, columnIndex);
+                if (value == 0 && rs.wasNull()) {
+                    return false;
+                }
+            } catch (Exception e) {
+                throw readFailed(e);
+            }
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable t) {
+                throw setFailed(target, value, t);
+            }
+            return true;
+        }
+
+        @Override
+        Object read(ResultSet rs) {
+            try {
+                final long value = getter.getLongResult(rs, columnIndex);
+                return value == 0 && rs.wasNull() ? null : value;
+            } catch (Exception e) {
+                throw readFailed(e);
+            }
+        }
+
+        @Override
+        @UsesJava7
+        boolean apply(Object target, Object value, boolean callSettersOnNulls) {
+            if (value == null) {
+                return false;
+            }
+            try {
+                setter.invokeExact(target, ((Long) value).longValue());
+            } catch (Throwable t) {
+                throw setFailed(target, value, t);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * double列到double属性，setter类型为(Object, double)void
+     */
+    static class DoubleBinding extends PropertyBinding {
+        private final DoubleResultGetter getter;
+        private final MethodHandle setter;
+
+        DoubleBinding(int columnIndex, String column, String property, DoubleResultGetter getter, MethodHandle setter) {
+            super(columnIndex, column, property);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        @UsesJava7
+        boolean bind(ResultSet rs, Object target, boolean callSettersOnNulls) {
+            final double value;
+            try {
+                value = getter.getDoubleResult(rs, columnIndex);
+                if (value == 0 && rs.wasNull()) {
+                    return false;
+                }
+            } catch (Exception e) {
+                throw readFailed(e);
+            }
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable t) {
+                throw setFailed(target, value, t);
+            }
+            return true;
+        }
+
+        @Override
+        Object read(ResultSet rs) {
+            try {
+                final double value = getter.getDoubleResult(rs, columnIndex);
+                return value == 0 && rs.wasNull() ? null : value;
+            } catch (Exception e) {
+                throw readFailed(e);
+            }
+        }
+
+        @Override
+        @UsesJava7
+        boolean apply(Object target, Object value, boolean callSettersOnNulls) {
+            if (value == null) {
+                return false;
+            }
+            try {
+                setter.invokeExact(target, ((Double) value).doubleValue());
+            } catch (Throwable t) {
+                throw setFailed(target, value, t);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * boolean列到boolean属性，setter类型为(Object, boolean)void
+     */
+    static class BooleanBinding extends PropertyBinding {
+        private final BooleanResultGetter getter;
+        private final MethodHandle setter;
+
+        BooleanBinding(int columnIndex, String column, String property, BooleanResultGetter getter, MethodHandle setter) {
+            super(columnIndex, column, property);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        @UsesJava7
+        boolean bind(ResultSet rs, Object target, boolean callSettersOnNulls) {
+            final boolean value;
+            try {
+                value = getter.getBooleanResult(rs, columnIndex);
+                if (!value && rs.wasNull()) {
+                    return false;
+                }
+            } catch (Exception e) {
+                throw readFailed(e);
+            }
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable t) {
+                throw setFailed(target, value, t);
+            }
+            return true;
+        }
+
+        @Override
+        Object read(ResultSet rs) {
+            try {
+                final boolean value = getter.getBooleanResult(rs, columnIndex);
+                return !value && rs.wasNull() ? null : value;
+            } catch (Exception e) {
+                throw readFailed(e);
+            }
+        }
+
+        @Override
+        @UsesJava7
+        boolean apply(Object target, Object value, boolean callSettersOnNulls) {
+            if (value == null) {
+                return false;
+            }
+            try {
+                setter.invokeExact(target, ((Boolean) value).booleanValue());
+            } catch (Throwable t) {
+                throw setFailed(target, value, t);
+            }
+            return true;
+        }
+    }
+
+}
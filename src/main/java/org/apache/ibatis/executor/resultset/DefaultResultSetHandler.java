@@ -23,6 +23,7 @@ import org.apache.ibatis.cursor.defaults.DefaultCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.BatchResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -32,8 +33,12 @@ import org.apache.ibatis.executor.result.ResultMapException;
 import org.apache.ibatis.mapping.*;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.reflection.Reflector;
 import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.session.*;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -57,6 +62,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
     private static final Object DEFERRED = new Object();
 
+    // resultOrdered时一个父对象完成后会丢弃它的所有行键，超过这个数量时换一个新的Map，释放HashMap扩容后的桶数组
+    private static final int NESTED_RESULT_OBJECTS_RETAINED_CAPACITY = 256;
+
+    // 类型处理器是否是MyBatis自带的实现，自带的实现按列序号和按列名读取的结果相同
+    private static final ClassValue<Boolean> BUILT_IN_TYPE_HANDLERS = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return type.getName().equals(TypeHandler.class.getPackage().getName() + "." + type.getSimpleName());
+        }
+    };
+
     private final Executor executor;
     private final Configuration configuration;
     private final MappedStatement mappedStatement;
@@ -69,7 +85,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     private final ReflectorFactory reflectorFactory;
 
     // nested resultmaps
-    private final Map<CacheKey, Object> nestedResultObjects = new HashMap<>();
+    private Map<RowKey, Object> nestedResultObjects = new HashMap<>();
     private final Map<String, Object> ancestorObjects = new HashMap<>();
     private Object previousRowValue;
 
@@ -77,18 +93,38 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
     private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
 
+    // batched nested queries, keyed by mapping instance since ResultMapping#equals only compares the property
+    private final Map<ResultMapping, BatchResultLoader> batchResultLoaders = new IdentityHashMap<>();
+
     // Cached Automappings
     private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
+    // 编译的行映射器使用的列布局键，以及它对应的结果集和ResultMap
+    private ResultSetWrapper layoutRsw;
+    private ResultMap layoutResultMap;
+    private CacheKey layoutKey;
+
+    // 各ResultMap按列名前缀最近创建的RowMap，下一行沿用它的键集合
+    private final Map<ResultMap, Map<String, RowMap>> lastRowMaps = new HashMap<>();
+
+    // 当前结果集中各ResultMap按列名前缀解析出的行键列
+    private ResultSetWrapper rowKeyRsw;
+    private final Map<ResultMap, Map<String, RowKey.Layout>> rowKeyLayouts = new HashMap<>();
+
     // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
     private boolean useConstructorMappings;
 
+    // 从结果集读取的行数，用于自适应fetchSize
+    private int fetchedRows;
+    // 当前结果集的流水线映射，游标逐行读取时在多次调用之间保留
+    private RowPipeline rowPipeline;
+
     private static class PendingRelation {
         public MetaObject metaObject;
         public ResultMapping propertyMapping;
     }
 
-    private static class UnMappedColumnAutoMapping {
+    static class UnMappedColumnAutoMapping {
         private final String column;
         private final String property;
         private final TypeHandler<?> typeHandler;
@@ -213,6 +249,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             }
         }
 
+        if (configuration.isAdaptiveFetchSizeEnabled()) {
+            configuration.getFetchSizeAdvisor().recordRows(mappedStatement, fetchedRows);
+        }
         return collapseSingleResultList(multipleResults);
     }
 
@@ -234,6 +273,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
     }
 
+    /**
+     * 游标读完或关闭时由游标调用。游标提前关闭时不会再经过handleResultSets的清理，所以在这里取消流水线中还在映射的批次，
+     * 开启adaptiveFetchSizeEnabled时记录游标实际读取的行数
+     */
+    public void closeCursor() {
+        releaseRowPipeline();
+        if (configuration.isAdaptiveFetchSizeEnabled()) {
+            configuration.getFetchSizeAdvisor().recordRows(mappedStatement, fetchedRows);
+        }
+    }
+
     private ResultSetWrapper getFirstResultSet(Statement stmt) throws SQLException {
         ResultSet rs = stmt.getResultSet();
         while (rs == null) {
@@ -282,7 +332,31 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
 
     private void cleanUpAfterHandlingResultSet() {
-        nestedResultObjects.clear();
+        evictNestedResultObjects();
+        rowKeyRsw = null;
+        rowKeyLayouts.clear();
+        lastRowMaps.clear();
+        releaseRowPipeline();
+    }
+
+    private void releaseRowPipeline() {
+        if (rowPipeline != null) {
+            fetchedRows += rowPipeline.getRowsRead();
+            rowPipeline.cancel();
+            rowPipeline = null;
+        }
+    }
+
+    /**
+     * 丢弃已经完成的结果对象的行键。
+     * clear()不会缩小HashMap，一个父对象有大量子行时，之后的父对象仍会持有那么大的桶数组，所以这种情况下直接换一个新的Map
+     */
+    private void evictNestedResultObjects() {
+        if (nestedResultObjects.size() > NESTED_RESULT_OBJECTS_RETAINED_CAPACITY) {
+            nestedResultObjects = new HashMap<>();
+        } else {
+            nestedResultObjects.clear();
+        }
     }
 
     private void validateResultMapsCount(ResultSetWrapper rsw, int resultMapCount) {
@@ -339,6 +413,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
      * @throws SQLException
      */
     public void handleRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
+        // 按列读取时不创建结果对象，直接把列值追加到列向量
+        if (resultHandler instanceof ColumnarResultHandler) {
+            handleRowValuesForColumns(rsw, resultMap, (ColumnarResultHandler) resultHandler, rowBounds);
+            return;
+        }
         // 包含嵌套映射的处理流程
         if (resultMap.hasNestedResultMaps()) {
             // 前置校验
@@ -349,6 +428,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         } else { // 处理单层映射
             handleRowValuesForSimpleResultMap(rsw, resultMap, resultHandler, rowBounds, parentMapping);
         }
+        // 所有行都处理完之后，一次性执行收集到的批量嵌套查询，懒加载的批量加载器则等到第一次访问时才执行
+        loadBatchedNestedQueries();
+    }
+
+    private void loadBatchedNestedQueries() throws SQLException {
+        if (batchResultLoaders.isEmpty()) {
+            return;
+        }
+        for (BatchResultLoader batchResultLoader : batchResultLoaders.values()) {
+            batchResultLoader.load();
+        }
+        batchResultLoaders.clear();
     }
 
     private void ensureNoRowBounds() {
@@ -384,16 +475,195 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         // 根据分页配置，跳过多余的记录，定位到指定的行
         skipRows(resultSet, rowBounds);
         // shouldProcessMoreRows()，监测是否还有需要映射的数据记录
-        while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
-            // 处理映射中用到的Discriminator，决定此次映射实际使用的ResultMap
-            ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-            // 对ResultSet中的一行记录进行映射，使用的是上一步确定的ResultMap，将其转为一个对象
-            Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
+        // 开启compiledRowMappersEnabled或pipelinedMappingEnabled时，可以编译的ResultMap取得当前列布局已经编译好的行映射器
+        final CacheKey rowLayoutKey = getRowLayoutKey(rsw, resultMap);
+        CompiledRowMapper rowMapper = rowLayoutKey != null ? configuration.getRowMapperCompiler().getRowMapper(rowLayoutKey) : null;
+        while (shouldProcessMoreRows(resultContext, rowBounds)) {
+            if (rowPipeline == null && rowMapper != null && shouldPipelineRows(parentMapping)) {
+                // 取得行映射器之后，后续的行交给流水线读取和映射
+                rowPipeline = new RowPipeline(configuration, rowMapper, resultSet, rowBounds.getLimit() - resultContext.getResultCount());
+            }
+            Object rowValue;
+            if (rowPipeline != null) {
+                if (!rowPipeline.hasNext()) {
+                    break;
+                }
+                rowValue = rowPipeline.next();
+            } else if (!resultSet.isClosed() && resultSet.next()) {
+                fetchedRows++;
+                if (rowMapper != null) {
+                    rowValue = rowMapper.mapRow(resultSet);
+                } else {
+                    // 处理映射中用到的Discriminator，决定此次映射实际使用的ResultMap
+                    ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw, resultMap, null);
+                    // 对ResultSet中的一行记录进行映射，使用的是上一步确定的ResultMap，将其转为一个对象
+                    rowValue = getRowValue(rsw, discriminatedResultMap, null);
+                    if (rowLayoutKey != null && layoutKey != null) {
+                        // 第一行按反射路径映射后自动映射已经解析完成，用它编译行映射器
+                        rowMapper = compileRowMapper(rsw, resultMap, rowLayoutKey);
+                    }
+                }
+            } else {
+                break;
+            }
             // 记录返回的映射好的Java对象
             storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
         }
     }
 
+    /**
+     * 流水线映射时读取的行不再是结果集的当前行，所以需要读取当前行的父级映射（多结果集）不使用流水线
+     */
+    private boolean shouldPipelineRows(ResultMapping parentMapping) {
+        return configuration.isPipelinedMappingEnabled() && parentMapping == null;
+    }
+
+    //
+    // COLUMNAR RESULTS
+    //
+
+    private void handleRowValuesForColumns(ResultSetWrapper rsw, ResultMap resultMap, ColumnarResultHandler resultHandler, RowBounds rowBounds) throws SQLException {
+        if (resultMap.hasNestedResultMaps()) {
+            throw new ExecutorException("Mapped Statements with nested result mappings cannot be read as columns: " + mappedStatement.getId());
+        }
+        final List<String> columnNames = rsw.getColumnNames();
+        final List<TypeHandler<?>> typeHandlers = new ArrayList<>(columnNames.size());
+        final int[] columnIndexes = new int[columnNames.size()];
+        for (int i = 0; i < columnNames.size(); i++) {
+            final TypeHandler<?> typeHandler = resolveColumnTypeHandler(rsw, resultMap, columnNames.get(i), columnNames.size());
+            typeHandlers.add(typeHandler);
+            // 所有列按位置依次读取，自带的类型处理器直接使用列的位置，其他的与普通映射一样按列名读取
+            columnIndexes[i] = BUILT_IN_TYPE_HANDLERS.get(typeHandler.getClass()) ? i + 1 : 0;
+        }
+        resultHandler.start(columnNames, typeHandlers, columnIndexes);
+        final ResultSet resultSet = rsw.getResultSet();
+        skipRows(resultSet, rowBounds);
+        int rows = 0;
+        while (rows < rowBounds.getLimit() && !resultSet.isClosed() && resultSet.next()) {
+            fetchedRows++;
+            resultHandler.appendRow(resultSet);
+            rows++;
+        }
+    }
+
+    /**
+     * 列使用的TypeHandler与映射到结果对象时相同
+     */
+    private TypeHandler<?> resolveColumnTypeHandler(ResultSetWrapper rsw, ResultMap resultMap, String columnName, int columnCount) {
+        for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+            if (columnName.equalsIgnoreCase(resultMapping.getColumn()) && resultMapping.getNestedQueryId() == null
+                    && resultMapping.getTypeHandler() != null) {
+                return resultMapping.getTypeHandler();
+            }
+        }
+        final Class<?> resultType = resultMap.getType();
+        Class<?> javaType = Object.class;
+        if (columnCount == 1 && typeHandlerRegistry.hasTypeHandler(resultType)) {
+            // 单列的简单类型结果，例如resultType="long"
+            javaType = resultType;
+        } else if (!Map.class.isAssignableFrom(resultType) && !resultType.isInterface()) {
+            final MetaClass metaType = MetaClass.forClass(resultType, reflectorFactory);
+            final String property = metaType.findProperty(columnName, configuration.isMapUnderscoreToCamelCase());
+            if (property != null && metaType.hasSetter(property)) {
+                javaType = metaType.getSetterType(property);
+            }
+        }
+        return rsw.getTypeHandler(javaType, columnName);
+    }
+
+    //
+    // COMPILED ROW MAPPERS
+    //
+
+    /**
+     * 游标每读取一行都会重新进入handleRowValuesForSimpleResultMap，所以列布局键按结果集和ResultMap记在字段中
+     *
+     * @return 列布局键，ResultMap不能使用编译的行映射器时返回null
+     */
+    private CacheKey getRowLayoutKey(ResultSetWrapper rsw, ResultMap resultMap) {
+        if (rsw != layoutRsw || resultMap != layoutResultMap) {
+            layoutRsw = rsw;
+            layoutResultMap = resultMap;
+            layoutKey = isRowMapperCompilable(rsw, resultMap) ? createRowLayoutKey(rsw, resultMap) : null;
+        }
+        return layoutKey;
+    }
+
+    /**
+     * 只有不需要逐行判断的简单映射才能编译：没有鉴别器、构造器映射、嵌套映射和嵌套查询，
+     * 结果对象通过无参构造器创建，所有属性都是结果对象自身的属性，并且按列标签映射（列序号才与按列名读取时相同）
+     */
+    private boolean isRowMapperCompilable(ResultSetWrapper rsw, ResultMap resultMap) {
+        if (!(configuration.isCompiledRowMappersEnabled() || configuration.isPipelinedMappingEnabled())
+                || !configuration.isUseColumnLabel()
+                || resultMap.getDiscriminator() != null
+                || resultMap.hasNestedResultMaps()
+                || resultMap.hasNestedQueries()
+                || !resultMap.getConstructorResultMappings().isEmpty()) {
+            return false;
+        }
+        final Class<?> resultType = resultMap.getType();
+        if (resultType.isInterface()
+                || Map.class.isAssignableFrom(resultType)
+                || Collection.class.isAssignableFrom(resultType)
+                || hasTypeHandlerForResultObject(rsw, resultType)
+                || !(configuration.getObjectWrapperFactory() instanceof DefaultObjectWrapperFactory)
+                || !reflectorFactory.findForClass(resultType).hasDefaultConstructor()) {
+            return false;
+        }
+        for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+            if (propertyMapping.isCompositeResult() || propertyMapping.getResultSet() != null
+                    || !isSimpleProperty(propertyMapping.getProperty())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSimpleProperty(String property) {
+        return property == null || (property.indexOf('.') < 0 && property.indexOf('[') < 0);
+    }
+
+    private CacheKey createRowLayoutKey(ResultSetWrapper rsw, ResultMap resultMap) {
+        final CacheKey cacheKey = new CacheKey();
+        cacheKey.update(resultMap.getId());
+        cacheKey.update(rsw.getColumnLayout());
+        return cacheKey;
+    }
+
+    /**
+     * 按反射路径解析出的映射关系编译行映射器，映射关系无法编译时返回null，当前结果集之后不再尝试
+     */
+    private CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap, CacheKey rowLayoutKey) throws SQLException {
+        final Reflector reflector = reflectorFactory.findForClass(resultMap.getType());
+        final List<RowMapperCompiler.ColumnProperty> columns = new ArrayList<>();
+        final List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(resultMap.getId() + ":" + null);
+        if (autoMapping != null) {
+            for (UnMappedColumnAutoMapping mapping : autoMapping) {
+                if (!isSimpleProperty(mapping.property)) {
+                    layoutKey = null;
+                    return null;
+                }
+                columns.add(new RowMapperCompiler.ColumnProperty(getColumnIndex(rsw, mapping.column), mapping.column, mapping.property, mapping.typeHandler));
+            }
+        }
+        final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+        for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+            final String property = propertyMapping.getProperty();
+            final String column = propertyMapping.getColumn();
+            if (property == null || column == null || !mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+                continue;
+            }
+            if (!reflector.hasSetter(property)) {
+                // 反射路径只在值不为null时才会报错，保留原来的行为
+                layoutKey = null;
+                return null;
+            }
+            columns.add(new RowMapperCompiler.ColumnProperty(getColumnIndex(rsw, column), column, property, propertyMapping.getTypeHandler()));
+        }
+        return configuration.getRowMapperCompiler().compile(rowLayoutKey, resultMap.getType(), columns);
+    }
+
     /**
      * 记录映射完成的Java对象
      *
@@ -489,7 +759,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     // GET VALUE FROM ROW FOR NESTED RESULT MAP
     //
 
-    private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, CacheKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
+    private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, RowKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
         final String resultMapId = resultMap.getId();
         Object rowValue = partialObject;
         if (rowValue != null) {
@@ -513,7 +783,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                 foundValues = lazyLoader.size() > 0 || foundValues;
                 rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
             }
-            if (combinedKey != CacheKey.NULL_CACHE_KEY) {
+            if (combinedKey != RowKey.NULL_ROW_KEY) {
                 nestedResultObjects.put(combinedKey, rowValue);
             }
         }
@@ -555,7 +825,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             if (propertyMapping.isCompositeResult()
                     || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
                     || propertyMapping.getResultSet() != null) {
-                Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+                Object value = getPropertyMappingValue(rsw, metaObject, propertyMapping, lazyLoader, columnPrefix);
                 // issue #541 make property optional
                 final String property = propertyMapping.getProperty();
                 if (property == null) {
@@ -576,54 +846,100 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return foundValues;
     }
 
-    private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
+    private Object getPropertyMappingValue(ResultSetWrapper rsw, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
             throws SQLException {
         if (propertyMapping.getNestedQueryId() != null) {
-            return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
+            return getNestedQueryMappingValue(rsw, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
         } else if (propertyMapping.getResultSet() != null) {
-            addPendingChildRelation(rs, metaResultObject, propertyMapping);   // TODO is that OK?
+            addPendingChildRelation(rsw.getResultSet(), metaResultObject, propertyMapping);   // TODO is that OK?
             return DEFERRED;
         } else {
             final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
             final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-            return typeHandler.getResult(rs, column);
+            return getColumnValue(rsw, typeHandler, column);
+        }
+    }
+
+    /**
+     * 读取列值。MyBatis自带的类型处理器按列序号读取，列序号在ResultSetWrapper中按列名缓存，驱动不需要每行按列名查找列；
+     * 自定义的类型处理器可能只实现了按列名读取，仍然使用列名。
+     *
+     * @param rsw         包装后的结果集
+     * @param typeHandler 类型处理器
+     * @param column      列名，已经加上前缀
+     * @return 列值
+     * @throws SQLException
+     */
+    private Object getColumnValue(ResultSetWrapper rsw, TypeHandler<?> typeHandler, String column) throws SQLException {
+        if (isBuiltInTypeHandler(typeHandler)) {
+            final int columnIndex = getColumnIndex(rsw, column);
+            if (columnIndex > 0) {
+                return typeHandler.getResult(rsw.getResultSet(), columnIndex);
+            }
         }
+        return typeHandler.getResult(rsw.getResultSet(), column);
+    }
+
+    /**
+     * @return 类型处理器是否是MyBatis自带的实现，只有自带的实现可以按列序号代替列名读取
+     */
+    static boolean isBuiltInTypeHandler(TypeHandler<?> typeHandler) {
+        return BUILT_IN_TYPE_HANDLERS.get(typeHandler.getClass());
+    }
+
+    /**
+     * 驱动按列标签查找列，只有ResultSetWrapper记录的也是列标签时，按列名查到的列序号才与驱动查到的列相同
+     *
+     * @return 列序号，不能按列序号读取时返回0
+     */
+    private int getColumnIndex(ResultSetWrapper rsw, String column) {
+        return configuration.isUseColumnLabel() ? rsw.getColumnIndex(column) : 0;
     }
 
     private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
         final String mapKey = resultMap.getId() + ":" + columnPrefix;
         List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(mapKey);
         if (autoMapping == null) {
-            autoMapping = new ArrayList<>();
-            final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
-            for (String columnName : unmappedColumnNames) {
-                String propertyName = columnName;
-                if (columnPrefix != null && !columnPrefix.isEmpty()) {
-                    // When columnPrefix is specified,
-                    // ignore columns without the prefix.
-                    if (columnName.toUpperCase(Locale.ENGLISH).startsWith(columnPrefix)) {
-                        propertyName = columnName.substring(columnPrefix.length());
-                    } else {
-                        continue;
-                    }
-                }
-                final String property = metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
-                if (property != null && metaObject.hasSetter(property)) {
-                    if (resultMap.getMappedProperties().contains(property)) {
-                        continue;
+            // 相同列布局的结果集之前已经解析过自动映射时，直接使用映射计划中的结果
+            final MappingPlanCache.MappingPlan plan = rsw.getMappingPlan(resultMap, columnPrefix);
+            autoMapping = plan.getAutoMappings();
+            if (autoMapping == null) {
+                autoMapping = new ArrayList<>();
+                final List<MappingPlanCache.UnknownColumn> unknownColumns = new ArrayList<>();
+                final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
+                for (String columnName : unmappedColumnNames) {
+                    String propertyName = columnName;
+                    if (columnPrefix != null && !columnPrefix.isEmpty()) {
+                        // When columnPrefix is specified,
+                        // ignore columns without the prefix.
+                        if (columnName.toUpperCase(Locale.ENGLISH).startsWith(columnPrefix)) {
+                            propertyName = columnName.substring(columnPrefix.length());
+                        } else {
+                            continue;
+                        }
                     }
-                    final Class<?> propertyType = metaObject.getSetterType(property);
-                    if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
-                        final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-                        autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+                    final String property = metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
+                    if (property != null && metaObject.hasSetter(property)) {
+                        if (resultMap.getMappedProperties().contains(property)) {
+                            continue;
+                        }
+                        final Class<?> propertyType = metaObject.getSetterType(property);
+                        if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
+                            final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
+                            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+                        } else {
+                            unknownColumns.add(new MappingPlanCache.UnknownColumn(columnName, property, propertyType));
+                        }
                     } else {
-                        configuration.getAutoMappingUnknownColumnBehavior()
-                                .doAction(mappedStatement, columnName, property, propertyType);
+                        unknownColumns.add(new MappingPlanCache.UnknownColumn(columnName, (property != null) ? property : propertyName, null));
                     }
-                } else {
-                    configuration.getAutoMappingUnknownColumnBehavior()
-                            .doAction(mappedStatement, columnName, (property != null) ? property : propertyName, null);
                 }
+                plan.setAutoMappings(autoMapping, unknownColumns);
+            }
+            // 未知列每次执行都按当前配置处理一次
+            for (MappingPlanCache.UnknownColumn unknownColumn : plan.getUnknownColumns()) {
+                configuration.getAutoMappingUnknownColumnBehavior()
+                        .doAction(mappedStatement, unknownColumn.columnName, unknownColumn.property, unknownColumn.propertyType);
             }
             autoMappingsCache.put(mapKey, autoMapping);
         }
@@ -635,7 +951,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         boolean foundValues = false;
         if (!autoMapping.isEmpty()) {
             for (UnMappedColumnAutoMapping mapping : autoMapping) {
-                final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+                final Object value = getColumnValue(rsw, mapping.typeHandler, mapping.column);
                 if (value != null) {
                     foundValues = true;
                 }
@@ -733,6 +1049,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             return createPrimitiveResultObject(rsw, resultMap, columnPrefix);
         } else if (!constructorMappings.isEmpty()) {
             return createParameterizedResultObject(rsw, resultType, constructorMappings, constructorArgTypes, constructorArgs, columnPrefix);
+        } else if (isCompactRowMap(resultMap)) {
+            return newRowMap(resultMap, columnPrefix);
         } else if (resultType.isInterface() || metaType.hasDefaultConstructor()) {
             return objectFactory.create(resultType);
         } else if (shouldApplyAutomaticMappings(resultMap, false)) {
@@ -741,6 +1059,28 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         throw new ExecutorException("Do not know how to create an instance of " + resultType);
     }
 
+    /**
+     * 开启compactRowMapsEnabled时，resultType为Map的结果使用共享键的RowMap。
+     * 自定义ObjectFactory可能有自己的Map实现，懒加载需要为结果对象创建代理，这两种情况仍然使用ObjectFactory
+     */
+    private boolean isCompactRowMap(ResultMap resultMap) {
+        return configuration.isCompactRowMapsEnabled()
+                && resultMap.getType() == Map.class
+                && !resultMap.hasNestedQueries()
+                && objectFactory.getClass() == DefaultObjectFactory.class;
+    }
+
+    /**
+     * 新的一行从上一行最终的键集合开始，相同的键不再需要切换Schema
+     */
+    private RowMap newRowMap(ResultMap resultMap, String columnPrefix) {
+        final Map<String, RowMap> lastRows = lastRowMaps.computeIfAbsent(resultMap, k -> new HashMap<>());
+        final RowMap lastRow = lastRows.get(columnPrefix);
+        final RowMap rowMap = new RowMap(lastRow != null ? lastRow.getSchema() : new RowMap.Schema());
+        lastRows.put(columnPrefix, rowMap);
+        return rowMap;
+    }
+
     Object createParameterizedResultObject(ResultSetWrapper rsw, Class<?> resultType, List<ResultMapping> constructorMappings,
                                            List<Class<?>> constructorArgTypes, List<Object> constructorArgs, String columnPrefix) {
         boolean foundValues = false;
@@ -750,13 +1090,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             final Object value;
             try {
                 if (constructorMapping.getNestedQueryId() != null) {
-                    value = getNestedQueryConstructorValue(rsw.getResultSet(), constructorMapping, columnPrefix);
+                    value = getNestedQueryConstructorValue(rsw, constructorMapping, columnPrefix);
                 } else if (constructorMapping.getNestedResultMapId() != null) {
                     final ResultMap resultMap = configuration.getResultMap(constructorMapping.getNestedResultMapId());
                     value = getRowValue(rsw, resultMap, getColumnPrefix(columnPrefix, constructorMapping));
                 } else {
                     final TypeHandler<?> typeHandler = constructorMapping.getTypeHandler();
-                    value = typeHandler.getResult(rsw.getResultSet(), prependPrefix(column, columnPrefix));
+                    value = getColumnValue(rsw, typeHandler, prependPrefix(column, columnPrefix));
                 }
             } catch (ResultMapException | SQLException e) {
                 throw new ExecutorException("Could not process result for mapping: " + constructorMapping, e);
@@ -789,7 +1129,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             Class<?> parameterType = constructor.getParameterTypes()[i];
             String columnName = rsw.getColumnNames().get(i);
             TypeHandler<?> typeHandler = rsw.getTypeHandler(parameterType, columnName);
-            Object value = typeHandler.getResult(rsw.getResultSet(), columnName);
+            Object value = getColumnValue(rsw, typeHandler, columnName);
             constructorArgTypes.add(parameterType);
             constructorArgs.add(value);
             foundValues = value != null || foundValues;
@@ -834,18 +1174,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             columnName = rsw.getColumnNames().get(0);
         }
         final TypeHandler<?> typeHandler = rsw.getTypeHandler(resultType, columnName);
-        return typeHandler.getResult(rsw.getResultSet(), columnName);
+        return getColumnValue(rsw, typeHandler, columnName);
     }
 
     //
     // NESTED QUERY
     //
 
-    private Object getNestedQueryConstructorValue(ResultSet rs, ResultMapping constructorMapping, String columnPrefix) throws SQLException {
+    private Object getNestedQueryConstructorValue(ResultSetWrapper rsw, ResultMapping constructorMapping, String columnPrefix) throws SQLException {
         final String nestedQueryId = constructorMapping.getNestedQueryId();
         final MappedStatement nestedQuery = configuration.getMappedStatement(nestedQueryId);
         final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
-        final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, constructorMapping, nestedQueryParameterType, columnPrefix);
+        final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rsw, constructorMapping, nestedQueryParameterType, columnPrefix);
         Object value = null;
         if (nestedQueryParameterObject != null) {
             final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
@@ -857,15 +1197,27 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return value;
     }
 
-    private Object getNestedQueryMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
+    private Object getNestedQueryMappingValue(ResultSetWrapper rsw, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
             throws SQLException {
         final String nestedQueryId = propertyMapping.getNestedQueryId();
         final String property = propertyMapping.getProperty();
         final MappedStatement nestedQuery = configuration.getMappedStatement(nestedQueryId);
         final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
-        final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, nestedQueryParameterType, columnPrefix);
+        Object nestedQueryParameterObject = prepareParameterForNestedQuery(rsw, propertyMapping, nestedQueryParameterType, columnPrefix);
         Object value = null;
         if (nestedQueryParameterObject != null) {
+            if (shouldBatchNestedQuery(propertyMapping)) {
+                getBatchResultLoader(propertyMapping, nestedQuery).addLoad(metaResultObject, nestedQueryParameterObject);
+                return DEFERRED;
+            } else if (propertyMapping.getBatchSize() > 0 && propertyMapping.isLazy()) {
+                // 同一结果集中的兄弟对象共享一个批量加载器，任意一个触发懒加载时一起加载
+                lazyLoader.addLoader(property, metaResultObject, getBatchResultLoader(propertyMapping, nestedQuery).addLazyLoad(nestedQueryParameterObject));
+                return DEFERRED;
+            }
+            if (propertyMapping.getBatchSize() > 0) {
+                // 批量加载的嵌套select以键值列表为参数，逐行加载时传入只有一个元素的列表
+                nestedQueryParameterObject = ParamNameResolver.wrapToMapIfCollection(Collections.singletonList(nestedQueryParameterObject), null);
+            }
             final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
             final CacheKey key = executor.createCacheKey(nestedQuery, nestedQueryParameterObject, RowBounds.DEFAULT, nestedBoundSql);
             final Class<?> targetType = propertyMapping.getJavaType();
@@ -885,32 +1237,44 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return value;
     }
 
-    private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
+    private BatchResultLoader getBatchResultLoader(ResultMapping propertyMapping, MappedStatement nestedQuery) {
+        return batchResultLoaders.computeIfAbsent(propertyMapping, k -> new BatchResultLoader(configuration, executor, nestedQuery, propertyMapping));
+    }
+
+    /**
+     * 嵌套查询能否推迟到结果集处理完后批量执行。
+     * 自定义ResultHandler会在批量加载之前拿到结果对象，所以这种情况下仍然逐行执行。
+     */
+    private boolean shouldBatchNestedQuery(ResultMapping propertyMapping) {
+        return propertyMapping.getBatchSize() > 0 && !propertyMapping.isLazy() && resultHandler == null;
+    }
+
+    private Object prepareParameterForNestedQuery(ResultSetWrapper rsw, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
         if (resultMapping.isCompositeResult()) {
-            return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
+            return prepareCompositeKeyParameter(rsw, resultMapping, parameterType, columnPrefix);
         } else {
-            return prepareSimpleKeyParameter(rs, resultMapping, parameterType, columnPrefix);
+            return prepareSimpleKeyParameter(rsw, resultMapping, parameterType, columnPrefix);
         }
     }
 
-    private Object prepareSimpleKeyParameter(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
+    private Object prepareSimpleKeyParameter(ResultSetWrapper rsw, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
         final TypeHandler<?> typeHandler;
         if (typeHandlerRegistry.hasTypeHandler(parameterType)) {
             typeHandler = typeHandlerRegistry.getTypeHandler(parameterType);
         } else {
             typeHandler = typeHandlerRegistry.getUnknownTypeHandler();
         }
-        return typeHandler.getResult(rs, prependPrefix(resultMapping.getColumn(), columnPrefix));
+        return getColumnValue(rsw, typeHandler, prependPrefix(resultMapping.getColumn(), columnPrefix));
     }
 
-    private Object prepareCompositeKeyParameter(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
+    private Object prepareCompositeKeyParameter(ResultSetWrapper rsw, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
         final Object parameterObject = instantiateParameterObject(parameterType);
         final MetaObject metaObject = configuration.newMetaObject(parameterObject);
         boolean foundValues = false;
         for (ResultMapping innerResultMapping : resultMapping.getComposites()) {
             final Class<?> propType = metaObject.getSetterType(innerResultMapping.getProperty());
             final TypeHandler<?> typeHandler = typeHandlerRegistry.getTypeHandler(propType);
-            final Object propValue = typeHandler.getResult(rs, prependPrefix(innerResultMapping.getColumn(), columnPrefix));
+            final Object propValue = getColumnValue(rsw, typeHandler, prependPrefix(innerResultMapping.getColumn(), columnPrefix));
             // issue #353 & #560 do not execute nested query if key is null
             if (propValue != null) {
                 metaObject.setValue(innerResultMapping.getProperty(), propValue);
@@ -940,6 +1304,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
      * @throws SQLException
      */
     public ResultMap resolveDiscriminatedResultMap(ResultSet rs, ResultMap resultMap, String columnPrefix) throws SQLException {
+        return resolveDiscriminatedResultMap(rs, null, resultMap, columnPrefix);
+    }
+
+    /**
+     * 与{@link #resolveDiscriminatedResultMap(ResultSet, ResultMap, String)}相同，鉴别列按ResultSetWrapper中缓存的列序号读取
+     */
+    private ResultMap resolveDiscriminatedResultMap(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+        return resolveDiscriminatedResultMap(rsw.getResultSet(), rsw, resultMap, columnPrefix);
+    }
+
+    private ResultMap resolveDiscriminatedResultMap(ResultSet rs, ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
         // 用于维护处理过的鉴别器的唯一标识
         Set<String> pastDiscriminators = new HashSet<>();
         // 获取ResultMap中的Discriminator对象，这是通过<resultMap>标签中的<discriminator>标签解析得到的
@@ -947,7 +1322,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         // 如果存在<discriminator>标签
         while (discriminator != null) {
             // 获得条件判断的结果，使用该结果值进行鉴别器的鉴别
-            final Object value = getDiscriminatorValue(rs, discriminator, columnPrefix);
+            final Object value = getDiscriminatorValue(rs, rsw, discriminator, columnPrefix);
             // 根据上述值确定要使用的ResultMap的唯一标识
             final String discriminatedMapId = discriminator.getMapIdFor(String.valueOf(value));
             // 从接下来的case中查找分支
@@ -974,17 +1349,19 @@ public class DefaultResultSetHandler implements ResultSetHandler {
      * 获取鉴别器的鉴别条件的结果
      *
      * @param rs            数据库查询获得的结果集
+     * @param rsw           包装后的结果集，为空时按列名读取
      * @param discriminator 鉴别器
      * @param columnPrefix  属性的父级前缀
      * @return 计算出鉴别器的value对应的结果值
      * @throws SQLException
      */
-    private Object getDiscriminatorValue(ResultSet rs, Discriminator discriminator, String columnPrefix) throws SQLException {
+    private Object getDiscriminatorValue(ResultSet rs, ResultSetWrapper rsw, Discriminator discriminator, String columnPrefix) throws SQLException {
         final ResultMapping resultMapping = discriminator.getResultMapping();
         // 要鉴别的字符按的类型处理器
         final TypeHandler<?> typeHandler = resultMapping.getTypeHandler();
         // 通过prependPrefix()得到列名，然后取出列的值
-        return typeHandler.getResult(rs, prependPrefix(resultMapping.getColumn(), columnPrefix));
+        final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
+        return rsw != null ? getColumnValue(rsw, typeHandler, column) : typeHandler.getResult(rs, column);
     }
 
     private String prependPrefix(String columnName, String prefix) {
@@ -1004,13 +1381,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         skipRows(resultSet, rowBounds);
         Object rowValue = previousRowValue;
         while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
-            final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-            final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
+            fetchedRows++;
+            final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw, resultMap, null);
+            final RowKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
             Object partialObject = nestedResultObjects.get(rowKey);
             // issue #577 && #542
+            // resultOrdered时相同父对象的行是连续的，父对象的键变化说明上一个父对象已经完整，
+            // 先丢弃它和它的嵌套对象的所有行键，再交给ResultHandler或游标，内存占用只与单个父对象的行数有关
             if (mappedStatement.isResultOrdered()) {
                 if (partialObject == null && rowValue != null) {
-                    nestedResultObjects.clear();
+                    evictNestedResultObjects();
                     storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
                 }
                 rowValue = getRowValue(rsw, discriminatedResultMap, rowKey, null, partialObject);
@@ -1033,14 +1413,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     // NESTED RESULT MAP (JOIN MAPPING)
     //
 
-    private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, CacheKey parentRowKey, boolean newObject) {
+    private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, RowKey parentRowKey, boolean newObject) {
         boolean foundValues = false;
         for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
             final String nestedResultMapId = resultMapping.getNestedResultMapId();
             if (nestedResultMapId != null && resultMapping.getResultSet() == null) {
                 try {
                     final String columnPrefix = getColumnPrefix(parentPrefix, resultMapping);
-                    final ResultMap nestedResultMap = getNestedResultMap(rsw.getResultSet(), nestedResultMapId, columnPrefix);
+                    final ResultMap nestedResultMap = getNestedResultMap(rsw, nestedResultMapId, columnPrefix);
                     if (resultMapping.getColumnPrefix() == null) {
                         // try to fill circular reference only when columnPrefix
                         // is not specified for the nested result map (issue #215)
@@ -1052,8 +1432,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                             continue;
                         }
                     }
-                    final CacheKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
-                    final CacheKey combinedKey = combineKeys(rowKey, parentRowKey);
+                    final RowKey combinedKey = createRowKey(nestedResultMap, rsw, columnPrefix).combine(parentRowKey);
                     Object rowValue = nestedResultObjects.get(combinedKey);
                     boolean knownValue = rowValue != null;
                     instantiateCollectionPropertyIfAppropriate(resultMapping, metaObject); // mandatory
@@ -1088,7 +1467,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         if (notNullColumns != null && !notNullColumns.isEmpty()) {
             ResultSet rs = rsw.getResultSet();
             for (String column : notNullColumns) {
-                rs.getObject(prependPrefix(column, columnPrefix));
+                final String prefixedColumn = prependPrefix(column, columnPrefix);
+                final int columnIndex = getColumnIndex(rsw, prefixedColumn);
+                if (columnIndex > 0) {
+                    rs.getObject(columnIndex);
+                } else {
+                    rs.getObject(prefixedColumn);
+                }
                 if (!rs.wasNull()) {
                     return true;
                 }
@@ -1105,46 +1490,60 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return true;
     }
 
-    private ResultMap getNestedResultMap(ResultSet rs, String nestedResultMapId, String columnPrefix) throws SQLException {
+    private ResultMap getNestedResultMap(ResultSetWrapper rsw, String nestedResultMapId, String columnPrefix) throws SQLException {
         ResultMap nestedResultMap = configuration.getResultMap(nestedResultMapId);
-        return resolveDiscriminatedResultMap(rs, nestedResultMap, columnPrefix);
+        return resolveDiscriminatedResultMap(rsw, nestedResultMap, columnPrefix);
     }
 
     //
     // UNIQUE RESULT KEY
     //
 
-    private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-        final CacheKey cacheKey = new CacheKey();
-        cacheKey.update(resultMap.getId());
+    private RowKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+        return getRowKeyLayout(resultMap, rsw, columnPrefix).createKey(rsw.getResultSet());
+    }
+
+    /**
+     * 参与行键的列只与ResultMap、列名前缀和结果集的列有关，每个结果集只解析一次，之后每行只读取列值
+     */
+    private RowKey.Layout getRowKeyLayout(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+        if (rsw != rowKeyRsw) {
+            rowKeyRsw = rsw;
+            rowKeyLayouts.clear();
+        }
+        final Map<String, RowKey.Layout> layoutsByPrefix = rowKeyLayouts.computeIfAbsent(resultMap, k -> new HashMap<>());
+        RowKey.Layout layout = layoutsByPrefix.get(columnPrefix);
+        if (layout == null) {
+            layout = createRowKeyLayout(resultMap, rsw, columnPrefix);
+            layoutsByPrefix.put(columnPrefix, layout);
+        }
+        return layout;
+    }
+
+    private RowKey.Layout createRowKeyLayout(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+        final List<String> columns = new ArrayList<>();
+        final List<TypeHandler<?>> typeHandlers = new ArrayList<>();
+        final List<Integer> columnIndexes = new ArrayList<>();
+        boolean keepNulls = false;
         List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
         if (resultMappings.isEmpty()) {
             if (Map.class.isAssignableFrom(resultMap.getType())) {
-                createRowKeyForMap(rsw, cacheKey);
+                createRowKeyForMap(rsw, columns, columnIndexes);
             } else {
-                createRowKeyForUnmappedProperties(resultMap, rsw, cacheKey, columnPrefix);
+                createRowKeyForUnmappedProperties(resultMap, rsw, columns, columnIndexes, columnPrefix);
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                typeHandlers.add(null);
             }
         } else {
-            createRowKeyForMappedProperties(resultMap, rsw, cacheKey, resultMappings, columnPrefix);
+            createRowKeyForMappedProperties(resultMap, rsw, columns, typeHandlers, columnIndexes, resultMappings, columnPrefix);
+            keepNulls = configuration.isReturnInstanceForEmptyRow();
         }
-        if (cacheKey.getUpdateCount() < 2) {
-            return CacheKey.NULL_CACHE_KEY;
+        final int[] indexes = new int[columnIndexes.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = columnIndexes.get(i);
         }
-        return cacheKey;
-    }
-
-    private CacheKey combineKeys(CacheKey rowKey, CacheKey parentRowKey) {
-        if (rowKey.getUpdateCount() > 1 && parentRowKey.getUpdateCount() > 1) {
-            CacheKey combinedKey;
-            try {
-                combinedKey = rowKey.clone();
-            } catch (CloneNotSupportedException e) {
-                throw new ExecutorException("Error cloning cache key.  Cause: " + e, e);
-            }
-            combinedKey.update(parentRowKey);
-            return combinedKey;
-        }
-        return CacheKey.NULL_CACHE_KEY;
+        return new RowKey.Layout(resultMap.getId(), columns, typeHandlers, indexes, keepNulls);
     }
 
     private List<ResultMapping> getResultMappingsForRowKey(ResultMap resultMap) {
@@ -1155,25 +1554,25 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         return resultMappings;
     }
 
-    private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
+    private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, List<String> columns, List<TypeHandler<?>> typeHandlers,
+                                                 List<Integer> columnIndexes, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
+        List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         for (ResultMapping resultMapping : resultMappings) {
             if (resultMapping.isSimple()) {
                 final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
                 final TypeHandler<?> th = resultMapping.getTypeHandler();
-                List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
                 // Issue #114
                 if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-                    final Object value = th.getResult(rsw.getResultSet(), column);
-                    if (value != null || configuration.isReturnInstanceForEmptyRow()) {
-                        cacheKey.update(column);
-                        cacheKey.update(value);
-                    }
+                    columns.add(column);
+                    typeHandlers.add(th);
+                    // 与getColumnValue相同，只有自带的类型处理器按列序号读取
+                    columnIndexes.add(BUILT_IN_TYPE_HANDLERS.get(th.getClass()) ? getColumnIndex(rsw, column) : 0);
                 }
             }
         }
     }
 
-    private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, String columnPrefix) throws SQLException {
+    private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, List<String> columns, List<Integer> columnIndexes, String columnPrefix) throws SQLException {
         final MetaClass metaType = MetaClass.forClass(resultMap.getType(), reflectorFactory);
         List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
         for (String column : unmappedColumnNames) {
@@ -1187,23 +1586,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
                 }
             }
             if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-                String value = rsw.getResultSet().getString(column);
-                if (value != null) {
-                    cacheKey.update(column);
-                    cacheKey.update(value);
-                }
+                columns.add(column);
+                columnIndexes.add(getColumnIndex(rsw, column));
             }
         }
     }
 
-    private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
+    private void createRowKeyForMap(ResultSetWrapper rsw, List<String> columns, List<Integer> columnIndexes) {
         List<String> columnNames = rsw.getColumnNames();
-        for (String columnName : columnNames) {
-            final String value = rsw.getResultSet().getString(columnName);
-            if (value != null) {
-                cacheKey.update(columnName);
-                cacheKey.update(value);
-            }
+        final boolean useColumnIndex = configuration.isUseColumnLabel();
+        for (int i = 0; i < columnNames.size(); i++) {
+            columns.add(columnNames.get(i));
+            columnIndexes.add(useColumnIndex ? i + 1 : 0);
         }
     }
 
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.ResultMap;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 映射计划的缓存，由同一个Configuration下的所有结果集处理器共享。
+ * 映射计划按（ResultMap id、列名前缀、结果集的列布局）缓存，包含有映射和没有映射的列名，以及自动映射的列与属性的对应关系，
+ * 同一语句再次执行时不再重新比较列名、通过MetaClass查找属性和类型处理器。
+ * <p>
+ * 自动映射时发现的未知列也记录在计划中，每次使用计划时都按当前的autoMappingUnknownColumnBehavior处理一次，与没有缓存时相同。
+ * 映射计划依赖类型处理器的注册情况，运行中注册了新的类型处理器后可以调用{@link #clear()}。
+ * <p>
+ * 动态SQL可能产生很多种列布局，缓存最多保存maxSize个计划，超出时淘汰最久没有使用的计划。
+ *
+ * @see ResultSetWrapper#getColumnLayout()
+ */
+public class MappingPlanCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    // 按访问顺序排列，访问和修改都需要持有它的锁
+    private final Map<CacheKey, MappingPlan> plans;
+
+    public MappingPlanCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize 最多缓存的映射计划数
+     */
+    public MappingPlanCache(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The maximum size of the mapping plan cache must be positive: " + maxSize);
+        }
+        this.plans = new LinkedHashMap<CacheKey, MappingPlan>(16, .75F, true) {
+            private static final long serialVersionUID = -3216412934158270213L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, MappingPlan> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    MappingPlan getPlan(ResultMap resultMap, String columnPrefix, CacheKey columnLayout, boolean mapUnderscoreToCamelCase,
+                        Supplier<MappingPlan> planFactory) {
+        final CacheKey key = new CacheKey();
+        key.update(resultMap.getId());
+        key.update(columnPrefix);
+        key.update(columnLayout);
+        key.update(mapUnderscoreToCamelCase);
+        synchronized (plans) {
+            final MappingPlan plan = plans.get(key);
+            if (plan != null) {
+                return plan;
+            }
+        }
+        // 在锁外创建计划，并发创建同一个计划时保留先放入的
+        final MappingPlan plan = planFactory.get();
+        synchronized (plans) {
+            final MappingPlan existing = plans.putIfAbsent(key, plan);
+            return existing != null ? existing : plan;
+        }
+    }
+
+    /**
+     * @return 缓存的映射计划数
+     */
+    public int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+
+    /**
+     * 清空所有映射计划
+     */
+    public void clear() {
+        synchronized (plans) {
+            plans.clear();
+        }
+    }
+
+    /**
+     * 一个ResultMap按某个列名前缀映射某种列布局的计划
+     */
+    static class MappingPlan {
+        // 有映射的列名（大写）
+        private final List<String> mappedColumnNames;
+        // 没有映射的列名
+        private final List<String> unmappedColumnNames;
+        // 自动映射的列，第一次自动映射时填入
+        private volatile List<DefaultResultSetHandler.UnMappedColumnAutoMapping> autoMappings;
+        // 自动映射时发现的未知列
+        private volatile List<UnknownColumn> unknownColumns;
+
+        MappingPlan(List<String> mappedColumnNames, List<String> unmappedColumnNames) {
+            this.mappedColumnNames = Collections.unmodifiableList(mappedColumnNames);
+            this.unmappedColumnNames = Collections.unmodifiableList(unmappedColumnNames);
+        }
+
+        List<String> getMappedColumnNames() {
+            return mappedColumnNames;
+        }
+
+        List<String> getUnmappedColumnNames() {
+            return unmappedColumnNames;
+        }
+
+        List<DefaultResultSetHandler.UnMappedColumnAutoMapping> getAutoMappings() {
+            return autoMappings;
+        }
+
+        List<UnknownColumn> getUnknownColumns() {
+            return unknownColumns;
+        }
+
+        void setAutoMappings(List<DefaultResultSetHandler.UnMappedColumnAutoMapping> autoMappings, List<UnknownColumn> unknownColumns) {
+            // 先写未知列，读到autoMappings不为空的线程一定能读到unknownColumns
+            this.unknownColumns = Collections.unmodifiableList(unknownColumns);
+            this.autoMappings = Collections.unmodifiableList(autoMappings);
+        }
+    }
+
+    /**
+     * 自动映射时没有找到属性或类型处理器的列
+     */
+    static class UnknownColumn {
+        final String columnName;
+        final String property;
+        final Class<?> propertyType;
+
+        UnknownColumn(String columnName, String property, Class<?> propertyType) {
+            this.columnName = columnName;
+            this.property = property;
+            this.propertyType = propertyType;
+        }
+    }
+
+}
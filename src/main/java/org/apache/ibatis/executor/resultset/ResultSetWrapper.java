@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.executor.resultset;
 
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.session.Configuration;
@@ -47,10 +48,19 @@ public class ResultSetWrapper {
     private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
     // 记录了所有的没有映射关系的列，结构为Map<resultMap的id, List<对象映射的列名>>
     private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+    // 列名 -> 列序号，结果集中没有的列对应0
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    // 各语句共享的映射计划缓存
+    private final MappingPlanCache mappingPlanCache;
+    private final boolean mapUnderscoreToCamelCase;
+    // 由列名、JDBC类型和Java类型组成的列布局，列布局相同的结果集可以使用相同的映射计划
+    private final CacheKey columnLayout = new CacheKey();
 
     public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
         super();
         this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+        this.mappingPlanCache = configuration.getMappingPlanCache();
+        this.mapUnderscoreToCamelCase = configuration.isMapUnderscoreToCamelCase();
         this.resultSet = rs;
         final ResultSetMetaData metaData = rs.getMetaData();
         final int columnCount = metaData.getColumnCount();
@@ -58,6 +68,9 @@ public class ResultSetWrapper {
             columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
             jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
             classNames.add(metaData.getColumnClassName(i));
+            columnLayout.update(columnNames.get(i - 1));
+            columnLayout.update(jdbcTypes.get(i - 1));
+            columnLayout.update(classNames.get(i - 1));
         }
     }
 
@@ -77,13 +90,38 @@ public class ResultSetWrapper {
         return jdbcTypes;
     }
 
+    /**
+     * @return 由列名、JDBC类型和Java类型组成的列布局
+     */
+    public CacheKey getColumnLayout() {
+        return columnLayout;
+    }
+
     public JdbcType getJdbcType(String columnName) {
-        for (int i = 0; i < columnNames.size(); i++) {
-            if (columnNames.get(i).equalsIgnoreCase(columnName)) {
-                return jdbcTypes.get(i);
+        final int columnIndex = getColumnIndex(columnName);
+        return columnIndex > 0 ? jdbcTypes.get(columnIndex - 1) : null;
+    }
+
+    /**
+     * 按列名（不区分大小写）查找列序号。映射规则中的列名每行都相同，查找结果按列名缓存，
+     * 之后的行不需要再比较列名，也不需要驱动按列名查找列。
+     *
+     * @param columnName 列名
+     * @return 列序号，从1开始，结果集中没有该列时返回0
+     */
+    public int getColumnIndex(String columnName) {
+        Integer columnIndex = columnIndexes.get(columnName);
+        if (columnIndex == null) {
+            columnIndex = 0;
+            for (int i = 0; i < columnNames.size(); i++) {
+                if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+                    columnIndex = i + 1;
+                    break;
+                }
             }
+            columnIndexes.put(columnName, columnIndex);
         }
-        return null;
+        return columnIndex;
     }
 
     /**
@@ -140,7 +178,21 @@ public class ResultSetWrapper {
         return null;
     }
 
-    private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
+    private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) {
+        final MappingPlanCache.MappingPlan plan = getMappingPlan(resultMap, columnPrefix);
+        mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), plan.getMappedColumnNames());
+        unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), plan.getUnmappedColumnNames());
+    }
+
+    /**
+     * 取得ResultMap按列名前缀映射当前列布局的计划，其他结果集已经建立过相同的计划时直接使用
+     */
+    MappingPlanCache.MappingPlan getMappingPlan(ResultMap resultMap, String columnPrefix) {
+        return mappingPlanCache.getPlan(resultMap, columnPrefix, columnLayout, mapUnderscoreToCamelCase,
+                () -> createMappingPlan(resultMap, columnPrefix));
+    }
+
+    private MappingPlanCache.MappingPlan createMappingPlan(ResultMap resultMap, String columnPrefix) {
         List<String> mappedColumnNames = new ArrayList<>();
         List<String> unmappedColumnNames = new ArrayList<>();
         final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
@@ -153,8 +205,7 @@ public class ResultSetWrapper {
                 unmappedColumnNames.add(columnName);
             }
         }
-        mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), mappedColumnNames);
-        unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), unmappedColumnNames);
+        return new MappingPlanCache.MappingPlan(mappedColumnNames, unmappedColumnNames);
     }
 
     public List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
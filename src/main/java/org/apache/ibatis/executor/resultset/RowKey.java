@@ -0,0 +1,153 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import org.apache.ibatis.reflection.ArrayUtil;
+import org.apache.ibatis.type.TypeHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 嵌套结果映射中识别同一个结果对象的行键，代替逐个update列名和列值的CacheKey。
+ * 参与行键的列由{@link Layout}在每个结果集中解析一次，行键只保存列值数组和预先计算的hash，
+ * 嵌套对象的行键引用父对象的行键，不再复制父键的内容。
+ * hash相同时仍然逐个比较列值，hash冲突不会把不同的行当作同一个对象。
+ */
+final class RowKey {
+
+    /**
+     * 没有任何列值的行，这样的结果对象不做去重
+     */
+    static final RowKey NULL_ROW_KEY = new RowKey(null, new Object[0], null, 0);
+
+    private final Layout layout;
+    private final Object[] values;
+    private final RowKey parent;
+    private final int hashCode;
+
+    private RowKey(Layout layout, Object[] values, RowKey parent, int hashCode) {
+        this.layout = layout;
+        this.values = values;
+        this.parent = parent;
+        this.hashCode = hashCode;
+    }
+
+    /**
+     * 与父对象的行键组合，任意一方为{@link #NULL_ROW_KEY}时返回NULL_ROW_KEY
+     */
+    RowKey combine(RowKey parentKey) {
+        if (this == NULL_ROW_KEY || parentKey == NULL_ROW_KEY) {
+            return NULL_ROW_KEY;
+        }
+        return new RowKey(layout, values, parentKey, 31 * hashCode + parentKey.hashCode);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof RowKey)) {
+            return false;
+        }
+        final RowKey that = (RowKey) object;
+        if (hashCode != that.hashCode || values.length != that.values.length
+                || layout == null || that.layout == null || !layout.sameColumns(that.layout)) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (!ArrayUtil.equals(values[i], that.values[i])) {
+                return false;
+            }
+        }
+        return Objects.equals(parent, that.parent);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        final String key = layout == null ? "null" : layout.resultMapId + Arrays.toString(values);
+        return parent == null ? key : key + ":" + parent;
+    }
+
+    /**
+     * 某个ResultMap按某个列名前缀在当前结果集中参与行键的列
+     */
+    static final class Layout {
+        private final String resultMapId;
+        private final String[] columns;
+        // 为null时按字符串读取列值
+        private final TypeHandler<?>[] typeHandlers;
+        // 为0时按列名读取
+        private final int[] columnIndexes;
+        // 为true时值为null的列也算作行键的一部分
+        private final boolean keepNulls;
+        private final int layoutHash;
+
+        Layout(String resultMapId, List<String> columns, List<TypeHandler<?>> typeHandlers, int[] columnIndexes, boolean keepNulls) {
+            this.resultMapId = resultMapId;
+            this.columns = columns.toArray(new String[0]);
+            this.typeHandlers = typeHandlers.toArray(new TypeHandler<?>[0]);
+            this.columnIndexes = columnIndexes;
+            this.keepNulls = keepNulls;
+            this.layoutHash = 31 * resultMapId.hashCode() + Arrays.hashCode(this.columns);
+        }
+
+        /**
+         * 读取当前行的行键
+         *
+         * @param rs 结果集，已经定位到当前行
+         * @return 行键，所有列都为null（并且不保留null）时返回{@link #NULL_ROW_KEY}
+         * @throws SQLException
+         */
+        RowKey createKey(ResultSet rs) throws SQLException {
+            final Object[] values = new Object[columns.length];
+            boolean found = false;
+            int hash = layoutHash;
+            for (int i = 0; i < columns.length; i++) {
+                final Object value = readValue(rs, i);
+                if (value != null || keepNulls) {
+                    found = true;
+                }
+                values[i] = value;
+                hash = 31 * hash + (value == null ? 1 : ArrayUtil.hashCode(value));
+            }
+            return found ? new RowKey(this, values, null, hash) : NULL_ROW_KEY;
+        }
+
+        private Object readValue(ResultSet rs, int i) throws SQLException {
+            final TypeHandler<?> typeHandler = typeHandlers[i];
+            final int columnIndex = columnIndexes[i];
+            if (typeHandler != null) {
+                return columnIndex > 0 ? typeHandler.getResult(rs, columnIndex) : typeHandler.getResult(rs, columns[i]);
+            }
+            return columnIndex > 0 ? rs.getString(columnIndex) : rs.getString(columns[i]);
+        }
+
+        private boolean sameColumns(Layout that) {
+            return this == that || layoutHash == that.layoutHash && resultMapId.equals(that.resultMapId) && Arrays.equals(columns, that.columns);
+        }
+    }
+
+}
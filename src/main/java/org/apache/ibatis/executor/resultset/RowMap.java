@@ -0,0 +1,290 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * resultType为Map时使用的轻量级行Map，开启compactRowMapsEnabled时由DefaultResultSetHandler创建。
+ * 同一个结果集中的行共享一份键到下标的{@link Schema}，每一行只保存一个值数组，
+ * 不再为每一行创建HashMap的桶数组和Entry对象，也不再让每一行各自引用一遍键。
+ * <p>
+ * 它是一个完整的可修改Map：写入Schema中没有的键时，这一行切换到包含该键的新Schema，
+ * 新Schema缓存在旧Schema中，所有写入相同键的行共享它。迭代顺序是键第一次写入的顺序，也就是列的顺序。
+ * 序列化后得到的是内容相同的LinkedHashMap。
+ */
+public class RowMap extends AbstractMap<Object, Object> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // 值数组中表示没有这个键的标记，用来区分没有这个键和值为null
+    private static final Object ABSENT = new Object();
+
+    private Schema schema;
+    private Object[] values;
+    private int size;
+    private transient Set<Map.Entry<Object, Object>> entrySet;
+
+    RowMap(Schema schema) {
+        this.schema = schema;
+        this.values = new Object[schema.keys.length];
+        Arrays.fill(values, ABSENT);
+    }
+
+    Schema getSchema() {
+        return schema;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        final int index = schema.indexOf(key);
+        return index >= 0 && values[index] != ABSENT;
+    }
+
+    @Override
+    public Object get(Object key) {
+        final int index = schema.indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        final Object value = values[index];
+        return value == ABSENT ? null : value;
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        int index = schema.indexOf(key);
+        if (index < 0) {
+            schema = schema.with(key);
+            index = schema.indexOf(key);
+            final int oldLength = values.length;
+            values = Arrays.copyOf(values, schema.keys.length);
+            Arrays.fill(values, oldLength, values.length, ABSENT);
+        }
+        final Object oldValue = values[index];
+        values[index] = value;
+        if (oldValue == ABSENT) {
+            size++;
+            return null;
+        }
+        return oldValue;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        final int index = schema.indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        return removeAt(index);
+    }
+
+    private Object removeAt(int index) {
+        final Object oldValue = values[index];
+        if (oldValue == ABSENT) {
+            return null;
+        }
+        values[index] = ABSENT;
+        size--;
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, ABSENT);
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private Object writeReplace() {
+        return new LinkedHashMap<>(this);
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<Object, Object>> {
+        @Override
+        public Iterator<Map.Entry<Object, Object>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            RowMap.this.clear();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<Object, Object>> {
+        private int next = advance(0);
+        private int last = -1;
+
+        private int advance(int from) {
+            int index = from;
+            while (index < values.length && values[index] == ABSENT) {
+                index++;
+            }
+            return index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        public Map.Entry<Object, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = advance(next + 1);
+            return new Entry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            last = -1;
+        }
+    }
+
+    private class Entry implements Map.Entry<Object, Object> {
+        private final int index;
+        private final Object key;
+
+        private Entry(int index) {
+            this.index = index;
+            this.key = schema.keys[index];
+        }
+
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        @Override
+        public Object getValue() {
+            final Object value = values[index];
+            return value == ABSENT ? null : value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            final Object oldValue = values[index];
+            values[index] = value;
+            if (oldValue == ABSENT) {
+                size++;
+                return null;
+            }
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return Objects.equals(key, e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    /**
+     * 行Map共享的键集合，不可修改。增加一个键得到的新Schema缓存在当前Schema中，
+     * 同一个结果集的行按相同的顺序写入相同的键时会走到同一个Schema
+     */
+    static final class Schema {
+        private final Object[] keys;
+        private final Map<Object, Integer> indexes;
+        private final ConcurrentMap<Object, Schema> transitions = new ConcurrentHashMap<>();
+
+        Schema() {
+            this(new Object[0]);
+        }
+
+        private Schema(Object[] keys) {
+            this.keys = keys;
+            this.indexes = new HashMap<>(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                indexes.put(keys[i], i);
+            }
+        }
+
+        int indexOf(Object key) {
+            final Integer index = indexes.get(key);
+            return index == null ? -1 : index;
+        }
+
+        Schema with(Object key) {
+            if (key == null) {
+                // ConcurrentHashMap不能保存null键，null键很少见，不缓存
+                return extend(null);
+            }
+            return transitions.computeIfAbsent(key, this::extend);
+        }
+
+        private Schema extend(Object key) {
+            final Object[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+            newKeys[keys.length] = key;
+            return new Schema(newKeys);
+        }
+
+        int size() {
+            return keys.length;
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.AmbiguousMethodInvoker;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.BooleanResultGetter;
+import org.apache.ibatis.type.DoubleResultGetter;
+import org.apache.ibatis.type.IntResultGetter;
+import org.apache.ibatis.type.LongResultGetter;
+import org.apache.ibatis.type.TypeHandler;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 行映射器的编译器与缓存，开启compiledRowMappersEnabled时使用，由同一个Configuration下的所有结果集处理器共享。
+ * 一个ResultMap第一次遇到某种列布局（列名和列类型）时，结果集处理器先用反射路径映射第一行，
+ * 再把解析出的列与属性的对应关系交给编译器生成{@link CompiledRowMapper}，之后相同布局的行都由它映射。
+ * <p>
+ * 自动映射的未知列处理（autoMappingUnknownColumnBehavior）只在编译前的第一次执行中生效，
+ * 也就是WARNING对每种列布局只记录一次。
+ * <p>
+ * 自定义的类型处理器可能只实现了按列名读取，编译后仍然按列名读取；
+ * 实现了{@link IntResultGetter}等基本类型读取接口的类型处理器已经声明支持按列序号读取，可以使用不装箱的绑定。
+ * <p>
+ * 最多缓存maxSize个行映射器，超出时淘汰最久没有使用的，被淘汰的列布局再次出现时重新编译。
+ *
+ * @see DefaultResultSetHandler
+ */
+public class RowMapperCompiler {
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private final Configuration configuration;
+    // ResultMap id与列布局 -> 行映射器，按访问顺序排列，访问和修改都需要持有它的锁
+    private final Map<CacheKey, CompiledRowMapper> rowMappers;
+
+    public RowMapperCompiler(Configuration configuration) {
+        this(configuration, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param configuration 配置
+     * @param maxSize       最多缓存的行映射器数
+     */
+    public RowMapperCompiler(Configuration configuration, final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The maximum number of compiled row mappers must be positive: " + maxSize);
+        }
+        this.configuration = configuration;
+        this.rowMappers = new LinkedHashMap<CacheKey, CompiledRowMapper>(16, .75F, true) {
+            private static final long serialVersionUID = 6383935421870152837L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CompiledRowMapper> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param layoutKey ResultMap id与列布局组成的键
+     * @return 已经编译的行映射器，没有时返回null
+     */
+    public CompiledRowMapper getRowMapper(CacheKey layoutKey) {
+        synchronized (rowMappers) {
+            return rowMappers.get(layoutKey);
+        }
+    }
+
+    /**
+     * 编译并缓存行映射器
+     *
+     * @param layoutKey ResultMap id与列布局组成的键
+     * @param type      结果对象的类型，必须有无参构造器
+     * @param columns   需要映射的列，按映射的顺序排列
+     * @return 行映射器
+     */
+    public CompiledRowMapper compile(CacheKey layoutKey, Class<?> type, List<ColumnProperty> columns) {
+        final CompiledRowMapper cached = getRowMapper(layoutKey);
+        if (cached != null) {
+            return cached;
+        }
+        // 在锁外编译，并发编译同一种布局时保留先放入的
+        final CompiledRowMapper rowMapper = doCompile(type, columns);
+        synchronized (rowMappers) {
+            final CompiledRowMapper existing = rowMappers.putIfAbsent(layoutKey, rowMapper);
+            return existing != null ? existing : rowMapper;
+        }
+    }
+
+    /**
+     * @return 缓存的行映射器数
+     */
+    public int size() {
+        synchronized (rowMappers) {
+            return rowMappers.size();
+        }
+    }
+
+    private CompiledRowMapper doCompile(Class<?> type, List<ColumnProperty> columns) {
+        final Reflector reflector = configuration.getReflectorFactory().findForClass(type);
+        final List<CompiledRowMapper.PropertyBinding> bindings = new ArrayList<>(columns.size());
+        for (ColumnProperty column : columns) {
+            final Invoker invoker = reflector.getSetInvoker(column.property);
+            final Class<?> setterType = reflector.getSetterType(column.property);
+            final MethodHandle setter = unreflectSetter(invoker);
+            CompiledRowMapper.PropertyBinding binding = null;
+            if (setter != null && setterType.isPrimitive() && column.columnIndex > 0) {
+                binding = createPrimitiveBinding(column, setterType, setter);
+            }
+            if (binding == null) {
+                // 与反射路径相同，只有自带的类型处理器按列序号读取
+                final int columnIndex = DefaultResultSetHandler.isBuiltInTypeHandler(column.typeHandler) ? column.columnIndex : 0;
+                binding = setter != null
+                        ? new CompiledRowMapper.HandleBinding(columnIndex, column.column, column.property, column.typeHandler, setterType.isPrimitive(), setter.asType(SETTER_TYPE))
+                        : new CompiledRowMapper.InvokerBinding(columnIndex, column.column, column.property, column.typeHandler, setterType.isPrimitive(), invoker);
+            }
+            bindings.add(binding);
+        }
+        final ObjectFactory objectFactory = configuration.getObjectFactory();
+        // 自定义的ObjectFactory可能有自己的创建逻辑，只有默认实现才直接调用构造器
+        final MethodHandle constructor = objectFactory.getClass() == DefaultObjectFactory.class
+                ? unreflectConstructor(reflector.getDefaultConstructor()) : null;
+        return new CompiledRowMapper(constructor, objectFactory, type, bindings,
+                configuration.isCallSettersOnNulls(), configuration.isReturnInstanceForEmptyRow());
+    }
+
+    /**
+     * 类型处理器能以基本类型读取列值、并且属性也是同一基本类型时，生成不装箱的绑定，否则返回null
+     */
+    private CompiledRowMapper.PropertyBinding createPrimitiveBinding(ColumnProperty column, Class<?> setterType, MethodHandle setter) {
+        final TypeHandler<?> typeHandler = column.typeHandler;
+        try {
+            if (setterType == int.class && typeHandler instanceof IntResultGetter
+                    && readsConsistently(typeHandler, "getIntResult")) {
+                return new CompiledRowMapper.IntBinding(column.columnIndex, column.column, column.property,
+                        (IntResultGetter) typeHandler, setter.asType(MethodType.methodType(void.class, Object.class, int.class)));
+            } else if (setterType == long.class && typeHandler instanceof LongResultGetter
+                    && readsConsistently(typeHandler, "getLongResult")) {
+                return new CompiledRowMapper.LongBinding(column.columnIndex, column.column, column.property,
+                        (LongResultGetter) typeHandler, setter.asType(MethodType.methodType(void.class, Object.class, long.class)));
+            } else if (setterType == double.class && typeHandler instanceof DoubleResultGetter
+                    && readsConsistently(typeHandler, "getDoubleResult")) {
+                return new CompiledRowMapper.DoubleBinding(column.columnIndex, column.column, column.property,
+                        (DoubleResultGetter) typeHandler, setter.asType(MethodType.methodType(void.class, Object.class, double.class)));
+            } else if (setterType == boolean.class && typeHandler instanceof BooleanResultGetter
+                    && readsConsistently(typeHandler, "getBooleanResult")) {
+                return new CompiledRowMapper.BooleanBinding(column.columnIndex, column.column, column.property,
+                        (BooleanResultGetter) typeHandler, setter.asType(MethodType.methodType(void.class, Object.class, boolean.class)));
+            }
+        } catch (RuntimeException e) {
+            // fall back to the boxed binding
+        }
+        return null;
+    }
+
+    /**
+     * 子类只重写了getNullableResult(ResultSet, int)或getNullableResult(ResultSet, String)而没有重写基本类型的读取方法时，
+     * 两者的结果可能不同，这种类型处理器仍然走装箱的路径
+     */
+    static boolean readsConsistently(TypeHandler<?> typeHandler, String primitiveGetter) {
+        try {
+            final Class<?> getterOwner = typeHandler.getClass().getMethod(primitiveGetter, ResultSet.class, int.class).getDeclaringClass();
+            final Class<?> nullableOwner = typeHandler.getClass().getMethod("getNullableResult", ResultSet.class, int.class).getDeclaringClass();
+            final Class<?> labelOwner = typeHandler.getClass().getMethod("getNullableResult", ResultSet.class, String.class).getDeclaringClass();
+            return nullableOwner.isAssignableFrom(getterOwner) && labelOwner.isAssignableFrom(getterOwner);
+        } catch (NoSuchMethodException e) {
+            // 不是BaseTypeHandler的子类，只有基本类型的读取方法
+            return true;
+        }
+    }
+
+    /**
+     * 取得setter方法或字段的MethodHandle，无法取得时返回null，由调用方退回到Invoker
+     */
+    private MethodHandle unreflectSetter(Invoker invoker) {
+        try {
+            if (invoker instanceof AmbiguousMethodInvoker) {
+                // 有歧义的setter在调用时抛出异常，保留原来的行为
+                return null;
+            } else if (invoker instanceof MethodInvoker) {
+                final Method method = ((MethodInvoker) invoker).getMethod();
+                makeAccessible(method);
+                return MethodHandles.lookup().unreflect(method);
+            } else if (invoker instanceof SetFieldInvoker) {
+                final Field field = ((SetFieldInvoker) invoker).getField();
+                makeAccessible(field);
+                return MethodHandles.lookup().unreflectSetter(field);
+            }
+        } catch (IllegalAccessException | RuntimeException e) {
+            // fall back to the invoker
+        }
+        return null;
+    }
+
+    private MethodHandle unreflectConstructor(Constructor<?> constructor) {
+        try {
+            makeAccessible(constructor);
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void makeAccessible(AccessibleObject member) {
+        if (!member.isAccessible() && Reflector.canControlMemberAccessible()) {
+            member.setAccessible(true);
+        }
+    }
+
+    /**
+     * 需要映射的一列
+     */
+    public static class ColumnProperty {
+        private final int columnIndex;
+        private final String column;
+        private final String property;
+        private final TypeHandler<?> typeHandler;
+
+        /**
+         * @param columnIndex 列序号，从1开始，不能按列序号读取时为0
+         * @param column      列名，类型处理器不按列序号读取时使用
+         * @param property    属性名，只能是结果对象自身的属性
+         * @param typeHandler 读取该列使用的类型处理器
+         */
+        public ColumnProperty(int columnIndex, String column, String property, TypeHandler<?> typeHandler) {
+            this.columnIndex = columnIndex;
+            this.column = column;
+            this.property = property;
+            this.typeHandler = typeHandler;
+        }
+    }
+
+}
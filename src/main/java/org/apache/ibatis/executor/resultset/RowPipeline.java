@@ -0,0 +1,168 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.session.Configuration;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 流水线映射，开启pipelinedMappingEnabled时由DefaultResultSetHandler为使用编译行映射器的结果集创建。
+ * 调用线程从结果集读取列值，每batchSize行组成一批，交给{@link Configuration#getQueryTaskExecutor()}的线程创建结果对象，
+ * 调用线程同时继续读取下一批，等待驱动读取网络数据和创建结果对象重叠进行。
+ * <p>
+ * 访问ResultSet和TypeHandler的只有调用线程，映射线程只调用构造器和setter。
+ * 同时映射的批次最多workers个，达到上限时读取线程等待最早的一批，所以缓冲的行数不超过workers * batchSize。
+ * 结果按行的顺序取出。游标每次只取一行，没有取走的结果保留在流水线中，下一次从这里继续。
+ */
+class RowPipeline {
+
+    private final CompiledRowMapper rowMapper;
+    private final ResultSet resultSet;
+    private final ExecutorService executorService;
+    private final int workers;
+    private final int batchSize;
+    // 按读取顺序排列的映射中的批次
+    private final Deque<Future<Object[]>> batches = new ArrayDeque<>();
+    // 还可以读取的行数
+    private int remainingRows;
+    private int rowsRead;
+    private boolean exhausted;
+    // 正在取出结果的批次
+    private Object[] current;
+    private int position;
+
+    RowPipeline(Configuration configuration, CompiledRowMapper rowMapper, ResultSet resultSet, int maxRows) {
+        this.rowMapper = rowMapper;
+        this.resultSet = resultSet;
+        this.executorService = configuration.getQueryTaskExecutor();
+        this.workers = Math.max(1, configuration.getPipelinedMappingWorkers());
+        this.batchSize = Math.max(1, configuration.getPipelinedMappingBatchSize());
+        this.remainingRows = maxRows;
+    }
+
+    /**
+     * 是否还有结果，当前批次已经取完时读取后续的批次并等待最早的一批映射完成
+     *
+     * @return 是否还有结果
+     * @throws SQLException
+     */
+    boolean hasNext() throws SQLException {
+        if (current != null && position < current.length) {
+            return true;
+        }
+        current = null;
+        fill();
+        final Future<Object[]> batch = batches.poll();
+        if (batch == null) {
+            return false;
+        }
+        current = await(batch);
+        position = 0;
+        return true;
+    }
+
+    /**
+     * 取出下一个结果，必须先调用{@link #hasNext()}
+     *
+     * @return 结果对象，与同步映射一样，空行可能为null
+     */
+    Object next() {
+        final Object rowValue = current[position];
+        // 交出后不再持有结果对象
+        current[position++] = null;
+        return rowValue;
+    }
+
+    /**
+     * @return 已经从结果集读取的行数
+     */
+    int getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * 放弃所有未取出的结果，映射中的批次完成后直接丢弃
+     */
+    void cancel() {
+        for (Future<Object[]> batch : batches) {
+            batch.cancel(false);
+        }
+        batches.clear();
+        current = null;
+        exhausted = true;
+    }
+
+    private void fill() throws SQLException {
+        while (!exhausted && batches.size() < workers) {
+            final List<Object[]> rows = readBatch();
+            if (!rows.isEmpty()) {
+                batches.add(executorService.submit(() -> mapBatch(rows)));
+            }
+        }
+    }
+
+    private List<Object[]> readBatch() throws SQLException {
+        final List<Object[]> rows = new ArrayList<>(Math.min(batchSize, remainingRows));
+        while (rows.size() < batchSize) {
+            if (remainingRows <= 0 || resultSet.isClosed() || !resultSet.next()) {
+                exhausted = true;
+                break;
+            }
+            rows.add(rowMapper.readRow(resultSet));
+            remainingRows--;
+            rowsRead++;
+        }
+        return rows;
+    }
+
+    private Object[] mapBatch(List<Object[]> rows) {
+        final Object[] rowValues = new Object[rows.size()];
+        for (int i = 0; i < rowValues.length; i++) {
+            rowValues[i] = rowMapper.mapRow(rows.get(i));
+        }
+        return rowValues;
+    }
+
+    private Object[] await(Future<Object[]> batch) {
+        try {
+            return batch.get();
+        } catch (ExecutionException e) {
+            cancel();
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ExecutorException("Error mapping rows.  Cause: " + cause, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new ExecutorException("Interrupted while mapping rows.  Cause: " + e, e);
+        }
+    }
+
+}
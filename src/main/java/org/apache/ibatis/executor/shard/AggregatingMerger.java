@@ -0,0 +1,116 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.shard;
+
+import org.apache.ibatis.executor.ExecutorException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 合并单个聚合函数（count、sum、min、max）的查询结果，每个分片最多返回一行。
+ * count和sum的结果相加，min和max取各分片结果中的最小、最大值。结果保持第一个分片结果的类型。
+ */
+public class AggregatingMerger implements ShardResultMerger {
+
+    public enum Function {
+        SUM, MIN, MAX
+    }
+
+    private final Function function;
+
+    public AggregatingMerger(Function function) {
+        this.function = function;
+    }
+
+    @Override
+    public List<Object> merge(List<List<Object>> shardResults) {
+        boolean hasRow = false;
+        Object merged = null;
+        for (List<Object> shardResult : shardResults) {
+            if (shardResult.size() > 1) {
+                throw new ExecutorException("Cannot merge aggregate results across shards: a shard returned " + shardResult.size() + " rows.");
+            }
+            if (shardResult.isEmpty()) {
+                continue;
+            }
+            hasRow = true;
+            Object value = shardResult.get(0);
+            if (value == null) {
+                continue;
+            }
+            merged = merged == null ? value : combine(merged, value);
+        }
+        if (!hasRow) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Collections.singletonList(merged));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object combine(Object merged, Object value) {
+        if (function == Function.SUM) {
+            if (!(merged instanceof Number) || !(value instanceof Number)) {
+                throw new ExecutorException("Cannot sum non-numeric aggregate results across shards: " + merged.getClass().getName());
+            }
+            return convert(toBigDecimal((Number) merged).add(toBigDecimal((Number) value)), merged.getClass());
+        }
+        if (!(merged instanceof Comparable)) {
+            throw new ExecutorException("Cannot compare aggregate results across shards: " + merged.getClass().getName());
+        }
+        int result = ((Comparable) merged).compareTo(value);
+        if (function == Function.MIN) {
+            return result <= 0 ? merged : value;
+        }
+        return result >= 0 ? merged : value;
+    }
+
+    private BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        if (number instanceof Double || number instanceof Float) {
+            return BigDecimal.valueOf(number.doubleValue());
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+
+    private Object convert(BigDecimal sum, Class<?> type) {
+        if (type == Long.class) {
+            return sum.longValue();
+        } else if (type == Integer.class) {
+            return sum.intValue();
+        } else if (type == Short.class) {
+            return sum.shortValue();
+        } else if (type == Byte.class) {
+            return sum.byteValue();
+        } else if (type == Double.class) {
+            return sum.doubleValue();
+        } else if (type == Float.class) {
+            return sum.floatValue();
+        } else if (type == BigInteger.class) {
+            return sum.toBigInteger();
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按分片顺序拼接结果，用于没有ORDER BY的查询
+ */
+public class ConcatenatingMerger implements ShardResultMerger {
+
+    @Override
+    public List<Object> merge(List<List<Object>> shardResults) {
+        int size = 0;
+        for (List<Object> shardResult : shardResults) {
+            size += shardResult.size();
+        }
+        List<Object> merged = new ArrayList<>(size);
+        for (List<Object> shardResult : shardResults) {
+            merged.addAll(shardResult);
+        }
+        return merged;
+    }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.shard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 多路归并各分片已经排好序的结果，用于带ORDER BY的查询。
+ * 排序值相同的行按分片编号排列，合并结果是稳定的。
+ */
+public class OrderedMerger implements ShardResultMerger {
+
+    private final Comparator<Object> comparator;
+
+    public OrderedMerger(Comparator<Object> comparator) {
+        this.comparator = comparator;
+    }
+
+    @Override
+    public List<Object> merge(List<List<Object>> shardResults) {
+        int size = 0;
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, shardResults.size()));
+        for (int i = 0; i < shardResults.size(); i++) {
+            List<Object> shardResult = shardResults.get(i);
+            size += shardResult.size();
+            Iterator<Object> iterator = shardResult.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Cursor(i, iterator));
+            }
+        }
+        List<Object> merged = new ArrayList<>(size);
+        while (!heads.isEmpty()) {
+            Cursor head = heads.poll();
+            merged.add(head.current);
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 一个分片结果中的当前位置
+     */
+    private class Cursor implements Comparable<Cursor> {
+        private final int shard;
+        private final Iterator<Object> iterator;
+        private Object current;
+
+        private Cursor(int shard, Iterator<Object> iterator) {
+            this.shard = shard;
+            this.iterator = iterator;
+            this.current = iterator.next();
+        }
+
+        private boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            current = iterator.next();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int result = comparator.compare(current, other.current);
+            return result != 0 ? result : Integer.compare(shard, other.shard);
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.shard;
+
+import java.util.List;
+
+/**
+ * 合并同一个查询在各个分片上的结果
+ *
+ * @see ShardResultMergers
+ */
+public interface ShardResultMerger {
+
+    /**
+     * @param shardResults 各个分片的结果，按分片编号排列
+     * @return 合并后的结果
+     */
+    List<Object> merge(List<List<Object>> shardResults);
+
+}
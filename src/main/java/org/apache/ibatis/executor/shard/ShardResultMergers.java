@@ -0,0 +1,218 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.shard;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetRowBounds;
+import org.apache.ibatis.session.RowBounds;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 根据查询语句选择合并分片结果的方式：
+ * <ul>
+ *     <li>select列表只有一个count、sum、min、max函数且没有GROUP BY时，合并聚合结果；</li>
+ *     <li>最外层有ORDER BY（或者使用KeysetRowBounds）时，按排序列多路归并；</li>
+ *     <li>其他情况按分片顺序拼接。</li>
+ * </ul>
+ * ORDER BY中的列需要能对应到结果对象的属性（resultMap中的column、自动映射的属性或Map的键），否则无法在内存中排序。
+ */
+public final class ShardResultMergers {
+
+    private static final ShardResultMerger CONCATENATING = new ConcatenatingMerger();
+
+    private static final Pattern AGGREGATE = Pattern.compile(
+            "^\\s*select\\s+(count|sum|min|max|avg)\\s*\\(\\s*\\)(\\s+(as\\s+)?[\\w\"`]+)?\\s+from\\b.*", Pattern.DOTALL);
+    private static final Pattern GROUP_BY = Pattern.compile("\\bgroup\\s+by\\b");
+    private static final Pattern ORDER_BY = Pattern.compile("\\border\\s+by\\b");
+    private static final Pattern ORDER_BY_END = Pattern.compile("\\b(limit|offset|fetch|for)\\b");
+    private static final Pattern ORDER_ITEM = Pattern.compile(
+            "^(.+?)(\\s+(asc|desc))?(\\s+nulls\\s+(first|last))?$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private ShardResultMergers() {
+        // Prevent Instantiation of Static Class
+    }
+
+    /**
+     * @param ms        查询语句
+     * @param sql       在分片上执行的SQL
+     * @param rowBounds 分页参数
+     * @return 合并各分片结果的方式
+     */
+    public static ShardResultMerger forQuery(MappedStatement ms, String sql, RowBounds rowBounds) {
+        if (rowBounds instanceof KeysetRowBounds) {
+            KeysetRowBounds keyset = (KeysetRowBounds) rowBounds;
+            return new OrderedMerger(sortKey(ms, keyset.getColumn(), keyset.isDescending(), false));
+        }
+        String masked = maskNested(sql).toLowerCase(Locale.ENGLISH);
+        Matcher aggregate = AGGREGATE.matcher(masked);
+        if (aggregate.matches() && !GROUP_BY.matcher(masked).find()) {
+            String function = aggregate.group(1);
+            if ("avg".equals(function)) {
+                throw new ExecutorException("Cannot merge avg() of statement '" + ms.getId()
+                        + "' across shards. Select sum() and count() instead.");
+            }
+            return new AggregatingMerger("min".equals(function) ? AggregatingMerger.Function.MIN
+                    : "max".equals(function) ? AggregatingMerger.Function.MAX : AggregatingMerger.Function.SUM);
+        }
+        int orderBy = lastMatch(ORDER_BY, masked);
+        if (orderBy < 0) {
+            return CONCATENATING;
+        }
+        return new OrderedMerger(orderByComparator(ms, sql, masked, orderBy));
+    }
+
+    private static Comparator<Object> orderByComparator(MappedStatement ms, String sql, String masked, int orderBy) {
+        Matcher keyword = ORDER_BY.matcher(masked);
+        keyword.find(orderBy);
+        int start = keyword.end();
+        Matcher end = ORDER_BY_END.matcher(masked);
+        int stop = end.find(start) ? end.start() : sql.length();
+        Comparator<Object> comparator = null;
+        int itemStart = start;
+        for (int i = start; i <= stop; i++) {
+            if (i == stop || masked.charAt(i) == ',') {
+                Matcher item = ORDER_ITEM.matcher(sql.substring(itemStart, i).trim());
+                if (!item.matches()) {
+                    throw new ExecutorException("Cannot parse ORDER BY of statement '" + ms.getId() + "' to merge shard results.");
+                }
+                boolean descending = "desc".equalsIgnoreCase(item.group(3));
+                // 没有指定NULLS FIRST/LAST时，null按最小值处理
+                boolean nullsLast = item.group(5) == null ? descending : "last".equalsIgnoreCase(item.group(5));
+                Comparator<Object> next = sortKey(ms, item.group(1).trim(), descending, nullsLast);
+                comparator = comparator == null ? next : comparator.thenComparing(next);
+                itemStart = i + 1;
+            }
+        }
+        return comparator;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Object> sortKey(MappedStatement ms, String expression, boolean descending, boolean nullsLast) {
+        Function<Object, Object> extractor = valueExtractor(ms, expression);
+        Comparator<Comparable> natural = Comparator.naturalOrder();
+        Comparator<Comparable> order = descending ? natural.reversed() : natural;
+        Comparator<Comparable> withNulls = nullsLast ? Comparator.nullsLast(order) : Comparator.nullsFirst(order);
+        return (a, b) -> withNulls.compare((Comparable) extractor.apply(a), (Comparable) extractor.apply(b));
+    }
+
+    /**
+     * 找到排序表达式对应的结果属性
+     */
+    private static Function<Object, Object> valueExtractor(MappedStatement ms, String expression) {
+        String column = expression;
+        int dot = column.lastIndexOf('.');
+        if (dot >= 0) {
+            column = column.substring(dot + 1);
+        }
+        column = column.replace("\"", "").replace("`", "");
+        if (column.isEmpty() || !column.chars().allMatch(c -> Character.isLetterOrDigit(c) || c == '_' || c == '$')
+                || Character.isDigit(column.charAt(0))) {
+            throw unsortable(ms, expression);
+        }
+        Configuration configuration = ms.getConfiguration();
+        ResultMap resultMap = ms.getResultMaps().get(0);
+        for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+            if (resultMapping.getProperty() != null && column.equalsIgnoreCase(resultMapping.getColumn())) {
+                String property = resultMapping.getProperty();
+                return row -> configuration.newMetaObject(row).getValue(property);
+            }
+        }
+        Class<?> type = resultMap.getType();
+        if (configuration.getTypeHandlerRegistry().hasTypeHandler(type)) {
+            return row -> row;
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            String key = column;
+            return row -> getIgnoreCase((Map<?, ?>) row, key);
+        }
+        String property = MetaClass.forClass(type, configuration.getReflectorFactory())
+                .findProperty(column, configuration.isMapUnderscoreToCamelCase());
+        if (property == null) {
+            throw unsortable(ms, expression);
+        }
+        return row -> configuration.newMetaObject(row).getValue(property);
+    }
+
+    private static Object getIgnoreCase(Map<?, ?> row, String key) {
+        if (row.containsKey(key)) {
+            return row.get(key);
+        }
+        for (Map.Entry<?, ?> entry : row.entrySet()) {
+            if (entry.getKey() instanceof String && key.equalsIgnoreCase((String) entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static ExecutorException unsortable(MappedStatement ms, String expression) {
+        return new ExecutorException("Cannot merge shard results of statement '" + ms.getId() + "' ordered by '" + expression
+                + "'. Order by a column that is mapped to a property of the result.");
+    }
+
+    private static int lastMatch(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        int found = -1;
+        while (matcher.find()) {
+            found = matcher.start();
+        }
+        return found;
+    }
+
+    /**
+     * 把括号和引号中的内容替换为空格，长度不变，只保留最外层的SQL结构
+     */
+    static String maskNested(String sql) {
+        StringBuilder masked = new StringBuilder(sql.length());
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                masked.append(' ');
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+                masked.append(' ');
+            } else if (c == '(') {
+                masked.append(depth == 0 ? c : ' ');
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                masked.append(depth == 0 ? c : ' ');
+            } else {
+                masked.append(depth > 0 ? ' ' : c);
+            }
+        }
+        return masked.toString();
+    }
+
+}
@@ -18,13 +18,18 @@ package org.apache.ibatis.executor.statement;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.dialect.Dialect;
+import org.apache.ibatis.executor.dialect.PagingSqlRewriter;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetRowBounds;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.TypeHandlerRegistry;
@@ -57,7 +62,6 @@ public abstract class BaseStatementHandler implements StatementHandler {
         this.configuration = mappedStatement.getConfiguration();
         this.executor = executor;
         this.mappedStatement = mappedStatement;
-        this.rowBounds = rowBounds;
 
         this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
         this.objectFactory = configuration.getObjectFactory();
@@ -68,6 +72,13 @@ public abstract class BaseStatementHandler implements StatementHandler {
             boundSql = mappedStatement.getBoundSql(parameterObject);
         }
 
+        if (isPagedByDatabase(rowBounds)) {
+            // 由数据库完成分页，结果集处理器不需要再跳过行
+            boundSql = PagingSqlRewriter.rewrite(configuration, getDialect(), boundSql, rowBounds);
+            rowBounds = RowBounds.DEFAULT;
+        }
+
+        this.rowBounds = rowBounds;
         this.boundSql = boundSql;
 
         this.parameterHandler = configuration.newParameterHandler(mappedStatement, parameterObject, boundSql);
@@ -123,6 +134,14 @@ public abstract class BaseStatementHandler implements StatementHandler {
             stmt.setFetchSize(fetchSize);
             return;
         }
+        // 开启自适应时，按这条语句最近读取的行数设置
+        if (configuration.isAdaptiveFetchSizeEnabled() && mappedStatement.getSqlCommandType() == SqlCommandType.SELECT) {
+            Integer adaptiveFetchSize = configuration.getFetchSizeAdvisor().getFetchSize(mappedStatement);
+            if (adaptiveFetchSize != null) {
+                stmt.setFetchSize(adaptiveFetchSize);
+                return;
+            }
+        }
         Integer defaultFetchSize = configuration.getDefaultFetchSize();
         if (defaultFetchSize != null) {
             stmt.setFetchSize(defaultFetchSize);
@@ -139,6 +158,42 @@ public abstract class BaseStatementHandler implements StatementHandler {
         }
     }
 
+    /**
+     * 键集分页总是由数据库完成；普通的RowBounds在开启rowBoundsPushdownEnabled且有可用方言时由数据库完成。
+     * 嵌套结果映射（关联查询）中一个父对象对应多行，数据库的LIMIT/OFFSET按行而不是按父对象计数，所以仍在客户端跳过行。
+     * STATEMENT类型的语句不绑定参数，追加的分页占位符无法赋值，普通的RowBounds仍在客户端跳过行，键集分页则直接拒绝
+     */
+    private boolean isPagedByDatabase(RowBounds rowBounds) {
+        if (mappedStatement.getSqlCommandType() != SqlCommandType.SELECT || mappedStatement.getStatementType() == StatementType.CALLABLE) {
+            return false;
+        }
+        if (rowBounds instanceof KeysetRowBounds) {
+            if (mappedStatement.getStatementType() == StatementType.STATEMENT) {
+                throw new ExecutorException("Keyset pagination of statement '" + mappedStatement.getId()
+                        + "' is not supported because its statementType is STATEMENT and cannot bind the keyset parameters.");
+            }
+            if (mappedStatement.hasNestedResultMaps()) {
+                throw new ExecutorException("Keyset pagination of statement '" + mappedStatement.getId()
+                        + "' is not supported because it has nested result maps and the database would limit joined rows instead of results.");
+            }
+            return true;
+        }
+        return (rowBounds.getOffset() != RowBounds.NO_ROW_OFFSET || rowBounds.getLimit() != RowBounds.NO_ROW_LIMIT)
+                && configuration.isRowBoundsPushdownEnabled()
+                && mappedStatement.getStatementType() != StatementType.STATEMENT
+                && !mappedStatement.hasNestedResultMaps()
+                && configuration.getDialect() != null;
+    }
+
+    private Dialect getDialect() {
+        Dialect dialect = configuration.getDialect();
+        if (dialect == null) {
+            throw new ExecutorException("Keyset pagination of statement '" + mappedStatement.getId()
+                    + "' requires a dialect. Set the 'dialect' setting or configure a databaseIdProvider.");
+        }
+        return dialect;
+    }
+
     protected void generateKeys(Object parameter) {
         KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
         ErrorContext.instance().store();
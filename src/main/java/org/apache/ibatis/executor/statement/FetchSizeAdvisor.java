@@ -0,0 +1,75 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自适应fetchSize，开启adaptiveFetchSizeEnabled时使用。
+ * 按语句记录每次查询实际读取的行数，维护一个滑动平均值，下次执行时把fetchSize设为平均行数加一：
+ * 单行查询只需要一次往返就能读完并确认没有更多的行，大结果集则每次往返取回更多的行。
+ * fetchSize不超过maxAdaptiveFetchSize，避免导出等大查询一次缓存过多的行。
+ * <p>
+ * 平均值在行数变多时快速上升（每次走一半的差距），变少时缓慢下降（每次走八分之一），
+ * 偶尔出现的小结果不会让经常返回大量行的语句多出很多次往返。
+ */
+public class FetchSizeAdvisor {
+
+    private final Configuration configuration;
+    // 语句id -> 平均行数，还没有执行过的语句没有记录
+    private final Map<String, AtomicInteger> averageRows = new ConcurrentHashMap<>();
+
+    public FetchSizeAdvisor(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * @param ms 查询语句
+     * @return 建议的fetchSize，还没有执行记录时返回null
+     */
+    public Integer getFetchSize(MappedStatement ms) {
+        AtomicInteger average = averageRows.get(ms.getId());
+        if (average == null) {
+            return null;
+        }
+        return (int) Math.min(configuration.getMaxAdaptiveFetchSize(), average.get() + 1L);
+    }
+
+    /**
+     * 记录一次查询读取的行数
+     *
+     * @param ms   查询语句
+     * @param rows 读取的行数
+     */
+    public void recordRows(MappedStatement ms, int rows) {
+        AtomicInteger average = averageRows.get(ms.getId());
+        if (average == null) {
+            average = averageRows.putIfAbsent(ms.getId(), new AtomicInteger(rows));
+            if (average == null) {
+                return;
+            }
+        }
+        average.updateAndGet(current -> rows > current
+                ? current + (rows - current + 1) / 2
+                : current - (current - rows) / 8);
+    }
+
+}
@@ -38,8 +38,11 @@ import java.util.List;
 public class RoutingStatementHandler implements StatementHandler {
 
     private final StatementHandler delegate; // 具体用于处理的StatementHandler的实现类，根据语句类型选取
+    // 调用线程被中断时是否取消执行中的语句
+    private final boolean cancelOnInterrupt;
 
     public RoutingStatementHandler(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) {
+        this.cancelOnInterrupt = ms.getConfiguration().isCancelQueriesOnInterrupt();
         // 根据MappedStatement的配置，生成一个相应的StatementHandler对象，并设置到delegate字段中维护
         switch (ms.getStatementType()) {
             case STATEMENT:
@@ -74,17 +77,23 @@ public class RoutingStatementHandler implements StatementHandler {
 
     @Override
     public int update(Statement statement) throws SQLException {
-        return delegate.update(statement);
+        return StatementCanceller.execute(statement, cancelOnInterrupt, () -> delegate.update(statement));
     }
 
+    /**
+     * 语句执行期间（包括结果映射）可以被CancellationToken或线程中断取消
+     */
     @Override
     public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
-        return delegate.query(statement, resultHandler);
+        return StatementCanceller.execute(statement, cancelOnInterrupt, () -> delegate.query(statement, resultHandler));
     }
 
+    /**
+     * 只有执行查询的阶段可以被取消，之后通过游标读取行时不再监视
+     */
     @Override
     public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
-        return delegate.queryCursor(statement);
+        return StatementCanceller.execute(statement, cancelOnInterrupt, () -> delegate.queryCursor(statement));
     }
 
     @Override
@@ -0,0 +1,225 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import org.apache.ibatis.executor.QueryCancelledException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.session.CancellationToken;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在语句执行期间监视取消条件，条件满足时对JDBC Statement调用cancel()。
+ * 取消条件包括：当前线程绑定的{@link CancellationToken}被取消或到期，以及开启cancelQueriesOnInterrupt时调用线程被中断。
+ * <p>
+ * 令牌被取消时立即取消语句；截止时间和线程中断由一个后台线程每{@value #POLL_INTERVAL_MILLIS}毫秒检查一次，
+ * 后台线程只在有语句执行时运行。带截止时间时，语句的查询超时在执行期间被限制在剩余时间内，执行结束后恢复，
+ * 所以ReuseExecutor缓存的Statement不会保留这个超时。
+ * 语句执行结束后不会再被取消，被复用的Statement不会受到之前的取消影响。
+ */
+public final class StatementCanceller {
+
+    private static final Log log = LogFactory.getLog(StatementCanceller.class);
+
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private static final Set<Execution> executions = ConcurrentHashMap.newKeySet();
+    private static ScheduledExecutorService scheduler;
+    private static ScheduledFuture<?> poller;
+
+    private StatementCanceller() {
+        // Prevent Instantiation of Static Class
+    }
+
+    /**
+     * 执行一次语句调用，执行期间满足取消条件时取消语句
+     *
+     * @param statement         执行中的语句
+     * @param cancelOnInterrupt 调用线程被中断时是否取消语句
+     * @param call              对语句的调用
+     * @param <T>               调用的返回值类型
+     * @return 调用的返回值
+     * @throws SQLException 语句执行失败
+     */
+    public static <T> T execute(Statement statement, boolean cancelOnInterrupt, StatementCall<T> call) throws SQLException {
+        CancellationToken token = CancellationToken.current();
+        if (token == null && !cancelOnInterrupt) {
+            return call.execute();
+        }
+        Execution execution = new Execution(statement, token, cancelOnInterrupt);
+        String reason = execution.checkCancelled();
+        if (reason != null) {
+            throw new QueryCancelledException("Statement was not executed because " + reason + ".");
+        }
+        int queryTimeout = statement.getQueryTimeout();
+        if (token != null && token.hasDeadline()) {
+            // 截止时间向上取整到秒，驱动只支持以秒为单位的超时
+            long remainingSeconds = Math.max(1, (token.getRemainingNanos() + 999_999_999L) / 1_000_000_000L);
+            if (queryTimeout == 0 || remainingSeconds < queryTimeout) {
+                statement.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, remainingSeconds));
+            }
+        }
+        start(execution);
+        try {
+            return call.execute();
+        } catch (SQLException | RuntimeException e) {
+            reason = execution.finish();
+            if (reason == null && token != null && token.isExpired()) {
+                // 驱动按查询超时先结束了语句
+                reason = "the deadline was exceeded";
+            }
+            if (reason != null) {
+                throw new QueryCancelledException("Statement was cancelled because " + reason + ".  Cause: " + e, e);
+            }
+            throw e;
+        } finally {
+            execution.finish();
+            stop(execution);
+            restoreQueryTimeout(statement, queryTimeout);
+        }
+    }
+
+    private static void restoreQueryTimeout(Statement statement, int queryTimeout) {
+        try {
+            if (!statement.isClosed() && statement.getQueryTimeout() != queryTimeout) {
+                statement.setQueryTimeout(queryTimeout);
+            }
+        } catch (SQLException e) {
+            // 不掩盖语句本身的异常，语句不可用时也不会再被复用
+            if (log.isDebugEnabled()) {
+                log.debug("Error restoring query timeout.  Cause: " + e);
+            }
+        }
+    }
+
+    private static void start(Execution execution) {
+        executions.add(execution);
+        if (execution.token != null) {
+            execution.token.addCancellationListener(execution.onTokenCancelled);
+            // 令牌可能在注册监听器之前被取消
+            if (execution.token.isCancelled()) {
+                execution.onTokenCancelled.run();
+            }
+        }
+        synchronized (StatementCanceller.class) {
+            if (poller == null) {
+                if (scheduler == null) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "mybatis-statement-canceller");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                poller = scheduler.scheduleWithFixedDelay(StatementCanceller::poll, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS,
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private static void stop(Execution execution) {
+        if (execution.token != null) {
+            execution.token.removeCancellationListener(execution.onTokenCancelled);
+        }
+        executions.remove(execution);
+    }
+
+    private static void poll() {
+        for (Execution execution : executions) {
+            String reason = execution.checkCancelled();
+            if (reason != null) {
+                execution.cancel(reason);
+            }
+        }
+        synchronized (StatementCanceller.class) {
+            if (executions.isEmpty() && poller != null) {
+                poller.cancel(false);
+                poller = null;
+            }
+        }
+    }
+
+    /**
+     * 对语句的一次调用
+     */
+    @FunctionalInterface
+    public interface StatementCall<T> {
+        T execute() throws SQLException;
+    }
+
+    /**
+     * 一条正在执行的语句
+     */
+    private static class Execution {
+        private final Statement statement;
+        private final CancellationToken token;
+        private final Thread thread;
+        private final boolean cancelOnInterrupt;
+        private final Runnable onTokenCancelled = () -> cancel("it was cancelled");
+        private boolean finished;
+        private String cancelReason;
+
+        private Execution(Statement statement, CancellationToken token, boolean cancelOnInterrupt) {
+            this.statement = statement;
+            this.token = token;
+            this.thread = Thread.currentThread();
+            this.cancelOnInterrupt = cancelOnInterrupt;
+        }
+
+        private String checkCancelled() {
+            if (token != null && token.isCancelled()) {
+                return "it was cancelled";
+            }
+            if (token != null && token.isExpired()) {
+                return "the deadline was exceeded";
+            }
+            if (cancelOnInterrupt && thread.isInterrupted()) {
+                return "the calling thread was interrupted";
+            }
+            return null;
+        }
+
+        private synchronized void cancel(String reason) {
+            if (finished || cancelReason != null) {
+                return;
+            }
+            cancelReason = reason;
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Error cancelling statement because " + reason + ".  Cause: " + e);
+                }
+            }
+        }
+
+        /**
+         * @return 语句被取消的原因，没有被取消时返回null
+         */
+        private synchronized String finish() {
+            finished = true;
+            return cancelReason;
+        }
+    }
+
+}
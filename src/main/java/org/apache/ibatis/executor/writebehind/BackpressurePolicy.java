@@ -0,0 +1,38 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.writebehind;
+
+/**
+ * 异步写队列已满时的处理策略
+ */
+public enum BackpressurePolicy {
+    /**
+     * 调用线程等待，直到队列有空位
+     */
+    BLOCK,
+    /**
+     * 立即抛出异常
+     */
+    FAIL,
+    /**
+     * 丢弃这次写操作，并通知失败回调
+     */
+    DISCARD,
+    /**
+     * 在调用线程上用独立的连接同步执行
+     */
+    CALLER_RUNS
+}
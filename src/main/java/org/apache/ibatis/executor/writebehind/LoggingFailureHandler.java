@@ -0,0 +1,40 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.writebehind;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 默认的失败回调，只记录错误日志
+ */
+public class LoggingFailureHandler implements WriteBehindFailureHandler {
+
+    private static final Log log = LogFactory.getLog(LoggingFailureHandler.class);
+
+    @Override
+    public void onFailure(List<PendingWrite> writes, Throwable cause) {
+        String statements = writes.stream()
+                .map(write -> write.getMappedStatement().getId())
+                .distinct()
+                .collect(Collectors.joining(", "));
+        log.error("Lost " + writes.size() + " write-behind statement(s) of [" + statements + "].  Cause: " + cause, cause);
+    }
+
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.writebehind;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * 队列中等待执行的一次写操作
+ */
+public class PendingWrite {
+
+    private final MappedStatement mappedStatement;
+    private final Object parameter;
+
+    PendingWrite(MappedStatement mappedStatement, Object parameter) {
+        this.mappedStatement = mappedStatement;
+        this.parameter = parameter;
+    }
+
+    public MappedStatement getMappedStatement() {
+        return mappedStatement;
+    }
+
+    /**
+     * @return 入队时的参数对象，后台线程执行时才读取它，所以入队之后不应再修改
+     */
+    public Object getParameter() {
+        return parameter;
+    }
+
+}
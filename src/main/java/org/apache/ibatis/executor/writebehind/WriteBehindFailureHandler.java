@@ -0,0 +1,34 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.writebehind;
+
+import java.util.List;
+
+/**
+ * 异步写失败的回调。
+ * 批处理失败时整个批次已经回滚，回调收到批次中的所有写操作；被DISCARD策略丢弃的写操作也会通知这里。
+ * 回调在后台线程上执行，抛出的异常只会被记录到日志。
+ */
+@FunctionalInterface
+public interface WriteBehindFailureHandler {
+
+    /**
+     * @param writes 没有写入数据库的写操作
+     * @param cause  失败原因
+     */
+    void onFailure(List<PendingWrite> writes, Throwable cause);
+
+}
@@ -0,0 +1,330 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.writebehind;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.ShardingExecutor;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步写队列，由同一个Configuration下的所有WriteBehindExecutor共享。
+ * 后台线程从有界队列中取出写操作，最多等待flushInterval毫秒凑满batchSize条，
+ * 然后在新取得的连接上以JDBC批处理执行并提交，执行完就归还连接，避免连接池把长时间占用的连接强制回收。
+ * 批处理失败时整个批次回滚并通知失败回调。
+ * <p>
+ * 后台线程使用environment的dataSource，不经过只读副本，也不经过Executor插件；
+ * 配置了分片时与会话中的写操作一样由{@link ShardingExecutor}按分片键路由，每个分片分别提交。
+ * JVM退出时会尽量把队列中的写操作执行完。
+ *
+ * @see org.apache.ibatis.executor.WriteBehindExecutor
+ */
+public class WriteBehindQueue {
+
+    private static final Log log = LogFactory.getLog(WriteBehindQueue.class);
+    // JVM退出时等待队列清空的最长时间
+    private static final long SHUTDOWN_HOOK_TIMEOUT_SECONDS = 10;
+
+    private final Configuration configuration;
+    private final BlockingQueue<PendingWrite> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final BackpressurePolicy backpressurePolicy;
+    private final WriteBehindFailureHandler failureHandler;
+    private final Thread worker;
+    private final Thread shutdownHook;
+    private volatile boolean shutdown;
+
+    public WriteBehindQueue(Configuration configuration) {
+        this.configuration = configuration;
+        this.queue = new ArrayBlockingQueue<>(configuration.getWriteBehindQueueCapacity());
+        this.batchSize = configuration.getWriteBehindBatchSize();
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getWriteBehindFlushInterval());
+        this.backpressurePolicy = configuration.getWriteBehindBackpressure();
+        this.failureHandler = configuration.getWriteBehindFailureHandler();
+        this.worker = new Thread(this::run, "mybatis-write-behind");
+        this.worker.setDaemon(true);
+        this.worker.start();
+        this.shutdownHook = new Thread(() -> shutdown(SHUTDOWN_HOOK_TIMEOUT_SECONDS, TimeUnit.SECONDS), "mybatis-write-behind-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * 加入一次写操作，队列已满时按backpressurePolicy处理
+     *
+     * @param ms        写语句
+     * @param parameter 参数，执行前不应再修改
+     * @throws SQLException CALLER_RUNS策略同步执行失败时
+     */
+    public void enqueue(MappedStatement ms, Object parameter) throws SQLException {
+        if (shutdown) {
+            throw new ExecutorException("Write-behind queue has been shut down, rejected statement '" + ms.getId() + "'.");
+        }
+        final PendingWrite write = new PendingWrite(ms, parameter);
+        if (backpressurePolicy == BackpressurePolicy.BLOCK) {
+            put(write);
+        } else if (!queue.offer(write)) {
+            if (backpressurePolicy == BackpressurePolicy.CALLER_RUNS) {
+                writeNow(write);
+            } else {
+                ExecutorException e = new ExecutorException("Write-behind queue is full (capacity "
+                        + (queue.size() + queue.remainingCapacity()) + "), rejected statement '" + ms.getId() + "'.");
+                if (backpressurePolicy == BackpressurePolicy.FAIL) {
+                    throw e;
+                }
+                notifyFailure(Collections.singletonList(write), e);
+            }
+        }
+    }
+
+    /**
+     * 等待调用之前加入的写操作全部执行完（成功提交或已通知失败回调）
+     */
+    public void flush() {
+        final FlushBarrier barrier = new FlushBarrier();
+        put(barrier);
+        try {
+            // 后台线程已经停止时不会再处理屏障
+            while (!barrier.latch.await(100, TimeUnit.MILLISECONDS)) {
+                if (!worker.isAlive()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutorException("Interrupted while flushing the write-behind queue.  Cause: " + e, e);
+        }
+    }
+
+    /**
+     * 停止接收新的写操作，并等待队列中已有的写操作执行完
+     *
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return 队列在超时前是否已清空，没有执行的写操作会通知失败回调
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // JVM正在退出，由shutdownHook负责
+            }
+        }
+        shutdown = true;
+        // 唤醒等待下一条写操作的后台线程；队列已满时后台线程不会阻塞在poll上，执行完当前批次后就会看到shutdown标志
+        if (!queue.offer(new FlushBarrier())) {
+            log.debug("Write-behind queue is full, the worker will stop after draining it.");
+        }
+        try {
+            worker.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!worker.isAlive()) {
+            return true;
+        }
+        worker.interrupt();
+        final List<PendingWrite> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.removeIf(write -> write instanceof FlushBarrier);
+        if (!abandoned.isEmpty()) {
+            notifyFailure(abandoned, new ExecutorException("Write-behind queue was shut down before the writes were executed."));
+        }
+        return false;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * @return 队列中等待执行的写操作数量
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    private void put(PendingWrite write) {
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutorException("Interrupted while waiting for space in the write-behind queue.  Cause: " + e, e);
+        }
+    }
+
+    private void run() {
+        final List<PendingWrite> batch = new ArrayList<>(Math.min(batchSize, 1024));
+        try {
+            while (!shutdown || !queue.isEmpty()) {
+                PendingWrite write = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (write == null) {
+                    continue;
+                }
+                final long deadline = System.nanoTime() + flushIntervalNanos;
+                FlushBarrier barrier = null;
+                while (write != null) {
+                    if (write instanceof FlushBarrier) {
+                        // 屏障之前的写操作必须先执行完
+                        barrier = (FlushBarrier) write;
+                        break;
+                    }
+                    batch.add(write);
+                    if (batch.size() >= batchSize) {
+                        break;
+                    }
+                    // 关闭时不再等待凑批
+                    write = shutdown ? queue.poll() : queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+                if (barrier != null) {
+                    barrier.latch.countDown();
+                }
+            }
+        } catch (InterruptedException e) {
+            if (!batch.isEmpty()) {
+                notifyFailure(new ArrayList<>(batch), new ExecutorException("Write-behind worker was interrupted.  Cause: " + e, e));
+            }
+        } finally {
+            // 不让flush()的调用方一直等待
+            final List<PendingWrite> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            for (PendingWrite write : remaining) {
+                if (write instanceof FlushBarrier) {
+                    ((FlushBarrier) write).latch.countDown();
+                }
+            }
+            remaining.removeIf(write -> write instanceof FlushBarrier);
+            if (!remaining.isEmpty()) {
+                notifyFailure(remaining, new ExecutorException("Write-behind worker stopped before the writes were executed."));
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        ErrorContext.instance().reset();
+        try {
+            final Executor batchExecutor = newExecutor();
+            boolean success = false;
+            try {
+                execute(batchExecutor, batch);
+                success = true;
+            } finally {
+                // 每批执行完就归还连接，失败时先回滚
+                closeExecutor(batchExecutor, !success);
+            }
+        } catch (SQLException | RuntimeException e) {
+            notifyFailure(new ArrayList<>(batch), e);
+        }
+    }
+
+    /**
+     * CALLER_RUNS策略：在调用线程上用独立的连接和事务执行
+     */
+    private void writeNow(PendingWrite write) throws SQLException {
+        final Executor callerExecutor = newExecutor();
+        boolean success = false;
+        try {
+            execute(callerExecutor, Collections.singletonList(write));
+            success = true;
+        } finally {
+            callerExecutor.close(!success);
+        }
+    }
+
+    private void execute(Executor batchExecutor, List<PendingWrite> writes) throws SQLException {
+        for (PendingWrite write : writes) {
+            batchExecutor.update(write.getMappedStatement(), write.getParameter());
+        }
+        // commit会先执行批处理
+        batchExecutor.commit(true);
+        // 写入之后再清空二级缓存，避免其他会话在写入前把旧数据放回缓存
+        final Set<Cache> caches = new LinkedHashSet<>();
+        for (PendingWrite write : writes) {
+            MappedStatement ms = write.getMappedStatement();
+            if (ms.isFlushCacheRequired() && ms.getCache() != null) {
+                caches.add(ms.getCache());
+            }
+        }
+        caches.forEach(Cache::clear);
+    }
+
+    private Executor newExecutor() {
+        final Environment environment = configuration.getEnvironment();
+        if (environment == null || environment.getDataSource() == null) {
+            throw new ExecutorException("Write-behind requires an environment with a data source.");
+        }
+        final Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), null, false);
+        // 直接创建BatchExecutor，不能再经过WriteBehindExecutor
+        final Executor batchExecutor = new BatchExecutor(configuration, tx);
+        if (!environment.getShardDataSources().isEmpty()) {
+            return new ShardingExecutor(configuration, batchExecutor, ExecutorType.BATCH);
+        }
+        return batchExecutor;
+    }
+
+    private void closeExecutor(Executor batchExecutor, boolean forceRollback) {
+        try {
+            batchExecutor.close(forceRollback);
+        } catch (RuntimeException e) {
+            log.debug("Failed to close the write-behind executor.  Cause: " + e);
+        }
+    }
+
+    private void notifyFailure(List<PendingWrite> writes, Throwable cause) {
+        try {
+            failureHandler.onFailure(Collections.unmodifiableList(writes), cause);
+        } catch (RuntimeException e) {
+            log.error("Write-behind failure handler threw an exception.  Cause: " + e, e);
+        }
+    }
+
+    /**
+     * flush()放入队列的屏障，后台线程执行完它之前的写操作后释放
+     */
+    private static class FlushBarrier extends PendingWrite {
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private FlushBarrier() {
+            super(null, null);
+        }
+    }
+
+}
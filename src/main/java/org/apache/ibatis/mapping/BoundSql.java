@@ -79,4 +79,18 @@ public class BoundSql {
     public Object getAdditionalParameter(String name) {
         return metaParameters.getValue(name);
     }
+
+    /**
+     * 以新的SQL和参数映射创建BoundSql，保留实参和所有附加参数，用于分页等对SQL的改写
+     *
+     * @param configuration     配置
+     * @param sql               新的SQL
+     * @param parameterMappings 新的参数映射列表
+     * @return 新的BoundSql
+     */
+    public BoundSql copy(Configuration configuration, String sql, List<ParameterMapping> parameterMappings) {
+        BoundSql copy = new BoundSql(configuration, sql, parameterMappings, parameterObject);
+        copy.additionalParameters.putAll(additionalParameters);
+        return copy;
+    }
 }
@@ -18,6 +18,9 @@ package org.apache.ibatis.mapping;
 import org.apache.ibatis.transaction.TransactionFactory;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * @author Clinton Begin
@@ -30,8 +33,21 @@ public final class Environment {
     private final TransactionFactory transactionFactory;
     // 数据源
     private final DataSource dataSource;
+    // 只读副本数据源，用于读写分离：会话写之前的查询发送到副本，写之后到提交或回滚之前的查询仍在主库上执行
+    private final List<DataSource> replicaDataSources;
+    // 其余的分片数据源，dataSource是第一个分片
+    private final List<DataSource> shardDataSources;
 
     public Environment(String id, TransactionFactory transactionFactory, DataSource dataSource) {
+        this(id, transactionFactory, dataSource, Collections.emptyList());
+    }
+
+    public Environment(String id, TransactionFactory transactionFactory, DataSource dataSource, List<DataSource> replicaDataSources) {
+        this(id, transactionFactory, dataSource, replicaDataSources, Collections.emptyList());
+    }
+
+    public Environment(String id, TransactionFactory transactionFactory, DataSource dataSource, List<DataSource> replicaDataSources,
+                       List<DataSource> shardDataSources) {
         if (id == null) {
             throw new IllegalArgumentException("Parameter 'id' must not be null");
         }
@@ -44,12 +60,18 @@ public final class Environment {
         }
         this.transactionFactory = transactionFactory;
         this.dataSource = dataSource;
+        this.replicaDataSources = replicaDataSources == null
+                ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(replicaDataSources));
+        this.shardDataSources = shardDataSources == null
+                ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(shardDataSources));
     }
 
     public static class Builder {
         private final String id;
         private TransactionFactory transactionFactory;
         private DataSource dataSource;
+        private List<DataSource> replicaDataSources;
+        private List<DataSource> shardDataSources;
 
         public Builder(String id) {
             this.id = id;
@@ -65,12 +87,22 @@ public final class Environment {
             return this;
         }
 
+        public Builder replicaDataSources(List<DataSource> replicaDataSources) {
+            this.replicaDataSources = replicaDataSources;
+            return this;
+        }
+
+        public Builder shardDataSources(List<DataSource> shardDataSources) {
+            this.shardDataSources = shardDataSources;
+            return this;
+        }
+
         public String id() {
             return this.id;
         }
 
         public Environment build() {
-            return new Environment(this.id, this.transactionFactory, this.dataSource);
+            return new Environment(this.id, this.transactionFactory, this.dataSource, this.replicaDataSources, this.shardDataSources);
         }
 
     }
@@ -87,4 +119,12 @@ public final class Environment {
         return this.dataSource;
     }
 
+    public List<DataSource> getReplicaDataSources() {
+        return this.replicaDataSources;
+    }
+
+    public List<DataSource> getShardDataSources() {
+        return this.shardDataSources;
+    }
+
 }
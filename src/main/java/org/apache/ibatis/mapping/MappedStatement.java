@@ -49,6 +49,8 @@ public final class MappedStatement {
     private boolean flushCacheRequired;
     private boolean useCache;   // 是否开启缓存
     private boolean resultOrdered;
+    // 是否交给后台线程异步批量执行
+    private boolean writeBehind;
     private SqlCommandType sqlCommandType;
     private KeyGenerator keyGenerator;
     private String[] keyProperties; // 主键属性名
@@ -146,6 +148,11 @@ public final class MappedStatement {
             return this;
         }
 
+        public Builder writeBehind(boolean writeBehind) {
+            mappedStatement.writeBehind = writeBehind;
+            return this;
+        }
+
         public Builder keyGenerator(KeyGenerator keyGenerator) {
             mappedStatement.keyGenerator = keyGenerator;
             return this;
@@ -267,6 +274,10 @@ public final class MappedStatement {
         return resultOrdered;
     }
 
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
     public String getDatabaseId() {
         return databaseId;
     }
@@ -58,6 +58,8 @@ public class ResultMapping {
     private String resultSet;
     private String foreignColumn;
     private boolean lazy;
+    // 嵌套select批量加载时，一次IN查询最多携带的键值数量，0表示不批量加载
+    private int batchSize;
 
     ResultMapping() {
     }
@@ -145,6 +147,11 @@ public class ResultMapping {
             return this;
         }
 
+        public Builder batchSize(int batchSize) {
+            resultMapping.batchSize = batchSize;
+            return this;
+        }
+
         public ResultMapping build() {
             // lock down collections
             resultMapping.flags = Collections.unmodifiableList(resultMapping.flags);
@@ -180,6 +187,14 @@ public class ResultMapping {
                     throw new IllegalStateException("There should be the same number of columns and foreignColumns in property " + resultMapping.property);
                 }
             }
+            if (resultMapping.batchSize > 0) {
+                if (resultMapping.nestedQueryId == null) {
+                    throw new IllegalStateException("batchSize can only be used with a nested select in property " + resultMapping.property);
+                }
+                if (!resultMapping.composites.isEmpty() || resultMapping.foreignColumn == null || resultMapping.foreignColumn.split(",").length != 1) {
+                    throw new IllegalStateException("A batch loaded nested select requires a single column and exactly one foreignColumn in property " + resultMapping.property);
+                }
+            }
         }
 
         private void resolveTypeHandler() {
@@ -264,6 +279,15 @@ public class ResultMapping {
         this.lazy = lazy;
     }
 
+    /**
+     * Gets the maximum number of keys loaded by one batched nested select.
+     *
+     * @return the batch size, or 0 when the nested select is issued once per row
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     public boolean isSimple() {
         return this.nestedResultMapId == null && this.nestedQueryId == null && this.resultSet == null;
     }
@@ -311,6 +335,7 @@ public class ResultMapping {
         sb.append(", resultSet='").append(resultSet).append('\'');
         sb.append(", foreignColumn='").append(foreignColumn).append('\'');
         sb.append(", lazy=").append(lazy);
+        sb.append(", batchSize=").append(batchSize);
         sb.append('}');
         return sb.toString();
     }
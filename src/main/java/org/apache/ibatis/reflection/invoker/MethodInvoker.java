@@ -58,4 +58,11 @@ public class MethodInvoker implements Invoker {
     public Class<?> getType() {
         return type;
     }
+
+    /**
+     * @return 被调用的方法
+     */
+    public Method getMethod() {
+        return method;
+    }
 }
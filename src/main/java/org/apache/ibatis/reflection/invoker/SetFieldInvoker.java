@@ -60,4 +60,11 @@ public class SetFieldInvoker implements Invoker {
     public Class<?> getType() {
         return field.getType();
     }
+
+    /**
+     * @return 被设置的字段
+     */
+    public Field getField() {
+        return field;
+    }
 }
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.function.Consumer;
+
+/**
+ * 批量导入的选项
+ *
+ * @see SqlSession#bulkLoad(String, java.util.Iterator, BulkLoadOptions)
+ */
+public class BulkLoadOptions {
+
+    // 每个批处理（也是每个事务）包含的行数
+    private int batchSize = 1000;
+    // 并行写入的连接数
+    private int writers = 1;
+    // 读取线程最多领先写入线程的批处理数，0表示writers的两倍
+    private int bufferedBatches;
+    // 每提交一个批处理后通知的监听器
+    private Consumer<BulkLoadProgress> progressListener;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public BulkLoadOptions batchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive but was " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public int getWriters() {
+        return writers;
+    }
+
+    public BulkLoadOptions writers(int writers) {
+        if (writers < 1) {
+            throw new IllegalArgumentException("writers must be positive but was " + writers);
+        }
+        this.writers = writers;
+        return this;
+    }
+
+    public int getBufferedBatches() {
+        return bufferedBatches > 0 ? bufferedBatches : writers * 2;
+    }
+
+    public BulkLoadOptions bufferedBatches(int bufferedBatches) {
+        this.bufferedBatches = bufferedBatches;
+        return this;
+    }
+
+    public Consumer<BulkLoadProgress> getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * @param progressListener 每提交一个批处理后在写入线程上调用，多个写入线程可能同时调用
+     * @return 当前选项
+     */
+    public BulkLoadOptions progressListener(Consumer<BulkLoadProgress> progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+}
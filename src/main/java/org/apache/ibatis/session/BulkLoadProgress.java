@@ -0,0 +1,85 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量导入的进度，导入过程中由多个线程更新，可以随时读取
+ *
+ * @see SqlSession#bulkLoad(String, java.util.Iterator, BulkLoadOptions)
+ */
+public class BulkLoadProgress {
+
+    private final long startNanos = System.nanoTime();
+    // 从数据源读取的行数
+    private final AtomicLong rowsRead = new AtomicLong();
+    // 已提交的行数
+    private final AtomicLong rowsLoaded = new AtomicLong();
+    // 已提交的批处理数
+    private final AtomicLong batches = new AtomicLong();
+    private volatile long endNanos;
+
+    void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    void batchLoaded(int rows) {
+        rowsLoaded.addAndGet(rows);
+        batches.incrementAndGet();
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getRowsLoaded() {
+        return rowsLoaded.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * @return 已用时间，导入结束后不再变化
+     */
+    public long getElapsedMillis() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    /**
+     * @return 每秒提交的行数
+     */
+    public double getRowsPerSecond() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        long elapsed = Math.max(end - startNanos, 1);
+        return getRowsLoaded() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkLoadProgress{rowsRead=" + getRowsRead() + ", rowsLoaded=" + getRowsLoaded()
+                + ", batches=" + getBatches() + ", elapsedMillis=" + getElapsedMillis() + "}";
+    }
+
+}
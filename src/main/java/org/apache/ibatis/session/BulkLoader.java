@@ -0,0 +1,215 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.ShardingExecutor;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量导入。
+ * 调用线程从数据源读取参数，每batchSize行组成一个批处理放入有界缓冲区，
+ * writers个写入线程各自使用独立的连接取出批处理，以JDBC批处理执行后提交。
+ * 读取和写入同时进行，缓冲区满时读取线程等待，所以内存占用只与缓冲区大小有关。
+ * <p>
+ * 每个批处理是一个事务。任何一个批处理失败时导入停止，已提交的批处理不会回滚。
+ * 写入线程使用environment的dataSource，不参与调用方会话的事务。
+ * 写入线程在整个导入期间一直占用，所以每次导入使用自己的线程，导入结束后关闭，不占用{@link Configuration#getQueryTaskExecutor()}的有限线程。
+ * 配置了分片时每行由{@link ShardingExecutor}按分片键路由，一个批处理在每个分片上各是一个事务。
+ *
+ * @see SqlSession#bulkLoad(String, Iterator, BulkLoadOptions)
+ */
+public class BulkLoader {
+
+    // 通知写入线程结束
+    private static final List<Object> END = new ArrayList<>();
+    // 写入线程等待批处理、读取线程等待缓冲区时检查失败的间隔
+    private static final long POLL_MILLIS = 100;
+
+    private final Configuration configuration;
+    private final MappedStatement ms;
+    private final BulkLoadOptions options;
+    private final BulkLoadProgress progress = new BulkLoadProgress();
+    private final BlockingQueue<List<Object>> buffer;
+    // 第一个失败的原因，设置后读取线程和写入线程都会停止
+    private volatile Throwable failure;
+
+    public BulkLoader(Configuration configuration, MappedStatement ms, BulkLoadOptions options) {
+        if (ms.getSqlCommandType() == SqlCommandType.SELECT) {
+            throw new ExecutorException("Cannot bulk load with select statement '" + ms.getId() + "'.");
+        }
+        this.configuration = configuration;
+        this.ms = ms;
+        this.options = options;
+        this.buffer = new ArrayBlockingQueue<>(options.getBufferedBatches());
+    }
+
+    /**
+     * 导入所有参数，返回时所有写入线程都已结束
+     *
+     * @param parameters 每个元素是语句的一次参数
+     * @return 导入的进度
+     * @throws SQLException 第一个失败的批处理的异常
+     */
+    public BulkLoadProgress load(Iterator<?> parameters) throws SQLException {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ExecutorService writerThreads = Executors.newFixedThreadPool(options.getWriters(), runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-bulk-load-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final List<Future<?>> writers = new ArrayList<>();
+        for (int i = 0; i < options.getWriters(); i++) {
+            writers.add(writerThreads.submit(this::write));
+        }
+        try {
+            read(parameters);
+        } catch (RuntimeException | Error e) {
+            fail(e);
+        } finally {
+            for (int i = 0; i < writers.size(); i++) {
+                offer(END);
+            }
+            awaitWriters(writers);
+            writerThreads.shutdown();
+            progress.finish();
+            // 与同步的update一样，导入后清空二级缓存
+            if (ms.isFlushCacheRequired() && ms.getCache() != null) {
+                ms.getCache().clear();
+            }
+        }
+        if (failure != null) {
+            if (failure instanceof SQLException) {
+                throw (SQLException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new ExecutorException("Bulk load of '" + ms.getId() + "' failed after " + progress.getRowsLoaded()
+                    + " rows.  Cause: " + failure, failure);
+        }
+        return progress;
+    }
+
+    private void read(Iterator<?> parameters) {
+        final int batchSize = options.getBatchSize();
+        List<Object> batch = new ArrayList<>(batchSize);
+        while (failure == null && parameters.hasNext()) {
+            batch.add(ParamNameResolver.wrapToMapIfCollection(parameters.next(), null));
+            progress.rowRead();
+            if (batch.size() == batchSize) {
+                offer(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            offer(batch);
+        }
+    }
+
+    /**
+     * 放入缓冲区，缓冲区满时等待，失败后放弃
+     */
+    private void offer(List<Object> batch) {
+        try {
+            while (failure == null && !buffer.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                // 等待写入线程取走批处理
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(new ExecutorException("Interrupted while bulk loading '" + ms.getId() + "'.  Cause: " + e, e));
+        }
+    }
+
+    private void write() {
+        Executor executor = null;
+        try {
+            final Environment environment = configuration.getEnvironment();
+            final Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), null, false);
+            executor = new BatchExecutor(configuration, tx);
+            if (!environment.getShardDataSources().isEmpty()) {
+                executor = new ShardingExecutor(configuration, executor, ExecutorType.BATCH);
+            }
+            while (failure == null) {
+                final List<Object> batch = buffer.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (batch == END) {
+                    break;
+                } else if (batch == null) {
+                    continue;
+                }
+                for (Object parameter : batch) {
+                    executor.update(ms, parameter);
+                }
+                // commit会先执行批处理
+                executor.commit(true);
+                progress.batchLoaded(batch.size());
+                if (options.getProgressListener() != null) {
+                    options.getProgressListener().accept(progress);
+                }
+            }
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            if (executor != null) {
+                executor.close(failure != null);
+            }
+            ErrorContext.instance().reset();
+        }
+    }
+
+    private void awaitWriters(List<Future<?>> writers) {
+        for (Future<?> writer : writers) {
+            try {
+                writer.get();
+            } catch (ExecutionException e) {
+                fail(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(new ExecutorException("Interrupted while bulk loading '" + ms.getId() + "'.  Cause: " + e, e));
+                // 写入线程看到失败后会自行结束
+                return;
+            }
+        }
+    }
+
+    private synchronized void fail(Throwable cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+    }
+
+}
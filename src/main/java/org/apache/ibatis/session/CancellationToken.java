@@ -0,0 +1,162 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询的取消令牌。
+ * 令牌通过{@link #bind()}绑定到当前线程后，这个线程上执行的语句在令牌被取消或者截止时间到达时，
+ * 会对执行中的JDBC Statement调用cancel()，并抛出{@link org.apache.ibatis.executor.QueryCancelledException}。
+ * 带截止时间的令牌同时把语句的查询超时限制在剩余时间内，由数据库驱动兜底。
+ * <pre>
+ * CancellationToken token = CancellationToken.withTimeout(2, TimeUnit.SECONDS);
+ * try (CancellationToken.Scope scope = token.bind()) {
+ *     mapper.selectReport();
+ * }
+ * </pre>
+ * 令牌是线程安全的，可以在其他线程上调用{@link #cancel()}；{@link #cancelOnFailure(CompletionStage)}把它与一个异步任务关联起来。
+ */
+public class CancellationToken {
+
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    // 截止时间（System.nanoTime），没有截止时间时不使用
+    private final long deadline;
+    private final boolean hasDeadline;
+    private volatile boolean cancelled;
+    // 取消时通知的监听器，即当前正在执行的语句
+    private final Set<Runnable> listeners = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 创建一个没有截止时间、只能手动取消的令牌
+     */
+    public CancellationToken() {
+        this.deadline = 0;
+        this.hasDeadline = false;
+    }
+
+    private CancellationToken(long deadline) {
+        this.deadline = deadline;
+        this.hasDeadline = true;
+    }
+
+    /**
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 从现在开始经过timeout后到期的令牌
+     */
+    public static CancellationToken withTimeout(long timeout, TimeUnit unit) {
+        return new CancellationToken(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * @return 绑定到当前线程的令牌，没有时返回null
+     */
+    public static CancellationToken current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 把令牌绑定到当前线程，直到返回的Scope关闭，之后恢复原来绑定的令牌
+     *
+     * @return 绑定的作用域
+     */
+    public Scope bind() {
+        CancellationToken previous = CURRENT.get();
+        CURRENT.set(this);
+        return new Scope(previous);
+    }
+
+    /**
+     * 取消令牌，正在执行的语句会被取消，之后的语句不再执行
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * 异步任务异常结束（包括被取消、超时）时取消令牌
+     *
+     * @param stage 使用这个令牌执行查询的异步任务
+     */
+    public void cancelOnFailure(CompletionStage<?> stage) {
+        stage.whenComplete((result, failure) -> {
+            if (failure != null) {
+                cancel();
+            }
+        });
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isExpired() {
+        return hasDeadline && deadline - System.nanoTime() <= 0;
+    }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    /**
+     * @return 距离截止时间的纳秒数，没有截止时间时返回Long.MAX_VALUE
+     */
+    public long getRemainingNanos() {
+        return hasDeadline ? deadline - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    /**
+     * 注册取消时的回调，由执行语句的组件使用
+     *
+     * @param listener 回调
+     */
+    public void addCancellationListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeCancellationListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 令牌在当前线程上的绑定
+     */
+    public static final class Scope implements AutoCloseable {
+        private final CancellationToken previous;
+
+        private Scope(CancellationToken previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+}
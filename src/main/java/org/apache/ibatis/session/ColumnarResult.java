@@ -0,0 +1,292 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 按列保存的查询结果，结果集的每一列保存为一个列向量，不为每一行创建结果对象。
+ * int、long、double、boolean列保存为基本类型数组，字符串列按字典编码，其他类型保存为对象数组，
+ * 每一列都用位图记录哪些行为NULL。列值由与普通映射相同的TypeHandler读取。
+ * <p>
+ * 列向量的数组直接返回给调用方，用于顺序扫描，调用方不应修改它们。
+ *
+ * @see SqlSession#selectColumns(String, Object, RowBounds)
+ */
+public class ColumnarResult {
+
+    private final int rowCount;
+    private final List<Column> columns;
+    // 大写的列名 -> 列
+    private final Map<String, Column> columnsByName = new HashMap<>();
+
+    public ColumnarResult(int rowCount, List<Column> columns) {
+        this.rowCount = rowCount;
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        for (Column column : columns) {
+            columnsByName.putIfAbsent(column.getName().toUpperCase(Locale.ENGLISH), column);
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    public List<String> getColumnNames() {
+        final List<String> names = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            names.add(column.getName());
+        }
+        return names;
+    }
+
+    /**
+     * @param columnIndex 列序号，从0开始
+     */
+    public Column getColumn(int columnIndex) {
+        return columns.get(columnIndex);
+    }
+
+    /**
+     * @param columnName 列名，不区分大小写
+     * @return 列，没有这一列时抛出异常
+     */
+    public Column getColumn(String columnName) {
+        final Column column = columnsByName.get(columnName.toUpperCase(Locale.ENGLISH));
+        if (column == null) {
+            throw new SqlSessionException("There is no column named '" + columnName + "' in the result. Available columns are " + getColumnNames());
+        }
+        return column;
+    }
+
+    /**
+     * 取得指定类型的列
+     *
+     * @param columnName 列名，不区分大小写
+     * @param columnType 列的类型，例如{@link LongColumn}
+     */
+    public <C extends Column> C getColumn(String columnName, Class<C> columnType) {
+        final Column column = getColumn(columnName);
+        if (!columnType.isInstance(column)) {
+            throw new SqlSessionException("Column '" + columnName + "' is a " + column.getClass().getSimpleName()
+                    + ", not a " + columnType.getSimpleName() + ".");
+        }
+        return columnType.cast(column);
+    }
+
+    /**
+     * 一列的值
+     */
+    public abstract static class Column {
+        private final String name;
+        protected final int size;
+        private final BitSet nulls;
+
+        protected Column(String name, int size, BitSet nulls) {
+            this.name = name;
+            this.size = size;
+            this.nulls = nulls;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        public int getNullCount() {
+            return nulls.cardinality();
+        }
+
+        /**
+         * @return 指定行的值，基本类型的列会装箱，为NULL时返回null
+         */
+        public abstract Object getObject(int row);
+    }
+
+    public static class IntColumn extends Column {
+        private final int[] values;
+
+        public IntColumn(String name, int size, BitSet nulls, int[] values) {
+            super(name, size, nulls);
+            this.values = values;
+        }
+
+        public int getInt(int row) {
+            return values[row];
+        }
+
+        /**
+         * @return 列值，NULL的行为0
+         */
+        public int[] getValues() {
+            return values;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+    }
+
+    public static class LongColumn extends Column {
+        private final long[] values;
+
+        public LongColumn(String name, int size, BitSet nulls, long[] values) {
+            super(name, size, nulls);
+            this.values = values;
+        }
+
+        public long getLong(int row) {
+            return values[row];
+        }
+
+        /**
+         * @return 列值，NULL的行为0
+         */
+        public long[] getValues() {
+            return values;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+    }
+
+    public static class DoubleColumn extends Column {
+        private final double[] values;
+
+        public DoubleColumn(String name, int size, BitSet nulls, double[] values) {
+            super(name, size, nulls);
+            this.values = values;
+        }
+
+        public double getDouble(int row) {
+            return values[row];
+        }
+
+        /**
+         * @return 列值，NULL的行为0
+         */
+        public double[] getValues() {
+            return values;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+    }
+
+    public static class BooleanColumn extends Column {
+        private final BitSet values;
+
+        public BooleanColumn(String name, int size, BitSet nulls, BitSet values) {
+            super(name, size, nulls);
+            this.values = values;
+        }
+
+        public boolean getBoolean(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values.get(row);
+        }
+    }
+
+    /**
+     * 字典编码的字符串列，每个不同的字符串只保存一次，每行保存它在字典中的编号
+     */
+    public static class StringColumn extends Column {
+        private final int[] codes;
+        private final List<String> dictionary;
+
+        public StringColumn(String name, int size, BitSet nulls, int[] codes, List<String> dictionary) {
+            super(name, size, nulls);
+            this.codes = codes;
+            this.dictionary = Collections.unmodifiableList(dictionary);
+        }
+
+        public String getString(int row) {
+            return isNull(row) ? null : dictionary.get(codes[row]);
+        }
+
+        /**
+         * @return 字典编号，NULL的行为-1
+         */
+        public int getCode(int row) {
+            return codes[row];
+        }
+
+        /**
+         * @return 每行的字典编号，NULL的行为-1
+         */
+        public int[] getCodes() {
+            return codes;
+        }
+
+        public List<String> getDictionary() {
+            return dictionary;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return getString(row);
+        }
+    }
+
+    public static class ObjectColumn extends Column {
+        private final Object[] values;
+
+        public ObjectColumn(String name, int size, BitSet nulls, Object[] values) {
+            super(name, size, nulls);
+            this.values = values;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return values[row];
+        }
+
+        /**
+         * @return 列值的副本
+         */
+        public List<Object> getValues() {
+            return Arrays.asList(Arrays.copyOf(values, size));
+        }
+    }
+
+}
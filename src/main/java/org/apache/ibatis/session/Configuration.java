@@ -29,17 +29,35 @@ import org.apache.ibatis.cache.decorators.WeakCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
+import org.apache.ibatis.datasource.replica.RandomLoadBalancer;
+import org.apache.ibatis.datasource.replica.ReplicaLoadBalancer;
+import org.apache.ibatis.datasource.replica.ReplicaSet;
+import org.apache.ibatis.datasource.replica.RoundRobinLoadBalancer;
+import org.apache.ibatis.datasource.shard.ModuloShardStrategy;
+import org.apache.ibatis.datasource.shard.ShardStrategy;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.*;
+import org.apache.ibatis.executor.dialect.CountStatementRegistry;
+import org.apache.ibatis.executor.dialect.Dialect;
+import org.apache.ibatis.executor.dialect.DialectRegistry;
+import org.apache.ibatis.executor.dialect.LimitOffsetDialect;
+import org.apache.ibatis.executor.dialect.OffsetFetchDialect;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.executor.resultset.MappingPlanCache;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.resultset.RowMapperCompiler;
+import org.apache.ibatis.executor.statement.FetchSizeAdvisor;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.executor.writebehind.BackpressurePolicy;
+import org.apache.ibatis.executor.writebehind.LoggingFailureHandler;
+import org.apache.ibatis.executor.writebehind.WriteBehindFailureHandler;
+import org.apache.ibatis.executor.writebehind.WriteBehindQueue;
 import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
@@ -69,11 +87,17 @@ import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
 import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
 import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.StreamingBlobTypeHandler;
 import org.apache.ibatis.type.TypeAliasRegistry;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 
 /**
@@ -97,17 +121,63 @@ public class Configuration {
     protected boolean useActualParamName = true;
     protected boolean returnInstanceForEmptyRow;
     protected boolean shrinkWhitespacesInSql;
+    protected boolean queryCoalescingEnabled;
+    protected boolean rowBoundsPushdownEnabled;
+    protected boolean concurrentPageCountEnabled;
+    protected boolean groupCommitEnabled;
+    protected boolean compiledRowMappersEnabled;
+    protected boolean compactRowMapsEnabled;
+    protected boolean pipelinedMappingEnabled;
 
     protected String logPrefix;
     protected Class<? extends Log> logImpl;
     protected Class<? extends VFS> vfsImpl;
     protected Class<?> defaultSqlProviderType;
+    // 分页使用的方言，为空时根据databaseId从方言注册表中查找
+    protected Dialect dialect;
     // 决定一级缓存是sqlsession级别的还是statement级别的，默认sqlsession，可以再配置文件通过setting标签配置为Statement
     protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
     protected JdbcType jdbcTypeForNull = JdbcType.OTHER;
     protected Set<String> lazyLoadTriggerMethods = new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString"));
     protected Integer defaultStatementTimeout;
+    // 只读副本被摘除后重新参与选择前等待的毫秒数
+    protected int replicaRetryInterval = 30000;
+    // 选择只读副本的负载均衡策略
+    protected ReplicaLoadBalancer replicaLoadBalancer = new RoundRobinLoadBalancer();
+    // 环境中配置了只读副本时，第一次使用时创建
+    protected ReplicaSet replicaSet;
+    // 分片路由策略
+    protected ShardStrategy shardStrategy = new ModuloShardStrategy();
+    // 参数中分片键的属性名
+    protected String shardKeyProperty;
     protected Integer defaultFetchSize;
+    // 是否按语句最近的结果行数自动设置fetchSize
+    protected boolean adaptiveFetchSizeEnabled;
+    // 自适应fetchSize的上限
+    protected int maxAdaptiveFetchSize = 1000;
+    // 调用线程被中断时是否取消执行中的语句
+    protected boolean cancelQueriesOnInterrupt;
+    // 异步写队列的容量
+    protected int writeBehindQueueCapacity = 10000;
+    // 异步写每个批处理最多包含的语句数
+    protected int writeBehindBatchSize = 500;
+    // 异步写凑批时最多等待的毫秒数
+    protected int writeBehindFlushInterval = 100;
+    // 异步写队列已满时的处理策略
+    protected BackpressurePolicy writeBehindBackpressure = BackpressurePolicy.BLOCK;
+    // 异步写失败的回调
+    protected WriteBehindFailureHandler writeBehindFailureHandler = new LoggingFailureHandler();
+    // 组提交收集写操作的毫秒数
+    protected int groupCommitWindow = 5;
+    protected int queryTaskThreads = 16;
+    // 一次组提交最多包含的写操作数
+    protected int groupCommitMaxBatchSize = 100;
+    // 流水线映射同时映射的批次数
+    protected int pipelinedMappingWorkers = 2;
+    // 流水线映射每批的行数
+    protected int pipelinedMappingBatchSize = 256;
+    protected int lobSpillThreshold = StreamingBlobTypeHandler.DEFAULT_SPILL_THRESHOLD;
+    protected boolean lazyLobReadingEnabled;
     protected ResultSetType defaultResultSetType;
     protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
     protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;
@@ -140,6 +210,28 @@ public class Configuration {
     protected final MapperRegistry mapperRegistry = new MapperRegistry(this);
     // 拦截器链（用于支持插件）
     protected final InterceptorChain interceptorChain = new InterceptorChain();
+    // 执行中查询的登记表，开启queryCoalescingEnabled时由所有会话的执行器共享
+    protected final QueryCoalescer queryCoalescer = new QueryCoalescer();
+    // 组提交登记表，开启groupCommitEnabled时由所有自动提交会话的执行器共享
+    protected final GroupCommitter groupCommitter = new GroupCommitter(this);
+    // 方言注册表
+    protected final DialectRegistry dialectRegistry = new DialectRegistry();
+    // 分页时派生出的count语句
+    protected final CountStatementRegistry countStatementRegistry = new CountStatementRegistry(this);
+    // 各语句的结果行数统计，开启adaptiveFetchSizeEnabled时使用
+    protected final FetchSizeAdvisor fetchSizeAdvisor = new FetchSizeAdvisor(this);
+    // 按ResultMap和列布局编译的行映射器，开启compiledRowMappersEnabled时使用
+    protected final RowMapperCompiler rowMapperCompiler = new RowMapperCompiler(this);
+    // 按ResultMap和列布局缓存的映射计划，语句再次执行时不再重新解析列与属性的对应关系
+    protected final MappingPlanCache mappingPlanCache = new MappingPlanCache();
+    // 在其他线程上执行查询的线程池，为空时第一次使用时创建
+    protected ExecutorService queryTaskExecutor;
+    // queryTaskExecutor是否由Configuration创建，只有自己创建的线程池才由shutdownQueryTaskExecutor()关闭
+    protected boolean queryTaskExecutorCreated;
+    // 异步写队列，第一次使用时创建
+    protected WriteBehindQueue writeBehindQueue;
+    // 是否有标记了writeBehind的语句，有的时候才用WriteBehindExecutor装饰执行器
+    protected volatile boolean writeBehindStatementsPresent;
     // 类型处理器注册表，大多是内置的，可以通过<typeHandler>标签补充
     protected final TypeHandlerRegistry typeHandlerRegistry = new TypeHandlerRegistry(this);
     // 类型别名表，可以通过<typeAliases>标签补充
@@ -213,6 +305,13 @@ public class Configuration {
         typeAliasRegistry.registerAlias("CGLIB", CglibProxyFactory.class);
         typeAliasRegistry.registerAlias("JAVASSIST", JavassistProxyFactory.class);
 
+        typeAliasRegistry.registerAlias("ROUND_ROBIN", RoundRobinLoadBalancer.class);
+        typeAliasRegistry.registerAlias("RANDOM", RandomLoadBalancer.class);
+        typeAliasRegistry.registerAlias("MODULO", ModuloShardStrategy.class);
+
+        typeAliasRegistry.registerAlias("LIMIT_OFFSET", LimitOffsetDialect.class);
+        typeAliasRegistry.registerAlias("OFFSET_FETCH", OffsetFetchDialect.class);
+
         languageRegistry.setDefaultDriverClass(XMLLanguageDriver.class);
         languageRegistry.register(RawLanguageDriver.class);
     }
@@ -299,6 +398,145 @@ public class Configuration {
         this.shrinkWhitespacesInSql = shrinkWhitespacesInSql;
     }
 
+    public boolean isQueryCoalescingEnabled() {
+        return queryCoalescingEnabled;
+    }
+
+    /**
+     * Sets whether concurrent identical selects from different sessions are executed only once. Waiting sessions
+     * receive deep copies of the results made by serialization; when the results are not serializable, each waiting
+     * session executes the select itself. Only reads of auto-commit sessions and first reads of transactions are
+     * coalesced; selectKey statements, locking reads and statements that flush the cache or do not use it are always
+     * executed by their own session.
+     *
+     * @param queryCoalescingEnabled whether to coalesce concurrent identical selects
+     * @see CoalescingExecutor
+     */
+    public void setQueryCoalescingEnabled(boolean queryCoalescingEnabled) {
+        this.queryCoalescingEnabled = queryCoalescingEnabled;
+    }
+
+    public boolean isRowBoundsPushdownEnabled() {
+        return rowBoundsPushdownEnabled;
+    }
+
+    /**
+     * Sets whether a non-default {@link RowBounds} is rewritten into native LIMIT/OFFSET (or FETCH FIRST) of the statement
+     * instead of skipping rows on the client. Requires a {@link Dialect}. Statements with nested result maps keep
+     * skipping rows on the client, because the database would count joined rows instead of results.
+     *
+     * @param rowBoundsPushdownEnabled whether to push RowBounds down to the database
+     * @see #getDialect()
+     */
+    public void setRowBoundsPushdownEnabled(boolean rowBoundsPushdownEnabled) {
+        this.rowBoundsPushdownEnabled = rowBoundsPushdownEnabled;
+    }
+
+    /**
+     * Gets the dialect used for pagination. When no dialect is set explicitly,
+     * it is looked up in the {@link DialectRegistry} by the database id.
+     *
+     * @return the dialect, or null if none is set and the database id is unknown
+     */
+    public Dialect getDialect() {
+        if (dialect != null) {
+            return dialect;
+        }
+        return dialectRegistry.getDialect(databaseId);
+    }
+
+    public void setDialect(Dialect dialect) {
+        this.dialect = dialect;
+    }
+
+    public DialectRegistry getDialectRegistry() {
+        return dialectRegistry;
+    }
+
+    public boolean isConcurrentPageCountEnabled() {
+        return concurrentPageCountEnabled;
+    }
+
+    /**
+     * Sets whether the count query of {@link SqlSession#selectPage(String, Object, RowBounds)} runs concurrently with
+     * the page query. The count query then uses its own connection and transaction, so it does not see uncommitted
+     * changes of the session; a session with uncommitted changes always counts sequentially.
+     *
+     * @param concurrentPageCountEnabled whether to run the count query concurrently
+     */
+    public void setConcurrentPageCountEnabled(boolean concurrentPageCountEnabled) {
+        this.concurrentPageCountEnabled = concurrentPageCountEnabled;
+    }
+
+    public CountStatementRegistry getCountStatementRegistry() {
+        return countStatementRegistry;
+    }
+
+    public int getQueryTaskThreads() {
+        return queryTaskThreads;
+    }
+
+    /**
+     * Sets the maximum number of threads of the query task executor created by this configuration. Takes effect when
+     * the executor is created, that is on first use or after {@link #shutdownQueryTaskExecutor()}.
+     *
+     * @param queryTaskThreads the maximum number of query task threads
+     * @see #getQueryTaskExecutor()
+     */
+    public void setQueryTaskThreads(int queryTaskThreads) {
+        this.queryTaskThreads = queryTaskThreads;
+    }
+
+    /**
+     * Gets the thread pool used to run queries on other threads, shared by concurrent page counts, sharding fan-out,
+     * {@link ParallelReads} and pipelined mapping. Unless set explicitly, a pool of at most
+     * {@link #getQueryTaskThreads()} daemon threads is created on first use. Idle threads end after a minute. When all
+     * threads are busy, a task runs on the thread submitting it, so tasks that wait for other tasks cannot deadlock.
+     *
+     * @return the thread pool
+     * @see #shutdownQueryTaskExecutor()
+     */
+    public synchronized ExecutorService getQueryTaskExecutor() {
+        if (queryTaskExecutor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            int threads = Math.max(1, queryTaskThreads);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "mybatis-query-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            queryTaskExecutor = executor;
+            queryTaskExecutorCreated = true;
+        }
+        return queryTaskExecutor;
+    }
+
+    /**
+     * Sets the thread pool used to run queries on other threads. The caller keeps ownership of the pool:
+     * {@link #shutdownQueryTaskExecutor()} does not shut it down.
+     *
+     * @param queryTaskExecutor the thread pool
+     */
+    public synchronized void setQueryTaskExecutor(ExecutorService queryTaskExecutor) {
+        this.queryTaskExecutor = queryTaskExecutor;
+        this.queryTaskExecutorCreated = false;
+    }
+
+    /**
+     * Shuts down the query task executor created by this configuration, e.g. when an application undeploys its
+     * {@link SqlSessionFactory}. Running tasks complete; a later use creates a new pool. A pool set with
+     * {@link #setQueryTaskExecutor(ExecutorService)} is left to its owner.
+     */
+    public synchronized void shutdownQueryTaskExecutor() {
+        if (queryTaskExecutorCreated) {
+            queryTaskExecutor.shutdown();
+            queryTaskExecutor = null;
+            queryTaskExecutorCreated = false;
+        }
+    }
+
     public String getDatabaseId() {
         return databaseId;
     }
@@ -351,8 +589,77 @@ public class Configuration {
         return environment;
     }
 
-    public void setEnvironment(Environment environment) {
+    public synchronized void setEnvironment(Environment environment) {
         this.environment = environment;
+        this.replicaSet = null;
+    }
+
+    public int getReplicaRetryInterval() {
+        return replicaRetryInterval;
+    }
+
+    /**
+     * Sets how long, in milliseconds, a replica whose connection failed is left out of read routing.
+     *
+     * @param replicaRetryInterval the interval in milliseconds
+     */
+    public synchronized void setReplicaRetryInterval(int replicaRetryInterval) {
+        this.replicaRetryInterval = replicaRetryInterval;
+        this.replicaSet = null;
+    }
+
+    public ReplicaLoadBalancer getReplicaLoadBalancer() {
+        return replicaLoadBalancer;
+    }
+
+    public synchronized void setReplicaLoadBalancer(ReplicaLoadBalancer replicaLoadBalancer) {
+        if (replicaLoadBalancer != null) {
+            this.replicaLoadBalancer = replicaLoadBalancer;
+            this.replicaSet = null;
+        }
+    }
+
+    /**
+     * Gets the replicas of the environment used for read/write splitting. Reads of a session go to a replica until
+     * the session writes; later reads, up to the next commit or rollback, and locking reads stay on the primary.
+     *
+     * @return the replica set, or null if the environment has no replica data sources
+     * @see ReadWriteRoutingExecutor
+     */
+    public synchronized ReplicaSet getReplicaSet() {
+        if (replicaSet == null && environment != null && !environment.getReplicaDataSources().isEmpty()) {
+            replicaSet = new ReplicaSet(environment.getReplicaDataSources(), replicaLoadBalancer, replicaRetryInterval);
+        }
+        return replicaSet;
+    }
+
+    public ShardStrategy getShardStrategy() {
+        return shardStrategy;
+    }
+
+    /**
+     * Sets the strategy that routes statements to the shards of the environment.
+     *
+     * @param shardStrategy the shard strategy, ignored if null
+     * @see ShardingExecutor
+     */
+    public void setShardStrategy(ShardStrategy shardStrategy) {
+        if (shardStrategy != null) {
+            this.shardStrategy = shardStrategy;
+        }
+    }
+
+    public String getShardKeyProperty() {
+        return shardKeyProperty;
+    }
+
+    /**
+     * Sets the parameter property that holds the shard key. Statements whose parameter has no shard key run on all shards.
+     *
+     * @param shardKeyProperty the property name
+     */
+    public void setShardKeyProperty(String shardKeyProperty) {
+        this.shardKeyProperty = shardKeyProperty;
     }
 
     public AutoMappingBehavior getAutoMappingBehavior() {
@@ -478,6 +785,293 @@ public class Configuration {
         this.defaultFetchSize = defaultFetchSize;
     }
 
+    public boolean isAdaptiveFetchSizeEnabled() {
+        return adaptiveFetchSizeEnabled;
+    }
+
+    /**
+     * Sets whether the fetch size of a statement follows the number of rows its recent executions returned.
+     * An explicit fetchSize on the statement still takes precedence; the default fetch size is used until the
+     * statement has run once.
+     *
+     * @param adaptiveFetchSizeEnabled whether to adapt the fetch size
+     * @see FetchSizeAdvisor
+     */
+    public void setAdaptiveFetchSizeEnabled(boolean adaptiveFetchSizeEnabled) {
+        this.adaptiveFetchSizeEnabled = adaptiveFetchSizeEnabled;
+    }
+
+    public int getMaxAdaptiveFetchSize() {
+        return maxAdaptiveFetchSize;
+    }
+
+    /**
+     * Sets the largest fetch size chosen by the adaptive fetch size.
+     *
+     * @param maxAdaptiveFetchSize the upper bound of the adaptive fetch size
+     */
+    public void setMaxAdaptiveFetchSize(int maxAdaptiveFetchSize) {
+        this.maxAdaptiveFetchSize = maxAdaptiveFetchSize;
+    }
+
+    public FetchSizeAdvisor getFetchSizeAdvisor() {
+        return fetchSizeAdvisor;
+    }
+
+    public boolean isCompiledRowMappersEnabled() {
+        return compiledRowMappersEnabled;
+    }
+
+    /**
+     * Sets whether rows of simple result maps are mapped by a row mapper compiled for the result map and the column
+     * layout of the result set. The mapper reads columns by index and calls setters through method handles; result
+     * maps with constructor mappings, discriminators, nested result maps or nested selects keep the reflective path.
+     *
+     * @param compiledRowMappersEnabled whether to compile row mappers
+     * @see RowMapperCompiler
+     */
+    public void setCompiledRowMappersEnabled(boolean compiledRowMappersEnabled) {
+        this.compiledRowMappersEnabled = compiledRowMappersEnabled;
+    }
+
+    public boolean isCompactRowMapsEnabled() {
+        return compactRowMapsEnabled;
+    }
+
+    /**
+     * Sets whether results of type {@code java.util.Map} are created as row maps that share one key schema per result
+     * set and hold their values in an array, instead of one HashMap per row. Row maps are mutable maps iterating in
+     * column order.
+     *
+     * @param compactRowMapsEnabled whether to create compact row maps
+     * @see org.apache.ibatis.executor.resultset.RowMap
+     */
+    public void setCompactRowMapsEnabled(boolean compactRowMapsEnabled) {
+        this.compactRowMapsEnabled = compactRowMapsEnabled;
+    }
+
+    public boolean isPipelinedMappingEnabled() {
+        return pipelinedMappingEnabled;
+    }
+
+    /**
+     * Sets whether rows of simple result maps are fetched and mapped in a pipeline. The calling thread reads column
+     * values of the result set in batches, while threads of the query task executor create the result objects of the
+     * batches read before. Results keep the order of the rows. Only result maps that can use a compiled row mapper
+     * are pipelined; others are mapped on the calling thread as before.
+     * <p>
+     * Enabling this setting implies compiled row mappers, as if {@link #setCompiledRowMappersEnabled(boolean)} were
+     * also enabled. Like the reflective path, compiled row mappers read columns by index only for built-in type
+     * handlers and keep reading by column label for custom ones.
+     *
+     * @param pipelinedMappingEnabled whether to map rows in a pipeline
+     * @see #getQueryTaskExecutor()
+     */
+    public void setPipelinedMappingEnabled(boolean pipelinedMappingEnabled) {
+        this.pipelinedMappingEnabled = pipelinedMappingEnabled;
+    }
+
+    public int getPipelinedMappingWorkers() {
+        return pipelinedMappingWorkers;
+    }
+
+    /**
+     * Sets the number of batches mapped at the same time. The reading thread waits for the oldest batch when this
+     * many batches are in progress, so at most {@code workers * batchSize} rows are buffered.
+     *
+     * @param pipelinedMappingWorkers the number of batches mapped concurrently
+     */
+    public void setPipelinedMappingWorkers(int pipelinedMappingWorkers) {
+        this.pipelinedMappingWorkers = pipelinedMappingWorkers;
+    }
+
+    public int getPipelinedMappingBatchSize() {
+        return pipelinedMappingBatchSize;
+    }
+
+    /**
+     * Sets the number of rows read before they are handed to a mapping thread.
+     *
+     * @param pipelinedMappingBatchSize the number of rows in a batch
+     */
+    public void setPipelinedMappingBatchSize(int pipelinedMappingBatchSize) {
+        this.pipelinedMappingBatchSize = pipelinedMappingBatchSize;
+    }
+
+    public int getLobSpillThreshold() {
+        return lobSpillThreshold;
+    }
+
+    /**
+     * Sets the size in bytes above which the default {@link java.sql.Blob} and {@link java.sql.Clob} type handlers
+     * stream a value into a memory-mapped temporary file instead of reading it into heap.
+     *
+     * @param lobSpillThreshold the spill threshold in bytes
+     * @see StreamingBlobTypeHandler
+     */
+    public void setLobSpillThreshold(int lobSpillThreshold) {
+        this.lobSpillThreshold = lobSpillThreshold;
+    }
+
+    public boolean isLazyLobReadingEnabled() {
+        return lazyLobReadingEnabled;
+    }
+
+    /**
+     * Sets whether the default {@link java.sql.Blob} and {@link java.sql.Clob} type handlers keep the driver LOB and
+     * read its content on first access only. The driver LOB must still be valid then, usually within the same
+     * transaction.
+     *
+     * @param lazyLobReadingEnabled whether to read LOB contents on first access
+     * @see StreamingBlobTypeHandler
+     */
+    public void setLazyLobReadingEnabled(boolean lazyLobReadingEnabled) {
+        this.lazyLobReadingEnabled = lazyLobReadingEnabled;
+    }
+
+    public RowMapperCompiler getRowMapperCompiler() {
+        return rowMapperCompiler;
+    }
+
+    public MappingPlanCache getMappingPlanCache() {
+        return mappingPlanCache;
+    }
+
+    public boolean isCancelQueriesOnInterrupt() {
+        return cancelQueriesOnInterrupt;
+    }
+
+    /**
+     * Sets whether interrupting the calling thread cancels the statement it is executing, as a {@link CancellationToken}
+     * does. The interrupt is detected within a short polling interval.
+     *
+     * @param cancelQueriesOnInterrupt whether to cancel statements of interrupted threads
+     */
+    public void setCancelQueriesOnInterrupt(boolean cancelQueriesOnInterrupt) {
+        this.cancelQueriesOnInterrupt = cancelQueriesOnInterrupt;
+    }
+
+    public int getWriteBehindQueueCapacity() {
+        return writeBehindQueueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of write-behind statements waiting to be executed. Takes effect when the write-behind
+     * queue is created, on first use.
+     *
+     * @param writeBehindQueueCapacity the queue capacity
+     */
+    public void setWriteBehindQueueCapacity(int writeBehindQueueCapacity) {
+        this.writeBehindQueueCapacity = writeBehindQueueCapacity;
+    }
+
+    public int getWriteBehindBatchSize() {
+        return writeBehindBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of write-behind statements executed in one JDBC batch and transaction.
+     *
+     * @param writeBehindBatchSize the batch size
+     */
+    public void setWriteBehindBatchSize(int writeBehindBatchSize) {
+        this.writeBehindBatchSize = writeBehindBatchSize;
+    }
+
+    public int getWriteBehindFlushInterval() {
+        return writeBehindFlushInterval;
+    }
+
+    /**
+     * Sets how long the write-behind thread waits for more statements to fill a batch before executing it.
+     *
+     * @param writeBehindFlushInterval the interval in milliseconds
+     */
+    public void setWriteBehindFlushInterval(int writeBehindFlushInterval) {
+        this.writeBehindFlushInterval = writeBehindFlushInterval;
+    }
+
+    public BackpressurePolicy getWriteBehindBackpressure() {
+        return writeBehindBackpressure;
+    }
+
+    /**
+     * Sets what happens to a write-behind statement when the queue is full.
+     *
+     * @param writeBehindBackpressure the backpressure policy
+     */
+    public void setWriteBehindBackpressure(BackpressurePolicy writeBehindBackpressure) {
+        this.writeBehindBackpressure = writeBehindBackpressure;
+    }
+
+    public WriteBehindFailureHandler getWriteBehindFailureHandler() {
+        return writeBehindFailureHandler;
+    }
+
+    /**
+     * Sets the callback notified of write-behind statements that were rolled back or discarded.
+     *
+     * @param writeBehindFailureHandler the failure handler, ignored if null
+     */
+    public void setWriteBehindFailureHandler(WriteBehindFailureHandler writeBehindFailureHandler) {
+        if (writeBehindFailureHandler != null) {
+            this.writeBehindFailureHandler = writeBehindFailureHandler;
+        }
+    }
+
+    /**
+     * Gets the queue of write-behind statements shared by all sessions, creating it and its background thread on
+     * first use.
+     *
+     * @return the write-behind queue
+     */
+    public synchronized WriteBehindQueue getWriteBehindQueue() {
+        if (writeBehindQueue == null) {
+            writeBehindQueue = new WriteBehindQueue(this);
+        }
+        return writeBehindQueue;
+    }
+
+    public boolean isGroupCommitEnabled() {
+        return groupCommitEnabled;
+    }
+
+    /**
+     * Sets whether single-row writes of auto-commit sessions are grouped with the writes other threads submit at the
+     * same time, and executed as one JDBC batch in one transaction. Each caller still gets its own update count.
+     *
+     * @param groupCommitEnabled whether to group commits
+     */
+    public void setGroupCommitEnabled(boolean groupCommitEnabled) {
+        this.groupCommitEnabled = groupCommitEnabled;
+    }
+
+    public int getGroupCommitWindow() {
+        return groupCommitWindow;
+    }
+
+    /**
+     * Sets how long the first write of a group waits for writes of other threads before the group is executed.
+     *
+     * @param groupCommitWindow the window in milliseconds
+     */
+    public void setGroupCommitWindow(int groupCommitWindow) {
+        this.groupCommitWindow = groupCommitWindow;
+    }
+
+    public int getGroupCommitMaxBatchSize() {
+        return groupCommitMaxBatchSize;
+    }
+
+    /**
+     * Sets the number of writes that closes a group before its window has elapsed.
+     *
+     * @param groupCommitMaxBatchSize the maximum number of writes in a group
+     */
+    public void setGroupCommitMaxBatchSize(int groupCommitMaxBatchSize) {
+        this.groupCommitMaxBatchSize = groupCommitMaxBatchSize;
+    }
+
     /**
      * Gets the default result set type.
      *
@@ -685,6 +1279,18 @@ public class Configuration {
      * @return 执行器
      */
     public Executor newExecutor(Transaction transaction, ExecutorType executorType) {
+        return newExecutor(transaction, executorType, false);
+    }
+
+    /**
+     * 创建一个执行器
+     *
+     * @param transaction  事务
+     * @param executorType 数据库操作类型
+     * @param autoCommit   事务是否自动提交，自动提交的会话才可能使用组提交，查询合并也要根据它判断
+     * @return 执行器
+     */
+    public Executor newExecutor(Transaction transaction, ExecutorType executorType, boolean autoCommit) {
         executorType = executorType == null ? defaultExecutorType : executorType;
         executorType = executorType == null ? ExecutorType.SIMPLE : executorType;
         Executor executor;
@@ -696,6 +1302,26 @@ public class Configuration {
         } else {
             executor = new SimpleExecutor(this, transaction);
         }
+        // 环境中配置了分片时，由分库执行器路由语句；否则配置了只读副本时，由读写分离执行器把查询发送到副本
+        ReplicaSet replicas = getReplicaSet();
+        if (environment != null && !environment.getShardDataSources().isEmpty()) {
+            executor = new ShardingExecutor(this, executor, executorType);
+        } else if (replicas != null) {
+            executor = new ReadWriteRoutingExecutor(this, executor, replicas);
+        }
+        // 自动提交的会话中每条写语句都是一个事务，开启组提交时与其他线程的写语句合并提交；分片时写语句需要路由，不合并
+        if (groupCommitEnabled && autoCommit && executorType != ExecutorType.BATCH
+                && (environment == null || environment.getShardDataSources().isEmpty())) {
+            executor = new GroupCommitExecutor(executor, groupCommitter);
+        }
+        // 有标记了writeBehind的语句时，由异步写执行器把它们交给后台线程
+        if (writeBehindStatementsPresent) {
+            executor = new WriteBehindExecutor(executor, getWriteBehindQueue());
+        }
+        // 开启了查询合并时，在二级缓存之下装饰执行器，二级缓存命中的查询不需要合并
+        if (queryCoalescingEnabled) {
+            executor = new CoalescingExecutor(executor, queryCoalescer, autoCommit);
+        }
         // 根据settings节点的cacheEnabled决定是否启用二级缓存
         // 如果启用了二级缓存，就用CachingExecutor装饰类装饰一下，使实际执行器拥有缓存功能。
         if (cacheEnabled) {
@@ -790,6 +1416,9 @@ public class Configuration {
 
     public void addMappedStatement(MappedStatement ms) {
         mappedStatements.put(ms.getId(), ms);
+        if (ms.isWriteBehind()) {
+            writeBehindStatementsPresent = true;
+        }
     }
 
     public Collection<String> getMappedStatementNames() {
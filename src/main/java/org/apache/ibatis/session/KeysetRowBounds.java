@@ -0,0 +1,76 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.regex.Pattern;
+
+/**
+ * 键集分页（keyset pagination）设置。
+ * 与按偏移量跳过行不同，它只查询排序列大于（降序时小于）上一页最后一个键值的行，
+ * 翻到很深的页也不需要数据库扫描前面的行，并且翻页期间插入或删除数据不会导致重复或遗漏。
+ * <p>
+ * 语句被包装为 select * from (原SQL) keyset_page where column &gt; ? order by column，再由方言追加limit，
+ * 所以column是结果集中的列名，并且在结果中应当唯一。使用它需要配置或能根据databaseId找到方言。
+ *
+ * @see org.apache.ibatis.executor.dialect.Dialect
+ */
+public class KeysetRowBounds extends RowBounds {
+
+    private static final Pattern COLUMN_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_$.]*");
+
+    // 排序键所在的列
+    private final String column;
+    // 上一页最后一行的键值，为null时查询第一页
+    private final Object lastKey;
+    // 是否按键值降序
+    private final boolean descending;
+
+    public KeysetRowBounds(String column, Object lastKey, int limit) {
+        this(column, lastKey, limit, false);
+    }
+
+    public KeysetRowBounds(String column, Object lastKey, int limit, boolean descending) {
+        super(NO_ROW_OFFSET, limit);
+        // 列名会直接拼接进SQL，只接受标识符
+        if (column == null || !COLUMN_PATTERN.matcher(column).matches()) {
+            throw new IllegalArgumentException("Invalid keyset column '" + column + "'.");
+        }
+        this.column = column;
+        this.lastKey = lastKey;
+        this.descending = descending;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Object getLastKey() {
+        return lastKey;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * @param lastKey 当前页最后一行的键值
+     * @return 下一页的分页设置
+     */
+    public KeysetRowBounds next(Object lastKey) {
+        return new KeysetRowBounds(column, lastKey, getLimit(), descending);
+    }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.List;
+
+/**
+ * 一页查询结果以及分页前的总行数
+ *
+ * @param <E> 结果类型
+ * @see SqlSession#selectPage(String, Object, RowBounds)
+ */
+public class Page<E> {
+
+    // 当前页的结果
+    private final List<E> items;
+    // 不分页时的总行数
+    private final long total;
+    // 当前页的起始位置
+    private final int offset;
+    // 每页的行数
+    private final int limit;
+
+    public Page(List<E> items, long total, RowBounds rowBounds) {
+        this.items = items;
+        this.total = total;
+        this.offset = rowBounds.getOffset();
+        this.limit = rowBounds.getLimit();
+    }
+
+    public List<E> getItems() {
+        return items;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return 当前页之后是否还有数据
+     */
+    public boolean hasNext() {
+        return (long) offset + items.size() < total;
+    }
+
+}
@@ -0,0 +1,230 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import org.apache.ibatis.exceptions.ExceptionFactory;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 一组相互独立的查询，它们在各自的连接上并发执行，总耗时接近最慢的一个查询而不是所有查询之和。
+ * <pre>
+ * try (ParallelReads reads = sqlSession.parallelReads()) {
+ *   CompletableFuture&lt;Order&gt; order = reads.submit(OrderMapper.class, mapper -&gt; mapper.find(id));
+ *   CompletableFuture&lt;List&lt;OrderItem&gt;&gt; items = reads.submit(OrderItemMapper.class, mapper -&gt; mapper.findByOrderId(id));
+ *   reads.awaitAll();
+ * }
+ * </pre>
+ * 每个查询在新的SqlSession中执行，使用{@link Configuration#getQueryTaskExecutor()}的线程，执行完后会话立即关闭。
+ * 创建它的会话有未提交的修改时，其他连接看不到这些修改，所以查询在当前会话中依次执行。
+ *
+ * @see SqlSession#parallelReads(ReadConsistency)
+ */
+public class ParallelReads implements Closeable {
+
+    // PostgreSQL导出的快照编号
+    private static final Pattern SNAPSHOT_ID = Pattern.compile("[0-9A-Fa-f-]+");
+
+    private final Configuration configuration;
+    // 依次执行时使用的会话
+    private final SqlSession sqlSession;
+    private final List<CompletableFuture<?>> futures = new ArrayList<>();
+    // 是否并行执行
+    private final boolean parallel;
+    // 导出快照的事务，需要保持到所有查询都导入快照之后
+    private Transaction snapshotTransaction;
+    private String snapshotId;
+
+    public ParallelReads(Configuration configuration, SqlSession sqlSession, boolean sessionDirty, ReadConsistency consistency) {
+        this.configuration = configuration;
+        this.sqlSession = sqlSession;
+        if (sessionDirty) {
+            this.parallel = false;
+        } else if (consistency == ReadConsistency.SNAPSHOT) {
+            this.parallel = exportSnapshot();
+        } else {
+            this.parallel = true;
+        }
+    }
+
+    /**
+     * 提交一个查询
+     *
+     * @param read 在独立会话中执行的查询，不应修改数据
+     * @param <R>  结果类型
+     * @return 查询结果
+     */
+    public <R> CompletableFuture<R> submit(Function<SqlSession, R> read) {
+        CompletableFuture<R> future;
+        if (parallel) {
+            future = CompletableFuture.supplyAsync(() -> readInNewSession(read), configuration.getQueryTaskExecutor());
+        } else {
+            future = new CompletableFuture<>();
+            try {
+                future.complete(read.apply(sqlSession));
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            }
+        }
+        futures.add(future);
+        return future;
+    }
+
+    /**
+     * 使用Mapper提交一个查询
+     *
+     * @param mapperType Mapper接口
+     * @param read       调用Mapper方法的查询
+     * @param <M>        Mapper类型
+     * @param <R>        结果类型
+     * @return 查询结果
+     */
+    public <M, R> CompletableFuture<R> submit(Class<M> mapperType, Function<M, R> read) {
+        return submit(session -> read.apply(session.getMapper(mapperType)));
+    }
+
+    public <E> CompletableFuture<List<E>> selectList(String statement, Object parameter) {
+        return submit(session -> session.selectList(statement, parameter));
+    }
+
+    public <T> CompletableFuture<T> selectOne(String statement, Object parameter) {
+        return submit(session -> session.selectOne(statement, parameter));
+    }
+
+    /**
+     * @return 查询是否在独立的连接上并行执行
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * 等待所有已提交的查询完成
+     *
+     * @throws org.apache.ibatis.exceptions.PersistenceException 第一个失败的查询的异常
+     */
+    public void awaitAll() {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw ExceptionFactory.wrapException("Error executing parallel reads.  Cause: " + e.getCause(), (Exception) e.getCause());
+        }
+    }
+
+    /**
+     * 等待所有查询结束并释放导出快照的连接，不抛出查询的异常
+     */
+    @Override
+    public void close() {
+        for (CompletableFuture<?> future : futures) {
+            try {
+                future.join();
+            } catch (RuntimeException e) {
+                // 调用方通过future或awaitAll得到异常
+            }
+        }
+        futures.clear();
+        if (snapshotTransaction != null) {
+            closeQuietly(snapshotTransaction);
+            snapshotTransaction = null;
+        }
+    }
+
+    private <R> R readInNewSession(Function<SqlSession, R> read) {
+        final Environment environment = configuration.getEnvironment();
+        final Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(),
+                snapshotId == null ? null : TransactionIsolationLevel.REPEATABLE_READ, false);
+        try {
+            if (snapshotId != null) {
+                importSnapshot(tx.getConnection());
+            }
+        } catch (SQLException e) {
+            closeQuietly(tx);
+            throw ExceptionFactory.wrapException("Error importing snapshot " + snapshotId + ".  Cause: " + e, e);
+        }
+        final Executor executor = configuration.newExecutor(tx, ExecutorType.SIMPLE);
+        try (SqlSession session = new DefaultSqlSession(configuration, executor, false)) {
+            return read.apply(session);
+        } finally {
+            ErrorContext.instance().reset();
+        }
+    }
+
+    /**
+     * 在可重复读的事务中导出快照，之后的查询在各自的事务中导入它
+     *
+     * @return 数据库是否支持导出快照
+     */
+    private boolean exportSnapshot() {
+        final Environment environment = configuration.getEnvironment();
+        final Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(),
+                TransactionIsolationLevel.REPEATABLE_READ, false);
+        try {
+            final Connection connection = tx.getConnection();
+            if (!connection.getMetaData().getDatabaseProductName().contains("PostgreSQL")) {
+                closeQuietly(tx);
+                return false;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("select pg_export_snapshot()")) {
+                rs.next();
+                snapshotId = rs.getString(1);
+            }
+            if (snapshotId == null || !SNAPSHOT_ID.matcher(snapshotId).matches()) {
+                throw new SQLException("Unexpected snapshot id '" + snapshotId + "'.");
+            }
+            snapshotTransaction = tx;
+            return true;
+        } catch (SQLException e) {
+            closeQuietly(tx);
+            throw ExceptionFactory.wrapException("Error exporting snapshot.  Cause: " + e, e);
+        }
+    }
+
+    private void importSnapshot(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+        }
+    }
+
+    private void closeQuietly(Transaction tx) {
+        try {
+            tx.rollback();
+            tx.close();
+        } catch (SQLException e) {
+            // ignore
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+/**
+ * 并行查询之间的一致性要求
+ *
+ * @see ParallelReads
+ */
+public enum ReadConsistency {
+    /**
+     * 每个查询使用独立的连接和事务，不同查询可能看到不同时刻提交的数据
+     */
+    INDEPENDENT,
+    /**
+     * 所有查询看到同一个快照。数据库支持导出快照时（PostgreSQL）并行执行并共享快照，否则在当前会话中依次执行
+     */
+    SNAPSHOT
+}
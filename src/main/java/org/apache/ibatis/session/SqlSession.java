@@ -17,9 +17,11 @@ package org.apache.ibatis.session;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.BatchResultListener;
 
 import java.io.Closeable;
 import java.sql.Connection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -144,6 +146,90 @@ public interface SqlSession extends Closeable {
      */
     <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
 
+    /**
+     * Retrieve a page of mapped objects together with the total number of rows the statement returns without paging.
+     * The count query is derived from the statement and cached, so no hand-written count statement is needed.
+     * Statements with nested result maps are rejected, because their count would be the number of joined rows
+     * instead of the number of result objects.
+     * @param <E> the returned page element type
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @param rowBounds  Bounds of the page
+     * @return Page of mapped objects
+     */
+    default <E> Page<E> selectPage(String statement, Object parameter, RowBounds rowBounds) {
+        throw new UnsupportedOperationException("selectPage is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Retrieve the rows of a select statement as column vectors instead of mapped objects.
+     * Columns are read with the same type handlers as the mapped results. Primitive columns are kept in primitive
+     * arrays and strings are dictionary-encoded, so no object is created per row.
+     * When a sharded statement has no shard key, the rows of all shards are appended shard by shard; the row bounds
+     * apply to each shard.
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @return the columns of the first result set
+     */
+    default ColumnarResult selectColumns(String statement, Object parameter) {
+        return selectColumns(statement, parameter, RowBounds.DEFAULT);
+    }
+
+    /**
+     * Retrieve the rows of a select statement as column vectors instead of mapped objects.
+     * @param statement Unique identifier matching the statement to use.
+     * @param parameter A parameter object to pass to the statement.
+     * @param rowBounds  Bounds to limit the rows read
+     * @return the columns of the first result set
+     * @see #selectColumns(String, Object)
+     */
+    default ColumnarResult selectColumns(String statement, Object parameter, RowBounds rowBounds) {
+        throw new UnsupportedOperationException("selectColumns is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Start a group of independent reads that execute concurrently, each on its own connection and session.
+     * @return ParallelReads whose reads may see data committed at different times
+     */
+    default ParallelReads parallelReads() {
+        return parallelReads(ReadConsistency.INDEPENDENT);
+    }
+
+    /**
+     * Start a group of independent reads that execute concurrently, each on its own connection and session.
+     * @param consistency whether all reads must see the same snapshot
+     * @return ParallelReads to submit the reads to
+     */
+    default ParallelReads parallelReads(ReadConsistency consistency) {
+        throw new UnsupportedOperationException("parallelReads is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Execute an insert, update or delete statement once for every parameter object, pipelining the parameters
+     * through JDBC batches on dedicated connections. Each batch commits on its own, independently of this session.
+     * A {@link org.apache.ibatis.cursor.Cursor} of another session can be passed as the source, and a
+     * {@code Stream} through its {@code iterator()}.
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameters the parameter objects, read once and never held beyond the buffered batches
+     * @param options batch size, number of writer connections and progress listener, or null for the defaults
+     * @return the progress after all parameter objects were loaded
+     */
+    default BulkLoadProgress bulkLoad(String statement, Iterator<?> parameters, BulkLoadOptions options) {
+        throw new UnsupportedOperationException("bulkLoad is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Execute an insert, update or delete statement once for every parameter object.
+     * @param statement Unique identifier matching the statement to execute.
+     * @param parameters the parameter objects
+     * @param options batch size, number of writer connections and progress listener, or null for the defaults
+     * @return the progress after all parameter objects were loaded
+     * @see #bulkLoad(String, Iterator, BulkLoadOptions)
+     */
+    default BulkLoadProgress bulkLoad(String statement, Iterable<?> parameters, BulkLoadOptions options) {
+        return bulkLoad(statement, parameters.iterator(), options);
+    }
+
     /**
      * Retrieve a single row mapped from the statement key and parameter
      * using a {@code ResultHandler}.
@@ -257,6 +343,20 @@ public interface SqlSession extends Closeable {
      */
     List<BatchResult> flushStatements();
 
+    /**
+     * Flushes batch statements, handing the result of each executed batch to the listener instead of returning them.
+     * The parameter objects of a batch are released once the listener has seen it, so long running batch jobs do
+     * not accumulate results.
+     * Implementations that do not override this method flush all statements first, then notify the listener of the
+     * executed batches; a failure is thrown as by {@link #flushStatements()}.
+     * @param listener listener notified of each executed or failed batch
+     */
+    default void flushStatements(BatchResultListener listener) {
+        for (BatchResult batchResult : flushStatements()) {
+            listener.onBatchFlushed(batchResult);
+        }
+    }
+
     /**
      * Closes the session.
      */
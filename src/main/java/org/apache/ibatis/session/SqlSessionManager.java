@@ -17,6 +17,7 @@ package org.apache.ibatis.session;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.BatchResultListener;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
 import java.io.InputStream;
@@ -25,6 +26,7 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -210,6 +212,41 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
         return sqlSessionProxy.selectCursor(statement, parameter, rowBounds);
     }
 
+    @Override
+    public <E> Page<E> selectPage(String statement, Object parameter, RowBounds rowBounds) {
+        return sqlSessionProxy.selectPage(statement, parameter, rowBounds);
+    }
+
+    @Override
+    public ColumnarResult selectColumns(String statement, Object parameter) {
+        return sqlSessionProxy.selectColumns(statement, parameter);
+    }
+
+    @Override
+    public ColumnarResult selectColumns(String statement, Object parameter, RowBounds rowBounds) {
+        return sqlSessionProxy.selectColumns(statement, parameter, rowBounds);
+    }
+
+    @Override
+    public ParallelReads parallelReads() {
+        return sqlSessionProxy.parallelReads();
+    }
+
+    @Override
+    public ParallelReads parallelReads(ReadConsistency consistency) {
+        return sqlSessionProxy.parallelReads(consistency);
+    }
+
+    @Override
+    public BulkLoadProgress bulkLoad(String statement, Iterator<?> parameters, BulkLoadOptions options) {
+        return sqlSessionProxy.bulkLoad(statement, parameters, options);
+    }
+
+    @Override
+    public BulkLoadProgress bulkLoad(String statement, Iterable<?> parameters, BulkLoadOptions options) {
+        return sqlSessionProxy.bulkLoad(statement, parameters, options);
+    }
+
     @Override
     public <E> List<E> selectList(String statement) {
         return sqlSessionProxy.selectList(statement);
@@ -338,6 +375,15 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
         return sqlSession.flushStatements();
     }
 
+    @Override
+    public void flushStatements(BatchResultListener listener) {
+        final SqlSession sqlSession = localSqlSession.get();
+        if (sqlSession == null) {
+            throw new SqlSessionException("Error:  Cannot flush statements.  No managed session is started.");
+        }
+        sqlSession.flushStatements(listener);
+    }
+
     @Override
     public void close() {
         final SqlSession sqlSession = localSqlSession.get();
@@ -20,24 +20,41 @@ import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.exceptions.TooManyResultsException;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.BatchResultListener;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.result.DefaultMapResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.executor.resultset.ColumnarResultHandler;
+import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.BulkLoadOptions;
+import org.apache.ibatis.session.BulkLoadProgress;
+import org.apache.ibatis.session.BulkLoader;
+import org.apache.ibatis.session.ColumnarResult;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.KeysetRowBounds;
+import org.apache.ibatis.session.Page;
+import org.apache.ibatis.session.ParallelReads;
+import org.apache.ibatis.session.ReadConsistency;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.transaction.Transaction;
 
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * The default implementation for {@link SqlSession}.
@@ -167,6 +184,123 @@ public class DefaultSqlSession implements SqlSession {
         }
     }
 
+    @Override
+    public <E> Page<E> selectPage(String statement, Object parameter, RowBounds rowBounds) {
+        try {
+            MappedStatement ms = configuration.getMappedStatement(statement);
+            MappedStatement countMs = configuration.getCountStatementRegistry().getCountStatement(ms);
+            Object wrappedParameter = wrapCollection(parameter);
+            CompletableFuture<Long> concurrentTotal = null;
+            // 有未提交的修改时，其他连接上的count看不到这些修改，只能在当前会话中执行
+            if (configuration.isConcurrentPageCountEnabled() && !dirty) {
+                concurrentTotal = CompletableFuture.supplyAsync(() -> countInNewTransaction(countMs, wrappedParameter),
+                        configuration.getQueryTaskExecutor());
+            }
+            List<E> items = executor.query(ms, wrappedParameter, rowBounds, Executor.NO_RESULT_HANDLER);
+            long total;
+            if (concurrentTotal != null) {
+                total = joinCount(concurrentTotal);
+            } else if (isLastPage(ms, items, rowBounds)) {
+                // 最后一页不满时，总行数可以直接算出来
+                total = (long) rowBounds.getOffset() + items.size();
+            } else {
+                total = count(executor, countMs, wrappedParameter);
+            }
+            return new Page<>(items, total, rowBounds);
+        } catch (Exception e) {
+            throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
+        } finally {
+            ErrorContext.instance().reset();
+        }
+    }
+
+    @Override
+    public ColumnarResult selectColumns(String statement, Object parameter) {
+        return selectColumns(statement, parameter, RowBounds.DEFAULT);
+    }
+
+    @Override
+    public ColumnarResult selectColumns(String statement, Object parameter, RowBounds rowBounds) {
+        try {
+            MappedStatement ms = configuration.getMappedStatement(statement);
+            ColumnarResultHandler handler = new ColumnarResultHandler();
+            executor.query(ms, wrapCollection(parameter), rowBounds, handler);
+            return handler.getResult();
+        } catch (Exception e) {
+            throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
+        } finally {
+            ErrorContext.instance().reset();
+        }
+    }
+
+    @Override
+    public ParallelReads parallelReads() {
+        return parallelReads(ReadConsistency.INDEPENDENT);
+    }
+
+    @Override
+    public ParallelReads parallelReads(ReadConsistency consistency) {
+        // 有未提交的修改时，其他连接看不到这些修改，查询在当前会话中依次执行
+        return new ParallelReads(configuration, this, dirty, consistency);
+    }
+
+    @Override
+    public BulkLoadProgress bulkLoad(String statement, Iterator<?> parameters, BulkLoadOptions options) {
+        try {
+            MappedStatement ms = configuration.getMappedStatement(statement);
+            return new BulkLoader(configuration, ms, options == null ? new BulkLoadOptions() : options).load(parameters);
+        } catch (Exception e) {
+            throw ExceptionFactory.wrapException("Error bulk loading database.  Cause: " + e, e);
+        } finally {
+            ErrorContext.instance().reset();
+        }
+    }
+
+    @Override
+    public BulkLoadProgress bulkLoad(String statement, Iterable<?> parameters, BulkLoadOptions options) {
+        return bulkLoad(statement, parameters.iterator(), options);
+    }
+
+    /**
+     * 嵌套结果映射中一个对象可能对应多行，键集分页只有当前页之后的行，这两种情况不能由当前页推算总行数
+     */
+    private boolean isLastPage(MappedStatement ms, List<?> items, RowBounds rowBounds) {
+        return !ms.hasNestedResultMaps()
+                && !(rowBounds instanceof KeysetRowBounds)
+                && items.size() < rowBounds.getLimit()
+                && (!items.isEmpty() || rowBounds.getOffset() == RowBounds.NO_ROW_OFFSET);
+    }
+
+    private long count(Executor countExecutor, MappedStatement countMs, Object parameter) throws SQLException {
+        List<Long> counts = countExecutor.query(countMs, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        return counts.isEmpty() || counts.get(0) == null ? 0L : counts.get(0);
+    }
+
+    private long countInNewTransaction(MappedStatement countMs, Object parameter) {
+        Environment environment = configuration.getEnvironment();
+        Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), null, false);
+        Executor countExecutor = configuration.newExecutor(tx, ExecutorType.SIMPLE);
+        try {
+            return count(countExecutor, countMs, parameter);
+        } catch (SQLException e) {
+            throw new ExecutorException("Error counting rows of " + countMs.getId() + ".  Cause: " + e, e);
+        } finally {
+            countExecutor.close(false);
+            ErrorContext.instance().reset();
+        }
+    }
+
+    private long joinCount(CompletableFuture<Long> total) {
+        try {
+            return total.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     @Override
     public void select(String statement, Object parameter, ResultHandler handler) {
         select(statement, parameter, RowBounds.DEFAULT, handler);
@@ -272,6 +406,17 @@ public class DefaultSqlSession implements SqlSession {
         }
     }
 
+    @Override
+    public void flushStatements(BatchResultListener listener) {
+        try {
+            executor.flushStatements(listener);
+        } catch (Exception e) {
+            throw ExceptionFactory.wrapException("Error flushing statements.  Cause: " + e, e);
+        } finally {
+            ErrorContext.instance().reset();
+        }
+    }
+
     @Override
     public void close() {
         try {
@@ -102,7 +102,7 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
             // 从事务工厂生成事务
             tx = transactionFactory.newTransaction(environment.getDataSource(), level, autoCommit);
             // 根据配置创建Executor
-            final Executor executor = configuration.newExecutor(tx, execType);
+            final Executor executor = configuration.newExecutor(tx, execType, autoCommit);
             // 在Executor的基础上创建DefaultSqlSession
             return new DefaultSqlSession(configuration, executor, autoCommit);
         } catch (Exception e) {
@@ -131,7 +131,7 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
             final TransactionFactory transactionFactory = getTransactionFactoryFromEnvironment(environment);
             // 通过Connection创建Transaction
             final Transaction tx = transactionFactory.newTransaction(connection);
-            final Executor executor = configuration.newExecutor(tx, execType);
+            final Executor executor = configuration.newExecutor(tx, execType, autoCommit);
             // 创建DefaultSqlSession对象
             return new DefaultSqlSession(configuration, executor, autoCommit);
         } catch (Exception e) {
@@ -23,7 +23,7 @@ import java.sql.SQLException;
 /**
  * @author Clinton Begin
  */
-public class BooleanTypeHandler extends BaseTypeHandler<Boolean> {
+public class BooleanTypeHandler extends BaseTypeHandler<Boolean> implements BooleanResultGetter {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Boolean parameter, JdbcType jdbcType)
@@ -45,6 +45,11 @@ public class BooleanTypeHandler extends BaseTypeHandler<Boolean> {
     return !result && rs.wasNull() ? null : result;
   }
 
+  @Override
+  public boolean getBooleanResult(ResultSet rs, int columnIndex) throws SQLException {
+    return rs.getBoolean(columnIndex);
+  }
+
   @Override
   public Boolean getNullableResult(CallableStatement cs, int columnIndex)
       throws SQLException {
@@ -23,7 +23,7 @@ import java.sql.SQLException;
 /**
  * @author Clinton Begin
  */
-public class DoubleTypeHandler extends BaseTypeHandler<Double> {
+public class DoubleTypeHandler extends BaseTypeHandler<Double> implements DoubleResultGetter {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Double parameter, JdbcType jdbcType)
@@ -45,6 +45,11 @@ public class DoubleTypeHandler extends BaseTypeHandler<Double> {
     return result == 0 && rs.wasNull() ? null : result;
   }
 
+  @Override
+  public double getDoubleResult(ResultSet rs, int columnIndex) throws SQLException {
+    return rs.getDouble(columnIndex);
+  }
+
   @Override
   public Double getNullableResult(CallableStatement cs, int columnIndex)
       throws SQLException {
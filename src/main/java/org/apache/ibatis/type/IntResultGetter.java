@@ -0,0 +1,39 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 以基本类型int读取结果列的类型处理器，编译的行映射器通过它把列值直接写入int类型的属性，不经过装箱。
+ * 实现类读取列的方式必须与它的getNullableResult(ResultSet, int)一致。
+ *
+ * @see org.apache.ibatis.executor.resultset.CompiledRowMapper
+ */
+public interface IntResultGetter {
+
+    /**
+     * 读取列的原始值，列为NULL时返回0，调用方再通过{@link ResultSet#wasNull()}判断是否为NULL
+     *
+     * @param rs          结果集
+     * @param columnIndex 列序号，从1开始
+     * @return 列的值
+     * @throws SQLException
+     */
+    int getIntResult(ResultSet rs, int columnIndex) throws SQLException;
+
+}
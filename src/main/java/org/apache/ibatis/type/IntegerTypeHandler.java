@@ -23,7 +23,7 @@ import java.sql.SQLException;
 /**
  * @author Clinton Begin
  */
-public class IntegerTypeHandler extends BaseTypeHandler<Integer> {
+public class IntegerTypeHandler extends BaseTypeHandler<Integer> implements IntResultGetter {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Integer parameter, JdbcType jdbcType)
@@ -45,6 +45,11 @@ public class IntegerTypeHandler extends BaseTypeHandler<Integer> {
     return result == 0 && rs.wasNull() ? null : result;
   }
 
+  @Override
+  public int getIntResult(ResultSet rs, int columnIndex) throws SQLException {
+    return rs.getInt(columnIndex);
+  }
+
   @Override
   public Integer getNullableResult(CallableStatement cs, int columnIndex)
       throws SQLException {
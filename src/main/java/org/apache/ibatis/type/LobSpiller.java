@@ -0,0 +1,143 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+
+/**
+ * 读取LOB的内容，供{@link StreamingBlobTypeHandler}和{@link StreamingClobTypeHandler}使用。
+ * 不超过阈值的内容读入堆内存，更大的内容以流的方式写入临时文件，再以只读方式映射到内存，
+ * 映射的内容由操作系统按页加载，不占用堆内存。
+ * <p>
+ * 映射建立后临时文件立即删除，映射在缓冲区被回收时释放。不能删除映射中的文件的系统上（Windows），文件在JVM退出时删除。
+ */
+final class LobSpiller {
+
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private LobSpiller() {
+        // Prevent Instantiation of Static Class
+    }
+
+    /**
+     * 读取Blob的全部内容
+     *
+     * @param blob           驱动返回的Blob
+     * @param spillThreshold 超过这个字节数时写入临时文件
+     * @return 只读的内容
+     * @throws SQLException
+     */
+    static ByteBuffer read(Blob blob, int spillThreshold) throws SQLException {
+        final long length = blob.length();
+        if (length <= spillThreshold) {
+            return ByteBuffer.wrap(blob.getBytes(1, (int) length)).asReadOnlyBuffer();
+        }
+        checkMappable(length);
+        try (InputStream in = blob.getBinaryStream()) {
+            return spill(in);
+        } catch (IOException e) {
+            throw new SQLException("Error spilling BLOB of " + length + " bytes to a temporary file.  Cause: " + e, e);
+        }
+    }
+
+    /**
+     * 读取Clob的全部内容，阈值按每个字符两个字节计算
+     *
+     * @param clob           驱动返回的Clob
+     * @param spillThreshold 超过这个字节数时写入临时文件
+     * @return 只读的内容
+     * @throws SQLException
+     */
+    static CharBuffer read(Clob clob, int spillThreshold) throws SQLException {
+        final long length = clob.length();
+        if (length * 2 <= spillThreshold) {
+            return CharBuffer.wrap(clob.getSubString(1, (int) length)).asReadOnlyBuffer();
+        }
+        checkMappable(length * 2);
+        try (Reader reader = clob.getCharacterStream()) {
+            return spill(reader);
+        } catch (IOException e) {
+            throw new SQLException("Error spilling CLOB of " + length + " characters to a temporary file.  Cause: " + e, e);
+        }
+    }
+
+    private static void checkMappable(long bytes) throws SQLException {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new SQLException("Cannot spill LOB of " + bytes + " bytes to a temporary file, the limit is " + Integer.MAX_VALUE + " bytes.");
+        }
+    }
+
+    private static ByteBuffer spill(InputStream in) throws IOException {
+        final Path file = Files.createTempFile("mybatis-lob-", ".tmp");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final byte[] bytes = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(bytes)) != -1) {
+                write(channel, ByteBuffer.wrap(bytes, 0, read));
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            delete(file);
+        }
+    }
+
+    private static CharBuffer spill(Reader reader) throws IOException {
+        final Path file = Files.createTempFile("mybatis-lob-", ".tmp");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final char[] chars = new char[COPY_BUFFER_SIZE];
+            final ByteBuffer bytes = ByteBuffer.allocate(COPY_BUFFER_SIZE * 2);
+            int read;
+            while ((read = reader.read(chars)) != -1) {
+                bytes.clear();
+                bytes.asCharBuffer().put(chars, 0, read);
+                bytes.limit(read * 2);
+                write(channel, bytes);
+            }
+            // 写入和映射都使用ByteBuffer默认的大端字节序
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asCharBuffer();
+        } finally {
+            delete(file);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            final File toDelete = file.toFile();
+            toDelete.deleteOnExit();
+        }
+    }
+
+}
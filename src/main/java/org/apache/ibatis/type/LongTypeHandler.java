@@ -26,7 +26,7 @@ import java.sql.SQLException;
  * 其他的TypeHandler也是相似的逻辑
  * 泛型参数是Long表示其方法给出的就是Long类型的结果
  */
-public class LongTypeHandler extends BaseTypeHandler<Long> {
+public class LongTypeHandler extends BaseTypeHandler<Long> implements LongResultGetter {
 
     /**
      * 设置非空参数
@@ -72,6 +72,11 @@ public class LongTypeHandler extends BaseTypeHandler<Long> {
         return result == 0 && rs.wasNull() ? null : result;
     }
 
+    @Override
+    public long getLongResult(ResultSet rs, int columnIndex) throws SQLException {
+        return rs.getLong(columnIndex);
+    }
+
     /**
      * CallableStatement是PreparedStatement的一个子类
      *
@@ -0,0 +1,223 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+import javax.sql.rowset.serial.SerialBlob;
+
+/**
+ * {@link StreamingBlobTypeHandler}返回的只读Blob。
+ * 内容保存在堆内存或内存映射的临时文件中，延迟读取时在第一次访问内容时才从驱动的Blob读取，之后释放驱动的Blob。
+ * 序列化后得到内容相同的{@link SerialBlob}。
+ */
+final class SpilledBlob implements Blob, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // 延迟读取时驱动返回的Blob，读取后为null
+    private transient Blob source;
+    private final transient int spillThreshold;
+    private transient ByteBuffer content;
+    private transient boolean freed;
+
+    private SpilledBlob(Blob source, int spillThreshold) {
+        this.source = source;
+        this.spillThreshold = spillThreshold;
+    }
+
+    static SpilledBlob read(Blob source, int spillThreshold) throws SQLException {
+        final SpilledBlob blob = new SpilledBlob(source, spillThreshold);
+        blob.content();
+        return blob;
+    }
+
+    static SpilledBlob defer(Blob source, int spillThreshold) {
+        return new SpilledBlob(source, spillThreshold);
+    }
+
+    private synchronized ByteBuffer content() throws SQLException {
+        if (freed) {
+            throw new SQLException("Blob has been freed.");
+        }
+        if (content == null) {
+            content = LobSpiller.read(source, spillThreshold);
+            final Blob read = source;
+            source = null;
+            free(read);
+        }
+        // 每次访问使用独立的位置
+        return content.duplicate();
+    }
+
+    @Override
+    public synchronized long length() throws SQLException {
+        if (content == null && source != null) {
+            return source.length();
+        }
+        return content().limit();
+    }
+
+    @Override
+    public byte[] getBytes(long pos, int length) throws SQLException {
+        final ByteBuffer bytes = slice(content(), pos, length);
+        final byte[] result = new byte[bytes.remaining()];
+        bytes.get(result);
+        return result;
+    }
+
+    @Override
+    public InputStream getBinaryStream() throws SQLException {
+        return new ByteBufferInputStream(content());
+    }
+
+    @Override
+    public InputStream getBinaryStream(long pos, long length) throws SQLException {
+        return new ByteBufferInputStream(slice(content(), pos, length));
+    }
+
+    @Override
+    public long position(byte[] pattern, long start) throws SQLException {
+        if (start < 1) {
+            throw new SQLException("Invalid start position " + start + " for Blob.");
+        }
+        final ByteBuffer bytes = content();
+        final int limit = bytes.limit() - pattern.length;
+        for (int i = (int) start - 1; i <= limit; i++) {
+            int matched = 0;
+            while (matched < pattern.length && bytes.get(i + matched) == pattern[matched]) {
+                matched++;
+            }
+            if (matched == pattern.length) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long position(Blob pattern, long start) throws SQLException {
+        return position(pattern.getBytes(1, (int) pattern.length()), start);
+    }
+
+    @Override
+    public int setBytes(long pos, byte[] bytes) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public int setBytes(long pos, byte[] bytes, int offset, int len) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public OutputStream setBinaryStream(long pos) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void truncate(long len) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized void free() {
+        final Blob unread = source;
+        source = null;
+        content = null;
+        freed = true;
+        free(unread);
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        try {
+            return new SerialBlob(getBytes(1, (int) length()));
+        } catch (SQLException e) {
+            throw new InvalidObjectException("Error reading Blob for serialization.  Cause: " + e);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer bytes, long pos, long length) throws SQLException {
+        if (pos < 1 || pos > bytes.limit() + 1L || length < 0) {
+            throw new SQLException("Invalid position " + pos + " or length " + length + " for Blob of " + bytes.limit() + " bytes.");
+        }
+        bytes.position((int) pos - 1);
+        bytes.limit((int) Math.min(bytes.limit(), pos - 1 + length));
+        return bytes;
+    }
+
+    private static SQLException readOnly() {
+        return new SQLFeatureNotSupportedException("Blob values read by StreamingBlobTypeHandler are read-only.");
+    }
+
+    private static void free(Blob blob) {
+        if (blob == null) {
+            return;
+        }
+        try {
+            blob.free();
+        } catch (SQLException | AbstractMethodError e) {
+            // 不支持free的驱动由GC回收
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer bytes;
+
+        ByteBufferInputStream(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read() {
+            return bytes.hasRemaining() ? bytes.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!bytes.hasRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(len, bytes.remaining());
+            bytes.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            final int skipped = (int) Math.max(0, Math.min(n, bytes.remaining()));
+            bytes.position(bytes.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return bytes.remaining();
+        }
+    }
+
+}
@@ -0,0 +1,236 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+import javax.sql.rowset.serial.SerialClob;
+
+/**
+ * {@link StreamingClobTypeHandler}返回的只读Clob，与{@link SpilledBlob}相同，内容保存在堆内存或内存映射的临时文件中。
+ * 序列化后得到内容相同的{@link SerialClob}。
+ */
+final class SpilledClob implements Clob, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // 延迟读取时驱动返回的Clob，读取后为null
+    private transient Clob source;
+    private final transient int spillThreshold;
+    private transient CharBuffer content;
+    private transient boolean freed;
+
+    private SpilledClob(Clob source, int spillThreshold) {
+        this.source = source;
+        this.spillThreshold = spillThreshold;
+    }
+
+    static SpilledClob read(Clob source, int spillThreshold) throws SQLException {
+        final SpilledClob clob = new SpilledClob(source, spillThreshold);
+        clob.content();
+        return clob;
+    }
+
+    static SpilledClob defer(Clob source, int spillThreshold) {
+        return new SpilledClob(source, spillThreshold);
+    }
+
+    private synchronized CharBuffer content() throws SQLException {
+        if (freed) {
+            throw new SQLException("Clob has been freed.");
+        }
+        if (content == null) {
+            content = LobSpiller.read(source, spillThreshold);
+            final Clob read = source;
+            source = null;
+            free(read);
+        }
+        // 每次访问使用独立的位置
+        return content.duplicate();
+    }
+
+    @Override
+    public synchronized long length() throws SQLException {
+        if (content == null && source != null) {
+            return source.length();
+        }
+        return content().limit();
+    }
+
+    @Override
+    public String getSubString(long pos, int length) throws SQLException {
+        return slice(content(), pos, length).toString();
+    }
+
+    @Override
+    public Reader getCharacterStream() throws SQLException {
+        return new CharBufferReader(content());
+    }
+
+    @Override
+    public Reader getCharacterStream(long pos, long length) throws SQLException {
+        return new CharBufferReader(slice(content(), pos, length));
+    }
+
+    @Override
+    public InputStream getAsciiStream() throws SQLException {
+        final CharBuffer chars = content();
+        return new InputStream() {
+            @Override
+            public int read() {
+                if (!chars.hasRemaining()) {
+                    return -1;
+                }
+                final char c = chars.get();
+                return c < 0x80 ? c : '?';
+            }
+        };
+    }
+
+    @Override
+    public long position(String searchstr, long start) throws SQLException {
+        if (start < 1) {
+            throw new SQLException("Invalid start position " + start + " for Clob.");
+        }
+        final CharBuffer chars = content();
+        final int limit = chars.limit() - searchstr.length();
+        for (int i = (int) start - 1; i <= limit; i++) {
+            int matched = 0;
+            while (matched < searchstr.length() && chars.get(i + matched) == searchstr.charAt(matched)) {
+                matched++;
+            }
+            if (matched == searchstr.length()) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long position(Clob searchstr, long start) throws SQLException {
+        return position(searchstr.getSubString(1, (int) searchstr.length()), start);
+    }
+
+    @Override
+    public int setString(long pos, String str) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public int setString(long pos, String str, int offset, int len) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public OutputStream setAsciiStream(long pos) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public Writer setCharacterStream(long pos) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public void truncate(long len) throws SQLException {
+        throw readOnly();
+    }
+
+    @Override
+    public synchronized void free() {
+        final Clob unread = source;
+        source = null;
+        content = null;
+        freed = true;
+        free(unread);
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        try {
+            return new SerialClob(getSubString(1, (int) length()).toCharArray());
+        } catch (SQLException e) {
+            throw new InvalidObjectException("Error reading Clob for serialization.  Cause: " + e);
+        }
+    }
+
+    private static CharBuffer slice(CharBuffer chars, long pos, long length) throws SQLException {
+        if (pos < 1 || pos > chars.limit() + 1L || length < 0) {
+            throw new SQLException("Invalid position " + pos + " or length " + length + " for Clob of " + chars.limit() + " characters.");
+        }
+        chars.position((int) pos - 1);
+        chars.limit((int) Math.min(chars.limit(), pos - 1 + length));
+        return chars;
+    }
+
+    private static SQLException readOnly() {
+        return new SQLFeatureNotSupportedException("Clob values read by StreamingClobTypeHandler are read-only.");
+    }
+
+    private static void free(Clob clob) {
+        if (clob == null) {
+            return;
+        }
+        try {
+            clob.free();
+        } catch (SQLException | AbstractMethodError e) {
+            // 不支持free的驱动由GC回收
+        }
+    }
+
+    private static class CharBufferReader extends Reader {
+        private final CharBuffer chars;
+
+        CharBufferReader(CharBuffer chars) {
+            this.chars = chars;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!chars.hasRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(len, chars.remaining());
+            chars.get(cbuf, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            final int skipped = (int) Math.max(0, Math.min(n, chars.remaining()));
+            chars.position(chars.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+            // 内容由Clob持有，不需要释放
+        }
+    }
+
+}
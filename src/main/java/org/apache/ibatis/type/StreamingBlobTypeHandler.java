@@ -0,0 +1,109 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * {@link Blob}类型属性的TypeHandler，映射结果时不把大的LOB整个读入堆内存。
+ * 不超过spillThreshold字节的内容读入内存，更大的内容以流的方式写入临时文件并映射到内存，
+ * 结果对象中的Blob在会话关闭后仍然可以读取，它是只读的。
+ * <p>
+ * lazy为true时映射结果对象时只保存驱动返回的Blob，第一次读取内容时才按上面的方式读取，从未读取的属性不会产生任何开销。
+ * 此时只能在驱动允许访问LOB的范围内（通常是同一个事务）读取。
+ * <p>
+ * TypeHandlerRegistry默认注册的实例使用配置中的lobSpillThreshold和lazyLobReadingEnabled，在XML中通过&lt;setting&gt;调整。
+ * 在XML中用&lt;typeHandler&gt;注册时使用无参构造器，阈值和lazy都是默认值。
+ * <p>
+ * byte[]属性需要完整的值，仍然由{@link BlobTypeHandler}读取，需要避免堆内存峰值时把属性声明为Blob。
+ *
+ * @see StreamingClobTypeHandler
+ */
+public class StreamingBlobTypeHandler extends BaseTypeHandler<Blob> {
+
+    /**
+     * 默认的阈值，1MB
+     */
+    public static final int DEFAULT_SPILL_THRESHOLD = 1024 * 1024;
+
+    // 不为空时每次读取都使用配置中的阈值和lazy
+    private final Configuration settings;
+    private final int spillThreshold;
+    private final boolean lazy;
+
+    public StreamingBlobTypeHandler() {
+        this(DEFAULT_SPILL_THRESHOLD, false);
+    }
+
+    /**
+     * @param spillThreshold 超过这个字节数的内容写入临时文件
+     * @param lazy           是否在第一次读取内容时才从驱动的Blob读取
+     */
+    public StreamingBlobTypeHandler(int spillThreshold, boolean lazy) {
+        this.settings = null;
+        this.spillThreshold = spillThreshold;
+        this.lazy = lazy;
+    }
+
+    /**
+     * @param configuration 读取时使用其中的lobSpillThreshold和lazyLobReadingEnabled
+     */
+    public StreamingBlobTypeHandler(Configuration configuration) {
+        this.settings = configuration;
+        this.spillThreshold = DEFAULT_SPILL_THRESHOLD;
+        this.lazy = false;
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, Blob parameter, JdbcType jdbcType) throws SQLException {
+        // 驱动只接受自己的Blob实现，所以以流的方式写入
+        ps.setBinaryStream(i, parameter.getBinaryStream(), parameter.length());
+    }
+
+    @Override
+    public Blob getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return toBlob(rs.getBlob(columnName));
+    }
+
+    @Override
+    public Blob getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return toBlob(rs.getBlob(columnIndex));
+    }
+
+    @Override
+    public Blob getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return toBlob(cs.getBlob(columnIndex));
+    }
+
+    private Blob toBlob(Blob blob) throws SQLException {
+        if (blob == null) {
+            return null;
+        }
+        if (settings != null) {
+            return settings.isLazyLobReadingEnabled()
+                    ? SpilledBlob.defer(blob, settings.getLobSpillThreshold())
+                    : SpilledBlob.read(blob, settings.getLobSpillThreshold());
+        }
+        return lazy ? SpilledBlob.defer(blob, spillThreshold) : SpilledBlob.read(blob, spillThreshold);
+    }
+
+}
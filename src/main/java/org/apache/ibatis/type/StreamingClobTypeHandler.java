@@ -0,0 +1,96 @@
+/**
+ * Copyright 2009-2020 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * {@link Clob}类型属性的TypeHandler，读取方式与{@link StreamingBlobTypeHandler}相同，阈值按每个字符两个字节计算。
+ * <p>
+ * String属性需要完整的值，仍然由{@link ClobTypeHandler}读取，需要避免堆内存峰值时把属性声明为Clob。
+ *
+ * @see StreamingBlobTypeHandler
+ */
+public class StreamingClobTypeHandler extends BaseTypeHandler<Clob> {
+
+    // 不为空时每次读取都使用配置中的阈值和lazy
+    private final Configuration settings;
+    private final int spillThreshold;
+    private final boolean lazy;
+
+    public StreamingClobTypeHandler() {
+        this(StreamingBlobTypeHandler.DEFAULT_SPILL_THRESHOLD, false);
+    }
+
+    /**
+     * @param spillThreshold 超过这个字节数的内容写入临时文件
+     * @param lazy           是否在第一次读取内容时才从驱动的Clob读取
+     */
+    public StreamingClobTypeHandler(int spillThreshold, boolean lazy) {
+        this.settings = null;
+        this.spillThreshold = spillThreshold;
+        this.lazy = lazy;
+    }
+
+    /**
+     * @param configuration 读取时使用其中的lobSpillThreshold和lazyLobReadingEnabled
+     */
+    public StreamingClobTypeHandler(Configuration configuration) {
+        this.settings = configuration;
+        this.spillThreshold = StreamingBlobTypeHandler.DEFAULT_SPILL_THRESHOLD;
+        this.lazy = false;
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, Clob parameter, JdbcType jdbcType) throws SQLException {
+        // 驱动只接受自己的Clob实现，所以以流的方式写入
+        ps.setCharacterStream(i, parameter.getCharacterStream(), parameter.length());
+    }
+
+    @Override
+    public Clob getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return toClob(rs.getClob(columnName));
+    }
+
+    @Override
+    public Clob getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return toClob(rs.getClob(columnIndex));
+    }
+
+    @Override
+    public Clob getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return toClob(cs.getClob(columnIndex));
+    }
+
+    private Clob toClob(Clob clob) throws SQLException {
+        if (clob == null) {
+            return null;
+        }
+        if (settings != null) {
+            return settings.isLazyLobReadingEnabled()
+                    ? SpilledClob.defer(clob, settings.getLobSpillThreshold())
+                    : SpilledClob.read(clob, settings.getLobSpillThreshold());
+        }
+        return lazy ? SpilledClob.defer(clob, spillThreshold) : SpilledClob.read(clob, spillThreshold);
+    }
+
+}
@@ -27,6 +27,8 @@ import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.Clob;
 import java.time.*;
 import java.time.chrono.JapaneseDate;
 import java.util.*;
@@ -137,6 +139,8 @@ public final class TypeHandlerRegistry {
         register(JdbcType.NVARCHAR, new NStringTypeHandler());
         register(JdbcType.NCHAR, new NStringTypeHandler());
         register(JdbcType.NCLOB, new NClobTypeHandler());
+        // Clob类型的属性，大的内容写入临时文件，不读入堆内存，阈值和是否延迟读取由配置决定
+        register(Clob.class, new StreamingClobTypeHandler(configuration));
 
         register(Object.class, JdbcType.ARRAY, new ArrayTypeHandler());
         register(JdbcType.ARRAY, new ArrayTypeHandler());
@@ -158,6 +162,8 @@ public final class TypeHandlerRegistry {
         register(byte[].class, JdbcType.LONGVARBINARY, new BlobTypeHandler());
         register(JdbcType.LONGVARBINARY, new BlobTypeHandler());
         register(JdbcType.BLOB, new BlobTypeHandler());
+        // Blob类型的属性，大的内容写入临时文件，不读入堆内存，阈值和是否延迟读取由配置决定
+        register(Blob.class, new StreamingBlobTypeHandler(configuration));
 
         register(Object.class, unknownTypeHandler);
         register(Object.class, JdbcType.OTHER, unknownTypeHandler);
@@ -37,14 +37,20 @@ import java.util.Properties;
 import org.apache.ibatis.builder.mapper.CustomMapper;
 import org.apache.ibatis.builder.typehandler.CustomIntegerTypeHandler;
 import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.datasource.replica.RandomLoadBalancer;
+import org.apache.ibatis.datasource.replica.RoundRobinLoadBalancer;
+import org.apache.ibatis.datasource.shard.ModuloShardStrategy;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
 import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.domain.blog.Blog;
 import org.apache.ibatis.domain.blog.mappers.BlogMapper;
 import org.apache.ibatis.domain.blog.mappers.NestedBlogMapper;
 import org.apache.ibatis.domain.jpetstore.Cart;
+import org.apache.ibatis.executor.dialect.OffsetFetchDialect;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
+import org.apache.ibatis.executor.writebehind.BackpressurePolicy;
+import org.apache.ibatis.executor.writebehind.LoggingFailureHandler;
 import org.apache.ibatis.io.JBoss6VFS;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.logging.slf4j.Slf4jImpl;
@@ -87,6 +93,9 @@ class XmlConfigBuilderTest {
       assertThat(config.getDefaultExecutorType()).isEqualTo(ExecutorType.SIMPLE);
       assertNull(config.getDefaultStatementTimeout());
       assertNull(config.getDefaultFetchSize());
+      assertThat(config.isAdaptiveFetchSizeEnabled()).isFalse();
+      assertThat(config.getMaxAdaptiveFetchSize()).isEqualTo(1000);
+      assertThat(config.isCancelQueriesOnInterrupt()).isFalse();
       assertNull(config.getDefaultResultSetType());
       assertThat(config.isMapUnderscoreToCamelCase()).isFalse();
       assertThat(config.isSafeRowBoundsEnabled()).isFalse();
@@ -102,6 +111,30 @@ class XmlConfigBuilderTest {
       assertThat(config.getTypeHandlerRegistry().getTypeHandler(RoundingMode.class)).isInstanceOf(EnumTypeHandler.class);
       assertThat(config.isShrinkWhitespacesInSql()).isFalse();
       assertThat(config.getDefaultSqlProviderType()).isNull();
+      assertThat(config.isQueryCoalescingEnabled()).isFalse();
+      assertThat(config.isRowBoundsPushdownEnabled()).isFalse();
+      assertThat(config.isConcurrentPageCountEnabled()).isFalse();
+      assertThat(config.getQueryTaskThreads()).isEqualTo(16);
+      assertThat(config.isGroupCommitEnabled()).isFalse();
+      assertThat(config.getGroupCommitWindow()).isEqualTo(5);
+      assertThat(config.getGroupCommitMaxBatchSize()).isEqualTo(100);
+      assertThat(config.isCompiledRowMappersEnabled()).isFalse();
+      assertThat(config.isCompactRowMapsEnabled()).isFalse();
+      assertThat(config.isPipelinedMappingEnabled()).isFalse();
+      assertThat(config.getPipelinedMappingWorkers()).isEqualTo(2);
+      assertThat(config.getPipelinedMappingBatchSize()).isEqualTo(256);
+      assertThat(config.getLobSpillThreshold()).isEqualTo(1024 * 1024);
+      assertThat(config.isLazyLobReadingEnabled()).isFalse();
+      assertThat(config.getReplicaLoadBalancer()).isInstanceOf(RoundRobinLoadBalancer.class);
+      assertThat(config.getReplicaRetryInterval()).isEqualTo(30000);
+      assertThat(config.getShardStrategy()).isInstanceOf(ModuloShardStrategy.class);
+      assertNull(config.getShardKeyProperty());
+      assertThat(config.getWriteBehindQueueCapacity()).isEqualTo(10000);
+      assertThat(config.getWriteBehindBatchSize()).isEqualTo(500);
+      assertThat(config.getWriteBehindFlushInterval()).isEqualTo(100);
+      assertThat(config.getWriteBehindBackpressure()).isEqualTo(BackpressurePolicy.BLOCK);
+      assertThat(config.getWriteBehindFailureHandler()).isInstanceOf(LoggingFailureHandler.class);
+      assertThat(config.getDialect()).isNull();
     }
   }
 
@@ -183,6 +216,9 @@ class XmlConfigBuilderTest {
       assertThat(config.getDefaultExecutorType()).isEqualTo(ExecutorType.BATCH);
       assertThat(config.getDefaultStatementTimeout()).isEqualTo(10);
       assertThat(config.getDefaultFetchSize()).isEqualTo(100);
+      assertThat(config.isAdaptiveFetchSizeEnabled()).isTrue();
+      assertThat(config.getMaxAdaptiveFetchSize()).isEqualTo(500);
+      assertThat(config.isCancelQueriesOnInterrupt()).isTrue();
       assertThat(config.getDefaultResultSetType()).isEqualTo(ResultSetType.SCROLL_INSENSITIVE);
       assertThat(config.isMapUnderscoreToCamelCase()).isTrue();
       assertThat(config.isSafeRowBoundsEnabled()).isTrue();
@@ -198,6 +234,30 @@ class XmlConfigBuilderTest {
       assertThat(config.getConfigurationFactory().getName()).isEqualTo(String.class.getName());
       assertThat(config.isShrinkWhitespacesInSql()).isTrue();
       assertThat(config.getDefaultSqlProviderType().getName()).isEqualTo(MySqlProvider.class.getName());
+      assertThat(config.isQueryCoalescingEnabled()).isTrue();
+      assertThat(config.isRowBoundsPushdownEnabled()).isTrue();
+      assertThat(config.isConcurrentPageCountEnabled()).isTrue();
+      assertThat(config.getQueryTaskThreads()).isEqualTo(8);
+      assertThat(config.isGroupCommitEnabled()).isTrue();
+      assertThat(config.getGroupCommitWindow()).isEqualTo(2);
+      assertThat(config.getGroupCommitMaxBatchSize()).isEqualTo(20);
+      assertThat(config.isCompiledRowMappersEnabled()).isTrue();
+      assertThat(config.isCompactRowMapsEnabled()).isTrue();
+      assertThat(config.isPipelinedMappingEnabled()).isTrue();
+      assertThat(config.getPipelinedMappingWorkers()).isEqualTo(4);
+      assertThat(config.getPipelinedMappingBatchSize()).isEqualTo(64);
+      assertThat(config.getLobSpillThreshold()).isEqualTo(4096);
+      assertThat(config.isLazyLobReadingEnabled()).isTrue();
+      assertThat(config.getReplicaLoadBalancer()).isInstanceOf(RandomLoadBalancer.class);
+      assertThat(config.getReplicaRetryInterval()).isEqualTo(5000);
+      assertThat(config.getShardStrategy()).isInstanceOf(ModuloShardStrategy.class);
+      assertThat(config.getShardKeyProperty()).isEqualTo("customerId");
+      assertThat(config.getWriteBehindQueueCapacity()).isEqualTo(2000);
+      assertThat(config.getWriteBehindBatchSize()).isEqualTo(50);
+      assertThat(config.getWriteBehindFlushInterval()).isEqualTo(20);
+      assertThat(config.getWriteBehindBackpressure()).isEqualTo(BackpressurePolicy.CALLER_RUNS);
+      assertThat(config.getWriteBehindFailureHandler()).isInstanceOf(LoggingFailureHandler.class);
+      assertThat(config.getDialect()).isInstanceOf(OffsetFetchDialect.class);
 
       assertThat(config.getTypeAliasRegistry().getTypeAliases().get("blogauthor")).isEqualTo(Author.class);
       assertThat(config.getTypeAliasRegistry().getTypeAliases().get("blog")).isEqualTo(Blog.class);
@@ -0,0 +1,54 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.dialect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class CountSqlSourceTest {
+
+  @Test
+  void shouldWrapStatementAndRemoveOrderBy() {
+    assertEquals("select count(*) from (select * from users where id > ?) count_query",
+        CountSqlSource.getCountSql("select * from users where id > ? order by name, id desc"));
+  }
+
+  @Test
+  void shouldKeepOrderByInSubqueriesAndLiterals() {
+    String sql = "select * from (select * from users order by id) u where name <> 'x order by y'";
+    assertEquals(sql, CountSqlSource.removeOrderBy(sql));
+  }
+
+  @Test
+  void shouldKeepOrderByWithParameters() {
+    String sql = "select * from users order by case when id = ? then 0 else 1 end";
+    assertEquals(sql, CountSqlSource.removeOrderBy(sql));
+  }
+
+  @Test
+  void shouldKeepOrderByFollowedByRowLimit() {
+    String sql = "select * from users order by id limit 10";
+    assertEquals(sql, CountSqlSource.removeOrderBy(sql));
+  }
+
+  @Test
+  void shouldNotMistakeIdentifiersForOrderBy() {
+    String sql = "select reorder by_name from users";
+    assertEquals(sql, CountSqlSource.removeOrderBy(sql));
+  }
+
+}
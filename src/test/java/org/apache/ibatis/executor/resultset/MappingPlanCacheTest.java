@@ -0,0 +1,59 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class MappingPlanCacheTest {
+
+  private final ResultMap resultMap = new ResultMap.Builder(new Configuration(), "users", Object.class, new ArrayList<>())
+      .build();
+  private final AtomicInteger plansCreated = new AtomicInteger();
+
+  @Test
+  void shouldEvictLeastRecentlyUsedPlans() {
+    MappingPlanCache planCache = new MappingPlanCache(2);
+    MappingPlanCache.MappingPlan first = getPlan(planCache, "ID");
+    getPlan(planCache, "ID, NAME");
+    assertThat(getPlan(planCache, "ID")).isSameAs(first);
+    assertThat(plansCreated.get()).isEqualTo(2);
+
+    getPlan(planCache, "NAME");
+    assertThat(planCache.size()).isEqualTo(2);
+    assertThat(getPlan(planCache, "ID")).isSameAs(first);
+    // the least recently used layout was evicted and is planned again
+    getPlan(planCache, "ID, NAME");
+    assertThat(plansCreated.get()).isEqualTo(4);
+  }
+
+  private MappingPlanCache.MappingPlan getPlan(MappingPlanCache planCache, String columns) {
+    CacheKey columnLayout = new CacheKey(new Object[] { columns });
+    return planCache.getPlan(resultMap, null, columnLayout, false, () -> {
+      plansCreated.incrementAndGet();
+      return new MappingPlanCache.MappingPlan(Collections.emptyList(), Collections.emptyList());
+    });
+  }
+
+}
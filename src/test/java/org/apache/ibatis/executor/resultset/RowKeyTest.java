@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.type.ByteArrayTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+import org.junit.jupiter.api.Test;
+
+class RowKeyTest {
+
+  private static RowKey.Layout stringLayout(String resultMapId, boolean keepNulls, String... columns) {
+    int[] columnIndexes = new int[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      columnIndexes[i] = i + 1;
+    }
+    return new RowKey.Layout(resultMapId, Arrays.asList(columns), Arrays.asList(new TypeHandler<?>[columns.length]),
+        columnIndexes, keepNulls);
+  }
+
+  private static ResultSet row(String... values) throws SQLException {
+    ResultSet rs = mock(ResultSet.class);
+    for (int i = 0; i < values.length; i++) {
+      when(rs.getString(i + 1)).thenReturn(values[i]);
+    }
+    return rs;
+  }
+
+  @Test
+  void shouldEqualForSameValues() throws SQLException {
+    RowKey.Layout layout = stringLayout("rm", false, "ID", "NAME");
+    RowKey key1 = layout.createKey(row("1", "a"));
+    RowKey key2 = layout.createKey(row("1", "a"));
+    assertThat(key1).isEqualTo(key2).hasSameHashCodeAs(key2);
+    assertThat(key1).isNotEqualTo(layout.createKey(row("1", "b")));
+  }
+
+  @Test
+  void shouldCompareValuesWhenHashesCollide() throws SQLException {
+    RowKey.Layout layout = stringLayout("rm", false, "ID");
+    // "Aa" and "BB" have the same String hash code
+    RowKey key1 = layout.createKey(row("Aa"));
+    RowKey key2 = layout.createKey(row("BB"));
+    assertThat(key1.hashCode()).isEqualTo(key2.hashCode());
+    assertThat(key1).isNotEqualTo(key2);
+
+    Map<RowKey, Object> objects = new HashMap<>();
+    objects.put(key1, "first");
+    objects.put(key2, "second");
+    assertThat(objects).hasSize(2);
+  }
+
+  @Test
+  void shouldCompareArrayValuesByContent() throws SQLException {
+    TypeHandler<byte[]> typeHandler = new ByteArrayTypeHandler();
+    RowKey.Layout layout = new RowKey.Layout("rm", Arrays.asList("ID"), Arrays.asList(typeHandler), new int[] { 1 }, false);
+    ResultSet rs1 = mock(ResultSet.class);
+    when(rs1.getBytes(1)).thenReturn(new byte[] { 1, 2 });
+    ResultSet rs2 = mock(ResultSet.class);
+    when(rs2.getBytes(1)).thenReturn(new byte[] { 1, 2 });
+    assertThat(layout.createKey(rs1)).isEqualTo(layout.createKey(rs2));
+  }
+
+  @Test
+  void shouldReturnNullKeyWhenNoColumnHasValue() throws SQLException {
+    assertThat(stringLayout("rm", false, "ID", "NAME").createKey(row(null, null))).isSameAs(RowKey.NULL_ROW_KEY);
+    assertThat(stringLayout("rm", false).createKey(row())).isSameAs(RowKey.NULL_ROW_KEY);
+    assertThat(stringLayout("rm", true, "ID").createKey(row((String) null))).isNotSameAs(RowKey.NULL_ROW_KEY);
+  }
+
+  @Test
+  void shouldDistinguishResultMapsAndColumns() throws SQLException {
+    RowKey key = stringLayout("rm", false, "ID").createKey(row("1"));
+    assertThat(key).isNotEqualTo(stringLayout("other", false, "ID").createKey(row("1")));
+    assertThat(key).isNotEqualTo(stringLayout("rm", false, "A_ID").createKey(row("1")));
+    // layouts of another result set with the same columns produce equal keys
+    assertThat(key).isEqualTo(stringLayout("rm", false, "ID").createKey(row("1")));
+  }
+
+  @Test
+  void shouldCombineWithParentKey() throws SQLException {
+    RowKey.Layout parentLayout = stringLayout("parent", false, "ID");
+    RowKey.Layout childLayout = stringLayout("child", false, "ID");
+    RowKey parent1 = parentLayout.createKey(row("1"));
+    RowKey parent2 = parentLayout.createKey(row("2"));
+    RowKey child = childLayout.createKey(row("10"));
+
+    assertThat(child.combine(parent1)).isEqualTo(childLayout.createKey(row("10")).combine(parentLayout.createKey(row("1"))));
+    assertThat(child.combine(parent1)).isNotEqualTo(child.combine(parent2));
+    assertThat(child.combine(parent1)).isNotEqualTo(child);
+    assertThat(child.combine(RowKey.NULL_ROW_KEY)).isSameAs(RowKey.NULL_ROW_KEY);
+    assertThat(RowKey.NULL_ROW_KEY.combine(parent1)).isSameAs(RowKey.NULL_ROW_KEY);
+  }
+
+}
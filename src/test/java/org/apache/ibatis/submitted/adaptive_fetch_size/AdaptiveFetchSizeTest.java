@@ -0,0 +1,167 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.adaptive_fetch_size;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveFetchSizeTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final FetchSizeRecorder recorder = new FetchSizeRecorder();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    // 每个测试使用新的Configuration，行数统计从零开始
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/adaptive_fetch_size/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(recorder);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/adaptive_fetch_size/CreateDB.sql");
+  }
+
+  @Test
+  void shouldUseSmallFetchSizeForSingleRowLookups() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("User1", mapper.getName(1));
+      assertEquals("User2", mapper.getName(2));
+      assertEquals(2, recorder.last());
+    }
+  }
+
+  @Test
+  void shouldGrowFetchSizeWithObservedRows() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getNamesUpTo(3);
+      mapper.getNamesUpTo(4);
+      assertEquals(4, recorder.last());
+      mapper.getNamesUpTo(20);
+      // 行数变多时平均值快速上升
+      mapper.getNamesUpTo(20);
+      assertEquals(13, recorder.last());
+      mapper.getNamesUpTo(20);
+      assertEquals(17, recorder.last());
+    }
+  }
+
+  @Test
+  void shouldShrinkFetchSizeSlowly() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getNamesUpTo(33);
+      mapper.getNamesUpTo(1);
+      mapper.getNamesUpTo(1);
+      assertEquals(30, recorder.last());
+    }
+  }
+
+  @Test
+  void shouldNotExceedMaxAdaptiveFetchSize() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(60, mapper.getNamesUpTo(100).size());
+      mapper.getNamesUpTo(100);
+      assertEquals(40, recorder.last());
+    }
+  }
+
+  @Test
+  void shouldRecordRowsReadThroughCursor() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      try (Cursor<String> cursor = mapper.getNamesUpToWithCursor(20)) {
+        int count = 0;
+        for (String name : cursor) {
+          count++;
+        }
+        assertEquals(20, count);
+      }
+      mapper.getNamesUpToWithCursor(20).close();
+      assertEquals(21, recorder.last());
+    }
+  }
+
+  @Test
+  void shouldRecordRowsReadBeforeCursorIsClosed() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      try (Cursor<String> cursor = mapper.getNamesUpToWithCursor(20)) {
+        Iterator<String> iterator = cursor.iterator();
+        iterator.next();
+        iterator.next();
+      }
+      mapper.getNamesUpToWithCursor(20).close();
+      assertEquals(3, recorder.last());
+    }
+  }
+
+  @Test
+  void shouldPreferFetchSizeOfStatement() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getAllNamesWithFixedFetchSize();
+      mapper.getAllNamesWithFixedFetchSize();
+      assertEquals(7, recorder.last());
+    }
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+  public static class FetchSizeRecorder implements Interceptor {
+    private final List<Integer> fetchSizes = new ArrayList<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      Statement statement = (Statement) invocation.proceed();
+      fetchSizes.add(statement.getFetchSize());
+      return statement;
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+    int last() {
+      return fetchSizes.get(fetchSizes.size() - 1);
+    }
+  }
+
+}
@@ -0,0 +1,168 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_nested_select;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchNestedSelectTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static final StatementCounter counter = new StatementCounter();
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/batch_nested_select/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(counter);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_nested_select/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void resetCounter() {
+    counter.count.set(0);
+  }
+
+  @Test
+  void shouldLoadNestedSelectsInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Order> orders = mapper.getOrdersBatched();
+      assertOrders(orders);
+      // 1 parent query + 1 customer batch + 2 item batches (5 keys, batchSize 3)
+      assertEquals(4, counter.count.get());
+    }
+  }
+
+  @Test
+  void shouldReturnSameResultsAsPerRowNestedSelects() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Order> orders = mapper.getOrdersPerRow();
+      assertOrders(orders);
+      assertTrue(counter.count.get() > 4);
+    }
+  }
+
+  @Test
+  void shouldMatchKeysOfDifferentNumericTypes() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      // the parent key is read as BigDecimal 1.00 while Customer.id is an Integer
+      List<Order> orders = mapper.getOrdersBatchedByDecimalKey();
+      assertEquals(5, orders.size());
+      assertEquals("Alice", orders.get(0).getCustomer().getName());
+      assertEquals("Bob", orders.get(1).getCustomer().getName());
+      assertEquals("Alice", orders.get(2).getCustomer().getName());
+      assertEquals("Bob", orders.get(3).getCustomer().getName());
+      assertNull(orders.get(4).getCustomer());
+      assertEquals(2, counter.count.get());
+    }
+  }
+
+  @Test
+  void shouldFallBackToPerRowLoadingWithResultHandler() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Order> orders = new ArrayList<>();
+      mapper.getOrdersBatched(context -> {
+        Order order = context.getResultObject();
+        // the handler must see fully populated objects
+        assertNotNull(order.getItems());
+        orders.add(order);
+      });
+      assertOrders(orders);
+    }
+  }
+
+  @Test
+  void shouldLazyLoadSiblingsInOneBatch() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Order> orders = mapper.getOrdersLazyBatched();
+      assertEquals(1, counter.count.get());
+      // first access loads items of all five orders, 2 queries since batchSize is 3
+      assertEquals(2, orders.get(3).getItems().size());
+      assertEquals(3, counter.count.get());
+      assertEquals("Bob", orders.get(1).getCustomer().getName());
+      assertEquals(4, counter.count.get());
+      assertOrders(orders);
+      assertEquals(4, counter.count.get());
+    }
+  }
+
+  @Test
+  void shouldLazyLoadSiblingsAfterSessionIsClosed() {
+    List<Order> orders;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      orders = sqlSession.getMapper(Mapper.class).getOrdersLazyBatched();
+    }
+    assertOrders(orders);
+    assertEquals(4, counter.count.get());
+  }
+
+  private void assertOrders(List<Order> orders) {
+    assertEquals(5, orders.size());
+    assertEquals("Alice", orders.get(0).getCustomer().getName());
+    assertEquals("Bob", orders.get(1).getCustomer().getName());
+    assertEquals("Alice", orders.get(2).getCustomer().getName());
+    assertNotSame(orders.get(0).getItems(), orders.get(2).getItems());
+    assertNull(orders.get(4).getCustomer());
+
+    assertEquals(2, orders.get(0).getItems().size());
+    assertEquals("apple", orders.get(0).getItems().get(0).getName());
+    assertEquals("banana", orders.get(0).getItems().get(1).getName());
+    assertEquals(1, orders.get(1).getItems().size());
+    assertEquals(1, orders.get(2).getItems().size());
+    assertEquals(2, orders.get(3).getItems().size());
+    assertTrue(orders.get(4).getItems().isEmpty());
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+  static class StatementCounter implements Interceptor {
+    final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      count.incrementAndGet();
+      return invocation.proceed();
+    }
+  }
+
+}
@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_result_streaming;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.BatchResultListener;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchResultStreamingTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_result_streaming/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_result_streaming/CreateDB.sql");
+  }
+
+  @Test
+  void shouldStreamEachBatchAndReleaseParameters() {
+    RecordingListener listener = new RecordingListener();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User first = new User(null, "a");
+      mapper.insertUser(first);
+      mapper.insertUser(new User(null, "b"));
+      mapper.insertUser(new User(null, "c"));
+      mapper.updateUser(new User(1, "renamed"));
+      sqlSession.flushStatements(listener);
+
+      assertThat(listener.flushed).hasSize(2);
+      assertThat(listener.flushed.get(0).getUpdateCounts()).containsExactly(1, 1, 1);
+      assertThat(listener.flushed.get(1).getUpdateCounts()).containsExactly(1);
+      assertThat(listener.parameterCounts).containsExactly(3, 1);
+      // 监听器返回后实参已经释放
+      assertThat(listener.flushed).allSatisfy(result -> assertThat(result.getParameterObjects()).isEmpty());
+      // 生成的主键在通知前已经设置
+      assertThat(first.getId()).isEqualTo(100);
+
+      // 已经流式处理的批处理不会再次返回
+      assertThat(sqlSession.flushStatements()).isEmpty();
+      sqlSession.commit();
+      assertThat(mapper.countUsers()).isEqualTo(4);
+    }
+  }
+
+  @Test
+  void shouldNotifyFailedBatch() {
+    RecordingListener listener = new RecordingListener();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.updateUser(new User(1, "renamed"));
+      mapper.insertUserWithId(new User(2, "b"));
+      mapper.insertUserWithId(new User(2, "duplicate"));
+
+      assertThatThrownBy(() -> sqlSession.flushStatements(listener))
+          .isInstanceOf(PersistenceException.class)
+          .hasCauseInstanceOf(BatchExecutorException.class);
+      assertThat(listener.flushed).hasSize(1);
+      assertThat(listener.failures).singleElement()
+          .satisfies(e -> assertThat(e.getFailingStatementId()).endsWith("insertUserWithId"));
+      sqlSession.rollback();
+    }
+  }
+
+  @Test
+  void shouldNotNotifyWhenNothingIsBatched() {
+    RecordingListener listener = new RecordingListener();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).updateUser(new User(1, "renamed"));
+      sqlSession.flushStatements(listener);
+      assertThat(listener.flushed).isEmpty();
+    }
+  }
+
+  private static class RecordingListener implements BatchResultListener {
+    private final List<BatchResult> flushed = new ArrayList<>();
+    private final List<Integer> parameterCounts = new ArrayList<>();
+    private final List<BatchExecutorException> failures = new ArrayList<>();
+
+    @Override
+    public void onBatchFlushed(BatchResult batchResult) {
+      flushed.add(batchResult);
+      parameterCounts.add(batchResult.getParameterObjects().size());
+    }
+
+    @Override
+    public void onBatchFailed(BatchExecutorException exception) {
+      failures.add(exception);
+    }
+  }
+
+}
@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.bulk_load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.BulkLoadOptions;
+import org.apache.ibatis.session.BulkLoadProgress;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BulkLoadTest {
+
+  private static final String INSERT_SOURCE = "org.apache.ibatis.submitted.bulk_load.Mapper.insertSource";
+  private static final String INSERT_TARGET = "org.apache.ibatis.submitted.bulk_load.Mapper.insertTarget";
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/bulk_load/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/bulk_load/CreateDB.sql");
+  }
+
+  @Test
+  void shouldCopyRowsFromCursorWithParallelWriters() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.bulkLoad(INSERT_SOURCE,
+          IntStream.rangeClosed(1, 2500).mapToObj(i -> new User(i, "user" + i)).iterator(), null);
+    }
+
+    AtomicInteger notifications = new AtomicInteger();
+    try (SqlSession source = sqlSessionFactory.openSession();
+         SqlSession target = sqlSessionFactory.openSession()) {
+      Cursor<User> users = source.getMapper(Mapper.class).scanSource();
+      BulkLoadProgress progress = target.bulkLoad(INSERT_TARGET, users, new BulkLoadOptions()
+          .batchSize(300)
+          .writers(3)
+          .progressListener(p -> notifications.incrementAndGet()));
+
+      assertThat(progress.getRowsRead()).isEqualTo(2500);
+      assertThat(progress.getRowsLoaded()).isEqualTo(2500);
+      assertThat(progress.getBatches()).isEqualTo(9);
+      assertThat(notifications.get()).isEqualTo(9);
+      // 每个批处理已经提交，不依赖调用方会话的事务
+      target.rollback();
+      assertThat(target.getMapper(Mapper.class).countTarget()).isEqualTo(2500);
+    }
+  }
+
+  @Test
+  void shouldStopAtFirstFailedBatch() {
+    List<User> users = new ArrayList<>();
+    for (int i = 1; i <= 10; i++) {
+      users.add(new User(i, "user" + i));
+    }
+    users.add(new User(1, "duplicate"));
+    users.addAll(Collections.nCopies(100, new User(11, "never loaded")));
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThatThrownBy(() -> sqlSession.bulkLoad(INSERT_TARGET, users, new BulkLoadOptions().batchSize(5)))
+          .isInstanceOf(PersistenceException.class)
+          .hasMessageContaining("insertTarget");
+      // 失败之前提交的批处理仍然保留
+      assertThat(sqlSession.getMapper(Mapper.class).countTarget()).isEqualTo(10);
+    }
+  }
+
+  @Test
+  void shouldRejectSelectStatements() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThatThrownBy(() -> sqlSession.bulkLoad("org.apache.ibatis.submitted.bulk_load.Mapper.countTarget",
+          Collections.singletonList(1), null))
+          .isInstanceOf(PersistenceException.class)
+          .hasMessageContaining("Cannot bulk load with select statement");
+    }
+  }
+
+}
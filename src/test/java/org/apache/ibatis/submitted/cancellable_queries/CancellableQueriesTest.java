@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cancellable_queries;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.QueryCancelledException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.CancellationToken;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CancellableQueriesTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static ScheduledExecutorService scheduler;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/cancellable_queries/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @AfterAll
+  static void tearDown() {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  void shouldCancelQueryAtDeadline() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      long start = System.nanoTime();
+      try (CancellationToken.Scope scope = CancellationToken.withTimeout(200, TimeUnit.MILLISECONDS).bind()) {
+        assertCancelled(mapper::countForever);
+      }
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5000);
+      // 会话和连接池中唯一的连接仍然可以使用
+      assertEquals(1, mapper.selectOne());
+    }
+  }
+
+  @Test
+  void shouldCancelQueryFromAnotherThread() {
+    CancellationToken token = new CancellationToken();
+    scheduler.schedule(token::cancel, 200, TimeUnit.MILLISECONDS);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      try (CancellationToken.Scope scope = token.bind()) {
+        assertCancelled(mapper::countForever);
+      }
+      assertEquals(1, mapper.selectOne());
+    }
+  }
+
+  @Test
+  void shouldCancelQueryWhenFutureFails() throws Exception {
+    CancellationToken token = new CancellationToken();
+    CompletableFuture<Long> future = CompletableFuture.supplyAsync(() -> {
+      try (SqlSession sqlSession = sqlSessionFactory.openSession();
+          CancellationToken.Scope scope = token.bind()) {
+        return sqlSession.getMapper(Mapper.class).countForever();
+      }
+    });
+    token.cancelOnFailure(future);
+    TimeUnit.MILLISECONDS.sleep(200);
+    future.cancel(true);
+    // 查询被取消后连接回到连接池
+    long start = System.nanoTime();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(1, sqlSession.getMapper(Mapper.class).selectOne());
+    }
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5000);
+    assertTrue(token.isCancelled());
+  }
+
+  @Test
+  void shouldCancelQueryOfInterruptedThread() {
+    Thread caller = Thread.currentThread();
+    scheduler.schedule(caller::interrupt, 200, TimeUnit.MILLISECONDS);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertCancelled(mapper::countForever);
+      assertTrue(Thread.interrupted());
+      assertEquals(1, mapper.selectOne());
+    }
+  }
+
+  @Test
+  void shouldNotExecuteWithCancelledToken() {
+    CancellationToken token = new CancellationToken();
+    token.cancel();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        CancellationToken.Scope scope = token.bind()) {
+      PersistenceException e = assertThrows(PersistenceException.class, () -> sqlSession.getMapper(Mapper.class).selectOne());
+      assertThat(e.getCause()).isInstanceOf(QueryCancelledException.class).hasMessageContaining("not executed");
+    }
+  }
+
+  private void assertCancelled(Runnable query) {
+    PersistenceException e = assertThrows(PersistenceException.class, query::run);
+    assertThat(e.getCause()).isInstanceOf(QueryCancelledException.class);
+  }
+
+}
@@ -0,0 +1,29 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cancellable_queries;
+
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  // 一百亿行的连接，不取消时会执行很久
+  @Select("select count(*) from system_range(1, 100000) a, system_range(1, 100000) b")
+  long countForever();
+
+  @Select("select 1")
+  int selectOne();
+
+}
@@ -0,0 +1,128 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.column_index_access;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ColumnIndexAccessTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static final ColumnAccessRecorder recorder = new ColumnAccessRecorder();
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/column_index_access/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(recorder);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/column_index_access/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void clearRecorder() {
+    recorder.labelAccesses.clear();
+  }
+
+  @Test
+  void shouldReadNestedPrefixedAndDiscriminatedColumnsByIndex() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Person> people = sqlSession.getMapper(Mapper.class).getPeople();
+      assertThat(people).extracting(Person::getName).containsExactly("Alice", "Bob", "Carol");
+      assertThat(people.get(0)).isExactlyInstanceOf(Person.class);
+      assertThat(people.get(1)).isInstanceOf(Employee.class);
+      assertThat(((Employee) people.get(2)).getSalary()).isEqualTo(200);
+      assertThat(people).extracting(p -> p.getDept().getName()).containsExactly("Sales", "Dev", "Dev");
+      assertThat(recorder.labelAccesses).isEmpty();
+    }
+  }
+
+  @Test
+  void shouldReadWideRowsByIndex() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Map<String, Object>> rows = sqlSession.getMapper(Mapper.class).getWideRows();
+      assertThat(rows).hasSize(2);
+      assertThat(rows.get(1)).hasSize(16).containsEntry("C08", 9).containsEntry("C16", "p");
+      assertThat(recorder.labelAccesses).isEmpty();
+    }
+  }
+
+  @Test
+  void shouldKeepLabelAccessForCustomTypeHandlers() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Person> people = sqlSession.getMapper(Mapper.class).getPeopleWithCustomHandler();
+      assertThat(people).extracting(Person::getName).containsExactly("ALICE", "BOB", "CAROL");
+      assertThat(recorder.labelAccesses).containsOnly("getString(name)");
+    }
+  }
+
+  @Intercepts(@Signature(type = ResultSetHandler.class, method = "handleResultSets", args = Statement.class))
+  public static class ColumnAccessRecorder implements Interceptor {
+    private final List<String> labelAccesses = new ArrayList<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      Statement statement = (Statement) invocation.getArgs()[0];
+      Object[] args = { recording(Statement.class, statement) };
+      return invocation.getMethod().invoke(invocation.getTarget(), args);
+    }
+
+    private Object recording(Class<?> type, Object target) {
+      return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+        if (method.getName().startsWith("get") && args != null && args.length == 1 && args[0] instanceof String) {
+          labelAccesses.add(method.getName() + "(" + args[0] + ")");
+        }
+        Object result = invoke(method, target, args);
+        return result instanceof ResultSet ? recording(ResultSet.class, result) : result;
+      });
+    }
+
+    private Object invoke(Method method, Object target, Object[] args) throws Throwable {
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,49 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table person if exists;
+drop table dept if exists;
+drop table wide if exists;
+
+create table dept (
+  id int,
+  name varchar(20)
+);
+
+create table person (
+  id int,
+  name varchar(20),
+  kind char(1),
+  salary int,
+  dept_id int
+);
+
+create table wide (
+  c01 int, c02 int, c03 int, c04 int, c05 int, c06 int, c07 int, c08 int,
+  c09 varchar(10), c10 varchar(10), c11 varchar(10), c12 varchar(10),
+  c13 varchar(10), c14 varchar(10), c15 varchar(10), c16 varchar(10)
+);
+
+insert into dept values(1, 'Sales');
+insert into dept values(2, 'Dev');
+
+insert into person values(1, 'Alice', 'P', null, 1);
+insert into person values(2, 'Bob', 'E', 100, 2);
+insert into person values(3, 'Carol', 'E', 200, 2);
+
+insert into wide values(1, 2, 3, 4, 5, 6, 7, 8, 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h');
+insert into wide values(2, 3, 4, 5, 6, 7, 8, 9, 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p');
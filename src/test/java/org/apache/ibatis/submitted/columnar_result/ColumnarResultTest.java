@@ -0,0 +1,146 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.columnar_result;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Reader;
+import java.sql.Date;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ColumnarResult;
+import org.apache.ibatis.session.ColumnarResult.BooleanColumn;
+import org.apache.ibatis.session.ColumnarResult.DoubleColumn;
+import org.apache.ibatis.session.ColumnarResult.IntColumn;
+import org.apache.ibatis.session.ColumnarResult.LongColumn;
+import org.apache.ibatis.session.ColumnarResult.ObjectColumn;
+import org.apache.ibatis.session.ColumnarResult.StringColumn;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionException;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ColumnarResultTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/columnar_result/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/columnar_result/CreateDB.sql");
+  }
+
+  @Test
+  void shouldReadColumnsIntoVectors() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).getSales();
+      assertThat(result.getRowCount()).isEqualTo(5);
+      assertThat(result.getColumnNames()).containsExactly("ID", "REGION", "AMOUNT", "QUANTITY", "PAID", "SOLD_ON");
+
+      assertThat(result.getColumn("id", IntColumn.class).getValues()).containsExactly(1, 2, 3, 4, 5);
+
+      DoubleColumn amount = result.getColumn("amount", DoubleColumn.class);
+      assertThat(amount.getValues()).containsExactly(10.5, 20.0, 0.0, 5.25, 1.0);
+      assertThat(amount.isNull(2)).isTrue();
+      assertThat(amount.getNullCount()).isEqualTo(1);
+
+      // the int property of the result type selects the type handler of the bigint column
+      IntColumn quantity = result.getColumn("quantity", IntColumn.class);
+      assertThat(quantity.getValues()).containsExactly(3, 5, 7, 0, 1);
+      assertThat(quantity.getObject(3)).isNull();
+
+      BooleanColumn paid = result.getColumn("paid", BooleanColumn.class);
+      assertThat(paid.getBoolean(0)).isTrue();
+      assertThat(paid.getBoolean(1)).isFalse();
+      assertThat(paid.getObject(2)).isNull();
+
+      StringColumn region = result.getColumn("region", StringColumn.class);
+      assertThat(region.getDictionary()).containsExactly("north", "south");
+      assertThat(region.getCodes()).containsExactly(0, 1, 0, -1, 0);
+      assertThat(region.getString(2)).isEqualTo("north");
+      assertThat(region.getString(3)).isNull();
+
+      ObjectColumn soldOn = result.getColumn("sold_on", ObjectColumn.class);
+      assertThat(soldOn.getObject(0)).isEqualTo(Date.valueOf("2020-01-01"));
+      assertThat(soldOn.isNull(3)).isTrue();
+    }
+  }
+
+  @Test
+  void shouldUseJdbcTypesForMaps() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.selectColumns("org.apache.ibatis.submitted.columnar_result.Mapper.getSalesAsMaps", null);
+      assertThat(result.getColumn("quantity")).isInstanceOf(LongColumn.class);
+      assertThat(result.getColumn("quantity", LongColumn.class).getValues()).containsExactly(3L, 5L, 7L, 0L, 1L);
+      assertThat(result.getColumn(1)).isInstanceOf(StringColumn.class);
+    }
+  }
+
+  @Test
+  void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).getSales(new RowBounds(1, 2));
+      assertThat(result.getRowCount()).isEqualTo(2);
+      assertThat(result.getColumn("id", IntColumn.class).getValues()).containsExactly(2, 3);
+    }
+  }
+
+  @Test
+  void shouldUseTypeHandlerOfResultMap() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      StringColumn region = sqlSession.getMapper(Mapper.class).getUpperCaseRegions().getColumn("region", StringColumn.class);
+      assertThat(region.getDictionary()).containsExactly("NORTH", "SOUTH");
+    }
+  }
+
+  @Test
+  void shouldUseTypeHandlerOfSimpleResultType() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      LongColumn ids = sqlSession.getMapper(Mapper.class).getIds().getColumn("id", LongColumn.class);
+      assertThat(ids.getValues()).containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+  }
+
+  @Test
+  void shouldRejectUnknownColumnsAndTypes() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).getSales();
+      assertThatThrownBy(() -> result.getColumn("missing")).isInstanceOf(SqlSessionException.class)
+          .hasMessageContaining("no column named 'missing'");
+      assertThatThrownBy(() -> result.getColumn("id", LongColumn.class)).isInstanceOf(SqlSessionException.class)
+          .hasMessageContaining("is a IntColumn");
+    }
+  }
+
+  @Test
+  void shouldRejectNestedResultMaps() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThatThrownBy(mapper::getSalesWithRelated).isInstanceOf(PersistenceException.class)
+          .hasMessageContaining("cannot be read as columns");
+    }
+  }
+
+}
@@ -0,0 +1,33 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table sales if exists;
+
+create table sales (
+  id int,
+  region varchar(20),
+  amount double,
+  quantity bigint,
+  paid boolean,
+  sold_on date
+);
+
+insert into sales values(1, 'north', 10.5, 3, true, '2020-01-01');
+insert into sales values(2, 'south', 20.0, 5, false, '2020-01-02');
+insert into sales values(3, 'north', null, 7, null, '2020-01-03');
+insert into sales values(4, null, 5.25, null, true, null);
+insert into sales values(5, 'north', 1.0, 1, false, '2020-01-05');
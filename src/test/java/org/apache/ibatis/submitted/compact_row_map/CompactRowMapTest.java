@@ -0,0 +1,153 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compact_row_map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.resultset.RowMap;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CompactRowMapTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/compact_row_map/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/compact_row_map/CreateDB.sql");
+  }
+
+  @Test
+  void shouldMapRowsIntoRowMaps() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Map<String, Object>> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertThat(users).hasSize(3).hasOnlyElementsOfType(RowMap.class);
+
+      Map<String, Object> expected = new HashMap<>();
+      expected.put("ID", 1);
+      expected.put("NAME", "User1");
+      expected.put("EMAIL", "user1@example.com");
+      assertThat(users.get(0)).isEqualTo(expected);
+      assertThat(expected).isEqualTo(users.get(0));
+      assertThat(users.get(0).hashCode()).isEqualTo(expected.hashCode());
+      assertThat(users.get(0).keySet()).containsExactly("ID", "NAME", "EMAIL");
+    }
+  }
+
+  @Test
+  void shouldLeaveOutNullColumns() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Map<String, Object> user = sqlSession.getMapper(Mapper.class).getUsers().get(1);
+      assertThat(user).hasSize(2).containsEntry("ID", 2).containsEntry("NAME", "User2");
+      assertThat(user.containsKey("EMAIL")).isFalse();
+      assertThat(user.get("EMAIL")).isNull();
+    }
+  }
+
+  @Test
+  void shouldKeepNullColumnsWhenCallingSettersOnNulls() {
+    sqlSessionFactory.getConfiguration().setCallSettersOnNulls(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Map<String, Object> user = sqlSession.getMapper(Mapper.class).getUsers().get(1);
+      assertThat(user).hasSize(3).containsEntry("EMAIL", null);
+      assertThat(user.keySet()).containsExactly("ID", "NAME", "EMAIL");
+    } finally {
+      sqlSessionFactory.getConfiguration().setCallSettersOnNulls(false);
+    }
+  }
+
+  @Test
+  void shouldBehaveAsModifiableMap() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Map<String, Object>> users = sqlSession.getMapper(Mapper.class).getUsers();
+      Map<String, Object> user = users.get(0);
+      assertThat(user.put("NAME", "Renamed")).isEqualTo("User1");
+      assertThat(user.put("AGE", 30)).isNull();
+      assertThat(user.remove("ID")).isEqualTo(1);
+      assertThat(user.keySet()).containsExactly("NAME", "EMAIL", "AGE");
+      assertThat(user).hasSize(3).containsEntry("AGE", 30);
+
+      user.entrySet().removeIf(entry -> entry.getKey().equals("EMAIL"));
+      user.replaceAll((key, value) -> key + "=" + value);
+      assertThat(user).containsOnlyKeys("NAME", "AGE").containsEntry("NAME", "NAME=Renamed").containsEntry("AGE", "AGE=30");
+
+      // the other rows are not affected
+      assertThat(users.get(2)).hasSize(3).containsEntry("ID", 3).doesNotContainKey("AGE");
+
+      user.clear();
+      assertThat(user).isEmpty();
+    }
+  }
+
+  @Test
+  void shouldMapExplicitResultMaps() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Map<String, Object>> users = sqlSession.getMapper(Mapper.class).getMappedUsers();
+      assertThat(users).hasSize(3).hasOnlyElementsOfType(RowMap.class);
+      assertThat(users.get(2)).containsEntry("id", 3).containsEntry("name", "User3");
+    }
+  }
+
+  @Test
+  void shouldSerializeAsLinkedHashMap() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Map<String, Object> user = sqlSession.getMapper(Mapper.class).getUsers().get(0);
+      Object copy = serializeAndDeserialize(user);
+      assertThat(copy).isInstanceOf(LinkedHashMap.class).isEqualTo(user);
+    }
+  }
+
+  @Test
+  void shouldCreateHashMapsWhenDisabled() {
+    sqlSessionFactory.getConfiguration().setCompactRowMapsEnabled(false);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Map<String, Object>> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertThat(users).hasSize(3).hasOnlyElementsOfType(HashMap.class);
+    } finally {
+      sqlSessionFactory.getConfiguration().setCompactRowMapsEnabled(true);
+    }
+  }
+
+  private static Object serializeAndDeserialize(Object object) throws Exception {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(object);
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+      return ois.readObject();
+    }
+  }
+
+}
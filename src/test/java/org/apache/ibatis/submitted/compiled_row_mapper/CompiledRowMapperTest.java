@@ -0,0 +1,165 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
+import org.apache.ibatis.executor.resultset.RowMapperCompiler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CompiledRowMapperTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    sqlSessionFactory = buildFactory(true);
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/compiled_row_mapper/CreateDB.sql");
+    CountingTypeHandler.reset();
+    PrimitiveLongTypeHandler.reset();
+  }
+
+  private static SqlSessionFactory buildFactory(boolean compiledRowMappersEnabled) throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/compiled_row_mapper/mybatis-config.xml")) {
+      SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(reader);
+      factory.getConfiguration().setCompiledRowMappersEnabled(compiledRowMappersEnabled);
+      return factory;
+    }
+  }
+
+  @Test
+  void shouldMapExplicitAndAutomaticProperties() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertThat(users).extracting(User::getId).containsExactly(1, 2, 3);
+      assertThat(users).extracting(User::getUserName).containsExactly("User1", "User2", "User3");
+      // null columns leave primitive properties untouched
+      assertThat(users).extracting(User::getScore).containsExactly(10L, 0L, 30L);
+      assertThat(users).extracting(User::getRating).containsExactly(1.5, 2.5, 0.0);
+      assertThat(users).extracting(User::isActive).containsExactly(true, false, true);
+      assertThat(users).extracting(User::getNickname).containsExactly("one", null, "three");
+      assertThat(users).extracting(User::getLabel).containsExactly("a", "b", null);
+    }
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedRowMappers() {
+    RowMapperCompiler compiler = new RowMapperCompiler(sqlSessionFactory.getConfiguration(), 2);
+    CacheKey first = new CacheKey(new Object[] { "first" });
+    CacheKey second = new CacheKey(new Object[] { "second" });
+    CompiledRowMapper firstMapper = compiler.compile(first, User.class, Collections.emptyList());
+    compiler.compile(second, User.class, Collections.emptyList());
+    assertThat(compiler.getRowMapper(first)).isSameAs(firstMapper);
+
+    compiler.compile(new CacheKey(new Object[] { "third" }), User.class, Collections.emptyList());
+    assertThat(compiler.size()).isEqualTo(2);
+    assertThat(compiler.getRowMapper(first)).isSameAs(firstMapper);
+    assertThat(compiler.getRowMapper(second)).isNull();
+  }
+
+  @Test
+  void shouldReadCustomHandlersByNameOnceCompiled() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getUsers();
+      assertThat(CountingTypeHandler.byName.get()).isEqualTo(3);
+
+      // custom handlers may implement only the label based getter, so the compiled mapper keeps using the label
+      mapper.getUsers();
+      assertThat(CountingTypeHandler.byName.get()).isEqualTo(6);
+      assertThat(CountingTypeHandler.byIndex.get()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  void shouldMapLabelOnlyHandlerOnceCompiled() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.getUpperCaseNames()).extracting(User::getUserName).containsExactly("USER1", "USER2", "USER3");
+      assertThat(mapper.getUpperCaseNames()).extracting(User::getUserName).containsExactly("USER1", "USER2", "USER3");
+    }
+  }
+
+  @Test
+  void shouldMapRowsFetchedThroughCursor() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = new ArrayList<>();
+      try (Cursor<User> cursor = sqlSession.getMapper(Mapper.class).getUserCursor()) {
+        cursor.forEach(users::add);
+      }
+      assertThat(users).extracting(User::getLabel).containsExactly("a", "b", null);
+      assertThat(CountingTypeHandler.byName.get()).isEqualTo(3);
+      assertThat(CountingTypeHandler.byIndex.get()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  void shouldMatchReflectivePath() throws Exception {
+    SqlSessionFactory reflectiveFactory = buildFactory(false);
+    List<User> expected;
+    try (SqlSession sqlSession = reflectiveFactory.openSession()) {
+      expected = sqlSession.getMapper(Mapper.class).getUsersByResultType();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getUsersByResultType();
+      List<User> actual = mapper.getUsersByResultType();
+      assertThat(actual).usingFieldByFieldElementComparator().containsExactlyElementsOf(expected);
+    }
+  }
+
+  @Test
+  void shouldReadPrimitiveColumnsWithoutBoxing() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.getScores()).extracting(User::getScore).containsExactly(10L, 0L, 30L);
+      // the first row goes through the reflective path
+      assertThat(PrimitiveLongTypeHandler.boxed.get()).isEqualTo(1);
+      assertThat(PrimitiveLongTypeHandler.primitive.get()).isEqualTo(2);
+
+      // a null column leaves the primitive property untouched
+      assertThat(mapper.getScores()).extracting(User::getScore).containsExactly(10L, 0L, 30L);
+      assertThat(PrimitiveLongTypeHandler.boxed.get()).isEqualTo(1);
+      assertThat(PrimitiveLongTypeHandler.primitive.get()).isEqualTo(5);
+    }
+  }
+
+  @Test
+  void shouldKeepBoxedPathForHandlersOverridingOnlyNullableResult() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getScaledScores();
+      assertThat(mapper.getScaledScores()).extracting(User::getScore).containsExactly(1000L, 0L, 3000L);
+    }
+  }
+
+}
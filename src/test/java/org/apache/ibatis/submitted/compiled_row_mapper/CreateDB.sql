@@ -0,0 +1,32 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table users if exists;
+
+create table users (
+  id int,
+  user_name varchar(20),
+  score bigint,
+  rating double,
+  active boolean,
+  nickname varchar(20),
+  label varchar(20)
+);
+
+insert into users values(1, 'User1', 10, 1.5, true, 'one', 'a');
+insert into users values(2, 'User2', null, 2.5, false, null, 'b');
+insert into users values(3, 'User3', 30, null, true, 'three', null);
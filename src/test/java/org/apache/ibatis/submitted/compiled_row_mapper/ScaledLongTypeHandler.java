@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.type.LongTypeHandler;
+
+/**
+ * Overrides only the boxed getters, so the primitive path must not be used.
+ */
+public class ScaledLongTypeHandler extends LongTypeHandler {
+
+  @Override
+  public Long getNullableResult(ResultSet rs, String columnName) throws SQLException {
+    Long result = super.getNullableResult(rs, columnName);
+    return result == null ? null : result * 100;
+  }
+
+  @Override
+  public Long getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+    Long result = super.getNullableResult(rs, columnIndex);
+    return result == null ? null : result * 100;
+  }
+
+}
@@ -0,0 +1,29 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table items if exists;
+
+create table items (
+  id int primary key,
+  category varchar(20),
+  quantity int
+);
+
+insert into items (id, category, quantity) values (1, 'fruit', 0);
+insert into items (id, category, quantity) values (2, 'fruit', 0);
+insert into items (id, category, quantity) values (3, 'fruit', 0);
+insert into items (id, category, quantity) values (4, 'tool', 0);
@@ -0,0 +1,228 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.group_commit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GroupCommitTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final PrepareCounter prepareCounter = new PrepareCounter();
+  private final ExecutorService threads = Executors.newCachedThreadPool();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/group_commit/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(prepareCounter);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/group_commit/CreateDB.sql");
+  }
+
+  @AfterEach
+  void tearDown() {
+    threads.shutdownNow();
+  }
+
+  @Test
+  void shouldGroupConcurrentInsertsIntoFewTransactions() throws Exception {
+    sqlSessionFactory.getConfiguration().setGroupCommitMaxBatchSize(10);
+    List<Callable<Integer>> inserts = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      final int id = 100 + i;
+      inserts.add(() -> insert(id));
+    }
+    assertThat(runConcurrently(inserts)).containsOnly(1);
+    assertThat(countItems()).isEqualTo(24);
+    // 每组只预编译一次语句，组已满时立即执行
+    assertThat(prepareCounter.count.get()).isBetween(2, 19);
+  }
+
+  @Test
+  void shouldReturnEachCallersOwnUpdateCount() throws Exception {
+    List<Callable<Integer>> updates = new ArrayList<>();
+    updates.add(() -> increment("fruit"));
+    updates.add(() -> increment("tool"));
+    updates.add(() -> increment("none"));
+    assertThat(runConcurrently(updates)).containsExactly(3, 1, 0);
+    assertThat(prepareCounter.count.get()).isLessThan(3);
+  }
+
+  @Test
+  void shouldIsolateFailingWriteFromItsGroup() throws Exception {
+    List<Callable<Integer>> inserts = new ArrayList<>();
+    inserts.add(() -> insert(1));
+    inserts.add(() -> insert(5));
+    CyclicBarrier barrier = new CyclicBarrier(inserts.size());
+    List<Future<Integer>> results = new ArrayList<>();
+    for (Callable<Integer> insert : inserts) {
+      results.add(threads.submit(() -> {
+        barrier.await();
+        return insert.call();
+      }));
+    }
+    // 重复的主键只让自己失败，同组的写操作仍然提交
+    assertThatThrownBy(() -> results.get(0).get()).isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(PersistenceException.class);
+    assertThat(results.get(1).get()).isEqualTo(1);
+    assertThat(countItems()).isEqualTo(5);
+  }
+
+  @Test
+  void shouldNotRetryWritesWhenTheCommitFails() throws Exception {
+    Environment environment = sqlSessionFactory.getConfiguration().getEnvironment();
+    FailingCommitTransactionFactory transactionFactory = new FailingCommitTransactionFactory();
+    sqlSessionFactory.getConfiguration().setEnvironment(
+        new Environment(environment.getId(), transactionFactory, environment.getDataSource()));
+    sqlSessionFactory.getConfiguration().setGroupCommitMaxBatchSize(2);
+    transactionFactory.failNextCommit.set(true);
+
+    List<Callable<Integer>> inserts = new ArrayList<>();
+    inserts.add(() -> insert(5));
+    inserts.add(() -> insert(6));
+    CyclicBarrier barrier = new CyclicBarrier(inserts.size());
+    List<Future<Integer>> results = new ArrayList<>();
+    for (Callable<Integer> insert : inserts) {
+      results.add(threads.submit(() -> {
+        barrier.await();
+        return insert.call();
+      }));
+    }
+    // 提交的结果不确定，逐条重试会重复执行已经生效的写操作，所以每个调用方都得到提交的异常
+    for (Future<Integer> result : results) {
+      assertThatThrownBy(result::get).isInstanceOf(ExecutionException.class)
+          .hasCauseInstanceOf(PersistenceException.class)
+          .hasMessageContaining("Connection lost after commit");
+    }
+    assertThat(countItems()).isEqualTo(6);
+  }
+
+  @Test
+  void shouldNotGroupWritesOfTransactionalSessions() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).insertItem(5, "tool")).isEqualTo(1);
+      sqlSession.rollback();
+    }
+    assertThat(countItems()).isEqualTo(4);
+  }
+
+  private int insert(int id) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      return sqlSession.getMapper(Mapper.class).insertItem(id, "tool");
+    }
+  }
+
+  private int increment(String category) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      return sqlSession.getMapper(Mapper.class).incrementCategory(category);
+    }
+  }
+
+  private int countItems() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(Mapper.class).countItems();
+    }
+  }
+
+  private List<Integer> runConcurrently(List<Callable<Integer>> tasks) throws Exception {
+    CyclicBarrier barrier = new CyclicBarrier(tasks.size());
+    List<Future<Integer>> futures = new ArrayList<>();
+    for (Callable<Integer> task : tasks) {
+      futures.add(threads.submit(() -> {
+        barrier.await();
+        return task.call();
+      }));
+    }
+    List<Integer> results = new ArrayList<>();
+    for (Future<Integer> future : futures) {
+      results.add(future.get());
+    }
+    return results;
+  }
+
+  @Intercepts({ @Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }) })
+  private static class PrepareCounter implements Interceptor {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      count.incrementAndGet();
+      return invocation.proceed();
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+  private static class FailingCommitTransactionFactory extends JdbcTransactionFactory {
+    private final AtomicBoolean failNextCommit = new AtomicBoolean();
+
+    @Override
+    public Transaction newTransaction(DataSource ds, TransactionIsolationLevel level, boolean autoCommit) {
+      return new JdbcTransaction(ds, level, autoCommit) {
+        @Override
+        public void commit() throws SQLException {
+          super.commit();
+          if (!autoCommit && failNextCommit.compareAndSet(true, false)) {
+            throw new SQLException("Connection lost after commit");
+          }
+        }
+      };
+    }
+  }
+
+}
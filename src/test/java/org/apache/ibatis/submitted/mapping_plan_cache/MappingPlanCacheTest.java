@@ -0,0 +1,96 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.mapping_plan_cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.resultset.MappingPlanCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MappingPlanCacheTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/mapping_plan_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/mapping_plan_cache/CreateDB.sql");
+  }
+
+  @Test
+  void shouldReusePlanAcrossExecutions() {
+    MappingPlanCache planCache = sqlSessionFactory.getConfiguration().getMappingPlanCache();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getUsers();
+      int plans = planCache.size();
+      assertThat(plans).isPositive();
+
+      List<User> users = mapper.getUsers();
+      assertThat(planCache.size()).isEqualTo(plans);
+      assertThat(users).extracting(User::getId).containsExactly(1, 2);
+
+      // a different column layout gets its own plan
+      mapper.getUserIds();
+      assertThat(planCache.size()).isGreaterThan(plans);
+    }
+  }
+
+  @Test
+  void shouldReplanWhenCamelCaseMappingChanges() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.getUsers()).extracting(User::getUserName).containsOnlyNulls();
+
+      sqlSession.getConfiguration().setMapUnderscoreToCamelCase(true);
+      assertThat(mapper.getUsers()).extracting(User::getUserName).containsExactly("User1", "User2");
+    }
+  }
+
+  @Test
+  void shouldApplyUnknownColumnBehaviorOnEveryExecution() {
+    sqlSessionFactory.getConfiguration().setMapUnderscoreToCamelCase(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.getUsersWithExtra()).hasSize(2);
+
+      sqlSession.getConfiguration().setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.FAILING);
+      for (int i = 0; i < 2; i++) {
+        assertThatThrownBy(mapper::getUsersWithExtra)
+            .isInstanceOf(PersistenceException.class)
+            .hasMessageContaining("Unknown column is detected")
+            .hasMessageContaining("columnName=EXTRA");
+      }
+    }
+  }
+
+}
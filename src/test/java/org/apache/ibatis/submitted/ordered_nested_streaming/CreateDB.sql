@@ -0,0 +1,50 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table child if exists;
+drop table parent if exists;
+
+create table parent (
+  id int,
+  name varchar(20)
+);
+
+create table child (
+  id int,
+  parent_id int,
+  seq int,
+  name varchar(20)
+);
+
+insert into parent values(1, 'p1');
+insert into parent values(2, 'p2');
+
+-- rows of parent 1 are not contiguous when ordered by seq
+insert into child values(1, 1, 1, 'c1');
+insert into child values(2, 1, 2, 'c2');
+insert into child values(3, 2, 3, 'c3');
+insert into child values(4, 1, 4, 'c4');
+
+-- parents with more children than the retained key capacity
+insert into parent values(10, 'p10');
+insert into parent values(11, 'p11');
+insert into parent values(12, 'p12');
+
+insert into child (id, parent_id, seq, name)
+  select p.id * 1000 + t.n, p.id, p.id * 1000 + t.n, 'c' || (p.id * 1000 + t.n)
+  from parent p, unnest(sequence_array(1, 300, 1)) as t(n)
+  where p.id >= 10;
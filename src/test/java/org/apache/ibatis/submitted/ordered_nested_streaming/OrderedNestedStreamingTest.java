@@ -0,0 +1,89 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.ordered_nested_streaming;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class OrderedNestedStreamingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/ordered_nested_streaming/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/ordered_nested_streaming/CreateDB.sql");
+  }
+
+  @Test
+  void shouldHandOverCompletedParentsToResultHandler() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Integer> ids = new ArrayList<>();
+      List<Integer> childCounts = new ArrayList<>();
+      sqlSession.getMapper(Mapper.class).streamParents(10, context -> {
+        // all children are linked before the parent reaches the handler
+        ids.add(context.getResultObject().getId());
+        childCounts.add(context.getResultObject().getChildren().size());
+      });
+      assertThat(ids).containsExactly(10, 11, 12);
+      assertThat(childCounts).containsExactly(300, 300, 300);
+    }
+  }
+
+  @Test
+  void shouldHandOverCompletedParentsToCursor() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Parent> parents = new ArrayList<>();
+      try (Cursor<Parent> cursor = sqlSession.getMapper(Mapper.class).getParentCursor(10)) {
+        cursor.forEach(parents::add);
+      }
+      assertThat(parents).extracting(Parent::getId).containsExactly(10, 11, 12);
+      assertThat(parents).allSatisfy(parent -> {
+        assertThat(parent.getChildren()).hasSize(300);
+        assertThat(parent.getChildren().get(0).getId()).isEqualTo(parent.getId() * 1000 + 1);
+      });
+    }
+  }
+
+  @Test
+  void shouldForgetCompletedParentsWhenResultOrdered() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Parent> parents = sqlSession.getMapper(Mapper.class).getParentsBySeq();
+      // the row keys of parent 1 are evicted once parent 2 starts, so its last row creates a new parent
+      assertThat(parents).extracting(Parent::getId).containsExactly(1, 2, 1);
+      assertThat(parents.get(0).getChildren()).extracting(Child::getName).containsExactly("c1", "c2");
+      assertThat(parents.get(1).getChildren()).extracting(Child::getName).containsExactly("c3");
+      assertThat(parents.get(2).getChildren()).extracting(Child::getName).containsExactly("c4");
+    }
+  }
+
+}
@@ -0,0 +1,34 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.page_count;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.session.Page;
+import org.apache.ibatis.session.RowBounds;
+
+public interface Mapper {
+
+  @Select({ "<script>",
+      "select id, name from users",
+      "<where><if test='minId != null'>id &gt;= #{minId}</if></where>",
+      "order by id",
+      "</script>" })
+  Page<User> getUsers(@Param("minId") Integer minId, RowBounds rowBounds);
+
+  Page<User> getUsersWithNext(RowBounds rowBounds);
+
+}
@@ -0,0 +1,162 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.page_count;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.Page;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PageCountTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static final SqlRecorder recorder = new SqlRecorder();
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/page_count/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(recorder);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/page_count/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void clearRecorder() {
+    recorder.sqls.clear();
+  }
+
+  @Test
+  void shouldReturnPageWithTotal() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Page<User> page = sqlSession.getMapper(Mapper.class).getUsers(2, new RowBounds(2, 2));
+      assertIds(page, 4, 5);
+      assertEquals(6, page.getTotal());
+      assertTrue(page.hasNext());
+      assertEquals(2, recorder.sqls.size());
+      String countSql = recorder.sqls.get(1);
+      assertTrue(countSql.startsWith("select count(*) from (select id, name from users"));
+      assertFalse(countSql.contains("order by"));
+    }
+  }
+
+  @Test
+  void shouldInferTotalFromLastPage() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Page<User> page = sqlSession.getMapper(Mapper.class).getUsers(2, new RowBounds(4, 10));
+      assertIds(page, 6, 7);
+      assertEquals(6, page.getTotal());
+      assertFalse(page.hasNext());
+      assertEquals(1, recorder.sqls.size());
+    }
+  }
+
+  @Test
+  void shouldCountWhenPageIsBeyondLastRow() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Page<User> page = sqlSession.getMapper(Mapper.class).getUsers(null, new RowBounds(10, 5));
+      assertIds(page);
+      assertEquals(7, page.getTotal());
+      assertEquals(2, recorder.sqls.size());
+    }
+  }
+
+  @Test
+  void shouldSelectPageThroughSqlSession() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Page<User> page = sqlSession.selectPage("org.apache.ibatis.submitted.page_count.Mapper.getUsers",
+          Collections.singletonMap("minId", 3), new RowBounds(0, 3));
+      assertIds(page, 3, 4, 5);
+      assertEquals(5, page.getTotal());
+    }
+  }
+
+  @Test
+  void shouldCountConcurrently() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setConcurrentPageCountEnabled(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Page<User> page = sqlSession.getMapper(Mapper.class).getUsers(null, new RowBounds(0, 2));
+      assertIds(page, 1, 2);
+      assertEquals(7, page.getTotal());
+    } finally {
+      configuration.setConcurrentPageCountEnabled(false);
+    }
+  }
+
+  @Test
+  void shouldReuseDerivedCountStatement() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    MappedStatement ms = configuration.getMappedStatement("org.apache.ibatis.submitted.page_count.Mapper.getUsers");
+    MappedStatement countMs = configuration.getCountStatementRegistry().getCountStatement(ms);
+    assertEquals(ms.getId() + "!count", countMs.getId());
+    assertSame(countMs, configuration.getCountStatementRegistry().getCountStatement(ms));
+  }
+
+  @Test
+  void shouldRejectStatementsWithNestedResultMaps() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      PersistenceException e = assertThrows(PersistenceException.class,
+          () -> mapper.getUsersWithNext(new RowBounds(0, 2)));
+      assertTrue(e.getMessage().contains("nested result maps"));
+    }
+  }
+
+  private static void assertIds(Page<User> page, int... ids) {
+    assertEquals(ids.length, page.getItems().size());
+    for (int i = 0; i < ids.length; i++) {
+      assertEquals(ids[i], page.getItems().get(i).getId().intValue());
+    }
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+  public static class SqlRecorder implements Interceptor {
+    private final List<String> sqls = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      sqls.add(((StatementHandler) invocation.getTarget()).getBoundSql().getSql());
+      return invocation.proceed();
+    }
+  }
+
+}
@@ -0,0 +1,181 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_reads;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ParallelReads;
+import org.apache.ibatis.session.ReadConsistency;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelReadsTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final ThreadRecorder recorder = new ThreadRecorder();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parallel_reads/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(recorder);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/parallel_reads/CreateDB.sql");
+  }
+
+  @Test
+  void shouldExecuteIndependentReadsConcurrently() {
+    // 两个查询都到达屏障才能继续，依次执行时会超时
+    recorder.barrier = new CyclicBarrier(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+         ParallelReads reads = sqlSession.parallelReads()) {
+      CompletableFuture<Order> order = reads.submit(OrderMapper.class, mapper -> mapper.find(1));
+      CompletableFuture<List<OrderItem>> items = reads.submit(OrderItemMapper.class, mapper -> mapper.findByOrderId(1));
+      reads.awaitAll();
+
+      assertThat(reads.isParallel()).isTrue();
+      assertThat(order.join().getCustomer()).isEqualTo("alice");
+      assertThat(items.join()).extracting(OrderItem::getProduct).containsExactly("apple", "pear");
+      assertThat(recorder.threads).hasSize(2).doesNotContain(Thread.currentThread().getName());
+    }
+  }
+
+  @Test
+  void shouldReadOnCallingThreadWhenAllQueryThreadsAreBusy() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setQueryTaskThreads(1);
+    // 第一个查询占用唯一的线程并等待第二个查询，第二个查询只能在调用线程上执行
+    recorder.barrier = new CyclicBarrier(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+         ParallelReads reads = sqlSession.parallelReads()) {
+      CompletableFuture<Order> order = reads.submit(OrderMapper.class, mapper -> mapper.find(1));
+      CompletableFuture<List<OrderItem>> items = reads.submit(OrderItemMapper.class, mapper -> mapper.findByOrderId(1));
+      reads.awaitAll();
+
+      assertThat(order.join().getCustomer()).isEqualTo("alice");
+      assertThat(items.join()).hasSize(2);
+      assertThat(recorder.threads).hasSize(2).contains(Thread.currentThread().getName());
+    }
+
+    ExecutorService executor = configuration.getQueryTaskExecutor();
+    configuration.shutdownQueryTaskExecutor();
+    assertThat(executor.isShutdown()).isTrue();
+    assertThat(configuration.getQueryTaskExecutor()).isNotSameAs(executor);
+    configuration.shutdownQueryTaskExecutor();
+  }
+
+  @Test
+  void shouldNotShutDownQueryTaskExecutorSetByApplication() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      configuration.setQueryTaskExecutor(executor);
+      configuration.shutdownQueryTaskExecutor();
+      assertThat(executor.isShutdown()).isFalse();
+      assertThat(configuration.getQueryTaskExecutor()).isSameAs(executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void shouldReadInCurrentSessionWhenItHasUncommittedChanges() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(OrderMapper.class).insert(new Order(2, "bob"));
+      try (ParallelReads reads = sqlSession.parallelReads()) {
+        CompletableFuture<Order> order = reads.submit(OrderMapper.class, mapper -> mapper.find(2));
+        reads.awaitAll();
+
+        assertThat(reads.isParallel()).isFalse();
+        assertThat(order.join().getCustomer()).isEqualTo("bob");
+      }
+      sqlSession.rollback();
+    }
+  }
+
+  @Test
+  void shouldReadSequentiallyWhenSnapshotsCannotBeShared() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+         ParallelReads reads = sqlSession.parallelReads(ReadConsistency.SNAPSHOT)) {
+      CompletableFuture<List<OrderItem>> items = reads.selectList(
+          "org.apache.ibatis.submitted.parallel_reads.OrderItemMapper.findByOrderId", 1);
+      reads.awaitAll();
+
+      assertThat(reads.isParallel()).isFalse();
+      assertThat(items.join()).hasSize(2);
+      assertThat(recorder.threads).containsExactly(Thread.currentThread().getName());
+    }
+  }
+
+  @Test
+  void shouldRethrowFailedRead() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+         ParallelReads reads = sqlSession.parallelReads()) {
+      CompletableFuture<Order> order = reads.selectOne("org.apache.ibatis.submitted.parallel_reads.OrderMapper.find", 1);
+      reads.selectList("unknownStatement", null);
+      assertThatThrownBy(reads::awaitAll).isInstanceOf(PersistenceException.class)
+          .hasMessageContaining("unknownStatement");
+      assertThat(order.join().getCustomer()).isEqualTo("alice");
+    }
+  }
+
+  @Intercepts({ @Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }) })
+  private static class ThreadRecorder implements Interceptor {
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+    private volatile CyclicBarrier barrier;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      threads.add(Thread.currentThread().getName());
+      if (barrier != null) {
+        barrier.await(5, TimeUnit.SECONDS);
+      }
+      return invocation.proceed();
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+}
@@ -0,0 +1,30 @@
+--
+--    Copyright 2009-2020 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table item if exists;
+
+create table item (
+  id int,
+  name varchar(20),
+  price double,
+  active boolean
+);
+
+insert into item (id, name, price, active)
+  select t.n, 'item' || t.n, t.n * 0.5, case when mod(t.n, 2) = 0 then true else false end
+  from unnest(sequence_array(1, 1000, 1)) as t(n);
+
+update item set name = null, price = null, active = null where id = 7;
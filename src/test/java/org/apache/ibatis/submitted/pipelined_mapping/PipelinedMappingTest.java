@@ -0,0 +1,219 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.pipelined_mapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class PipelinedMappingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/pipelined_mapping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/pipelined_mapping/CreateDB.sql");
+  }
+
+  @Test
+  void shouldMapRowsInOrderOnWorkerThreads() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).getItems();
+      assertThat(items).hasSize(1000);
+      for (int i = 0; i < items.size(); i++) {
+        assertItem(items.get(i), i + 1);
+      }
+      // only the row that compiles the row mapper of the first execution is mapped on the calling thread
+      assertThat(items.subList(1, items.size())).allMatch(item -> item.mappedBy().startsWith("mybatis-query-"));
+    }
+  }
+
+  @Test
+  void shouldMapNullColumns() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Item item = sqlSession.getMapper(Mapper.class).getItems().get(6);
+      assertThat(item.getId()).isEqualTo(7);
+      assertThat(item.getName()).isNull();
+      assertThat(item.getPrice()).isEqualTo(0.0);
+      assertThat(item.getActive()).isNull();
+    }
+  }
+
+  @Test
+  void shouldNotReadBeyondRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).getItems(new RowBounds(100, 50));
+      assertThat(items).hasSize(50);
+      assertThat(items.get(0).getId()).isEqualTo(101);
+      assertThat(items.get(49).getId()).isEqualTo(150);
+    }
+  }
+
+  @Test
+  void shouldKeepMappedRowsBetweenCursorFetches() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = new ArrayList<>();
+      try (Cursor<Item> cursor = sqlSession.getMapper(Mapper.class).getItemCursor()) {
+        Iterator<Item> iterator = cursor.iterator();
+        while (iterator.hasNext()) {
+          items.add(iterator.next());
+        }
+        assertThat(cursor.isConsumed()).isTrue();
+        assertThat(cursor.getCurrentIndex()).isEqualTo(999);
+      }
+      assertThat(items).hasSize(1000);
+      for (int i = 0; i < items.size(); i++) {
+        assertItem(items.get(i), i + 1);
+      }
+    }
+  }
+
+  @Test
+  void shouldCancelPendingBatchesWhenCursorClosesEarly() throws Exception {
+    HoldingExecutor executor = new HoldingExecutor();
+    sqlSessionFactory.getConfiguration().setQueryTaskExecutor(executor);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      try (Cursor<Item> cursor = sqlSession.getMapper(Mapper.class).getItemCursor()) {
+        Iterator<Item> iterator = cursor.iterator();
+        assertItem(iterator.next(), 1);
+        assertItem(iterator.next(), 2);
+      }
+      // the cursor stopped early, so the batches read ahead are no longer mapped
+      assertThat(executor.held).isNotEmpty();
+      assertThat(executor.held).allMatch(task -> ((Future<?>) task).isCancelled());
+    } finally {
+      sqlSessionFactory.getConfiguration().setQueryTaskExecutor(null);
+    }
+  }
+
+  @Test
+  void shouldStopWhenResultHandlerStops() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = new ArrayList<>();
+      sqlSession.getMapper(Mapper.class).streamItems(context -> {
+        items.add(context.getResultObject());
+        if (items.size() == 40) {
+          context.stop();
+        }
+      });
+      assertThat(items).hasSize(40);
+      for (int i = 0; i < items.size(); i++) {
+        assertItem(items.get(i), i + 1);
+      }
+    }
+  }
+
+  @Test
+  void shouldRethrowMappingFailureOnCallingThread() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThatThrownBy(mapper::getItemsWithRejectedName)
+          .isInstanceOf(PersistenceException.class)
+          .hasMessageContaining("Could not set property 'name'")
+          .hasMessageContaining("Rejected name of item 500");
+    }
+  }
+
+  @Test
+  void shouldReadCustomHandlersByLabelOnWorkerThreads() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getItemsWithUpperCaseNames();
+      // the second execution pipelines every row with the compiled row mapper
+      List<Item> items = mapper.getItemsWithUpperCaseNames();
+      assertThat(items).hasSize(1000);
+      assertThat(items).allMatch(item -> item.mappedBy().startsWith("mybatis-query-"));
+      assertThat(items.get(0).getName()).isEqualTo("ITEM1");
+      assertThat(items.get(6).getName()).isNull();
+      assertThat(items.get(999).getName()).isEqualTo("ITEM1000");
+    }
+  }
+
+  /**
+   * Runs the first task on the submitting thread and holds back the others.
+   */
+  private static class HoldingExecutor extends AbstractExecutorService {
+    private final List<Runnable> held = new CopyOnWriteArrayList<>();
+    private boolean ranFirst;
+
+    @Override
+    public void execute(Runnable command) {
+      if (ranFirst) {
+        held.add(command);
+      } else {
+        ranFirst = true;
+        command.run();
+      }
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return new ArrayList<>(held);
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return false;
+    }
+  }
+
+  private static void assertItem(Item item, int id) {
+    assertThat(item.getId()).isEqualTo(id);
+    if (id != 7) {
+      assertThat(item.getName()).isEqualTo("item" + id);
+      assertThat(item.getPrice()).isEqualTo(id * 0.5);
+      assertThat(item.getActive()).isEqualTo(id % 2 == 0);
+    }
+  }
+
+}
@@ -0,0 +1,251 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.query_coalescing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class QueryCoalescingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static final BlockingStatementCounter counter = new BlockingStatementCounter();
+
+  private ExecutorService threads;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/query_coalescing/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(counter);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/query_coalescing/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void reset() {
+    counter.count.set(0);
+    counter.gate = null;
+    threads = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    threads.shutdownNow();
+  }
+
+  @Test
+  void shouldExecuteConcurrentIdenticalSelectsOnce() throws Exception {
+    List<List<User>> results = selectConcurrently(this::selectUsers);
+    List<User> leaderUsers = results.get(0);
+    List<User> followerUsers = results.get(1);
+    assertEquals(1, counter.count.get());
+    assertEquals(2, leaderUsers.size());
+    assertNotSame(leaderUsers, followerUsers);
+    for (int i = 0; i < leaderUsers.size(); i++) {
+      // the follower gets its own copy of every result object
+      assertNotSame(leaderUsers.get(i), followerUsers.get(i));
+      assertEquals(leaderUsers.get(i).getId(), followerUsers.get(i).getId());
+      assertEquals(leaderUsers.get(i).getName(), followerUsers.get(i).getName());
+    }
+  }
+
+  @Test
+  void shouldExecuteSelectAgainWhenResultsAreNotSerializable() throws Exception {
+    List<List<Name>> results = selectConcurrently(this::selectNames);
+    assertEquals(2, counter.count.get());
+    assertEquals(2, results.get(1).size());
+    assertNotSame(results.get(0).get(0), results.get(1).get(0));
+  }
+
+  private <T> List<T> selectConcurrently(Callable<T> select) throws Exception {
+    CountDownLatch gate = new CountDownLatch(1);
+    counter.gate = gate;
+
+    Future<T> leader = threads.submit(select);
+    waitUntil(() -> counter.count.get() == 1);
+
+    Thread[] followerThread = new Thread[1];
+    Future<T> follower = threads.submit(() -> {
+      followerThread[0] = Thread.currentThread();
+      return select.call();
+    });
+    waitUntil(() -> followerThread[0] != null && followerThread[0].getState() == Thread.State.WAITING);
+    // the follower's own select must not block
+    counter.gate = null;
+    gate.countDown();
+
+    return Arrays.asList(leader.get(10, TimeUnit.SECONDS), follower.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void shouldNotCoalesceSelectKeys() throws Exception {
+    List<Integer> ids = selectSeparately(this::insertUser, this::insertUser);
+    assertNotEquals(ids.get(0), ids.get(1));
+  }
+
+  @Test
+  void shouldNotCoalesceLockingReads() throws Exception {
+    selectSeparately(this::selectUsersForUpdate, this::selectUsersForUpdate);
+  }
+
+  @Test
+  void shouldNotCoalesceStatementsFlushingCache() throws Exception {
+    selectSeparately(this::selectUsersFlushingCache, this::selectUsersFlushingCache);
+  }
+
+  @Test
+  void shouldNotCoalesceReadsOfStartedTransaction() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getNames();
+      counter.count.set(0);
+      List<List<User>> results = selectSeparately(this::selectUsers, mapper::getUsers);
+      assertEquals(2, results.get(1).size());
+    }
+  }
+
+  /**
+   * 第一个查询在数据库前等待时执行第二个查询，第二个查询必须自己访问数据库
+   */
+  private <T> List<T> selectSeparately(Callable<T> first, Callable<T> second) throws Exception {
+    CountDownLatch gate = new CountDownLatch(1);
+    counter.gate = gate;
+
+    Future<T> firstResult = threads.submit(first);
+    waitUntil(() -> counter.count.get() == 1);
+    Future<T> secondResult = threads.submit(second);
+    waitUntil(() -> counter.count.get() == 2);
+    counter.gate = null;
+    gate.countDown();
+
+    return Arrays.asList(firstResult.get(10, TimeUnit.SECONDS), secondResult.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void shouldNotCoalesceSequentialSelects() {
+    selectUsers();
+    selectUsers();
+    assertEquals(2, counter.count.get());
+  }
+
+  @Test
+  void shouldSeeOwnUncommittedWrites() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User user = new User();
+      user.setId(1);
+      user.setName("Changed");
+      mapper.updateName(user);
+      assertEquals("Changed", mapper.getUsers().get(0).getName());
+      sqlSession.rollback();
+    }
+    assertEquals("User1", selectUsers().get(0).getName());
+  }
+
+  private List<User> selectUsers() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(Mapper.class).getUsers();
+    }
+  }
+
+  private List<User> selectUsersForUpdate() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(Mapper.class).getUsersForUpdate();
+    }
+  }
+
+  private List<User> selectUsersFlushingCache() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(Mapper.class).getUsersFlushingCache();
+    }
+  }
+
+  private Integer insertUser() {
+    // 会话关闭时回滚插入的行，键值来自序列，不会回滚
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      User user = new User();
+      user.setName("New");
+      sqlSession.getMapper(Mapper.class).insert(user);
+      return user.getId();
+    }
+  }
+
+  private List<Name> selectNames() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(Mapper.class).getNames();
+    }
+  }
+
+  private static void waitUntil(Condition condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!condition.isMet()) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("Timed out waiting for condition");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private interface Condition {
+    boolean isMet();
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+  public static class BlockingStatementCounter implements Interceptor {
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile CountDownLatch gate;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      count.incrementAndGet();
+      CountDownLatch latch = gate;
+      if (latch != null) {
+        latch.await(10, TimeUnit.SECONDS);
+      }
+      return invocation.proceed();
+    }
+  }
+
+}
@@ -0,0 +1,155 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.read_write_splitting;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ReadWriteSplittingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/read_write_splitting/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    Environment environment = sqlSessionFactory.getConfiguration().getEnvironment();
+    BaseDataTest.runScript(environment.getDataSource(),
+        "org/apache/ibatis/submitted/read_write_splitting/CreateDB.sql");
+    for (int i = 0; i < environment.getReplicaDataSources().size(); i++) {
+      DataSource replica = environment.getReplicaDataSources().get(i);
+      BaseDataTest.runScript(replica, "org/apache/ibatis/submitted/read_write_splitting/CreateDB.sql");
+      // 副本中的数据与主库不同，以便区分查询发送到了哪里
+      try (Connection conn = replica.getConnection(); Statement stmt = conn.createStatement()) {
+        stmt.executeUpdate("update users set name = 'Replica" + (i + 1) + "'");
+      }
+    }
+  }
+
+  @Test
+  void shouldSpreadReadsOverReplicas() {
+    Set<String> names = new HashSet<>();
+    for (int i = 0; i < 2; i++) {
+      try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+        names.add(sqlSession.getMapper(Mapper.class).getName());
+      }
+    }
+    assertEquals(new HashSet<>(Arrays.asList("Replica1", "Replica2")), names);
+  }
+
+  @Test
+  void shouldReadFromPrimaryAfterWriteUntilCommit() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertTrue(mapper.getName().startsWith("Replica"));
+      mapper.updateName("Changed");
+      assertEquals("Changed", mapper.getName());
+      sqlSession.commit();
+      assertTrue(mapper.getName().startsWith("Replica"));
+      mapper.updateName("Primary");
+    }
+  }
+
+  @Test
+  void shouldReadFromReplicaUntilTransactionWrites() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertTrue(mapper.getName().startsWith("Replica"));
+      mapper.updateName("Changed");
+      assertEquals("Changed", mapper.getName());
+      sqlSession.rollback();
+      assertTrue(mapper.getName().startsWith("Replica"));
+    }
+  }
+
+  @Test
+  void shouldReadFromPrimaryAfterGroupCommittedWrite() {
+    Environment environment = sqlSessionFactory.getConfiguration().getEnvironment();
+    Configuration configuration = new Configuration(environment);
+    configuration.setGroupCommitEnabled(true);
+    configuration.addMapper(Mapper.class);
+    SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(configuration);
+
+    try (SqlSession sqlSession = factory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertTrue(mapper.getName().startsWith("Replica"));
+      // 组提交的写操作不经过读写分离的执行器，之后的查询仍然要在主库上执行
+      mapper.updateName("Grouped");
+      assertEquals("Grouped", mapper.getName());
+      mapper.updateName("Primary");
+    }
+  }
+
+  @Test
+  void shouldKeepLockingReadsOnPrimary() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("Primary", mapper.getNameForUpdate());
+      assertTrue(mapper.getName().startsWith("Replica"));
+    }
+  }
+
+  @Test
+  void shouldEjectFailingReplica() throws Exception {
+    Environment configured = sqlSessionFactory.getConfiguration().getEnvironment();
+    DataSource failing = new UnpooledDataSource() {
+      @Override
+      public Connection getConnection() throws SQLException {
+        throw new SQLNonTransientConnectionException("Replica is down", "08001");
+      }
+    };
+    Environment environment = new Environment("failover", configured.getTransactionFactory(), configured.getDataSource(),
+        Arrays.asList(failing, configured.getReplicaDataSources().get(0)));
+    Configuration configuration = new Configuration(environment);
+    configuration.addMapper(Mapper.class);
+    SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(configuration);
+
+    try (SqlSession sqlSession = factory.openSession(true)) {
+      // 轮询先选中失败的副本，本次查询改在主库上执行
+      assertEquals("Primary", sqlSession.getMapper(Mapper.class).getName());
+    }
+    for (int i = 0; i < 3; i++) {
+      try (SqlSession sqlSession = factory.openSession(true)) {
+        assertEquals("Replica1", sqlSession.getMapper(Mapper.class).getName());
+      }
+    }
+    assertFalse(configuration.getReplicaSet().isAvailable(failing));
+  }
+
+}
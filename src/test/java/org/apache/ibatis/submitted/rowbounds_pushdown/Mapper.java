@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.rowbounds_pushdown;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.session.RowBounds;
+
+public interface Mapper {
+
+  @Select("select id, name from users where id >= #{minId} order by id")
+  List<User> getUsers(int minId, RowBounds rowBounds);
+
+  @Select("select id, name from users where id >= #{minId}")
+  List<User> getUnorderedUsers(int minId, RowBounds rowBounds);
+
+  List<User> getUsersWithRoles(RowBounds rowBounds);
+
+  @Select("select id, name from users where id >= ${minId} order by id")
+  @Options(statementType = StatementType.STATEMENT)
+  List<User> getUsersWithoutPreparedStatement(@Param("minId") int minId, RowBounds rowBounds);
+
+}
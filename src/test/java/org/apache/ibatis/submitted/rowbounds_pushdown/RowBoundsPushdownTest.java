@@ -0,0 +1,219 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.rowbounds_pushdown;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.dialect.OffsetFetchDialect;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetRowBounds;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RowBoundsPushdownTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static final SqlRecorder recorder = new SqlRecorder();
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/rowbounds_pushdown/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(recorder);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/rowbounds_pushdown/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void clearRecorder() {
+    recorder.sqls.clear();
+  }
+
+  @AfterEach
+  void restoreConfiguration() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setRowBoundsPushdownEnabled(true);
+    configuration.setDialect(null);
+  }
+
+  @Test
+  void shouldPushRowBoundsDownAsLimitOffset() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers(2, new RowBounds(2, 3));
+      assertIds(users, 4, 5, 6);
+      assertTrue(recorder.sqls.get(0).endsWith("LIMIT ? OFFSET ?"));
+    }
+  }
+
+  @Test
+  void shouldPushLimitOnlyWhenThereIsNoOffset() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers(1, new RowBounds(0, 2));
+      assertIds(users, 1, 2);
+      assertTrue(recorder.sqls.get(0).endsWith("LIMIT ?"));
+    }
+  }
+
+  @Test
+  void shouldUseExplicitDialect() {
+    sqlSessionFactory.getConfiguration().setDialect(new OffsetFetchDialect());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers(2, new RowBounds(2, 3));
+      assertIds(users, 4, 5, 6);
+      assertTrue(recorder.sqls.get(0).endsWith("OFFSET ? ROWS FETCH NEXT ? ROWS ONLY"));
+    }
+  }
+
+  @Test
+  void shouldUseOffsetFormWithoutOffset() {
+    sqlSessionFactory.getConfiguration().setDialect(new OffsetFetchDialect());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers(1, new RowBounds(0, 2));
+      assertIds(users, 1, 2);
+      // SQL Server does not accept FETCH FIRST without OFFSET
+      assertTrue(recorder.sqls.get(0).endsWith("OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY"));
+    }
+  }
+
+  @Test
+  void shouldSkipRowsOnClientForNestedResultMaps() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersWithRoles(new RowBounds(0, 2));
+      assertIds(users, 1, 2);
+      // the database limit would have counted the two rows of the first user
+      assertEquals(Arrays.asList("admin", "user"), users.get(0).getRoles());
+      assertFalse(recorder.sqls.get(0).contains("LIMIT"));
+    }
+  }
+
+  @Test
+  void shouldRejectKeysetForNestedResultMaps() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      PersistenceException e = assertThrows(PersistenceException.class,
+          () -> mapper.getUsersWithRoles(new KeysetRowBounds("id", null, 2)));
+      assertTrue(e.getMessage().contains("nested result maps"));
+    }
+  }
+
+  @Test
+  void shouldSkipRowsOnClientForPlainStatements() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersWithoutPreparedStatement(2, new RowBounds(2, 3));
+      assertIds(users, 4, 5, 6);
+      // a plain statement cannot bind the placeholders of LIMIT ? OFFSET ?
+      assertFalse(recorder.sqls.get(0).contains("LIMIT"));
+    }
+  }
+
+  @Test
+  void shouldRejectKeysetForPlainStatements() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      PersistenceException e = assertThrows(PersistenceException.class,
+          () -> mapper.getUsersWithoutPreparedStatement(1, new KeysetRowBounds("id", null, 2)));
+      assertTrue(e.getMessage().contains("STATEMENT"));
+    }
+  }
+
+  @Test
+  void shouldSkipRowsOnClientWhenPushdownIsDisabled() {
+    sqlSessionFactory.getConfiguration().setRowBoundsPushdownEnabled(false);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers(2, new RowBounds(2, 3));
+      assertIds(users, 4, 5, 6);
+      assertFalse(recorder.sqls.get(0).contains("LIMIT"));
+    }
+  }
+
+  @Test
+  void shouldPageThroughKeyset() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> all = new ArrayList<>();
+      KeysetRowBounds page = new KeysetRowBounds("id", null, 3);
+      List<User> users;
+      do {
+        users = mapper.getUnorderedUsers(1, page);
+        all.addAll(users);
+        if (!users.isEmpty()) {
+          page = page.next(users.get(users.size() - 1).getId());
+        }
+      } while (users.size() == 3);
+      assertIds(all, 1, 2, 3, 4, 5, 6, 7);
+      assertEquals(3, recorder.sqls.size());
+      assertTrue(recorder.sqls.get(1).contains("keyset_page where id > ?"));
+    }
+  }
+
+  @Test
+  void shouldPageThroughKeysetDescending() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      KeysetRowBounds page = new KeysetRowBounds("id", null, 2, true);
+      assertIds(mapper.getUnorderedUsers(3, page), 7, 6);
+      assertIds(mapper.getUnorderedUsers(3, page.next(6)), 5, 4);
+      assertIds(mapper.getUnorderedUsers(3, page.next(4)), 3);
+    }
+  }
+
+  @Test
+  void shouldRejectInvalidKeysetColumn() {
+    assertThrows(IllegalArgumentException.class, () -> new KeysetRowBounds("id; drop table users", null, 10));
+  }
+
+  private static void assertIds(List<User> users, int... ids) {
+    assertEquals(ids.length, users.size());
+    for (int i = 0; i < ids.length; i++) {
+      assertEquals(ids[i], users.get(i).getId().intValue());
+    }
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+  public static class SqlRecorder implements Interceptor {
+    private final List<String> sqls = new ArrayList<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      sqls.add(((StatementHandler) invocation.getTarget()).getBoundSql().getSql());
+      return invocation.proceed();
+    }
+  }
+
+}
@@ -0,0 +1,34 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.selectkey_block;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.SelectKey;
+
+public interface Mapper {
+
+  int insertPooled(User user);
+
+  int insertRows(User user);
+
+  @SelectKey(statement = "select next value for pooled_seq from (values(0))", keyProperty = "id", before = true,
+      resultType = Long.class, blockSize = 10)
+  @Insert("insert into users (id, name) values (#{id}, #{name})")
+  int insertPooledAnnotated(User user);
+
+  int countUsers();
+
+}
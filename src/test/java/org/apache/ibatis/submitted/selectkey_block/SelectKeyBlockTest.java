@@ -0,0 +1,157 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.selectkey_block;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SelectKeyBlockTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final KeyQueryCounter counter = new KeyQueryCounter();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/selectkey_block/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(counter);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/selectkey_block/CreateDB.sql");
+  }
+
+  @Test
+  void shouldExpandPooledSequenceValue() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Long> ids = new ArrayList<>();
+      for (int i = 0; i < 25; i++) {
+        User user = new User("User" + i);
+        mapper.insertPooled(user);
+        ids.add(user.getId());
+      }
+      for (int i = 0; i < 25; i++) {
+        assertEquals(i + 1, ids.get(i).longValue());
+      }
+      assertEquals(3, counter.count.get());
+      assertEquals(25, mapper.countUsers());
+    }
+  }
+
+  @Test
+  void shouldHandOutKeysFromReturnedRows() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 7; i++) {
+        User user = new User("User" + i);
+        mapper.insertRows(user);
+        assertEquals(1001 + i, user.getId().longValue());
+      }
+      assertEquals(2, counter.count.get());
+    }
+  }
+
+  @Test
+  void shouldSupportBlockSizeOnAnnotation() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 10; i++) {
+        mapper.insertPooledAnnotated(new User("User" + i));
+      }
+      assertEquals(1, counter.count.get());
+    }
+  }
+
+  @Test
+  void shouldNotHandOutTheSameKeyTwiceAcrossThreads() throws Exception {
+    ExecutorService threads = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<List<Long>>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(threads.submit(() -> {
+          List<Long> ids = new ArrayList<>();
+          try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+            Mapper mapper = sqlSession.getMapper(Mapper.class);
+            for (int i = 0; i < 25; i++) {
+              User user = new User("User" + i);
+              mapper.insertPooled(user);
+              ids.add(user.getId());
+            }
+          }
+          return ids;
+        }));
+      }
+      Set<Long> allIds = new HashSet<>();
+      for (Future<List<Long>> future : futures) {
+        allIds.addAll(future.get(10, TimeUnit.SECONDS));
+      }
+      assertEquals(100, allIds.size());
+      assertEquals(10, counter.count.get());
+    } finally {
+      threads.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldRequireBeforeOrderForBlocks() {
+    assertThrows(IllegalArgumentException.class, () -> new SelectKeyGenerator(null, false, 10));
+  }
+
+  @Intercepts(@Signature(type = Executor.class, method = "query",
+      args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class }))
+  public static class KeyQueryCounter implements Interceptor {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+      if (ms.getId().endsWith(SelectKeyGenerator.SELECT_KEY_SUFFIX)) {
+        count.incrementAndGet();
+      }
+      return invocation.proceed();
+    }
+  }
+
+}
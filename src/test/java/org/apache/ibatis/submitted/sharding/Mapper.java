@@ -0,0 +1,60 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.sharding;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.session.RowBounds;
+
+public interface Mapper {
+
+  @Insert("insert into t_order (id, customer_id, amount) values (#{id}, #{customerId}, #{amount})")
+  int insert(Order order);
+
+  @Insert("insert into t_order (id, customer_id, amount) values (#{id}, #{customerId}, #{amount})")
+  @Options(writeBehind = true)
+  int insertWriteBehind(Order order);
+
+  @Select("select id, customer_id, amount from t_order where customer_id = #{customerId} order by id")
+  List<Order> findByCustomer(@Param("customerId") int customerId);
+
+  @Select("select id, customer_id, amount from t_order order by amount desc, id")
+  List<Order> findAllByAmount(RowBounds rowBounds);
+
+  @Select("select id, customer_id, amount from t_order")
+  List<Order> findAll();
+
+  @Select("select count(*) from t_order")
+  long countAll();
+
+  @Select("select max(amount) from t_order")
+  Integer maxAmount();
+
+  @Select("select avg(amount) from t_order")
+  Double averageAmount();
+
+  @Delete("delete from t_order where amount < #{amount}")
+  int deleteCheaperThan(int amount);
+
+  @Delete("delete from t_order")
+  int deleteAll();
+
+}
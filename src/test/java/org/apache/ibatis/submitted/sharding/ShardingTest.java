@@ -0,0 +1,228 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.BulkLoadOptions;
+import org.apache.ibatis.session.BulkLoadProgress;
+import org.apache.ibatis.session.ColumnarResult;
+import org.apache.ibatis.session.ColumnarResult.IntColumn;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ShardingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static List<DataSource> shards;
+
+  private final List<Order> orders = new ArrayList<>();
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/sharding/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    Environment environment = sqlSessionFactory.getConfiguration().getEnvironment();
+    shards = new ArrayList<>();
+    shards.add(environment.getDataSource());
+    shards.addAll(environment.getShardDataSources());
+    for (DataSource shard : shards) {
+      BaseDataTest.runScript(shard, "org/apache/ibatis/submitted/sharding/CreateDB.sql");
+    }
+  }
+
+  @BeforeEach
+  void insertOrders() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.deleteAll();
+      for (int id = 1; id <= 12; id++) {
+        Order order = new Order(id, (id - 1) % 6 + 1, id * 37 % 100);
+        mapper.insert(order);
+        orders.add(order);
+      }
+      sqlSession.commit();
+    }
+  }
+
+  @Test
+  void shouldInsertIntoShardOfCustomer() throws Exception {
+    assertOrdersInShardOfCustomer(4);
+  }
+
+  @Test
+  void shouldRouteWriteBehindInsertsByShardKey() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int customerId = 1; customerId <= 6; customerId++) {
+        mapper.insertWriteBehind(new Order(100 + customerId, customerId, 1));
+      }
+    }
+    sqlSessionFactory.getConfiguration().getWriteBehindQueue().flush();
+    assertOrdersInShardOfCustomer(6);
+  }
+
+  @Test
+  void shouldBulkLoadIntoShardOfCustomer() throws Exception {
+    List<Order> loaded = new ArrayList<>();
+    for (int customerId = 1; customerId <= 6; customerId++) {
+      loaded.add(new Order(100 + customerId, customerId, 1));
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      BulkLoadProgress progress = sqlSession.bulkLoad(Mapper.class.getName() + ".insert", loaded.iterator(),
+          new BulkLoadOptions().batchSize(4).writers(2));
+      assertEquals(6, progress.getRowsLoaded());
+    }
+    assertOrdersInShardOfCustomer(6);
+  }
+
+  @Test
+  void shouldQueryShardOfCustomer() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> found = sqlSession.getMapper(Mapper.class).findByCustomer(4);
+      assertThat(found).extracting(Order::getId).containsExactly(4, 10);
+    }
+  }
+
+  @Test
+  void shouldMergeOrderedResultsOfAllShards() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> found = sqlSession.getMapper(Mapper.class).findAllByAmount(RowBounds.DEFAULT);
+      assertEquals(idsByAmount(), found.stream().map(Order::getId).collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  void shouldApplyRowBoundsAfterMerging() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> found = sqlSession.getMapper(Mapper.class).findAllByAmount(new RowBounds(3, 4));
+      assertEquals(idsByAmount().subList(3, 7), found.stream().map(Order::getId).collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  void shouldConcatenateUnorderedResults() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Order> found = sqlSession.getMapper(Mapper.class).findAll();
+      assertThat(found).extracting(Order::getId).containsExactlyInAnyOrder(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12);
+    }
+  }
+
+  @Test
+  void shouldReadColumnsOfAllShards() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.selectColumns(Mapper.class.getName() + ".findAll", null);
+      assertEquals(12, result.getRowCount());
+      assertThat(result.getColumn("ID", IntColumn.class).getValues())
+          .containsExactlyInAnyOrder(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12);
+    }
+  }
+
+  @Test
+  void shouldMergeAggregates() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(12L, mapper.countAll());
+      assertEquals(Integer.valueOf(96), mapper.maxAmount());
+    }
+  }
+
+  @Test
+  void shouldRejectAverageAcrossShards() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      PersistenceException e = assertThrows(PersistenceException.class, mapper::averageAmount);
+      assertThat(e.getMessage()).contains("avg()");
+    }
+  }
+
+  @Test
+  void shouldDeleteOnAllShards() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(3, mapper.deleteCheaperThan(30));
+      assertEquals(9L, mapper.countAll());
+      sqlSession.commit();
+    }
+  }
+
+  @Test
+  void shouldRollbackAllShards() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int customerId = 1; customerId <= 3; customerId++) {
+        mapper.insert(new Order(100 + customerId, customerId, 1));
+      }
+      assertEquals(15L, mapper.countAll());
+      sqlSession.rollback();
+      assertEquals(12L, mapper.countAll());
+    }
+  }
+
+  @Test
+  void shouldRejectInsertWithoutShardKey() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThrows(PersistenceException.class, () -> mapper.insert(new Order(100, null, 1)));
+    }
+  }
+
+  private void assertOrdersInShardOfCustomer(int ordersPerShard) throws Exception {
+    for (int i = 0; i < shards.size(); i++) {
+      try (Connection conn = shards.get(i).getConnection(); Statement stmt = conn.createStatement()) {
+        assertEquals(ordersPerShard, count(stmt, "select count(*) from t_order"));
+        assertEquals(0, count(stmt, "select count(*) from t_order where mod(customer_id, 3) <> " + i));
+      }
+    }
+  }
+
+  private List<Integer> idsByAmount() {
+    return orders.stream()
+        .sorted(Comparator.comparing(Order::getAmount).reversed().thenComparing(Order::getId))
+        .map(Order::getId)
+        .collect(Collectors.toList());
+  }
+
+  private int count(Statement stmt, String sql) throws Exception {
+    try (ResultSet rs = stmt.executeQuery(sql)) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+}
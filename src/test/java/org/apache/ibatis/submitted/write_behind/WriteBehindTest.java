@@ -0,0 +1,271 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.write_behind;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.executor.writebehind.BackpressurePolicy;
+import org.apache.ibatis.executor.writebehind.PendingWrite;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class WriteBehindTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private Configuration configuration;
+  private final WorkerGate gate = new WorkerGate();
+  private final List<PendingWrite> failedWrites = new CopyOnWriteArrayList<>();
+  private final List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/write_behind/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    configuration = sqlSessionFactory.getConfiguration();
+    configuration.addInterceptor(gate);
+    configuration.setWriteBehindFailureHandler((writes, cause) -> {
+      failedWrites.addAll(writes);
+      failures.add(cause);
+    });
+
+    BaseDataTest.runScript(configuration.getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/write_behind/CreateDB.sql");
+  }
+
+  @AfterEach
+  void tearDown() {
+    gate.open();
+    configuration.getWriteBehindQueue().shutdown(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void shouldMarkWriteBehindStatements() {
+    assertThat(configuration.getMappedStatement("insertEvent").isWriteBehind()).isTrue();
+    assertThat(configuration.getMappedStatement("insertEventNow").isWriteBehind()).isFalse();
+    assertThat(configuration.getMappedStatement("deleteEvent").isWriteBehind()).isTrue();
+  }
+
+  @Test
+  void shouldWriteInBackgroundOutsideOfTheSessionTransaction() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThat(mapper.insertEvent(new Event(1, "a"))).isEqualTo(BatchExecutor.BATCH_UPDATE_RETURN_VALUE);
+      mapper.insertEvent(new Event(2, "b"));
+      mapper.insertEventNow(new Event(3, "c"));
+      // 会话回滚只撤销同步执行的写操作
+      sqlSession.rollback();
+    }
+    configuration.getWriteBehindQueue().flush();
+    assertThat(countEvents()).isEqualTo(2);
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).deleteEvent(1);
+    }
+    configuration.getWriteBehindQueue().flush();
+    assertThat(countEvents()).isEqualTo(1);
+    assertThat(failures).isEmpty();
+  }
+
+  @Test
+  void shouldGroupWritesIntoBatches() {
+    configuration.setWriteBehindBatchSize(50);
+    configuration.setWriteBehindFlushInterval(1000);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 120; i++) {
+        mapper.insertEvent(new Event(i, "event" + i));
+      }
+    }
+    configuration.getWriteBehindQueue().flush();
+    assertThat(countEvents()).isEqualTo(120);
+    // 每个批处理只预编译一次语句
+    assertThat(gate.workerPrepares.get()).isEqualTo(3);
+  }
+
+  @Test
+  void shouldReturnConnectionToPoolAfterEachBatch() {
+    Environment environment = configuration.getEnvironment();
+    PooledDataSource dataSource = new PooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:write_behind", "sa", null);
+    configuration.setEnvironment(new Environment(environment.getId(), environment.getTransactionFactory(), dataSource));
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).insertEvent(new Event(1, "a"));
+    }
+    configuration.getWriteBehindQueue().flush();
+    // 后台线程不能一直占用连接，否则超过poolMaximumCheckoutTime后会被连接池强制回收
+    assertThat(dataSource.getPoolState().getActiveConnectionCount()).isZero();
+    assertThat(countEvents()).isEqualTo(1);
+    dataSource.forceCloseAll();
+  }
+
+  @Test
+  void shouldRejectWritesWhenQueueIsFull() throws Exception {
+    configuration.setWriteBehindQueueCapacity(2);
+    configuration.setWriteBehindBackpressure(BackpressurePolicy.FAIL);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      fillQueue(mapper);
+      assertThatThrownBy(() -> mapper.insertEvent(new Event(4, "d")))
+          .isInstanceOf(PersistenceException.class)
+          .hasMessageContaining("Write-behind queue is full");
+    }
+    gate.open();
+    configuration.getWriteBehindQueue().flush();
+    assertThat(countEvents()).isEqualTo(3);
+  }
+
+  @Test
+  void shouldNotifyDiscardedWrites() throws Exception {
+    configuration.setWriteBehindQueueCapacity(2);
+    configuration.setWriteBehindBackpressure(BackpressurePolicy.DISCARD);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      fillQueue(mapper);
+      Event discarded = new Event(4, "d");
+      mapper.insertEvent(discarded);
+      assertThat(failedWrites).extracting(PendingWrite::getParameter).containsExactly(discarded);
+    }
+    gate.open();
+    configuration.getWriteBehindQueue().flush();
+    assertThat(countEvents()).isEqualTo(3);
+  }
+
+  @Test
+  void shouldWriteOnCallerThreadWhenQueueIsFull() throws Exception {
+    configuration.setWriteBehindQueueCapacity(2);
+    configuration.setWriteBehindBackpressure(BackpressurePolicy.CALLER_RUNS);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      fillQueue(mapper);
+      mapper.insertEvent(new Event(4, "d"));
+      // 后台线程仍被阻塞，只有调用线程执行的写操作已提交
+      assertThat(countEvents()).isEqualTo(1);
+    }
+    gate.open();
+    configuration.getWriteBehindQueue().flush();
+    assertThat(countEvents()).isEqualTo(4);
+  }
+
+  @Test
+  void shouldRollBackFailedBatchAndNotifyHandler() {
+    configuration.setWriteBehindFlushInterval(500);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertEvent(new Event(1, "a"));
+      mapper.insertEvent(new Event(1, "duplicate"));
+    }
+    configuration.getWriteBehindQueue().flush();
+    assertThat(countEvents()).isEqualTo(0);
+    assertThat(failedWrites).hasSize(2);
+    assertThat(failures).singleElement().isInstanceOf(BatchExecutorException.class);
+
+    // 失败之后的批次使用新的连接继续执行
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).insertEvent(new Event(2, "b"));
+    }
+    configuration.getWriteBehindQueue().flush();
+    assertThat(countEvents()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldFlushPendingWritesOnShutdown() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 10; i++) {
+        mapper.insertEvent(new Event(i, "event" + i));
+      }
+      assertThat(configuration.getWriteBehindQueue().shutdown(5, TimeUnit.SECONDS)).isTrue();
+      assertThat(countEvents()).isEqualTo(10);
+      assertThatThrownBy(() -> mapper.insertEvent(new Event(10, "late")))
+          .isInstanceOf(PersistenceException.class)
+          .hasMessageContaining("has been shut down");
+    }
+  }
+
+  /**
+   * 后台线程执行第一条写操作时阻塞，使队列可以被填满
+   */
+  private void fillQueue(Mapper mapper) throws InterruptedException {
+    gate.close();
+    mapper.insertEvent(new Event(1, "a"));
+    assertThat(gate.blocked.await(5, TimeUnit.SECONDS)).isTrue();
+    mapper.insertEvent(new Event(2, "b"));
+    mapper.insertEvent(new Event(3, "c"));
+  }
+
+  private int countEvents() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(Mapper.class).countEvents();
+    }
+  }
+
+  @Intercepts({ @Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }) })
+  private static class WorkerGate implements Interceptor {
+    private final AtomicInteger workerPrepares = new AtomicInteger();
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      if ("mybatis-write-behind".equals(Thread.currentThread().getName())) {
+        workerPrepares.incrementAndGet();
+        blocked.countDown();
+        gate.await(5, TimeUnit.SECONDS);
+      }
+      return invocation.proceed();
+    }
+
+    void close() {
+      gate = new CountDownLatch(1);
+    }
+
+    void open() {
+      gate.countDown();
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+}
@@ -0,0 +1,271 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+import javax.sql.DataSource;
+import javax.sql.rowset.serial.SerialBlob;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+class StreamingBlobTypeHandlerTest extends BaseTypeHandlerTest {
+
+  private static final TypeHandler<Blob> TYPE_HANDLER = new StreamingBlobTypeHandler();
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @Mock
+  protected Blob blob;
+
+  @BeforeAll
+  static void setupSqlSessionFactory() throws Exception {
+    DataSource dataSource = BaseDataTest.createUnpooledDataSource("org/apache/ibatis/type/jdbc.properties");
+    TransactionFactory transactionFactory = new JdbcTransactionFactory();
+    Environment environment = new Environment("Production", transactionFactory, dataSource);
+    Configuration configuration = new Configuration(environment);
+    // spill every value with more than 16 bytes
+    configuration.getTypeHandlerRegistry().register(Blob.class, new StreamingBlobTypeHandler(16, false));
+    configuration.addMapper(Mapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/type/StreamingBlobTypeHandlerTest.sql");
+  }
+
+  @Override
+  @Test
+  public void shouldSetParameter() throws Exception {
+    InputStream in = new ByteArrayInputStream("Hello".getBytes());
+    when(blob.getBinaryStream()).thenReturn(in);
+    when(blob.length()).thenReturn(5L);
+    TYPE_HANDLER.setParameter(ps, 1, blob, null);
+    verify(ps).setBinaryStream(1, in, 5L);
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromResultSetByName() throws Exception {
+    when(rs.getBlob("column")).thenReturn(blob);
+    stubSmallBlob("Hello");
+    assertThat(TYPE_HANDLER.getResult(rs, "column").getBytes(1, 5)).isEqualTo("Hello".getBytes());
+    verify(blob).free();
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromResultSetByName() throws Exception {
+    when(rs.getBlob("column")).thenReturn(null);
+    assertThat(TYPE_HANDLER.getResult(rs, "column")).isNull();
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromResultSetByPosition() throws Exception {
+    when(rs.getBlob(1)).thenReturn(blob);
+    stubSmallBlob("Hello");
+    assertThat(TYPE_HANDLER.getResult(rs, 1).getBytes(1, 5)).isEqualTo("Hello".getBytes());
+    verify(blob).free();
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromResultSetByPosition() throws Exception {
+    when(rs.getBlob(1)).thenReturn(null);
+    assertThat(TYPE_HANDLER.getResult(rs, 1)).isNull();
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromCallableStatement() throws Exception {
+    when(cs.getBlob(1)).thenReturn(blob);
+    stubSmallBlob("Hello");
+    assertThat(TYPE_HANDLER.getResult(cs, 1).getBytes(1, 5)).isEqualTo("Hello".getBytes());
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromCallableStatement() throws Exception {
+    when(cs.getBlob(1)).thenReturn(null);
+    assertThat(TYPE_HANDLER.getResult(cs, 1)).isNull();
+  }
+
+  @Test
+  void shouldSpillLargeValuesToTemporaryFile() throws Exception {
+    when(rs.getBlob(1)).thenReturn(blob);
+    when(blob.length()).thenReturn(11L);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream("Hello World".getBytes()));
+    Blob result = new StreamingBlobTypeHandler(4, false).getResult(rs, 1);
+    verify(blob, never()).getBytes(anyLong(), anyInt());
+    verify(blob).free();
+
+    assertThat(result.length()).isEqualTo(11L);
+    assertThat(result.getBytes(7, 100)).isEqualTo("World".getBytes());
+    assertThat(result.position("World".getBytes(), 1)).isEqualTo(7L);
+    assertThat(result.position("Earth".getBytes(), 1)).isEqualTo(-1L);
+    assertThat(readAll(result.getBinaryStream())).isEqualTo("Hello World".getBytes());
+    assertThat(readAll(result.getBinaryStream(1, 5))).isEqualTo("Hello".getBytes());
+  }
+
+  @Test
+  void shouldDeferReadUntilFirstAccess() throws Exception {
+    when(rs.getBlob(1)).thenReturn(blob);
+    Blob result = new StreamingBlobTypeHandler(4, true).getResult(rs, 1);
+    verifyNoInteractions(blob);
+
+    stubSmallBlob("Hi");
+    assertThat(result.getBytes(1, 2)).isEqualTo("Hi".getBytes());
+    assertThat(result.getBytes(1, 2)).isEqualTo("Hi".getBytes());
+    verify(blob).getBytes(1, 2);
+    verify(blob).free();
+  }
+
+  @Test
+  void shouldUseLobSettingsOfConfiguration() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setLobSpillThreshold(4);
+    configuration.setLazyLobReadingEnabled(true);
+    TypeHandler<Blob> typeHandler = configuration.getTypeHandlerRegistry().getTypeHandler(Blob.class);
+    when(rs.getBlob(1)).thenReturn(blob);
+    Blob result = typeHandler.getResult(rs, 1);
+    verifyNoInteractions(blob);
+
+    when(blob.length()).thenReturn(11L);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream("Hello World".getBytes()));
+    assertThat(result.getBytes(7, 100)).isEqualTo("World".getBytes());
+    verify(blob, never()).getBytes(anyLong(), anyInt());
+    verify(blob).free();
+  }
+
+  @Test
+  void shouldBeReadOnly() throws Exception {
+    when(rs.getBlob(1)).thenReturn(blob);
+    stubSmallBlob("Hello");
+    Blob result = TYPE_HANDLER.getResult(rs, 1);
+    assertThatThrownBy(() -> result.setBytes(1, "J".getBytes())).isInstanceOf(SQLFeatureNotSupportedException.class);
+    assertThatThrownBy(() -> result.truncate(1)).isInstanceOf(SQLFeatureNotSupportedException.class);
+    result.free();
+    assertThatThrownBy(() -> result.getBytes(1, 5)).isInstanceOf(SQLException.class);
+  }
+
+  @Test
+  void shouldSerializeAsSerialBlob() throws Exception {
+    when(rs.getBlob(1)).thenReturn(blob);
+    stubSmallBlob("Hello");
+    Blob result = TYPE_HANDLER.getResult(rs, 1);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(result);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Blob copy = (Blob) in.readObject();
+      assertThat(copy).isInstanceOf(SerialBlob.class);
+      assertThat(copy.getBytes(1, 5)).isEqualTo("Hello".getBytes());
+    }
+  }
+
+  @Test
+  void integrationTest() throws Exception {
+    byte[] content = new byte[100_000];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    LobContent lobContent;
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Mapper mapper = session.getMapper(Mapper.class);
+      mapper.insert(1, content);
+      session.commit();
+      lobContent = mapper.findOne(1);
+    }
+    // the value was spilled to a temporary file and can be read after the session is closed
+    assertThat(lobContent.getContent().length()).isEqualTo(content.length);
+    assertThat(readAll(lobContent.getContent().getBinaryStream())).isEqualTo(content);
+  }
+
+  private void stubSmallBlob(String value) throws SQLException {
+    when(blob.length()).thenReturn((long) value.length());
+    when(blob.getBytes(1, value.length())).thenReturn(value.getBytes());
+  }
+
+  private static byte[] readAll(InputStream in) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+
+  interface Mapper {
+    @Select("SELECT ID, CONTENT FROM TEST_STREAMING_LOB WHERE ID = #{id}")
+    LobContent findOne(int id);
+
+    @Insert("INSERT INTO TEST_STREAMING_LOB (ID, CONTENT) VALUES(#{id}, #{content,jdbcType=BLOB})")
+    void insert(@Param("id") int id, @Param("content") byte[] content);
+  }
+
+  static class LobContent {
+    private int id;
+    private Blob content;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public Blob getContent() {
+      return content;
+    }
+
+    public void setContent(Blob content) {
+      this.content = content;
+    }
+  }
+
+}
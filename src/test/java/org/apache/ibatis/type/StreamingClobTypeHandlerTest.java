@@ -0,0 +1,253 @@
+/**
+ *    Copyright 2009-2020 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.Clob;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+class StreamingClobTypeHandlerTest extends BaseTypeHandlerTest {
+
+  private static final TypeHandler<Clob> TYPE_HANDLER = new StreamingClobTypeHandler();
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @Mock
+  protected Clob clob;
+
+  @BeforeAll
+  static void setupSqlSessionFactory() throws Exception {
+    DataSource dataSource = BaseDataTest.createUnpooledDataSource("org/apache/ibatis/type/jdbc.properties");
+    TransactionFactory transactionFactory = new JdbcTransactionFactory();
+    Environment environment = new Environment("Production", transactionFactory, dataSource);
+    Configuration configuration = new Configuration(environment);
+    // spill every value with more than 8 characters (16 bytes)
+    configuration.getTypeHandlerRegistry().register(Clob.class, new StreamingClobTypeHandler(16, false));
+    configuration.addMapper(Mapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/type/StreamingClobTypeHandlerTest.sql");
+  }
+
+  @Override
+  @Test
+  public void shouldSetParameter() throws Exception {
+    Reader reader = new StringReader("Hello");
+    when(clob.getCharacterStream()).thenReturn(reader);
+    when(clob.length()).thenReturn(5L);
+    TYPE_HANDLER.setParameter(ps, 1, clob, null);
+    verify(ps).setCharacterStream(1, reader, 5L);
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromResultSetByName() throws Exception {
+    when(rs.getClob("column")).thenReturn(clob);
+    stubSmallClob("Hello");
+    assertThat(TYPE_HANDLER.getResult(rs, "column").getSubString(1, 5)).isEqualTo("Hello");
+    verify(clob).free();
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromResultSetByName() throws Exception {
+    when(rs.getClob("column")).thenReturn(null);
+    assertThat(TYPE_HANDLER.getResult(rs, "column")).isNull();
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromResultSetByPosition() throws Exception {
+    when(rs.getClob(1)).thenReturn(clob);
+    stubSmallClob("Hello");
+    assertThat(TYPE_HANDLER.getResult(rs, 1).getSubString(1, 5)).isEqualTo("Hello");
+    verify(clob).free();
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromResultSetByPosition() throws Exception {
+    when(rs.getClob(1)).thenReturn(null);
+    assertThat(TYPE_HANDLER.getResult(rs, 1)).isNull();
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultFromCallableStatement() throws Exception {
+    when(cs.getClob(1)).thenReturn(clob);
+    stubSmallClob("Hello");
+    assertThat(TYPE_HANDLER.getResult(cs, 1).getSubString(1, 5)).isEqualTo("Hello");
+  }
+
+  @Override
+  @Test
+  public void shouldGetResultNullFromCallableStatement() throws Exception {
+    when(cs.getClob(1)).thenReturn(null);
+    assertThat(TYPE_HANDLER.getResult(cs, 1)).isNull();
+  }
+
+  @Test
+  void shouldSpillLargeValuesToTemporaryFile() throws Exception {
+    when(rs.getClob(1)).thenReturn(clob);
+    when(clob.length()).thenReturn(13L);
+    when(clob.getCharacterStream()).thenReturn(new StringReader("Hello, wörld!"));
+    Clob result = new StreamingClobTypeHandler(8, false).getResult(rs, 1);
+    verify(clob, never()).getSubString(anyLong(), anyInt());
+    verify(clob).free();
+
+    assertThat(result.length()).isEqualTo(13L);
+    assertThat(result.getSubString(8, 100)).isEqualTo("wörld!");
+    assertThat(result.position("wörld", 1)).isEqualTo(8L);
+    assertThat(result.position("earth", 1)).isEqualTo(-1L);
+    assertThat(readAll(result.getCharacterStream())).isEqualTo("Hello, wörld!");
+    assertThat(readAll(result.getCharacterStream(1, 5))).isEqualTo("Hello");
+  }
+
+  @Test
+  void shouldDeferReadUntilFirstAccess() throws Exception {
+    when(rs.getClob(1)).thenReturn(clob);
+    Clob result = new StreamingClobTypeHandler(8, true).getResult(rs, 1);
+    verifyNoInteractions(clob);
+
+    stubSmallClob("Hi");
+    assertThat(result.getSubString(1, 2)).isEqualTo("Hi");
+    assertThat(result.getSubString(1, 2)).isEqualTo("Hi");
+    verify(clob).getSubString(1, 2);
+    verify(clob).free();
+  }
+
+  @Test
+  void shouldUseLobSettingsOfConfiguration() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setLobSpillThreshold(8);
+    configuration.setLazyLobReadingEnabled(true);
+    TypeHandler<Clob> typeHandler = configuration.getTypeHandlerRegistry().getTypeHandler(Clob.class);
+    when(rs.getClob(1)).thenReturn(clob);
+    Clob result = typeHandler.getResult(rs, 1);
+    verifyNoInteractions(clob);
+
+    when(clob.length()).thenReturn(13L);
+    when(clob.getCharacterStream()).thenReturn(new StringReader("Hello, wörld!"));
+    assertThat(result.getSubString(8, 100)).isEqualTo("wörld!");
+    verify(clob, never()).getSubString(anyLong(), anyInt());
+    verify(clob).free();
+  }
+
+  @Test
+  void shouldBeReadOnly() throws Exception {
+    when(rs.getClob(1)).thenReturn(clob);
+    stubSmallClob("Hello");
+    Clob result = TYPE_HANDLER.getResult(rs, 1);
+    assertThatThrownBy(() -> result.setString(1, "J")).isInstanceOf(SQLFeatureNotSupportedException.class);
+    assertThatThrownBy(() -> result.truncate(1)).isInstanceOf(SQLFeatureNotSupportedException.class);
+    result.free();
+    assertThatThrownBy(() -> result.getSubString(1, 5)).isInstanceOf(SQLException.class);
+  }
+
+  @Test
+  void integrationTest() throws Exception {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 10_000; i++) {
+      builder.append("line ").append(i).append('\n');
+    }
+    String content = builder.toString();
+    LobContent lobContent;
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Mapper mapper = session.getMapper(Mapper.class);
+      mapper.insert(1, content);
+      session.commit();
+      lobContent = mapper.findOne(1);
+    }
+    // the value was spilled to a temporary file and can be read after the session is closed
+    assertThat(lobContent.getContent().length()).isEqualTo(content.length());
+    assertThat(readAll(lobContent.getContent().getCharacterStream())).isEqualTo(content);
+  }
+
+  private void stubSmallClob(String value) throws SQLException {
+    when(clob.length()).thenReturn((long) value.length());
+    when(clob.getSubString(1, value.length())).thenReturn(value);
+  }
+
+  private static String readAll(Reader reader) throws Exception {
+    StringWriter out = new StringWriter();
+    char[] buffer = new char[4096];
+    int read;
+    while ((read = reader.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return out.toString();
+  }
+
+  interface Mapper {
+    @Select("SELECT ID, CONTENT FROM TEST_STREAMING_CLOB WHERE ID = #{id}")
+    LobContent findOne(int id);
+
+    @Insert("INSERT INTO TEST_STREAMING_CLOB (ID, CONTENT) VALUES(#{id}, #{content,jdbcType=CLOB})")
+    void insert(@Param("id") int id, @Param("content") String content);
+  }
+
+  static class LobContent {
+    private int id;
+    private Clob content;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public Clob getContent() {
+      return content;
+    }
+
+    public void setContent(Clob content) {
+      this.content = content;
+    }
+  }
+
+}